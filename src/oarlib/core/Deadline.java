@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.core;
+
+/**
+ * A wall-clock budget (and cancellation flag) that is shared by a solver and the improvement procedures it
+ * invokes.  Long running loops should poll isExpired() between iterations, and wrap up with the best
+ * solution they have on hand once it returns true.
+ * <p/>
+ * Cancellation may come from any thread.
+ */
+public class Deadline {
+
+    private final long mExpiry; //System.nanoTime() at which the budget runs out
+    private volatile boolean mCancelled;
+
+    private Deadline(long expiry) {
+        mExpiry = expiry;
+        mCancelled = false;
+    }
+
+    /**
+     * @param millis - the number of milliseconds from now until the budget runs out
+     * @return - a deadline that expires millis milliseconds from now
+     */
+    public static Deadline in(long millis) {
+        if (millis < 0)
+            throw new IllegalArgumentException("The time limit must be >= 0.");
+        long now = System.nanoTime();
+        long nanos = millis * 1000000L;
+        //guard against overflow for effectively unbounded budgets
+        if (nanos / 1000000L != millis || now + nanos < now)
+            return none();
+        return new Deadline(now + nanos);
+    }
+
+    /**
+     * @return - a deadline that never expires on its own, (but may still be cancelled)
+     */
+    public static Deadline none() {
+        return new Deadline(Long.MAX_VALUE);
+    }
+
+    /**
+     * @return - true if the budget has run out, or the solve has been cancelled
+     */
+    public boolean isExpired() {
+        return mCancelled || (mExpiry != Long.MAX_VALUE && System.nanoTime() - mExpiry >= 0);
+    }
+
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    public boolean isBounded() {
+        return mExpiry != Long.MAX_VALUE;
+    }
+
+    /**
+     * @return - the number of milliseconds left in the budget, (0 if expired, Long.MAX_VALUE if unbounded)
+     */
+    public long getRemainingMillis() {
+        if (mCancelled)
+            return 0;
+        if (mExpiry == Long.MAX_VALUE)
+            return Long.MAX_VALUE;
+        return Math.max(0, (mExpiry - System.nanoTime()) / 1000000L);
+    }
+}
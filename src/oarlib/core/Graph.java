@@ -25,12 +25,19 @@ package oarlib.core;
 
 import gnu.trove.TIntObjectHashMap;
 import oarlib.exceptions.InvalidEndpointsException;
-import oarlib.graph.util.CommonAlgorithms;
+import oarlib.graph.util.AllPairsShortestPaths;
 import oarlib.graph.util.Pair;
+import oarlib.graph.util.ShortestPathsCache;
+import oarlib.link.impl.AsymmetricLink;
+import org.apache.log4j.Logger;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Graph abstraction.  Provides most general contract for all Graph objects.
@@ -39,18 +46,16 @@ import java.util.List;
  */
 public abstract class Graph<V extends Vertex, E extends Link<V>> {
 
-    private static int graphIdCounter = 1;  //for assigning global ids to graphs
+    private static final Logger LOGGER = Logger.getLogger(Graph.class);
+
+    private static final AtomicInteger graphIdCounter = new AtomicInteger(1);  //for assigning global ids to graphs; graphs are built concurrently by parallel solves
     private int vidCounter; //for assigning internal ids of vertices
     private int eidCounter; //for assigning internal ids of edges
     private int graphId; //id of the graph
     private int depotId; //internal vertex id of the depot
-    private int[][] mDist; //shortest paths dist matrix
-    private int[][] mPath; //shortest paths matrix
-    private int[][] mEdgePath; //shortest paths matrix, with internal edge ids
+    private AllPairsShortestPaths mShortestPaths; //shared shortest paths solution; null if out of date
     protected TIntObjectHashMap<HashSet<Integer>> incidenceMap; // key is vertex id, value is a set of edge ids incident on the vertex
 
-    private boolean distGenerated; //for lazy design pattern; whether or not dist matrix was calculated
-
     /**
      * Default constructor
      */
@@ -60,9 +65,8 @@ public abstract class Graph<V extends Vertex, E extends Link<V>> {
         vidCounter = 1;
         eidCounter = 1;
         depotId = 1; //default
-        distGenerated = false;
         incidenceMap = new TIntObjectHashMap<HashSet<Integer>>();
-        assignGraphId();
+        graphId = assignGraphId();
 
     }
 
@@ -88,12 +92,12 @@ public abstract class Graph<V extends Vertex, E extends Link<V>> {
     }
 
     /**
-     * For extending classes to grab an id, presumably to assign to the graph
+     * For extending classes to grab an id, presumably to assign to the graph.  Unlike vertex and link ids, these are
+     * global, so this is safe to call from several threads at once.
      * @return - the next available graph id
      */
     protected int assignGraphId() {
-        graphIdCounter++;
-        return graphIdCounter - 1;
+        return graphIdCounter.getAndIncrement();
     }
     //endregion
 
@@ -125,28 +129,45 @@ public abstract class Graph<V extends Vertex, E extends Link<V>> {
     //endregion
 
     //region shortest paths
+
+    /**
+     * Lazy getter for the all pairs shortest paths solution.  This is computed once per state of the graph and
+     * shared by all callers, (it's safe to call from several threads), so it must be treated as read-only.  If an
+     * on-disk cache has been set up, (see ShortestPathsCache.getDefault), it's loaded from there when it can be, and
+     * saved there when it has to be computed.
+     *
+     * @return - the shortest paths solution for the graph as it currently stands
+     */
+    public synchronized AllPairsShortestPaths getAllPairsShortestPaths() {
+        if (mShortestPaths == null) {
+            ShortestPathsCache disk = ShortestPathsCache.getDefault();
+            mShortestPaths = (disk == null) ? new AllPairsShortestPaths(this) : disk.loadOrCompute(this);
+        }
+        return mShortestPaths;
+    }
+
+    /**
+     * Hands the graph a shortest paths solution computed elsewhere, (e.g. for an identical copy of it read in by an
+     * earlier request), so that it doesn't have to compute its own.  It's dropped like any other the next time the
+     * graph changes.
+     *
+     * @param sp - a shortest paths solution for a graph with the same vertices, links and costs as this one
+     */
+    public synchronized void setAllPairsShortestPaths(AllPairsShortestPaths sp) {
+        if (sp.getDist().length != getVertices().size() + 1) {
+            LOGGER.error("The shortest paths solution provided is for a graph of a different size.");
+            throw new IllegalArgumentException();
+        }
+        mShortestPaths = sp;
+    }
+
     /**
      * Lazy getter for the dist matrix
      *
      * @return
      */
     public int[][] getAllPairsDistMatrix() {
-        if (!distGenerated) {
-            //generate it
-            int n = getVertices().size();
-            int[][] dist = new int[n + 1][n + 1];
-            int[][] path = new int[n + 1][n + 1];
-            int[][] edgePath = new int[n + 1][n + 1];
-            CommonAlgorithms.fwLeastCostPaths(this, dist, path, edgePath);
-
-            mDist = dist;
-            mPath = path;
-            mEdgePath = edgePath;
-
-            distGenerated = true;
-        }
-
-        return mDist;
+        return getAllPairsShortestPaths().getDist();
     }
 
     /**
@@ -155,21 +176,7 @@ public abstract class Graph<V extends Vertex, E extends Link<V>> {
      * @return
      */
     public int[][] getAllPairsPathMatrix() {
-        if (!distGenerated) {
-            int n = getVertices().size();
-            int[][] dist = new int[n + 1][n + 1];
-            int[][] path = new int[n + 1][n + 1];
-            int[][] edgePath = new int[n + 1][n + 1];
-            CommonAlgorithms.fwLeastCostPaths(this, dist, path, edgePath);
-
-            mDist = dist;
-            mPath = path;
-            mEdgePath = edgePath;
-
-            distGenerated = true;
-        }
-
-        return mPath;
+        return getAllPairsShortestPaths().getPath();
     }
 
     /**
@@ -178,21 +185,50 @@ public abstract class Graph<V extends Vertex, E extends Link<V>> {
      * @return
      */
     public int[][] getAllPairsEdgePathMatrix() {
-        if (!distGenerated) {
-            int n = getVertices().size();
-            int[][] dist = new int[n + 1][n + 1];
-            int[][] path = new int[n + 1][n + 1];
-            int[][] edgePath = new int[n + 1][n + 1];
-            CommonAlgorithms.fwLeastCostPaths(this, dist, path, edgePath);
-
-            mDist = dist;
-            mPath = path;
-            mEdgePath = edgePath;
-
-            distGenerated = true;
+        return getAllPairsShortestPaths().getEdgePath();
+    }
+
+    /**
+     * A hash of everything shortest paths depend on: the graph type, the number of vertices, and the id, endpoints,
+     * direction and travel costs of each link.  The depot and which links are required don't enter into it, so the
+     * same network solved with a different depot or required set has the same fingerprint.  It's stable across runs
+     * and machines, (e.g. for naming files; see ShortestPathsCache).
+     *
+     * @return - the SHA-256 of the graph's topology and costs, in hex
+     */
+    public String getFingerprint() {
+        int maxId = 0;
+        for (E l : getEdges())
+            maxId = Math.max(maxId, l.getId());
+        Link<?>[] byId = new Link<?>[maxId + 1];
+        for (E l : getEdges())
+            byId[l.getId()] = l;
+
+        ByteBuffer buf = ByteBuffer.allocate(4 * (3 + 6 * getEdges().size()));
+        buf.putInt(getType().ordinal());
+        buf.putInt(getVertices().size());
+        buf.putInt(getEdges().size());
+        for (Link<?> l : byId) {
+            if (l == null)
+                continue;
+            buf.putInt(l.getId());
+            buf.putInt(l.getEndpoints().getFirst().getId());
+            buf.putInt(l.getEndpoints().getSecond().getId());
+            buf.putInt(l.isDirected() ? 1 : 0);
+            buf.putInt(l.getCost());
+            buf.putInt(l.isWindy() ? ((AsymmetricLink) l).getReverseCost() : l.getCost());
         }
 
-        return mEdgePath;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(buf.array());
+            StringBuilder sb = new StringBuilder(2 * digest.length);
+            for (byte b : digest)
+                sb.append(String.format("%02x", b & 0xff));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            //every JRE is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
     }
 
     //endregion
@@ -201,8 +237,8 @@ public abstract class Graph<V extends Vertex, E extends Link<V>> {
      * Callback for when the graph changes, (e.g. to set a flag that the distance matrix
      * isn't up to date).
      */
-    public void onStateChange() {
-        distGenerated = false;
+    public synchronized void onStateChange() {
+        mShortestPaths = null;
     }
 
     /**
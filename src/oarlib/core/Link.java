@@ -35,7 +35,7 @@ import org.apache.log4j.Logger;
 public abstract class Link<V extends Vertex> {
 
     private static Logger LOGGER = Logger.getLogger(Link.class);
-    private static int maxTime = 1000000; //default end time for links that aren't assigned a time window
+    private static final int maxTime = 1000000; //default end time for links that aren't assigned a time window
     private String mLabel; //toString
     private int mId; //while this will help us identify the 'same' link in different graphs (graph copies for instance)
     private int mGraphId; //id in which the link sits
@@ -50,12 +50,13 @@ public abstract class MultiVehicleSolver<V extends Vertex, E extends Link<V>, G
      * @param numParts - the number of parts to partition the graph into, (e.g. 4 means the vertices will be partitioned
      *                 4 parts.
      * @param filename - the file path to the location of the graph file.  In order to work properly, this file must be in the
-     *                 format expected by the METIS library; see the manual for details.
+     *                 format expected by the METIS library; see the manual for details.  METIS is seeded with the seed
+     *                 of the solve's context, so the same seed gives the same partition.
      */
     protected void runMetis(int numParts, String filename) {
         try {
             //run gpmetis
-            String[] args1 = {"/usr/local/bin/gpmetis", filename, "" + numParts, "-contig", "-minconn", "-niter=1000", "-ncuts=1000", "-ufactor=1"};
+            String[] args1 = {"/usr/local/bin/gpmetis", filename, "" + numParts, "-contig", "-minconn", "-niter=1000", "-ncuts=1000", "-ufactor=1", "-seed=" + (mContext.getSeed() & Integer.MAX_VALUE)};
             Runtime r = Runtime.getRuntime();
             LOGGER.debug("Start");
             Process p = r.exec(args1);
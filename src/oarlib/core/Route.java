@@ -28,6 +28,7 @@ import gnu.trove.TIntIntHashMap;
 import oarlib.display.GraphDisplay;
 import oarlib.graph.impl.UndirectedGraph;
 import oarlib.link.impl.AsymmetricLink;
+import oarlib.route.util.PackedBooleanArrayList;
 import oarlib.vertex.impl.UndirectedVertex;
 import org.apache.log4j.Logger;
 
@@ -35,6 +36,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Route abstraction. Most general contract that routes must fulfill.
@@ -44,12 +46,15 @@ import java.util.Set;
 public abstract class Route<V extends Vertex, E extends Link<V>> {
 
     private static final Logger LOGGER = Logger.getLogger(Route.class);
-    private static int routeIDCounter = 1;
+    private static final AtomicInteger routeIDCounter = new AtomicInteger(1); //routes are built concurrently by parallel searches
+    private static final long PATH_HASH_MULTIPLIER = 0x100000001B3L; //the 64-bit FNV prime; any odd constant makes the path hash order sensitive
 
     protected int mCost; // cost of the route
     protected int mServCost; // traversal cost of the serviced links in the route (DOES NOT INCLUDE SERVICE TIMES, ONLY TRAVEL, SINCE NOT ALL TYPES OF LINKS HAVE SEPARATE SERVICE TIMES)
     protected TIntIntHashMap mCustomIDMap; // 1-1 map that allows toString to correspond vertices in another graph than the one that the links come from.
     protected ArrayList<E> mRoute; // the ordered of links that comprise this route
+    //the flags are PackedBooleanArrayLists, (bit-packed, but typed as ArrayLists, since that's what the getters have always handed out)
+    //all of these lists may be shared with deep copies of this route; see ensureUnshared before editing them
     protected ArrayList<Boolean> traversalDirection; // the ith entry is true if the ith link in the route is traversed from first to second
     protected TIntArrayList compactRepresentation; // the ith entry is link id of the ith serviced link
     protected ArrayList<Boolean> compactTD; // the ith entry is true if the ith serviced link is traversed first to second
@@ -58,6 +63,9 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
     // beginning until an edge not attached to the depot is added.
     protected boolean directionDetermined;
     private int mGlobalId;
+    private long mPathHash; // polynomial hash of the link ids in mRoute, in order
+    private long mRequiredHash; // sum of the keys of the link ids in compactRepresentation, in any order
+    private volatile boolean mShared; // true if the lists above may be shared with a deep copy, (see setVars)
 
 
     //default constructor
@@ -67,11 +75,11 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
         mServCost = 0;
         mCustomIDMap = new TIntIntHashMap();
         mRoute = new ArrayList<E>();
-        traversalDirection = new ArrayList<Boolean>();
+        traversalDirection = new PackedBooleanArrayList();
         compactRepresentation = new TIntArrayList();
-        compactTD = new ArrayList<Boolean>();
-        servicing = new ArrayList<Boolean>();
-        mGlobalId = routeIDCounter++;
+        compactTD = new PackedBooleanArrayList();
+        servicing = new PackedBooleanArrayList();
+        mGlobalId = routeIDCounter.getAndIncrement();
         directionDetermined = false;
 
     }
@@ -89,22 +97,59 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
         mCustomIDMap = customIDMap;
     }
 
+    /**
+     * @return - a copy of this route, with the same global id.  Copies are copy-on-write: the copy shares its lists
+     * with this route until either of them is changed through appendEdge or changeService, so taking a copy (e.g. a
+     * snapshot of the incumbent solution) is O(1) in the length of the route.
+     */
     public abstract Route<V,E> getDeepCopy();
 
     protected void setVars(Route<V,E> origin){
         mCost = origin.getCost();
         mServCost = origin.getReqCost();
         mCustomIDMap = new TIntIntHashMap(origin.getMapping());
-        mRoute = new ArrayList<E>(origin.getPath());
-        traversalDirection = new ArrayList<Boolean>(origin.getTraversalDirection());
-        compactRepresentation = new TIntArrayList();
-        for(int i = 0; i < origin.compactRepresentation.size(); i++) {
-            compactRepresentation.add(origin.getCompactRepresentation().get(i));
-        }
-        compactTD = new ArrayList<Boolean>(origin.getCompactTraversalDirection());
-        servicing = new ArrayList<Boolean>(origin.getServicingList());
+        mRoute = origin.mRoute;
+        traversalDirection = origin.traversalDirection;
+        compactRepresentation = origin.compactRepresentation;
+        compactTD = origin.compactTD;
+        servicing = origin.servicing;
         mGlobalId = origin.getGlobalId();
         directionDetermined = origin.directionDetermined;
+        mPathHash = origin.mPathHash;
+        mRequiredHash = origin.mRequiredHash;
+
+        markShared(origin);
+    }
+
+    /**
+     * Records that this route has taken on the lists of the other, so that both have to copy before they write.
+     */
+    protected void markShared(Route<V,E> other) {
+        other.mShared = true;
+        mShared = true;
+    }
+
+    /**
+     * To be called before any edit to the lists of this route, so that a copy sharing them, (see getDeepCopy), doesn't
+     * see the edit.  If the lists might be shared, this route takes its own copies of them; the copy it shared them
+     * with keeps the originals, which nobody edits from then on.
+     */
+    protected void ensureUnshared() {
+        if (!mShared)
+            return;
+        mRoute = new ArrayList<E>(mRoute);
+        traversalDirection = new PackedBooleanArrayList(traversalDirection);
+        compactRepresentation = new TIntArrayList(compactRepresentation.toNativeArray());
+        compactTD = new PackedBooleanArrayList(compactTD);
+        servicing = new PackedBooleanArrayList(servicing);
+        mShared = false;
+    }
+
+    /**
+     * @return - true if this route may share its lists with a copy, (mostly for testing)
+     */
+    public boolean isShared() {
+        return mShared;
     }
 
     public void exportRouteToPDF(String instanceName, int depotId) {
@@ -188,7 +233,7 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
     }
 
     /**
-     * Retrieve the current route.
+     * Retrieve the current route.  The list may be shared with copies of this route, so don't edit it in place.
      *
      * @return List of edges to be traversed from first to last
      */
@@ -206,7 +251,8 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
     }
 
     /**
-     * Retrive the compact representation of this route
+     * Retrive the compact representation of this route.  The list may be shared with copies of this route, so don't
+     * edit it in place; copy it, (e.g. toNativeArray()), instead.
      *
      * @return List of ids that should correpsond to flattening the route.
      */
@@ -215,7 +261,8 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
     }
 
     /**
-     * Retrive a list of booleans, where the ith entry is true if we service the ith link in the route
+     * Retrive a list of booleans, where the ith entry is true if we service the ith link in the route.  The list may be
+     * shared with copies of this route, so don't edit it in place.
      *
      * @return List of booleans corresponding to whether or not the link is serviced in this route.
      */
@@ -228,9 +275,10 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
     }
 
     /**
-     * Retrive a copy of the traversal direction arraylist.  An ith entry value of
+     * Retrive the traversal direction arraylist.  An ith entry value of
      * true means the ith entry of the compact route
-     * is traversed first -> second, false second -> first.
+     * is traversed first -> second, false second -> first.  The list may be shared with copies of this route, so
+     * don't edit it in place.
      *
      * @return List of booleans corresponding to whether or not the link is traversed 'forward.'
      */
@@ -260,6 +308,8 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
             throw new IllegalArgumentException();
         }
 
+        ensureUnshared();
+
         boolean isWindy, lreq;
 
         isWindy = l.isWindy();
@@ -273,9 +323,13 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
         if (mRoute.size() == 0) {
             servicing.add(service);
             mRoute.add(l);
+            mPathHash = mPathHash * PATH_HASH_MULTIPLIER + linkKey(l.getId());
             return;
         }
 
+        //the first link is only added to the compact representation along with the second, so hash whatever gets added
+        int compactBefore = compactRepresentation.size();
+
         //grab the last guy in the route and make sure the one to be added shares an endpoint,
         //and orient it appropriately
         E temp = mRoute.get(mRoute.size() - 1);
@@ -351,72 +405,96 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
 
         //TODO: Check for directed contraints as well
 
-        if (!isWindy) {
-            trueCost = l.getCost();
-            if (lreq && service) {
-                compactRepresentation.add(l.getId());
-            }
-        }
-        //check for same conn.
-        else if (lFirst == tempFirst && lSecond == tempSecond) {
-            boolean tempTD = !traversalDirection.get(traversalDirection.size() - 1);
-            if (tempTD) {
-                trueCost = l.getCost();
-                traversalDirection.add(true);
-                if (lreq && service) {
-                    compactTD.add(true);
-                    compactRepresentation.add(l.getId());
-                }
-            } else {
-                trueCost = ((AsymmetricLink) l).getReverseCost();
-                traversalDirection.add(false);
-                if (lreq && service) {
-                    compactTD.add(false);
-                    compactRepresentation.add(l.getId());
-                }
-            }
-        } else if (lFirst == tempSecond && lSecond == tempFirst) {
-            boolean tempTD = traversalDirection.get(traversalDirection.size() - 1);
-            if (tempTD) {
-                trueCost = l.getCost();
-                traversalDirection.add(true);
-                if (lreq && service) {
-                    compactTD.add(true);
-                    compactRepresentation.add(l.getId());
-                }
-            } else {
-                trueCost = ((AsymmetricLink) l).getReverseCost();
-                traversalDirection.add(false);
-                if (lreq && service) {
-                    compactTD.add(false);
-                    compactRepresentation.add(l.getId());
-                }
-            }
-        } else if (lFirst == tempFirst || lFirst == tempSecond) {
-            trueCost = l.getCost();
-            traversalDirection.add(true);
-            if (lreq && service) {
-                compactTD.add(true);
-                compactRepresentation.add(l.getId());
-            }
-        } else if (lSecond == tempFirst || lSecond == tempSecond) {
-            trueCost = ((AsymmetricLink) l).getReverseCost();
-            traversalDirection.add(false);
-            if (lreq && service) {
-                compactTD.add(false);
-                compactRepresentation.add(l.getId());
-            }
-        } else {
+        //orient l off of the previous link, (non-windy links are oriented too, so that there's a direction for every link)
+        boolean forward;
+        if (lFirst == tempFirst && lSecond == tempSecond)
+            forward = !traversalDirection.get(traversalDirection.size() - 1);
+        else if (lFirst == tempSecond && lSecond == tempFirst)
+            forward = traversalDirection.get(traversalDirection.size() - 1);
+        else if (lFirst == tempFirst || lFirst == tempSecond)
+            forward = true;
+        else if (lSecond == tempFirst || lSecond == tempSecond)
+            forward = false;
+        else {
             LOGGER.error("The link you're attempting to add doens't share an endpoint with the previous one.");
             throw new IllegalArgumentException();
         }
 
+        trueCost = (forward || !isWindy) ? l.getCost() : ((AsymmetricLink) l).getReverseCost();
+        traversalDirection.add(forward);
+        if (lreq && service) {
+            compactTD.add(forward);
+            compactRepresentation.add(l.getId());
+        }
+
         servicing.add(service);
         mRoute.add(l);
         mCost += trueCost;
         if (l.isRequired() && service)
             mServCost += trueCost;
 
+        mPathHash = mPathHash * PATH_HASH_MULTIPLIER + linkKey(l.getId());
+        for (int i = compactBefore; i < compactRepresentation.size(); i++)
+            mRequiredHash += linkKey(compactRepresentation.get(i));
+    }
+
+    /**
+     * Builds the route from a walk whose directions are already known, in a single pass; this is the fast way to
+     * turn the output of an expansion or an Euler tour into a route.  Unlike appendEdge, nothing is inferred from the
+     * endpoints; the directions and service flags are taken as given.
+     *
+     * @param links   - the links of the walk, in order
+     * @param forward - the ith entry is true if the ith link is traversed from first to second
+     * @param service - the ith entry is true if the ith link is serviced by this route
+     */
+    public void buildPath(List<? extends E> links, boolean[] forward, boolean[] service) throws IllegalArgumentException {
+
+        //error check
+        if (!mRoute.isEmpty()) {
+            LOGGER.error("A path may only be built on an empty route; use appendEdge to extend one.");
+            throw new IllegalArgumentException();
+        }
+        int n = links.size();
+        if (forward.length != n || service.length != n) {
+            LOGGER.error("The links, directions and service flags are of different lengths.");
+            throw new IllegalArgumentException();
+        }
+
+        ensureUnshared();
+        mRoute.ensureCapacity(n);
+
+        E l;
+        boolean lreq;
+        int trueCost;
+        int prevEnd = -1;
+        for (int i = 0; i < n; i++) {
+            l = links.get(i);
+            lreq = (l.isRequired() || (l.isWindy() && ((AsymmetricLink) l).isReverseRequired()));
+            if (service[i] && !lreq) {
+                LOGGER.error("You cannot service a link that does not demand service.");
+                throw new IllegalArgumentException();
+            }
+            if (i > 0 && (forward[i] ? l.getFirstEndpointId() : l.getSecondEndpointId()) != prevEnd) {
+                LOGGER.error("The link at position " + i + " doesn't start where the previous one ends.");
+                throw new IllegalArgumentException();
+            }
+            prevEnd = forward[i] ? l.getSecondEndpointId() : l.getFirstEndpointId();
+
+            trueCost = (forward[i] || !l.isWindy()) ? l.getCost() : ((AsymmetricLink) l).getReverseCost();
+            mCost += trueCost;
+            if (service[i]) {
+                if (l.isRequired())
+                    mServCost += trueCost;
+                compactRepresentation.add(l.getId());
+                compactTD.add(forward[i]);
+                mRequiredHash += linkKey(l.getId());
+            }
+            mRoute.add(l);
+            traversalDirection.add(forward[i]);
+            servicing.add(service[i]);
+            mPathHash = mPathHash * PATH_HASH_MULTIPLIER + linkKey(l.getId());
+        }
+        directionDetermined = n > 0;
     }
 
     /**
@@ -585,6 +663,8 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
             return false;
         }
 
+        ensureUnshared();
+
         //figure out what position we're at in the compact representations
         int compactPos = 0;
         for (int i = 0; i < position; i++) {
@@ -598,6 +678,7 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
             servicing.set(position, false);
             compactRepresentation.remove(compactPos);
             compactTD.remove(compactPos);
+            updateRequiredHash(mRoute.get(position).getId(), false);
             if(!mRoute.get(position).isWindy() || traversalDirection.get(position))
                 mServCost -= mRoute.get(position).getCost();
             else {
@@ -608,6 +689,7 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
             servicing.set(position, true);
             compactRepresentation.insert(compactPos, mRoute.get(position).getId());
             compactTD.add(compactPos, traversalDirection.get(position));
+            updateRequiredHash(mRoute.get(position).getId(), true);
             if(!mRoute.get(position).isWindy() || traversalDirection.get(position))
                 mServCost += mRoute.get(position).getCost();
             else {
@@ -618,19 +700,58 @@ public abstract class Route<V extends Vertex, E extends Link<V>> {
         return true;
     }
 
+    //region Hashing
+
     /**
-     * @return - a hash function
+     * @return - a hash of the route, combining the path hash and the required hash; it's maintained as links are
+     * added, so this is O(1)
      */
     public long getHash() {
+        return mPathHash * PATH_HASH_MULTIPLIER + mRequiredHash;
+    }
 
-        long hash = 5381;
-        String mString = toString();
-        for (int i = 0; i < mString.length(); i++) {
-            hash = hash * 33 + mString.charAt(i);
-        }
+    /**
+     * @return - a hash of the sequence of links traversed; routes that traverse the same links in a different order
+     * (almost surely) hash differently
+     */
+    public long getPathHash() {
+        return mPathHash;
+    }
+
+    /**
+     * @return - a hash of the set of links serviced, (i.e. the compact representation), which doesn't depend on the
+     * order in which they're serviced; routes servicing the same links hash the same, so this is the one to key
+     * route assignments on
+     */
+    public long getRequiredHash() {
+        return mRequiredHash;
+    }
 
-        return hash;
+    /**
+     * Keeps the required hash in sync for subclasses that edit the compact representation directly, (after calling
+     * ensureUnshared).
+     *
+     * @param linkId - the id of the link added to or removed from the compact representation
+     * @param added  - true if it was added, false if it was removed
+     */
+    public void updateRequiredHash(int linkId, boolean added) {
+        if (added)
+            mRequiredHash += linkKey(linkId);
+        else
+            mRequiredHash -= linkKey(linkId);
     }
 
+    /**
+     * @return - the (Zobrist-style) random key of a link id, from the splitmix64 finalizer, so that no table is needed
+     */
+    public static long linkKey(int linkId) {
+        long z = linkId * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    //endregion
+
 
 }
@@ -0,0 +1,190 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.core;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * Everything a solve needs that used to live in statics or at fixed paths, so that many independent solves can run
+ * side by side in one process: the random number generator, a private working directory for the files handed to
+ * external programs, (e.g. METIS), and where reports go.
+ * <p/>
+ * A context belongs to one solve, (and is handed down to the sub-solvers and improvement procedures it invokes, see
+ * Solver.inheritAnytime); a solver that isn't given one makes its own, and closes it at the end of trySolve.  The
+ * working directory is created the first time it's asked for, and deleted by close if the context created it.
+ */
+public class SolveContext implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(SolveContext.class);
+
+    //region Parameters
+
+    public static final long DEFAULT_SEED = 1000;
+
+    //endregion
+
+    private final String mName;
+    private final long mSeed;
+    private final Random mRandom;
+    private File mWorkingDirectory;
+    private boolean mOwnsWorkingDirectory;
+    private File mReportDirectory;
+
+    public SolveContext() {
+        this("solve", DEFAULT_SEED);
+    }
+
+    /**
+     * @param name - identifies the solve, (e.g. the instance name); used to name the working directory
+     * @param seed - the seed for the random number generator
+     */
+    public SolveContext(String name, long seed) {
+        mName = name;
+        mSeed = seed;
+        mRandom = new Random(seed);
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public long getSeed() {
+        return mSeed;
+    }
+
+    /**
+     * @return - the random number generator for the solve
+     */
+    public Random getRandom() {
+        return mRandom;
+    }
+
+    /**
+     * @return - a new generator, seeded from this one, for a search that runs on its own, (e.g. on another thread)
+     */
+    public Random newRandom() {
+        return new Random(mRandom.nextLong());
+    }
+
+    //region Files
+
+    /**
+     * @param dir - the directory to use for this solve's files; it's left alone by close
+     */
+    public synchronized void setWorkingDirectory(File dir) {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            LOGGER.error("Could not create the working directory " + dir + ".");
+            throw new IllegalArgumentException();
+        }
+        mWorkingDirectory = dir;
+        mOwnsWorkingDirectory = false;
+    }
+
+    /**
+     * @return - the directory for this solve's files, (a new temporary directory unless one was set)
+     */
+    public synchronized File getWorkingDirectory() throws IOException {
+        if (mWorkingDirectory == null) {
+            File dir = File.createTempFile("oarlib-" + mName + "-", "");
+            if (!dir.delete() || !dir.mkdir())
+                throw new IOException("Could not create a working directory at " + dir + ".");
+            mWorkingDirectory = dir;
+            mOwnsWorkingDirectory = true;
+        }
+        return mWorkingDirectory;
+    }
+
+    /**
+     * @param fileName - the name of the file, which may include subdirectories, (e.g. "Sols/route.txt")
+     * @return - the file of that name in this solve's working directory, (not created, though its directory is)
+     */
+    public File newWorkFile(String fileName) throws IOException {
+        File ans = new File(getWorkingDirectory(), fileName);
+        File dir = ans.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Could not create the directory " + dir + ".");
+        return ans;
+    }
+
+    /**
+     * @param dir - where reports should be written, (the current directory if this isn't set)
+     */
+    public synchronized void setReportDirectory(File dir) {
+        mReportDirectory = dir;
+    }
+
+    /**
+     * @param fileName - the name of the report
+     * @return - a writer for the report, which the caller has to close
+     */
+    public PrintWriter openReport(String fileName) throws IOException {
+        return openReport(fileName, false);
+    }
+
+    /**
+     * @param fileName - the name of the report
+     * @param append   - true to add to the end of the report if it already exists, (e.g. one line per solve)
+     * @return - a writer for the report, which the caller has to close
+     */
+    public PrintWriter openReport(String fileName, boolean append) throws IOException {
+        File dir;
+        synchronized (this) {
+            dir = (mReportDirectory == null) ? new File(System.getProperty("user.dir")) : mReportDirectory;
+        }
+        File report = new File(dir, fileName);
+        LOGGER.info("Writing the report " + report.getAbsolutePath() + ".");
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(report, append), "UTF-8")));
+    }
+
+    /**
+     * Deletes the working directory and everything in it, if this context created it.
+     */
+    @Override
+    public synchronized void close() {
+        if (mWorkingDirectory != null && mOwnsWorkingDirectory) {
+            delete(mWorkingDirectory);
+            mWorkingDirectory = null;
+        }
+    }
+
+    private static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null)
+            for (File child : children)
+                delete(child);
+        if (!f.delete())
+            LOGGER.warn("Could not delete " + f + ".");
+    }
+
+    //endregion
+}
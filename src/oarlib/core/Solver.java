@@ -26,6 +26,10 @@
 package oarlib.core;
 
 import oarlib.exceptions.GraphInfeasibleException;
+import oarlib.improvements.ImprovementProcedure;
+import oarlib.improvements.util.BestSolutionHolder;
+import oarlib.metrics.MaxMetric;
+import oarlib.metrics.Metric;
 import oarlib.problem.impl.ProblemAttributes;
 import org.apache.log4j.Logger;
 
@@ -40,6 +44,12 @@ public abstract class Solver<V extends Vertex, E extends Link<V>, G extends Grap
     private static final Logger LOGGER = Logger.getLogger(SingleVehicleSolver.class);
 
     protected Problem<V, E, G> mInstance;
+    protected Deadline mDeadline;
+    protected SolveContext mContext;
+    private boolean mOwnsContext; //true if mContext was made here rather than handed in, so trySolve should close it
+    private IncumbentListener<V, E> mIncumbentListener;
+    private Collection<Route<V, E>> mIncumbent;
+    private double mIncumbentObj;
 
     /**
      * Default constructor; must set problem instance.
@@ -52,6 +62,9 @@ public abstract class Solver<V extends Vertex, E extends Link<V>, G extends Grap
             throw new IllegalArgumentException("It appears that this problem does not match the problem type handled by this solver.");
         }
         mInstance = instance;
+        mDeadline = Deadline.none();
+        setContext(null);
+        mIncumbentObj = Double.MAX_VALUE;
     }
 
     /**
@@ -62,9 +75,171 @@ public abstract class Solver<V extends Vertex, E extends Link<V>, G extends Grap
     public Collection<? extends Route> trySolve() throws GraphInfeasibleException {
         if (!checkGraphRequirements())
             throw new GraphInfeasibleException();
-        return solve();
+        //incumbents from a previous solve mustn't leak into this one
+        mIncumbent = null;
+        mIncumbentObj = Double.MAX_VALUE;
+        try {
+            Collection<? extends Route> ans = solve();
+            if (ans == null && mIncumbent != null) {
+                LOGGER.warn("The solver did not return a solution; falling back on the best incumbent found.");
+                return mIncumbent;
+            }
+            return ans;
+        } finally {
+            //a context that was handed in belongs to the caller, (and outlives this solve)
+            if (mOwnsContext)
+                mContext.close();
+        }
+    }
+
+    /**
+     * Attempts to solve the instance assigned to this problem, wrapping up with the best incumbent found
+     * once timeLimit milliseconds have elapsed.
+     *
+     * @param timeLimit - the time budget for the solve, in milliseconds
+     * @return null if problem instance is not assigned, or solver failed.
+     */
+    public Collection<? extends Route> trySolve(long timeLimit) throws GraphInfeasibleException {
+        setTimeLimit(timeLimit);
+        return trySolve();
+    }
+
+    /**
+     * Attempts to solve the instance assigned to this problem, drawing randomness, shortest paths and working files
+     * from the provided context, (so that several solves can run side by side without stepping on each other).
+     *
+     * @param context - the context for the solve
+     * @return null if problem instance is not assigned, or solver failed.
+     */
+    public Collection<? extends Route> trySolve(SolveContext context) throws GraphInfeasibleException {
+        setContext(context);
+        return trySolve();
+    }
+
+    /**
+     * @param context - the context for the solve, which the caller has to close; null gives the solver a fresh default
+     *                one, which trySolve closes
+     */
+    public void setContext(SolveContext context) {
+        mOwnsContext = context == null;
+        mContext = mOwnsContext ? new SolveContext() : context;
+    }
+
+    public SolveContext getContext() {
+        return mContext;
+    }
+
+    //region Anytime
+
+    /**
+     * Bounds the solve by the provided deadline.  Solvers poll the deadline between iterations (and hand it down to
+     * the improvement procedures they invoke), and return the best incumbent they have once it expires.
+     *
+     * @param deadline - the deadline to respect; null removes any existing bound
+     */
+    public void setDeadline(Deadline deadline) {
+        mDeadline = (deadline == null) ? Deadline.none() : deadline;
+    }
+
+    public Deadline getDeadline() {
+        return mDeadline;
+    }
+
+    /**
+     * @param timeLimit - the time budget, in milliseconds from now
+     */
+    public void setTimeLimit(long timeLimit) {
+        setDeadline(Deadline.in(timeLimit));
+    }
+
+    /**
+     * Asks a running solve to stop as soon as possible, and return its best incumbent.  Safe to call from another thread.
+     */
+    public void cancel() {
+        mDeadline.cancel();
+    }
+
+    /**
+     * @return - true if the solver should stop searching and return its best incumbent
+     */
+    protected boolean isTimeUp() {
+        return mDeadline.isExpired();
+    }
+
+    /**
+     * @param listener - to be notified each time the solver finds an improving solution; null to stop listening
+     */
+    public void setIncumbentListener(IncumbentListener<V, E> listener) {
+        mIncumbentListener = listener;
+    }
+
+    public IncumbentListener<V, E> getIncumbentListener() {
+        return mIncumbentListener;
+    }
+
+    /**
+     * @return - the best solution that has been offered via offerIncumbent so far, (null if none)
+     */
+    public Collection<Route<V, E>> getIncumbent() {
+        return mIncumbent;
+    }
+
+    /**
+     * Records a snapshot of the candidate as the incumbent if it beats the current one under the problem's objective,
+     * and notifies the listener if so.  The caller is free to keep modifying the candidate afterwards.
+     *
+     * @param candidate - a feasible solution
+     * @return - true if the candidate became the new incumbent
+     */
+    protected boolean offerIncumbent(Collection<Route<V, E>> candidate) {
+        if (candidate == null || candidate.isEmpty())
+            return false;
+        Metric obj = mInstance.getObjectiveFunction();
+        if (obj == null)
+            obj = new MaxMetric();
+        double candidateObj = obj.evaluate(candidate);
+        if (candidateObj >= mIncumbentObj)
+            return false;
+        mIncumbent = BestSolutionHolder.copy(candidate);
+        mIncumbentObj = candidateObj;
+        if (mIncumbentListener != null)
+            mIncumbentListener.onIncumbent(mIncumbent, candidateObj);
+        return true;
+    }
+
+    /**
+     * Hands this solver's deadline down to an improvement procedure (or sub-solver) that it invokes, and routes
+     * the improving solutions it finds back through offerIncumbent.  It shares this solver's context too, (so the
+     * solve's seed decides the procedure's randomness).
+     *
+     * @param improver - the nested procedure
+     * @return - improver, for chaining
+     */
+    protected <T extends ImprovementProcedure<V, E, G>> T inheritAnytime(T improver) {
+        improver.setDeadline(mDeadline);
+        improver.setContext(mContext);
+        improver.setIncumbentListener(forwardingListener());
+        return improver;
+    }
+
+    protected <T extends Solver<V, E, G>> T inheritAnytime(T subSolver) {
+        subSolver.setDeadline(mDeadline);
+        subSolver.setContext(mContext);
+        subSolver.setIncumbentListener(forwardingListener());
+        return subSolver;
+    }
+
+    private IncumbentListener<V, E> forwardingListener() {
+        return new IncumbentListener<V, E>() {
+            @Override
+            public void onIncumbent(Collection<Route<V, E>> incumbent, double objValue) {
+                offerIncumbent(incumbent);
+            }
+        };
     }
 
+    //endregion
+
     /**
      * Determines if the graph meets theoretical requirements for this solver to be run on it.
      *
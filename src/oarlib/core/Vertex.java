@@ -30,6 +30,7 @@ import org.apache.log4j.Logger;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -41,7 +42,7 @@ public abstract class Vertex {
 
     private static final Logger LOGGER = Logger.getLogger(Vertex.class);
 
-    private static int counter = 1; //for assigning global vertex ids
+    private static final AtomicInteger counter = new AtomicInteger(1); //for assigning global vertex ids; vertices are built concurrently by parallel solves
     private String mLabel;
     private int mGraphId;
     private int mId; //id in the graph, (1,2,3...)
@@ -63,8 +64,7 @@ public abstract class Vertex {
         setCost(0);
         setSize(0);
         setLabel(label);
-        setGuid(counter);
-        counter++;
+        setGuid(counter.getAndIncrement());
         demandSet = false;
         hasCoordinates = false;
         isFinalized = false;
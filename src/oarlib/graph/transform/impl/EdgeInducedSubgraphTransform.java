@@ -34,6 +34,7 @@ import oarlib.graph.impl.WindyGraph;
 import oarlib.graph.transform.GraphTransformer;
 import oarlib.graph.util.CommonAlgorithms;
 import oarlib.graph.util.Pair;
+import oarlib.graph.util.SubgraphView;
 import oarlib.link.impl.Arc;
 import oarlib.link.impl.Edge;
 import oarlib.link.impl.WindyEdge;
@@ -364,6 +365,17 @@ public class EdgeInducedSubgraphTransform<S extends Graph<?, ?>> implements Grap
         }
     }
 
+    /**
+     * Zero-copy alternative to transformGraph.  Rather than building a brand new graph (and overwriting the match ids
+     * of the input's vertices), this returns a masked view over the input with id remapping arrays.  The view repairs
+     * connectivity with the input's shortest paths, (see SubgraphView), rather than with repairConnectivity.
+     *
+     * @return - a view of the subgraph induced by the edges specified
+     */
+    public SubgraphView<S> transformView() {
+        return new SubgraphView<S>(mGraph, mEdges, inclDepot);
+    }
+
     public HashSet<Integer> getEdges() {
         return mEdges;
     }
@@ -390,7 +402,6 @@ public class EdgeInducedSubgraphTransform<S extends Graph<?, ?>> implements Grap
         try {
 
             int sccN = subgraph.getVertices().size();
-            int mainN = mGraph.getVertices().size();
             int totalCost = 0;
 
             DirectedGraph sccGraph = new DirectedGraph(subgraph.getVertices().size());
@@ -416,10 +427,9 @@ public class EdgeInducedSubgraphTransform<S extends Graph<?, ?>> implements Grap
             int[][] sccPath = new int[sccN + 1][sccN + 1];
             CommonAlgorithms.fwLeastCostPaths(sccGraph, sccDist, sccPath);
 
-            int[][] mainDist = new int[mainN + 1][mainN + 1];
-            int[][] mainPath = new int[mainN + 1][mainN + 1];
-            int[][] mainEdgePath = new int[mainN + 1][mainN + 1];
-            CommonAlgorithms.fwLeastCostPaths(mGraph, mainDist, mainPath, mainEdgePath);
+            //the parent caches these, so we don't pay for Floyd-Warshall on the whole graph for every partition
+            int[][] mainDist = mGraph.getAllPairsDistMatrix();
+            int[][] mainEdgePath = mGraph.getAllPairsEdgePathMatrix();
 
             //connect the sccs of the partition
 
@@ -545,11 +555,6 @@ public class EdgeInducedSubgraphTransform<S extends Graph<?, ?>> implements Grap
                 sccPath = new int[sccN + 1][sccN + 1];
                 CommonAlgorithms.fwLeastCostPaths(sccGraph, sccDist, sccPath);
 
-                mainDist = new int[mainN + 1][mainN + 1];
-                mainPath = new int[mainN + 1][mainN + 1];
-                mainEdgePath = new int[mainN + 1][mainN + 1];
-                CommonAlgorithms.fwLeastCostPaths(mGraph, mainDist, mainPath, mainEdgePath);
-
                 //connect the sccs of the partition
 
                 //first figure out which connections we could add
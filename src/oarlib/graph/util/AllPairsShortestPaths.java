@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.graph.util;
+
+import gnu.trove.TIntArrayList;
+import oarlib.core.Graph;
+import org.apache.log4j.Logger;
+
+/**
+ * An immutable all pairs shortest paths solution for a graph, as produced by CommonAlgorithms.fwLeastCostPaths.
+ * Graphs hand these out through Graph.getAllPairsShortestPaths, and compute at most one per state of the graph, so
+ * that everyone working on the same graph (Movers, RouteExpanders, improvement procedures, possibly on different
+ * threads) shares one copy rather than each running Floyd-Warshall themselves.
+ * <p/>
+ * When the graph changes it simply drops its reference to the old solution and computes a new one on demand; anyone
+ * still holding the old one keeps a consistent (if stale) view of the graph as it was, and the arrays are reclaimed
+ * once the last holder lets go of them.  None of the arrays may be modified.
+ */
+public class AllPairsShortestPaths implements ShortestPathSource {
+
+    private static final Logger LOGGER = Logger.getLogger(AllPairsShortestPaths.class);
+
+    private final int[][] mDist;
+    private final int[][] mPath;
+    private final int[][] mEdgePath;
+    private volatile int[][] mDistZeroDiagonal;
+
+    public AllPairsShortestPaths(Graph<?, ?> g) {
+        int n = g.getVertices().size();
+        mDist = new int[n + 1][n + 1];
+        mPath = new int[n + 1][n + 1];
+        mEdgePath = new int[n + 1][n + 1];
+        CommonAlgorithms.fwLeastCostPaths(g, mDist, mPath, mEdgePath);
+    }
+
+    /**
+     * For solutions that were computed earlier, (see ShortestPathsCache); the arrays are adopted, not copied.
+     */
+    AllPairsShortestPaths(int[][] dist, int[][] path, int[][] edgePath) {
+        mDist = dist;
+        mPath = path;
+        mEdgePath = edgePath;
+    }
+
+    /**
+     * @return - dist[i][j] is the cost of a shortest path from vertex i to vertex j; dist[i][i] is the cost of the
+     * cheapest cycle through i
+     */
+    public int[][] getDist() {
+        return mDist;
+    }
+
+    /**
+     * @return - the same as getDist, except that the cost of staying put is zero, which is what most route pricing
+     * wants; computed the first time it's asked for
+     */
+    public int[][] getDistZeroDiagonal() {
+        int[][] ans = mDistZeroDiagonal;
+        if (ans == null) {
+            synchronized (this) {
+                ans = mDistZeroDiagonal;
+                if (ans == null) {
+                    ans = new int[mDist.length][];
+                    for (int i = 0; i < mDist.length; i++) {
+                        ans[i] = mDist[i].clone();
+                        ans[i][i] = 0;
+                    }
+                    mDistZeroDiagonal = ans;
+                }
+            }
+        }
+        return ans;
+    }
+
+    /**
+     * @return - path[i][j] is the vertex after i on a shortest path from i to j
+     */
+    public int[][] getPath() {
+        return mPath;
+    }
+
+    /**
+     * @return - edgePath[i][j] is the id of the first link on a shortest path from i to j
+     */
+    public int[][] getEdgePath() {
+        return mEdgePath;
+    }
+
+    @Override
+    public int getPathCost(int from, int to) {
+        return (from == to) ? 0 : mDist[from][to];
+    }
+
+    @Override
+    public void appendPath(int from, int to, TIntArrayList linkIds) throws IllegalArgumentException {
+        if (from != to && mDist[from][to] == Integer.MAX_VALUE) {
+            LOGGER.error("There is no path from vertex " + from + " to vertex " + to + ".");
+            throw new IllegalArgumentException();
+        }
+        for (int curr = from; curr != to; curr = mPath[curr][to])
+            linkIds.add(mEdgePath[curr][to]);
+    }
+}
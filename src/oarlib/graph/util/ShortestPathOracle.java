@@ -0,0 +1,259 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.graph.util;
+
+import gnu.trove.TIntArrayList;
+import oarlib.core.Graph;
+import oarlib.core.Link;
+import oarlib.link.impl.AsymmetricLink;
+import org.apache.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shortest paths computed on demand, for graphs where the n x n matrices of AllPairsShortestPaths (and the O(n^3)
+ * Floyd-Warshall behind them) are too much; e.g. expanding a handful of routes on a road network.
+ * <p/>
+ * Each query runs Dijkstra from the source only until the destination is settled, and the search is kept, so a
+ * later query from the same source picks up where it left off.  The most recently used searches are memoized, (route
+ * expansion asks for many paths out of the depot, and out of the same few vertices when re-expanding a route after a
+ * move); the arrays of an evicted search are reused for the next one, so memory stays at O(memo size * n).
+ * <p/>
+ * Paths follow the arcs that CommonAlgorithms.fwLeastCostPaths would build: directed links one way, and the rest
+ * both ways, at the reverse cost for asymmetric links.  Ties may be broken differently than Floyd-Warshall does, but
+ * costs always agree.  The graph is read once at construction, so later changes to it aren't seen.  Queries are
+ * synchronized, so an oracle may be shared by several threads.
+ */
+public class ShortestPathOracle implements ShortestPathSource {
+
+    private static final Logger LOGGER = Logger.getLogger(ShortestPathOracle.class);
+
+    public static final int DEFAULT_MEMO_SIZE = 16;
+
+    private final int mNumVertices;
+    private final int[] mFirstArc; //the arcs out of vertex v are mFirstArc[v], ..., mFirstArc[v + 1] - 1
+    private final int[] mArcHead;
+    private final int[] mArcCost;
+    private final int[] mArcLink;
+    private final LinkedHashMap<Integer, Search> mMemo;
+    private Search mSpare; //the last search evicted from the memo, to be recycled
+
+    public ShortestPathOracle(Graph<?, ?> g) {
+        this(g, DEFAULT_MEMO_SIZE);
+    }
+
+    /**
+     * @param g        - the graph
+     * @param memoSize - the number of sources whose searches are kept
+     */
+    public ShortestPathOracle(Graph<?, ?> g, final int memoSize) {
+
+        if (memoSize < 1) {
+            LOGGER.error("The oracle must remember at least one search.");
+            throw new IllegalArgumentException();
+        }
+
+        int n = g.getVertices().size();
+        mNumVertices = n;
+
+        //count the arcs out of each vertex, then lay them out contiguously
+        int[] degree = new int[n + 2];
+        int m = 0;
+        for (Link<?> l : g.getEdges()) {
+            degree[l.getEndpoints().getFirst().getId()]++;
+            m++;
+            if (!l.isDirected()) {
+                degree[l.getEndpoints().getSecond().getId()]++;
+                m++;
+            }
+        }
+        mFirstArc = new int[n + 2];
+        for (int v = 1; v <= n + 1; v++)
+            mFirstArc[v] = mFirstArc[v - 1] + degree[v - 1];
+        mArcHead = new int[m];
+        mArcCost = new int[m];
+        mArcLink = new int[m];
+        int[] next = Arrays.copyOf(mFirstArc, n + 1);
+        int first, second;
+        for (Link<?> l : g.getEdges()) {
+            first = l.getEndpoints().getFirst().getId();
+            second = l.getEndpoints().getSecond().getId();
+            addArc(next, first, second, l.getCost(), l.getId());
+            if (!l.isDirected())
+                addArc(next, second, first, (l instanceof AsymmetricLink) ? ((AsymmetricLink) l).getReverseCost() : l.getCost(), l.getId());
+        }
+
+        mMemo = new LinkedHashMap<Integer, Search>(2 * memoSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Search> eldest) {
+                if (size() <= memoSize)
+                    return false;
+                mSpare = eldest.getValue();
+                return true;
+            }
+        };
+    }
+
+    private void addArc(int[] next, int tail, int head, int cost, int linkId) {
+        int arc = next[tail]++;
+        mArcHead[arc] = head;
+        mArcCost[arc] = cost;
+        mArcLink[arc] = linkId;
+    }
+
+    @Override
+    public synchronized int getPathCost(int from, int to) {
+        if (from == to)
+            return 0;
+        Search s = searchFrom(from);
+        return s.settleUntil(to) ? s.dist[to] : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public synchronized void appendPath(int from, int to, TIntArrayList linkIds) throws IllegalArgumentException {
+        if (from == to)
+            return;
+        Search s = searchFrom(from);
+        if (!s.settleUntil(to)) {
+            LOGGER.error("There is no path from vertex " + from + " to vertex " + to + ".");
+            throw new IllegalArgumentException();
+        }
+
+        //walk the tree back from the destination, then put the links in order
+        int start = linkIds.size();
+        for (int v = to; v != from; v = s.pred[v])
+            linkIds.add(s.predLink[v]);
+        int temp;
+        for (int i = start, j = linkIds.size() - 1; i < j; i++, j--) {
+            temp = linkIds.get(i);
+            linkIds.set(i, linkIds.get(j));
+            linkIds.set(j, temp);
+        }
+    }
+
+    private Search searchFrom(int source) {
+        if (source < 1 || source > mNumVertices) {
+            LOGGER.error("There is no vertex with id " + source + " in the graph.");
+            throw new IllegalArgumentException();
+        }
+        Search ans = mMemo.get(source);
+        if (ans == null) {
+            ans = (mSpare == null) ? new Search() : mSpare;
+            mSpare = null;
+            ans.reset(source);
+            mMemo.put(source, ans);
+        }
+        return ans;
+    }
+
+    /**
+     * A Dijkstra search from one source that can be stopped and resumed.  The heap holds (distance, vertex) pairs
+     * packed into longs, and entries made stale by a later decrease are skipped when they surface.
+     */
+    private final class Search {
+
+        private final int[] dist = new int[mNumVertices + 1];
+        private final int[] pred = new int[mNumVertices + 1];
+        private final int[] predLink = new int[mNumVertices + 1];
+        private final boolean[] settled = new boolean[mNumVertices + 1];
+        private final TIntArrayList touched = new TIntArrayList(); //the vertices whose entries have to be cleared on reuse
+        private long[] heap = new long[16];
+        private int heapSize;
+
+        private Search() {
+            Arrays.fill(dist, Integer.MAX_VALUE);
+        }
+
+        private void reset(int source) {
+            for (int i = 0; i < touched.size(); i++) {
+                dist[touched.get(i)] = Integer.MAX_VALUE;
+                settled[touched.get(i)] = false;
+            }
+            touched.clear();
+            heapSize = 0;
+            reach(source, 0, 0, 0);
+        }
+
+        /**
+         * @return - true if the target has been settled, (and so has its final distance and tree path)
+         */
+        private boolean settleUntil(int target) {
+            long top;
+            int v, w, alt;
+            while (!settled[target] && heapSize > 0) {
+                top = pop();
+                v = (int) top;
+                if (settled[v] || (int) (top >>> 32) > dist[v])
+                    continue;
+                settled[v] = true;
+                for (int arc = mFirstArc[v]; arc < mFirstArc[v + 1]; arc++) {
+                    w = mArcHead[arc];
+                    alt = dist[v] + mArcCost[arc];
+                    if (!settled[w] && alt < dist[w])
+                        reach(w, alt, v, mArcLink[arc]);
+                }
+            }
+            return settled[target];
+        }
+
+        private void reach(int v, int d, int from, int linkId) {
+            if (dist[v] == Integer.MAX_VALUE)
+                touched.add(v);
+            dist[v] = d;
+            pred[v] = from;
+            predLink[v] = linkId;
+            push(((long) d << 32) | v);
+        }
+
+        private void push(long entry) {
+            if (heapSize == heap.length)
+                heap = Arrays.copyOf(heap, 2 * heap.length);
+            int i = heapSize++;
+            while (i > 0 && heap[(i - 1) / 2] > entry) {
+                heap[i] = heap[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heap[i] = entry;
+        }
+
+        private long pop() {
+            long ans = heap[0];
+            long last = heap[--heapSize];
+            int i = 0;
+            int child;
+            while ((child = 2 * i + 1) < heapSize) {
+                if (child + 1 < heapSize && heap[child + 1] < heap[child])
+                    child++;
+                if (last <= heap[child])
+                    break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return ans;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.graph.util;
+
+import gnu.trove.TIntArrayList;
+
+/**
+ * Anything that can answer shortest path queries between vertices of a graph, for use in expanding routes, (see
+ * RouteExpander).  AllPairsShortestPaths answers them from its matrices; ShortestPathOracle computes them on demand,
+ * for graphs too big to hold an n x n matrix.
+ */
+public interface ShortestPathSource {
+
+    /**
+     * @param from - the id of the starting vertex
+     * @param to   - the id of the destination vertex
+     * @return - the cost of a shortest path from one to the other, (0 if they're the same vertex), or Integer.MAX_VALUE
+     * if there isn't one
+     */
+    int getPathCost(int from, int to);
+
+    /**
+     * Adds the ids of the links on a shortest path from one vertex to the other, in order, to the end of a list;
+     * nothing is added if they're the same vertex.
+     *
+     * @param from    - the id of the starting vertex
+     * @param to      - the id of the destination vertex
+     * @param linkIds - the list to add to
+     * @throws IllegalArgumentException - if there's no path
+     */
+    void appendPath(int from, int to, TIntArrayList linkIds) throws IllegalArgumentException;
+}
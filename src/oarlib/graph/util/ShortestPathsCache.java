@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.graph.util;
+
+import oarlib.core.Graph;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Shortest paths solutions saved on disk, keyed on the fingerprint of the graph they're for, (see
+ * Graph.getFingerprint), so that a process solving a network that some earlier process already solved loads the
+ * dist, path and edge path matrices straight out of a memory-mapped file rather than running Floyd-Warshall again.
+ * <p/>
+ * Each solution is one file, named for the fingerprint: a header, (magic number, version, and the dimension of the
+ * matrices), followed by the three matrices row by row, as big-endian ints.  Files are written to a temporary name and
+ * then renamed, so several processes can share a directory; a file that can't be read is ignored, and overwritten
+ * the next time the solution is computed.
+ * <p/>
+ * Graphs use the default cache, (if there is one), whenever they compute their shortest paths.  It's set with
+ * setDefault, or by pointing the system property oarlib.apsp.cache at a directory.
+ */
+public class ShortestPathsCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ShortestPathsCache.class);
+
+    //region Parameters
+
+    public static final String DIRECTORY_PROPERTY = "oarlib.apsp.cache";
+    public static final String EXTENSION = ".apsp";
+    private static final int MAGIC = 0x41505350; //APSP
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    //endregion
+
+    private static volatile ShortestPathsCache defaultCache = fromProperty();
+
+    private final File mDirectory;
+
+    /**
+     * @param directory - where to keep the files; created if it doesn't exist
+     */
+    public ShortestPathsCache(File directory) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOGGER.error("Could not create the shortest paths cache directory " + directory + ".");
+            throw new IllegalArgumentException();
+        }
+        mDirectory = directory;
+    }
+
+    /**
+     * @return - the cache graphs use when they compute their shortest paths, or null if there isn't one
+     */
+    public static ShortestPathsCache getDefault() {
+        return defaultCache;
+    }
+
+    /**
+     * @param cache - the cache graphs should use when they compute their shortest paths; null for none
+     */
+    public static void setDefault(ShortestPathsCache cache) {
+        defaultCache = cache;
+    }
+
+    private static ShortestPathsCache fromProperty() {
+        String dir = System.getProperty(DIRECTORY_PROPERTY);
+        if (dir == null || dir.isEmpty())
+            return null;
+        try {
+            return new ShortestPathsCache(new File(dir));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Not caching shortest paths on disk.");
+            return null;
+        }
+    }
+
+    public File getDirectory() {
+        return mDirectory;
+    }
+
+    /**
+     * @param fingerprint - the fingerprint of a graph
+     * @return - the file its shortest paths are kept in
+     */
+    public File fileFor(String fingerprint) {
+        return new File(mDirectory, fingerprint + EXTENSION);
+    }
+
+    /**
+     * @param g - a graph
+     * @return - its saved shortest paths solution, or null if there isn't a usable one
+     */
+    public AllPairsShortestPaths load(Graph<?, ?> g) {
+        return load(fileFor(g.getFingerprint()), g.getVertices().size() + 1);
+    }
+
+    /**
+     * Saves the solution, replacing any that's already there.
+     *
+     * @param g  - a graph
+     * @param sp - its shortest paths solution
+     */
+    public void store(Graph<?, ?> g, AllPairsShortestPaths sp) throws IOException {
+        store(g.getFingerprint(), sp);
+    }
+
+    /**
+     * @param g - a graph
+     * @return - its saved shortest paths solution, or, if there isn't a usable one, a freshly computed one, which is
+     * saved for next time
+     */
+    public AllPairsShortestPaths loadOrCompute(Graph<?, ?> g) {
+        String fingerprint = g.getFingerprint();
+        AllPairsShortestPaths ans = load(fileFor(fingerprint), g.getVertices().size() + 1);
+        if (ans != null)
+            return ans;
+        ans = new AllPairsShortestPaths(g);
+        try {
+            store(fingerprint, ans);
+        } catch (IOException e) {
+            LOGGER.warn("Could not save shortest paths to " + fileFor(fingerprint) + ".", e);
+        }
+        return ans;
+    }
+
+    private AllPairsShortestPaths load(File f, int dim) {
+        if (!f.isFile())
+            return null;
+        long matrixBytes = 4L * dim * dim;
+        try {
+            RandomAccessFile raf = new RandomAccessFile(f, "r");
+            try {
+                FileChannel ch = raf.getChannel();
+                if (ch.size() != HEADER_BYTES + 3 * matrixBytes) {
+                    LOGGER.warn("Ignoring " + f + "; it isn't the right size.");
+                    return null;
+                }
+                IntBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).asIntBuffer();
+                if (header.get() != MAGIC || header.get() != VERSION || header.get() != dim) {
+                    LOGGER.warn("Ignoring " + f + "; it isn't a shortest paths file for this graph.");
+                    return null;
+                }
+                //map each matrix separately, since a mapping can't be more than 2GB
+                int[][] dist = readMatrix(ch, HEADER_BYTES, matrixBytes, dim);
+                int[][] path = readMatrix(ch, HEADER_BYTES + matrixBytes, matrixBytes, dim);
+                int[][] edgePath = readMatrix(ch, HEADER_BYTES + 2 * matrixBytes, matrixBytes, dim);
+                return new AllPairsShortestPaths(dist, path, edgePath);
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not read " + f + ".", e);
+            return null;
+        }
+    }
+
+    private static int[][] readMatrix(FileChannel ch, long offset, long bytes, int dim) throws IOException {
+        IntBuffer ints = ch.map(FileChannel.MapMode.READ_ONLY, offset, bytes).asIntBuffer();
+        int[][] ans = new int[dim][dim];
+        for (int i = 0; i < dim; i++)
+            ints.get(ans[i]);
+        return ans;
+    }
+
+    private void store(String fingerprint, AllPairsShortestPaths sp) throws IOException {
+        int dim = sp.getDist().length;
+        File tmp = File.createTempFile(fingerprint, ".tmp", mDirectory);
+        try {
+            FileOutputStream out = new FileOutputStream(tmp);
+            try {
+                FileChannel ch = out.getChannel();
+                ByteBuffer buf = ByteBuffer.allocateDirect(Math.max(HEADER_BYTES, 4 * dim));
+                buf.putInt(MAGIC).putInt(VERSION).putInt(dim).flip();
+                write(ch, buf);
+                for (int[][] matrix : new int[][][]{sp.getDist(), sp.getPath(), sp.getEdgePath()}) {
+                    for (int[] row : matrix) {
+                        buf.clear();
+                        buf.asIntBuffer().put(row);
+                        buf.limit(4 * dim);
+                        write(ch, buf);
+                    }
+                }
+                ch.force(false);
+            } finally {
+                out.close();
+            }
+            File target = fileFor(fingerprint);
+            if (!tmp.renameTo(target)) {
+                //somebody else may have saved it first, (or the platform won't rename over an existing file)
+                if (!target.delete() || !tmp.renameTo(target))
+                    throw new IOException("Could not move " + tmp + " to " + target + ".");
+            }
+        } finally {
+            if (tmp.exists() && !tmp.delete())
+                LOGGER.warn("Could not delete " + tmp + ".");
+        }
+    }
+
+    private static void write(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining())
+            ch.write(buf);
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.graph.util;
+
+import gnu.trove.TIntIntHashMap;
+import gnu.trove.TIntObjectHashMap;
+import oarlib.core.Factory;
+import oarlib.core.Graph;
+import oarlib.core.Link;
+import oarlib.core.Vertex;
+import oarlib.exceptions.InvalidEndpointsException;
+import oarlib.graph.impl.MixedGraph;
+import oarlib.graph.impl.WindyGraph;
+import oarlib.graph.impl.ZigZagGraph;
+import oarlib.link.impl.AsymmetricLink;
+import oarlib.link.impl.ZigZagLink;
+import org.apache.log4j.Logger;
+
+import java.util.Collection;
+
+/**
+ * Read-only, masked view of the subgraph induced by a set of link ids in a parent graph.
+ * <p/>
+ * Nothing from the parent is copied: the view only holds a mask over the parent's links, and
+ * arrays that remap between the (consecutive, 1-based) local ids of the view and the ids in the
+ * parent.  Links and distances are served straight out of the parent, so building a view per
+ * partition costs O(n + m) ints, rather than a full graph copy.  Local ids are assigned in the same
+ * order that EdgeInducedSubgraphTransform assigns them: endpoints of required links first, then the
+ * depot and its connecting path (if requested), then endpoints of the remaining links, and finally any vertices on
+ * the shortest paths pulled in to connect the view, (see repairConnectivity).
+ * <p/>
+ * The view is only valid for as long as the parent doesn't change.
+ *
+ * @param <S> the type of the parent graph
+ */
+public class SubgraphView<S extends Graph<?, ?>> {
+
+    private static final Logger LOGGER = Logger.getLogger(SubgraphView.class);
+
+    private S mParent;
+    private boolean[] mEdgeMask; //the ith entry is true if the parent link with id i is in the view
+    private int[] mVertexToParent; //the ith entry is the parent id of local vertex i
+    private int[] mParentToVertex; //the ith entry is the local id of parent vertex i, (0 if not in the view)
+    private int[] mEdgeToParent; //the ith entry is the parent id of local link i
+    private int[] mParentToEdge; //the ith entry is the local id of parent link i, (0 if not in the view)
+    private boolean[] mConnector; //the ith entry is true if local link i was only added to connect the depot
+    private int mNumVertices;
+    private int mNumEdges;
+    private int mDepotId; //local id of the depot, (-1 if the depot isn't in the view)
+
+    /**
+     * Constructs the view of the subgraph of parent induced by the links with the ids specified.
+     *
+     * @param parent       - the whole graph from which the subgraph is taken
+     * @param edges        - the parent link ids which induce the desired subgraph
+     * @param includeDepot - true if the depot should be included, (and connected to the rest of the view
+     *                     using the shortest paths in the parent) whether or not it is an endpoint of one of the links
+     */
+    public SubgraphView(S parent, Collection<Integer> edges, boolean includeDepot) {
+
+        mParent = parent;
+
+        int n = parent.getVidCounter();
+        int m = parent.getEidCounter();
+        mEdgeMask = new boolean[m];
+        mParentToEdge = new int[m];
+        mEdgeToParent = new int[m];
+        mConnector = new boolean[m];
+        mParentToVertex = new int[n];
+        mVertexToParent = new int[n];
+        mNumVertices = 0;
+        mNumEdges = 0;
+        mDepotId = -1;
+
+        TIntObjectHashMap<? extends Link<? extends Vertex>> indexedEdges = parent.getInternalEdgeMap();
+        Link<? extends Vertex> temp;
+
+        //required guys first
+        for (Integer i : edges) {
+            temp = indexedEdges.get(i);
+            if (temp == null) {
+                LOGGER.error("The link with id " + i + " does not exist in the parent graph.");
+                throw new IllegalArgumentException();
+            }
+            if (temp.isRequired())
+                addLink(temp, false);
+        }
+
+        //depot, and the shortest paths to and from the closest vertex of the view
+        int parentDepot = parent.getDepotId();
+        if (includeDepot && mParentToVertex[parentDepot] == 0) {
+            addVertex(parentDepot);
+            if (mNumVertices > 1)
+                connectDepot(parentDepot);
+        }
+
+        //then the non-required guys
+        for (Integer i : edges) {
+            temp = indexedEdges.get(i);
+            if (!temp.isRequired())
+                addLink(temp, false);
+        }
+
+        repairConnectivity();
+    }
+
+    private void addVertex(int parentId) {
+        if (mParentToVertex[parentId] != 0)
+            return;
+        mNumVertices++;
+        mParentToVertex[parentId] = mNumVertices;
+        mVertexToParent[mNumVertices] = parentId;
+        if (parentId == mParent.getDepotId())
+            mDepotId = mNumVertices;
+    }
+
+    private void addLink(Link<? extends Vertex> l, boolean connector) {
+        int id = l.getId();
+        if (mEdgeMask[id])
+            return;
+        addVertex(l.getFirstEndpointId());
+        addVertex(l.getSecondEndpointId());
+        mNumEdges++;
+        mEdgeMask[id] = true;
+        mParentToEdge[id] = mNumEdges;
+        mEdgeToParent[mNumEdges] = id;
+        mConnector[mNumEdges] = connector;
+    }
+
+    /**
+     * Pulls the links of the shortest paths from the depot to the closest vertex already in the view
+     * (and back) into the view, using the parent's (cached) all pairs matrices.
+     */
+    private void connectDepot(int parentDepot) {
+
+        int[][] dist = mParent.getAllPairsDistMatrix();
+
+        int bestConnectId = -1;
+        long bestCost = Long.MAX_VALUE;
+        long tempCost;
+        int parentId;
+        for (int i = 1; i <= mNumVertices; i++) {
+            parentId = mVertexToParent[i];
+            if (parentId == parentDepot)
+                continue;
+            if (dist[parentDepot][parentId] == Integer.MAX_VALUE || dist[parentId][parentDepot] == Integer.MAX_VALUE)
+                continue;
+            tempCost = (long) dist[parentDepot][parentId] + dist[parentId][parentDepot];
+            if (tempCost < bestCost) {
+                bestCost = tempCost;
+                bestConnectId = parentId;
+            }
+        }
+
+        if (bestConnectId == -1) {
+            LOGGER.warn("The depot could not be connected to the rest of the subgraph.");
+            return;
+        }
+
+        addPath(parentDepot, bestConnectId);
+        addPath(bestConnectId, parentDepot);
+    }
+
+    /**
+     * If the links of the view don't (strongly) connect its vertices, pulls in the links of the shortest paths in the
+     * parent, to and from the component of the depot, (or of local vertex 1), until they do.  Each step joins the
+     * vertex outside that component with the cheapest round trip to it; the links pulled in are connectors.
+     */
+    private void repairConnectivity() {
+
+        if (mNumVertices < 2)
+            return;
+
+        int[][] dist = mParent.getAllPairsDistMatrix();
+        int[] component = components();
+        while (component[0] > 1) {
+
+            int root = component[(mDepotId == -1) ? 1 : mDepotId];
+            int bestFrom = -1;
+            int bestTo = -1;
+            long bestCost = Long.MAX_VALUE;
+            long tempCost;
+            int pi, pj;
+            for (int i = 1; i <= mNumVertices; i++) {
+                if (component[i] != root)
+                    continue;
+                pi = mVertexToParent[i];
+                for (int j = 1; j <= mNumVertices; j++) {
+                    if (component[j] == root)
+                        continue;
+                    pj = mVertexToParent[j];
+                    if (dist[pi][pj] == Integer.MAX_VALUE || dist[pj][pi] == Integer.MAX_VALUE)
+                        continue;
+                    tempCost = (long) dist[pi][pj] + dist[pj][pi];
+                    if (tempCost < bestCost) {
+                        bestCost = tempCost;
+                        bestFrom = pi;
+                        bestTo = pj;
+                    }
+                }
+            }
+
+            if (bestFrom == -1) {
+                LOGGER.warn("The subgraph could not be connected using the parent's links.");
+                return;
+            }
+
+            addPath(bestFrom, bestTo);
+            addPath(bestTo, bestFrom);
+            component = components();
+        }
+    }
+
+    /**
+     * Pulls the links of the parent's shortest path from parent vertex from to parent vertex to into the view, as
+     * connectors.
+     */
+    private void addPath(int from, int to) {
+        int[][] path = mParent.getAllPairsPathMatrix();
+        int[][] edgePath = mParent.getAllPairsEdgePathMatrix();
+        TIntObjectHashMap<? extends Link<? extends Vertex>> indexedEdges = mParent.getInternalEdgeMap();
+        int curr = from;
+        while (curr != to) {
+            addLink(indexedEdges.get(edgePath[curr][to]), true);
+            curr = path[curr][to];
+        }
+    }
+
+    /**
+     * @return - the strongly connected components of the view, over local vertex ids, (0th entry is the number of
+     * components); links that aren't directed count in both directions
+     */
+    private int[] components() {
+        int m = 0;
+        for (int i = 1; i <= mNumEdges; i++)
+            m += getEdge(i).isDirected() ? 1 : 2;
+        int[] nodei = new int[m + 1];
+        int[] nodej = new int[m + 1];
+        int index = 1;
+        Link<? extends Vertex> l;
+        for (int i = 1; i <= mNumEdges; i++) {
+            l = getEdge(i);
+            nodei[index] = mParentToVertex[l.getFirstEndpointId()];
+            nodej[index++] = mParentToVertex[l.getSecondEndpointId()];
+            if (!l.isDirected()) {
+                nodei[index] = mParentToVertex[l.getSecondEndpointId()];
+                nodej[index++] = mParentToVertex[l.getFirstEndpointId()];
+            }
+        }
+        int[] component = new int[mNumVertices + 1];
+        CommonAlgorithms.stronglyConnectedComponents(mNumVertices, m, nodei, nodej, component);
+        return component;
+    }
+
+    /**
+     * @return - the graph this is a view into
+     */
+    public S getParent() {
+        return mParent;
+    }
+
+    public int getNumVertices() {
+        return mNumVertices;
+    }
+
+    public int getNumEdges() {
+        return mNumEdges;
+    }
+
+    /**
+     * @return - the local id of the depot, or -1 if it isn't part of the view
+     */
+    public int getDepotId() {
+        return mDepotId;
+    }
+
+    /**
+     * @param parentEdgeId - id of a link in the parent graph
+     * @return - true if that link is part of this view
+     */
+    public boolean containsEdge(int parentEdgeId) {
+        return parentEdgeId > 0 && parentEdgeId < mEdgeMask.length && mEdgeMask[parentEdgeId];
+    }
+
+    /**
+     * @param parentVertexId - id of a vertex in the parent graph
+     * @return - true if that vertex is part of this view
+     */
+    public boolean containsVertex(int parentVertexId) {
+        return parentVertexId > 0 && parentVertexId < mParentToVertex.length && mParentToVertex[parentVertexId] != 0;
+    }
+
+    public int getParentVertexId(int localId) {
+        return mVertexToParent[localId];
+    }
+
+    /**
+     * @return - the local id of the parent vertex, or 0 if it isn't part of the view
+     */
+    public int getLocalVertexId(int parentId) {
+        return mParentToVertex[parentId];
+    }
+
+    public int getParentEdgeId(int localId) {
+        return mEdgeToParent[localId];
+    }
+
+    /**
+     * @return - the local id of the parent link, or 0 if it isn't part of the view
+     */
+    public int getLocalEdgeId(int parentId) {
+        return mParentToEdge[parentId];
+    }
+
+    /**
+     * @param localId - local id of a link in the view
+     * @return - the parent's link, (not a copy)
+     */
+    public Link<? extends Vertex> getEdge(int localId) {
+        return mParent.getInternalEdgeMap().get(mEdgeToParent[localId]);
+    }
+
+    /**
+     * @param localId - local id of a link in the view
+     * @return - true if the link demands service in the view; links that were only pulled in to connect the
+     * depot never do
+     */
+    public boolean isRequired(int localId) {
+        return !mConnector[localId] && getEdge(localId).isRequired();
+    }
+
+    /**
+     * @param localId - local id of a link in the view
+     * @return - true if the link was only pulled in to connect the depot to the rest of the view
+     */
+    public boolean isConnector(int localId) {
+        return mConnector[localId];
+    }
+
+    /**
+     * Shortest path distance between two vertices of the view, measured in the parent.
+     *
+     * @param i - local id of the start vertex
+     * @param j - local id of the end vertex
+     * @return - the parent distance from i to j
+     */
+    public int getDist(int i, int j) {
+        return mParent.getAllPairsDistMatrix()[mVertexToParent[i]][mVertexToParent[j]];
+    }
+
+    /**
+     * @return - a map from local vertex ids to parent vertex ids, suitable for Route.setMapping
+     */
+    public TIntIntHashMap getVertexIdMap() {
+        TIntIntHashMap ans = new TIntIntHashMap();
+        for (int i = 1; i <= mNumVertices; i++)
+            ans.put(i, mVertexToParent[i]);
+        return ans;
+    }
+
+    /**
+     * Builds a standalone graph from the view, for consumers that need a concrete Graph.  Vertex i of the answer
+     * corresponds to local vertex i of the view, and link i to local link i; the match ids of both are set to the
+     * parent ids.  Reverse costs of windy links, (including zigzag links), and the direction of mixed links carry
+     * over.  Unlike EdgeInducedSubgraphTransform, the parent is left untouched.
+     *
+     * @param sFactory - a factory that constructs an empty graph of type S to put our ans in
+     * @return - a copy of the subgraph
+     */
+    public S materialize(Factory<S> sFactory) {
+        S ans = sFactory.instantiate();
+        try {
+            TIntObjectHashMap<? extends Vertex> parentVertices = mParent.getInternalVertexMap();
+            TIntObjectHashMap<? extends Vertex> ansVertices = ans.getInternalVertexMap();
+
+            Vertex orig;
+            for (int i = 1; i <= mNumVertices; i++) {
+                ans.addVertex();
+                orig = parentVertices.get(mVertexToParent[i]);
+                ansVertices.get(i).setMatchId(mVertexToParent[i]);
+                ansVertices.get(i).setCoordinates(orig.getX(), orig.getY());
+            }
+            if (mDepotId != -1)
+                ans.setDepotId(mDepotId);
+
+            Link<? extends Vertex> l;
+            int first, second;
+            for (int i = 1; i <= mNumEdges; i++) {
+                l = getEdge(i);
+                first = mParentToVertex[l.getFirstEndpointId()];
+                second = mParentToVertex[l.getSecondEndpointId()];
+                if (ans instanceof ZigZagGraph && l instanceof ZigZagLink) {
+                    ZigZagGraph zzg = (ZigZagGraph) ans;
+                    ZigZagLink zz = (ZigZagLink) l;
+                    //zigzag links are required iff they have a service cost, so connectors get none
+                    if (isRequired(i))
+                        zzg.addEdge(zzg.constructEdge(first, second, "view", zz.getCost(), zz.getReverseCost(), zz.getZigzagCost(), zz.getServiceCost(), zz.getReverseServiceCost(), zz.getStatus()));
+                    else
+                        zzg.addEdge(zzg.constructEdge(first, second, "view", zz.getCost(), zz.getReverseCost(), zz.getZigzagCost(), 0, 0, ZigZagLink.ZigZagStatus.NOT_AVAILABLE));
+                } else if (ans instanceof WindyGraph && l.isWindy())
+                    ((WindyGraph) ans).addEdge(first, second, l.getCost(), ((AsymmetricLink) l).getReverseCost(), isRequired(i));
+                else if (ans instanceof MixedGraph)
+                    ((MixedGraph) ans).addEdge(first, second, l.getCost(), l.isDirected(), isRequired(i));
+                else if (ans.isWindy()) {
+                    LOGGER.error("Cannot carry the reverse costs of the view's links over into a graph of type " + ans.getClass().getSimpleName() + ".");
+                    throw new IllegalArgumentException();
+                } else
+                    ans.addEdge(first, second, l.getCost(), isRequired(i));
+                ans.getInternalEdgeMap().get(i).setMatchId(mEdgeToParent[i]);
+            }
+        } catch (InvalidEndpointsException e) {
+            LOGGER.error("The view could not be materialized; its vertex remapping is inconsistent with the parent.", e);
+            throw new IllegalStateException(e);
+        }
+
+        return ans;
+    }
+}
@@ -24,14 +24,17 @@
  */
 package oarlib.graph.util;
 
+import gnu.trove.TIntIntHashMap;
 import oarlib.core.Graph;
 import oarlib.core.Link;
 import oarlib.core.Route;
 import oarlib.core.Vertex;
-import oarlib.link.impl.WindyEdge;
+import oarlib.link.impl.AsymmetricLink;
 import oarlib.route.impl.Tour;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
@@ -58,7 +61,8 @@ public class Utils {
     /**
      * Takes a route over an augmentation of a graph g, and returns the route using ids from g.  Used primarily to allow
      * solvers to calculate thier routes however they wish (typically not by modifying the original graph), and then
-     * get a solution that is in the original graph.
+     * get a solution that is in the original graph.  If the route has an id mapping, (e.g. it's over a subgraph of g
+     * with vertex ids of its own), its vertex ids are translated into g's by it.
      *
      * @param origAns - the ans which will be converted
      * @param g       - the original graph; the returned route will contain link objects from this graph
@@ -66,23 +70,42 @@ public class Utils {
      */
     public static <V extends Vertex, E extends Link<V>, G extends Graph<V, E>> Route<V, E> reclaimTour(Route<? extends Vertex, ? extends Link<? extends Vertex>> origAns, G g) {
 
-        Tour ans = new Tour();
-
         List<? extends Link> path = origAns.getPath();
         List<? extends Link<? extends Vertex>> candidates;
         int n = path.size();
         int firstId, secondId, traversalCost, secondCost;
         boolean foundIt;
+        List<Boolean> directions = origAns.getTraversalDirection();
+        TIntIntHashMap mapping = origAns.getMapping();
+        boolean mapped = mapping != null && !mapping.isEmpty();
+
+        //the directions are known as we go, so build the tour in one pass at the end
+        ArrayList<Link<? extends Vertex>> links = new ArrayList<Link<? extends Vertex>>(n);
+        boolean[] forward = new boolean[n];
+        boolean[] service = new boolean[n];
 
         for (int i = 0; i < n; i++) {
 
             Link<? extends Vertex> l = path.get(i);
             firstId = l.getEndpoints().getFirst().getId();
             secondId = l.getEndpoints().getSecond().getId();
-            traversalCost = l.getCost();
+            if (mapped) {
+                firstId = mapping.get(firstId);
+                secondId = mapping.get(secondId);
+            }
+            //match the link as it's traversed, (a single link route has no direction yet, so take it as forward)
+            if (i < directions.size() && !directions.get(i)) {
+                int temp = firstId;
+                firstId = secondId;
+                secondId = temp;
+                traversalCost = l.isWindy() ? ((AsymmetricLink) l).getReverseCost() : l.getCost();
+            } else
+                traversalCost = l.getCost();
             foundIt = false;
 
             candidates = g.getVertex(firstId).getNeighbors().get(g.getVertex(secondId));
+            if (candidates == null)
+                candidates = new ArrayList<Link<? extends Vertex>>();
 
             if (firstId == secondId && firstId == g.getDepotId())
                 continue;
@@ -91,19 +114,22 @@ public class Utils {
                 if (l.isRequired() && !l2.isRequired())
                     continue;
                 if (l2.getEndpoints().getFirst().getId() == firstId && traversalCost == l2.getCost()) {
-                    ans.appendEdge(l2, l.isRequired());
+                    forward[links.size()] = true;
                     foundIt = true;
-                    break;
                 } else if (!l2.isDirected()) {
                     secondCost = l2.getCost();
                     if (l2.isWindy())
-                        secondCost = ((WindyEdge) l2).getReverseCost();
+                        secondCost = ((AsymmetricLink) l2).getReverseCost();
                     if (l2.getEndpoints().getFirst().getId() == secondId && traversalCost == secondCost) {
-                        ans.appendEdge(l2, l.isRequired());
+                        forward[links.size()] = false;
                         foundIt = true;
-                        break;
                     }
                 }
+                if (foundIt) {
+                    service[links.size()] = l.isRequired();
+                    links.add(l2);
+                    break;
+                }
             }
             if (!foundIt) {
                 LOGGER.error("It seems as though this solution is invalid(?)");
@@ -111,6 +137,8 @@ public class Utils {
             }
         }
 
+        Tour ans = new Tour();
+        ans.buildPath(links, Arrays.copyOf(forward, links.size()), Arrays.copyOf(service, links.size()));
         return ans;
 
     }
@@ -24,10 +24,15 @@
 package oarlib.improvements;
 
 import oarlib.core.*;
+import oarlib.improvements.util.BestSolutionHolder;
+import oarlib.metrics.MaxMetric;
+import oarlib.metrics.Metric;
 import oarlib.problem.impl.ProblemAttributes;
 import org.apache.log4j.Logger;
 
 import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Created by oliverlum on 11/16/14.
@@ -39,6 +44,15 @@ public abstract class ImprovementProcedure<V extends Vertex, E extends Link<V>,
     protected Problem<V, E, G> mProblem;
     private G mGraph;
     private Collection<Route<V, E>> mInitialSol;
+    private Deadline mDeadline;
+    private IncumbentListener<V, E> mIncumbentListener;
+    private double mIncumbentObj;
+    private int mGranularity = 8; //how many nearest neighbors a granular scan starts with; 0 to always scan everything
+    private int mGranularThreshold = 10000; //neighborhoods with fewer candidates than this are scanned in full
+    private boolean mUseMoveCache = true; //whether to reuse what earlier passes learned about unchanged routes
+    private boolean mOptimizeDirections = false; //whether routes changed by a move get their directions re-optimized
+    private ExecutorService mExecutor; //the pool candidate pricing is handed to; null for ParallelMoveEvaluator's shared one
+    private SolveContext mContext; //the solve this is part of, which supplies the randomness; null to use the procedure's own seed
 
     protected ImprovementProcedure(Problem<V, E, G> instance) {
         this(instance, null, null);
@@ -88,6 +102,8 @@ public abstract class ImprovementProcedure<V extends Vertex, E extends Link<V>,
         mInitialSol = candidateSol;
         mProblem = instance;
         mStrat = strat;
+        mDeadline = Deadline.none();
+        mIncumbentObj = Double.MAX_VALUE;
 
     }
 
@@ -107,4 +123,205 @@ public abstract class ImprovementProcedure<V extends Vertex, E extends Link<V>,
 
     public abstract Collection<Route<V, E>> improveSolution();
 
+    //region Anytime
+
+    /**
+     * Bounds improveSolution by the provided deadline; once it expires, the procedure returns the best solution it
+     * has on hand, (which is never worse than the initial solution).
+     *
+     * @param deadline - the deadline to respect; null removes any existing bound
+     */
+    public void setDeadline(Deadline deadline) {
+        mDeadline = (deadline == null) ? Deadline.none() : deadline;
+    }
+
+    public Deadline getDeadline() {
+        return mDeadline;
+    }
+
+    /**
+     * @return - true if the procedure should stop searching and return its best solution
+     */
+    protected boolean isTimeUp() {
+        return mDeadline.isExpired();
+    }
+
+    /**
+     * @param listener - to be notified each time the procedure finds an improving solution; null to stop listening
+     */
+    public void setIncumbentListener(IncumbentListener<V, E> listener) {
+        mIncumbentListener = listener;
+    }
+
+    public IncumbentListener<V, E> getIncumbentListener() {
+        return mIncumbentListener;
+    }
+
+    /**
+     * Hands this procedure's deadline, listener and context down to a procedure that it invokes.
+     *
+     * @param child - the nested procedure
+     * @return - child, for chaining
+     */
+    protected <T extends ImprovementProcedure<V, E, G>> T inheritAnytime(T child) {
+        child.setDeadline(mDeadline);
+        child.setContext(mContext);
+        child.setIncumbentListener(mIncumbentListener);
+        return child;
+    }
+
+    /**
+     * Notifies the listener if the candidate improves on the best solution this procedure has reported so far.
+     *
+     * @param candidate - a feasible solution
+     * @return - true if the candidate was an improvement
+     */
+    protected boolean offerIncumbent(Collection<Route<V, E>> candidate) {
+        if (mIncumbentListener == null || candidate == null || candidate.isEmpty())
+            return false;
+        Metric obj = mProblem.getObjectiveFunction();
+        if (obj == null)
+            obj = new MaxMetric();
+        double candidateObj = obj.evaluate(candidate);
+        if (candidateObj >= mIncumbentObj)
+            return false;
+        mIncumbentObj = candidateObj;
+        //the caller usually goes on editing the candidate, so the listener gets a snapshot
+        mIncumbentListener.onIncumbent(BestSolutionHolder.copy(candidate), candidateObj);
+        return true;
+    }
+
+    //endregion
+
+    //region Granular neighborhoods
+
+    /**
+     * @return - the number of nearest neighbors a granular scan starts with
+     */
+    public int getGranularity() {
+        return mGranularity;
+    }
+
+    /**
+     * @param granularity - the number of nearest neighbors a granular scan starts with, (see NeighborLists); 0 turns
+     *                    granular neighborhoods off
+     */
+    public void setGranularity(int granularity) {
+        if (granularity < 0) {
+            LOGGER.error("The granularity can't be negative.");
+            throw new IllegalArgumentException();
+        }
+        mGranularity = granularity;
+    }
+
+    public int getGranularThreshold() {
+        return mGranularThreshold;
+    }
+
+    /**
+     * @param granularThreshold - neighborhoods with fewer candidates than this are scanned in full
+     */
+    public void setGranularThreshold(int granularThreshold) {
+        mGranularThreshold = granularThreshold;
+    }
+
+    /**
+     * Hands this procedure's granularity, move cache, direction and executor settings down to a procedure that it
+     * invokes.
+     *
+     * @param child - the nested procedure
+     * @return - child, for chaining
+     */
+    protected <T extends ImprovementProcedure<V, E, G>> T inheritSearchSettings(T child) {
+        child.setGranularity(mGranularity);
+        child.setGranularThreshold(mGranularThreshold);
+        child.setUseMoveCache(mUseMoveCache);
+        child.setOptimizeDirections(mOptimizeDirections);
+        child.setExecutor(mExecutor);
+        return child;
+    }
+
+    //endregion
+
+    //region Move cache
+
+    public boolean isUsingMoveCache() {
+        return mUseMoveCache;
+    }
+
+    /**
+     * @param useMoveCache - whether to skip work that earlier passes over the same routes already did, (see
+     *                     MoveCache); this only affects running time, not the answer
+     */
+    public void setUseMoveCache(boolean useMoveCache) {
+        mUseMoveCache = useMoveCache;
+    }
+
+    //endregion
+
+    //region Direction optimization
+
+    public boolean isOptimizingDirections() {
+        return mOptimizeDirections;
+    }
+
+    /**
+     * @param optimizeDirections - whether inter-route procedures should re-optimize the traversal directions of the
+     *                           routes a move changes, (see SegmentCosts.optimizeDirections), rather than keep the
+     *                           ones the move chose link by link
+     */
+    public void setOptimizeDirections(boolean optimizeDirections) {
+        mOptimizeDirections = optimizeDirections;
+    }
+
+    //endregion
+
+    //region Executor
+
+    public ExecutorService getExecutor() {
+        return mExecutor;
+    }
+
+    /**
+     * @param executor - the pool that candidate moves are priced on, (see ParallelMoveEvaluator); procedures that
+     *                 are themselves running on a pool should pass that one, so nesting doesn't multiply threads.
+     *                 null for the shared pool
+     */
+    public void setExecutor(ExecutorService executor) {
+        mExecutor = executor;
+    }
+
+    //endregion
+
+    //region Randomness
+
+    public SolveContext getContext() {
+        return mContext;
+    }
+
+    /**
+     * @param context - the solve this procedure is part of; while it's set, the procedure's randomness is drawn from
+     *                the context, (so the solve's seed decides the search), rather than from the procedure's own seed
+     */
+    public void setContext(SolveContext context) {
+        mContext = context;
+    }
+
+    /**
+     * @param seed - the procedure's own seed
+     * @return - the seed to start a search from: drawn from the context if there is one, and seed otherwise
+     */
+    protected long nextSeed(long seed) {
+        return (mContext == null) ? seed : mContext.getRandom().nextLong();
+    }
+
+    /**
+     * @param seed - the procedure's own seed
+     * @return - a new random number generator: one from the context if there is one, and one seeded by seed otherwise
+     */
+    protected Random newRandom(long seed) {
+        return (mContext == null) ? new Random(seed) : mContext.newRandom();
+    }
+
+    //endregion
 }
@@ -23,14 +23,26 @@
  */
 package oarlib.improvements;
 
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntObjectHashMap;
 import oarlib.core.*;
+import oarlib.improvements.util.MoveCache;
+import oarlib.improvements.util.NeighborLists;
+import oarlib.improvements.util.ParallelMoveEvaluator;
+import oarlib.improvements.util.SegmentCosts;
+import oarlib.metrics.IncrementalMaxMetric;
+import oarlib.route.util.RouteExpander;
 
+import java.util.ArrayList;
 import java.util.Collection;
 
 /**
  * Created by oliverlum on 11/19/14.
  */
 public abstract class InterRouteImprovementProcedure<V extends Vertex, E extends Link<V>, G extends Graph<V, E>> extends ImprovementProcedure<V, E, G> {
+
+    private int mNumThreads = ParallelMoveEvaluator.getDefaultPoolSize();
+
     protected InterRouteImprovementProcedure(Problem<V, E, G> problem) {
         super(problem);
     }
@@ -38,4 +50,110 @@ public abstract class InterRouteImprovementProcedure<V extends Vertex, E extends
     protected InterRouteImprovementProcedure(Problem<V, E, G> problem, ImprovementStrategy.Type strat, Collection<Route<V, E>> initialSol) {
         super(problem, strat, initialSol);
     }
+
+    /**
+     * @return - the number of threads used to price candidate moves
+     */
+    public int getNumThreads() {
+        return mNumThreads;
+    }
+
+    /**
+     * @param numThreads - the number of threads used to price candidate moves; the answer doesn't depend on it
+     */
+    public void setNumThreads(int numThreads) {
+        if (numThreads < 1)
+            throw new IllegalArgumentException("You need at least one thread.");
+        mNumThreads = numThreads;
+    }
+
+    /**
+     * Finds the move to make in a route pair neighborhood.  Large neighborhoods are scanned granularly: only the
+     * candidates that put a moved link next to one of its k nearest neighbors are priced, and if none of them
+     * improves, k is doubled and the scan repeated, up to the length of the neighbor lists.  Small ones are priced in
+     * full.  See ParallelMoveEvaluator.GranularSpace for the meaning of span, predOffset and succOffset.
+     * <p/>
+     * If the move cache is on, rows of candidates that earlier passes showed can't improve are skipped, (see
+     * ParallelMoveEvaluator.DontLookSpace); that never changes the answer.
+     *
+     * @return - the index in the full space of the candidate to apply, or -1 if no improving one was found
+     */
+    protected int findMove(ParallelMoveEvaluator<V, E, G> evaluator, ParallelMoveEvaluator.RoutePairSpace<V, E> space, IncrementalMaxMetric tracker, int span, int predOffset, int succOffset) {
+
+        boolean firstImprovement = mStrat == ImprovementStrategy.Type.FirstImprovement;
+        MoveCache cache = null;
+        if (isUsingMoveCache()) {
+            cache = MoveCache.forGraph(getGraph());
+            cache.retainOnly(getInitialSol());
+        }
+        String kind = getClass().getName();
+
+        if (getGranularity() == 0 || space.size() < getGranularThreshold()) {
+            if (cache == null)
+                return evaluator.findMove(space, tracker, firstImprovement, null);
+            ParallelMoveEvaluator.DontLookSpace<V, E, G> dontLook = new ParallelMoveEvaluator.DontLookSpace<V, E, G>(space, null, cache, kind, span, tracker);
+            int best = evaluator.findMove(dontLook, tracker, firstImprovement, null);
+            return (best == -1) ? -1 : dontLook.getFullIndex(best);
+        }
+
+        NeighborLists neighbors = NeighborLists.forGraph(getGraph());
+        int k = Math.min(getGranularity(), neighbors.getMaxNeighbors());
+        while (true) {
+            ParallelMoveEvaluator.GranularSpace<V, E> granular = new ParallelMoveEvaluator.GranularSpace<V, E>(space, neighbors, k, span, predOffset, succOffset);
+            int best;
+            if (cache == null) {
+                best = evaluator.findMove(granular, tracker, firstImprovement, null);
+                if (best != -1)
+                    return granular.getFullIndex(best);
+            } else {
+                ParallelMoveEvaluator.DontLookSpace<V, E, G> dontLook = new ParallelMoveEvaluator.DontLookSpace<V, E, G>(space, granular.getFullIndices(), cache, kind, span, tracker);
+                best = evaluator.findMove(dontLook, tracker, firstImprovement, null);
+                if (best != -1)
+                    return dontLook.getFullIndex(best);
+            }
+            if (k >= neighbors.getMaxNeighbors() || isTimeUp())
+                return -1;
+            k = Math.min(2 * k, neighbors.getMaxNeighbors());
+        }
+    }
+
+    /**
+     * Replaces the routes changed by a move in the solution, first re-optimizing their directions if asked to.
+     *
+     * @param routes         - the solution
+     * @param routesToChange - the output of Mover.makeComplexMove
+     * @return - the new solution
+     */
+    protected Collection<Route<V, E>> applyChanges(Collection<Route<V, E>> routes, TIntObjectHashMap<Route<V, E>> routesToChange) {
+        if (isUsingMoveCache())
+            MoveCache.forGraph(getGraph()).invalidate(routesToChange);
+        if (isOptimizingDirections())
+            optimizeDirections(routesToChange);
+        Collection<Route<V, E>> ans = new ArrayList<Route<V, E>>();
+        for (Route<V, E> r : routes) {
+            if (routesToChange.containsKey(r.getGlobalId()))
+                ans.add(routesToChange.get(r.getGlobalId()));
+            else
+                ans.add(r);
+        }
+        return ans;
+    }
+
+    /**
+     * Re-optimizes the traversal directions of the routes a move produced, keeping the order of their links.  Only
+     * the changed routes are touched, and each costs time linear in its length.
+     *
+     * @param routesToChange - the output of Mover.makeComplexMove; routes that get cheaper are replaced in place
+     */
+    protected void optimizeDirections(TIntObjectHashMap<Route<V, E>> routesToChange) {
+        SegmentCosts<V, E, G> costs = new SegmentCosts<V, E, G>(getGraph());
+        RouteExpander<G> wre = new RouteExpander<G>(getGraph());
+        for (int id : routesToChange.keys()) {
+            Route<V, E> r = routesToChange.get(id);
+            TIntArrayList links = new TIntArrayList(r.getCompactRepresentation().toNativeArray());
+            ArrayList<Boolean> directions = new ArrayList<Boolean>(r.getCompactTraversalDirection());
+            if (costs.optimizeDirections(links, directions) < r.getCost())
+                routesToChange.put(id, wre.unflattenRoute(links, directions));
+        }
+    }
 }
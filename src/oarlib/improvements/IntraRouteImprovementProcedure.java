@@ -26,7 +26,7 @@ package oarlib.improvements;
 import oarlib.core.*;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 /**
  * Created by oliverlum on 11/16/14.
@@ -42,9 +42,15 @@ public abstract class IntraRouteImprovementProcedure<V extends Vertex, E extends
 
     @Override
     public final Collection<Route<V, E>> improveSolution() {
-        HashSet<Route<V, E>> ans = new HashSet<Route<V, E>>();
-        for (Route r : getInitialSol())
-            ans.add(improveRoute(r));
+        //keep the input order, so that what comes after doesn't depend on identity hash codes
+        LinkedHashSet<Route<V, E>> ans = new LinkedHashSet<Route<V, E>>();
+        for (Route r : getInitialSol()) {
+            //out of time; pass the rest through untouched
+            if (isTimeUp())
+                ans.add(r);
+            else
+                ans.add(improveRoute(r));
+        }
         return ans;
     }
 
@@ -29,6 +29,7 @@ import oarlib.core.Route;
 import oarlib.graph.impl.WindyGraph;
 import oarlib.improvements.ImprovementStrategy;
 import oarlib.improvements.IntraRouteImprovementProcedure;
+import oarlib.improvements.util.MoveCache;
 import oarlib.link.impl.WindyEdge;
 import oarlib.problem.impl.ProblemAttributes;
 import oarlib.vertex.impl.WindyVertex;
@@ -59,11 +60,19 @@ public class Benavent_VND1 extends IntraRouteImprovementProcedure<WindyVertex, W
     @Override
     public Route<WindyVertex, WindyEdge> improveRoute(Route<WindyVertex, WindyEdge> r) {
 
+        //don't look at routes we've already run to a local optimum
+        MoveCache cache = isUsingMoveCache() ? MoveCache.forGraph(getGraph()) : null;
+        if (cache != null) {
+            Route<WindyVertex, WindyEdge> known = cache.getLocalOptimum(getClass().getName(), r);
+            if (known != null)
+                return known;
+        }
+
         int currBest = r.getCost();
         Route<WindyVertex, WindyEdge> ans = r;
 
-        while (true) {
-            OrInterchange oi = new OrInterchange(getProblem(), ImprovementStrategy.Type.SteepestDescent, getInitialSol());
+        while (!isTimeUp()) {
+            OrInterchange oi = inheritSearchSettings(new OrInterchange(getProblem(), ImprovementStrategy.Type.SteepestDescent, getInitialSol()));
             Route<WindyVertex, WindyEdge> postIP1 = oi.improveRoute(ans);
             LOGGER.debug("VND1-ip1 obj value: " + postIP1.getCost());
             if (postIP1.getCost() < currBest) {
@@ -72,7 +81,7 @@ public class Benavent_VND1 extends IntraRouteImprovementProcedure<WindyVertex, W
                 continue;
             }
 
-            Reversal reversal = new Reversal(getProblem(), getInitialSol());
+            Reversal reversal = inheritSearchSettings(new Reversal(getProblem(), getInitialSol()));
             Route<WindyVertex, WindyEdge> postIP2 = reversal.improveRoute(ans);
             LOGGER.debug("VND1-ip2 obj value: " + postIP2.getCost());
             if (postIP2.getCost() < currBest) {
@@ -81,7 +90,7 @@ public class Benavent_VND1 extends IntraRouteImprovementProcedure<WindyVertex, W
                 continue;
             }
 
-            TwoInterchange ti = new TwoInterchange(getProblem(), ImprovementStrategy.Type.SteepestDescent, getInitialSol());
+            TwoInterchange ti = inheritSearchSettings(new TwoInterchange(getProblem(), ImprovementStrategy.Type.SteepestDescent, getInitialSol()));
             Route<WindyVertex, WindyEdge> postIP3 = ti.improveRoute(ans);
             LOGGER.debug("VND1-ip3 obj value: " + postIP3.getCost());
             if (postIP3.getCost() < currBest) {
@@ -90,6 +99,8 @@ public class Benavent_VND1 extends IntraRouteImprovementProcedure<WindyVertex, W
                 continue;
             }
 
+            if (cache != null)
+                cache.putLocalOptimum(getClass().getName(), r, ans);
             break;
         }
 
@@ -57,11 +57,17 @@ public class Benavent_VND2 extends InterRouteImprovementProcedure<WindyVertex, W
     public Collection<Route<WindyVertex, WindyEdge>> improveSolution() {
 
         Collection<Route<WindyVertex, WindyEdge>> initialSol = getInitialSol();
-        Change1to0 ip1 = new Change1to0(getProblem(), ImprovementStrategy.Type.FirstImprovement, initialSol);
+        if (isTimeUp())
+            return initialSol;
+        Change1to0 ip1 = inheritSearchSettings(new Change1to0(getProblem(), ImprovementStrategy.Type.FirstImprovement, initialSol));
         Collection<Route<WindyVertex, WindyEdge>> postIP1 = ip1.improveSolution();
-        Change2to0 ip2 = new Change2to0(getProblem(), ImprovementStrategy.Type.FirstImprovement, postIP1);
+        if (isTimeUp())
+            return postIP1;
+        Change2to0 ip2 = inheritSearchSettings(new Change2to0(getProblem(), ImprovementStrategy.Type.FirstImprovement, postIP1));
         Collection<Route<WindyVertex, WindyEdge>> postIP2 = ip2.improveSolution();
-        Change1to1 ip3 = new Change1to1(getProblem(), ImprovementStrategy.Type.FirstImprovement, postIP2);
+        if (isTimeUp())
+            return postIP2;
+        Change1to1 ip3 = inheritSearchSettings(new Change1to1(getProblem(), ImprovementStrategy.Type.FirstImprovement, postIP2));
         Collection<Route<WindyVertex, WindyEdge>> postIP3 = ip3.improveSolution();
 
         return postIP3;
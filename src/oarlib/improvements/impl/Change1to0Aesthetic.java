@@ -31,6 +31,7 @@ import oarlib.graph.impl.WindyGraph;
 import oarlib.improvements.ImprovementStrategy;
 import oarlib.improvements.InterRouteImprovementProcedure;
 import oarlib.improvements.util.CompactMove;
+import oarlib.improvements.util.MoveCache;
 import oarlib.improvements.util.Mover;
 import oarlib.link.impl.WindyEdge;
 import oarlib.metrics.MaxMetric;
@@ -86,6 +87,8 @@ public class Change1to0Aesthetic extends InterRouteImprovementProcedure<WindyVer
     public Collection<Route<WindyVertex, WindyEdge>> improveSolution() {
 
         Collection<Route<WindyVertex, WindyEdge>> workingSol = getInitialSol();
+        if (isUsingMoveCache())
+            MoveCache.forGraph(getGraph()).retainOnly(workingSol);
         Collection<Route<WindyVertex, WindyEdge>> bestSol = getInitialSol();
 
         boolean improved = true;
@@ -114,6 +117,8 @@ public class Change1to0Aesthetic extends InterRouteImprovementProcedure<WindyVer
 
         Collection<Route<WindyVertex, WindyEdge>> initialSol = init;
         int skipId = longestRoute.getGlobalId();
+        MoveCache cache = isUsingMoveCache() ? MoveCache.forGraph(getGraph()) : null;
+        String kind = getClass().getName();
         Mover<WindyVertex, WindyEdge, WindyGraph> mover = new Mover<WindyVertex, WindyEdge, WindyGraph>(getGraph());
 
         double maxSavings = 0;
@@ -132,6 +137,10 @@ public class Change1to0Aesthetic extends InterRouteImprovementProcedure<WindyVer
             //don't try to move to a more expensive route.
             if (r.getCost() > longestRoute.getCost())
                 continue;
+            //an earlier pass already found nothing improving between these two routes
+            if (cache != null && cache.isExhausted(kind, longestRoute, r))
+                continue;
+            boolean pairImproves = false;
 
             //business logic
             int lim = longestRoute.getCompactRepresentation().size();
@@ -172,6 +181,8 @@ public class Change1to0Aesthetic extends InterRouteImprovementProcedure<WindyVer
 
                         //savings = (mm.evaluate(initialSol) - mm.evaluate(ans)) + (aestheticFactor * (roi.evaluate(initialSol) - roi.evaluate(ans)));
                         savings = moddedMax - longestRoute.getCost();
+                        if (savings < 0)
+                            pairImproves = true;
                         if (savings < maxSavings) {
                             maxSavings = savings;
                             foundImprovement = true;
@@ -190,6 +201,9 @@ public class Change1to0Aesthetic extends InterRouteImprovementProcedure<WindyVer
 
                 }
             }
+
+            if (cache != null && !pairImproves)
+                cache.markExhausted(kind, longestRoute, r);
         }
 
 
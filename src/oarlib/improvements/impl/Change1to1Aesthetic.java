@@ -31,6 +31,7 @@ import oarlib.graph.impl.WindyGraph;
 import oarlib.improvements.ImprovementStrategy;
 import oarlib.improvements.InterRouteImprovementProcedure;
 import oarlib.improvements.util.CompactMove;
+import oarlib.improvements.util.MoveCache;
 import oarlib.improvements.util.Mover;
 import oarlib.link.impl.WindyEdge;
 import oarlib.metrics.MaxMetric;
@@ -87,6 +88,8 @@ public class Change1to1Aesthetic extends InterRouteImprovementProcedure<WindyVer
 
 
         Collection<Route<WindyVertex, WindyEdge>> workingSol = getInitialSol();
+        if (isUsingMoveCache())
+            MoveCache.forGraph(getGraph()).retainOnly(workingSol);
         Collection<Route<WindyVertex, WindyEdge>> bestSol = getInitialSol();
 
         boolean improved = true;
@@ -115,6 +118,8 @@ public class Change1to1Aesthetic extends InterRouteImprovementProcedure<WindyVer
 
         Collection<Route<WindyVertex, WindyEdge>> initialSol = init;
         int skipId = longestRoute.getGlobalId();
+        MoveCache cache = isUsingMoveCache() ? MoveCache.forGraph(getGraph()) : null;
+        String kind = getClass().getName();
         double bestSavings = 0;
         boolean foundImprovement = false;
         Mover<WindyVertex, WindyEdge, WindyGraph> mover = new Mover<WindyVertex, WindyEdge, WindyGraph>(getGraph());
@@ -130,6 +135,11 @@ public class Change1to1Aesthetic extends InterRouteImprovementProcedure<WindyVer
             if (r.getGlobalId() == skipId)
                 continue;
 
+            //an earlier pass already found nothing improving between these two routes
+            if (cache != null && cache.isExhausted(kind, longestRoute, r))
+                continue;
+            boolean pairImproves = false;
+
             //business logic
             int lim = longestRoute.getCompactRepresentation().size();
             int lim2 = r.getCompactRepresentation().size();
@@ -174,6 +184,8 @@ public class Change1to1Aesthetic extends InterRouteImprovementProcedure<WindyVer
 
                             //savings = (mm.evaluate(initialSol) - mm.evaluate(ans)) + (aestheticFactor * (roi.evaluate(initialSol) - roi.evaluate(ans)));
                             savings = moddedMax - longestRoute.getCost();
+                            if (savings < 0)
+                                pairImproves = true;
                             if (savings < bestSavings) {
                                 bestSavings = savings;
                                 bestMoveList = moveList;
@@ -189,6 +201,9 @@ public class Change1to1Aesthetic extends InterRouteImprovementProcedure<WindyVer
                     }
                 }
             }
+
+            if (cache != null && !pairImproves)
+                cache.markExhausted(kind, longestRoute, r);
         }
 
         if (foundImprovement) {
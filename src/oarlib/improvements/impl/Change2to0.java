@@ -32,8 +32,10 @@ import oarlib.improvements.ImprovementStrategy;
 import oarlib.improvements.InterRouteImprovementProcedure;
 import oarlib.improvements.util.CompactMove;
 import oarlib.improvements.util.Mover;
+import oarlib.improvements.util.ParallelMoveEvaluator;
 import oarlib.improvements.util.Utils;
 import oarlib.link.impl.WindyEdge;
+import oarlib.metrics.IncrementalMaxMetric;
 import oarlib.problem.impl.ProblemAttributes;
 import oarlib.vertex.impl.WindyVertex;
 
@@ -71,65 +73,29 @@ public class Change2to0 extends InterRouteImprovementProcedure<WindyVertex, Wind
     private Collection<Route<WindyVertex, WindyEdge>> offloadTwoEdges(Route<WindyVertex, WindyEdge> longestRoute) {
 
         Collection<Route<WindyVertex, WindyEdge>> initialSol = getInitialSol();
-        int skipId = longestRoute.getGlobalId();
         Mover<WindyVertex, WindyEdge, WindyGraph> mover = new Mover<WindyVertex, WindyEdge, WindyGraph>(getGraph());
-
-        int bestSavings = 0;
-        boolean foundImprovement = false;
-        ArrayList<CompactMove<WindyVertex, WindyEdge>> bestMoveList = new ArrayList<CompactMove<WindyVertex, WindyEdge>>();
-        Collection<Route<WindyVertex, WindyEdge>> ans = new ArrayList<Route<WindyVertex, WindyEdge>>();
-
-        for (Route<WindyVertex, WindyEdge> r : initialSol) {
-            //don't try and move to yourself.
-            if (r.getGlobalId() == skipId)
-                continue;
-
-            //business logic
-            int lim = longestRoute.getCompactRepresentation().size() - 1;
-            int lim2 = r.getCompactRepresentation().size() - 1;
-            CompactMove<WindyVertex, WindyEdge> temp, temp2;
-            ArrayList<CompactMove<WindyVertex, WindyEdge>> moveList = new ArrayList<CompactMove<WindyVertex, WindyEdge>>();
-            int savings;
-
-            for (int i = 0; i < lim; i++) {
-                for (int j = 0; j < lim2; j++) {
-                    temp = new CompactMove<WindyVertex, WindyEdge>(longestRoute, r, i, j);
-                    temp2 = new CompactMove<WindyVertex, WindyEdge>(longestRoute, r, i, j + 1);
-                    moveList.clear();
-                    moveList.add(temp);
-                    moveList.add(temp2);
-                    savings = mover.evalComplexMove(moveList, initialSol);
-                    if (savings < bestSavings) {
-                        bestSavings = savings;
-                        bestMoveList = moveList;
-                        foundImprovement = true;
-                        if (mStrat == ImprovementStrategy.Type.FirstImprovement) {
-                            TIntObjectHashMap<Route<WindyVertex, WindyEdge>> routesToChange = mover.makeComplexMove(moveList);
-                            for (Route r2 : initialSol) {
-                                if (routesToChange.containsKey(r2.getGlobalId())) {
-                                    ans.add(routesToChange.get(r2.getGlobalId()));
-                                } else {
-                                    ans.add(r2);
-                                }
-                            }
-                            return ans;
-                        }
-                    }
-                }
+        IncrementalMaxMetric tracker = new IncrementalMaxMetric(initialSol);
+        ParallelMoveEvaluator<WindyVertex, WindyEdge, WindyGraph> evaluator = new ParallelMoveEvaluator<WindyVertex, WindyEdge, WindyGraph>(mover, getNumThreads(), getExecutor());
+
+        //every (consecutive pair of links in the longest route, position in another route) pair
+        ParallelMoveEvaluator.RoutePairSpace<WindyVertex, WindyEdge> space = new ParallelMoveEvaluator.RoutePairSpace<WindyVertex, WindyEdge>(longestRoute, initialSol, 1, 1) {
+            @Override
+            protected ArrayList<CompactMove<WindyVertex, WindyEdge>> getMoves(Route<WindyVertex, WindyEdge> from, Route<WindyVertex, WindyEdge> to, int i, int j) {
+                ArrayList<CompactMove<WindyVertex, WindyEdge>> moveList = new ArrayList<CompactMove<WindyVertex, WindyEdge>>();
+                moveList.add(new CompactMove<WindyVertex, WindyEdge>(from, to, i, j));
+                moveList.add(new CompactMove<WindyVertex, WindyEdge>(from, to, i, j + 1));
+                return moveList;
             }
-        }
+        };
 
-        if (foundImprovement) {
-            TIntObjectHashMap<Route<WindyVertex, WindyEdge>> routesToChange = mover.makeComplexMove(bestMoveList);
-            for (Route r2 : initialSol) {
-                if (routesToChange.containsKey(r2.getGlobalId())) {
-                    ans.add(routesToChange.get(r2.getGlobalId()));
-                } else {
-                    ans.add(r2);
-                }
-            }
-            return ans;
-        }
-        return initialSol;
+        int best = findMove(evaluator, space, tracker, 2, 1, 0);
+        if (best == -1)
+            return initialSol;
+
+        //re-price the winner so that the mover records which direction to insert in
+        ArrayList<CompactMove<WindyVertex, WindyEdge>> bestMoveList = space.getMoves(best);
+        mover.evalComplexMove(bestMoveList, tracker);
+        TIntObjectHashMap<Route<WindyVertex, WindyEdge>> routesToChange = mover.makeComplexMove(bestMoveList);
+        return applyChanges(initialSol, routesToChange);
     }
 }
@@ -29,6 +29,7 @@ import gnu.trove.TIntObjectHashMap;
 import oarlib.core.Graph;
 import oarlib.core.Problem;
 import oarlib.core.Route;
+import oarlib.core.SolveContext;
 import oarlib.graph.impl.ZigZagGraph;
 import oarlib.graph.util.Pair;
 import oarlib.improvements.IntraRouteImprovementProcedure;
@@ -41,7 +42,9 @@ import oarlib.route.util.ZigZagExpander;
 import oarlib.solver.impl.WRPPZZTW_PFIH;
 import oarlib.vertex.impl.ZigZagVertex;
 import org.apache.commons.lang3.text.translate.NumericEntityUnescaper;
+import org.apache.log4j.Logger;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -49,6 +52,8 @@ import java.util.ArrayList;
  */
 public class ChangeZigZagDecision extends IntraRouteImprovementProcedure<ZigZagVertex, ZigZagLink, ZigZagGraph> {
 
+    private static final Logger LOGGER = Logger.getLogger(ChangeZigZagDecision.class);
+
     public ChangeZigZagDecision(Problem<ZigZagVertex, ZigZagLink, ZigZagGraph> problem) {
         super(problem);
     }
@@ -78,29 +83,39 @@ public class ChangeZigZagDecision extends IntraRouteImprovementProcedure<ZigZagV
         ZigZagLink temp;
         ZigZagTour candidate;
         int bestCost = Integer.MAX_VALUE;
-        String fileName = "/Users/oliverlum/Downloads/20node/" + mProblem.getName() + "_ans_101.txt";
 
         int l = Integer.parseInt(mProblem.getName().substring(0,1));
         int j = Integer.parseInt(mProblem.getName().substring(2,3));
         int k = Integer.parseInt(mProblem.getName().substring(4,5));
 
-        for (int i = 0; i < compactRoute.size(); i++) {
-
-            temp = mProblem.getGraph().getEdge(compactRoute.get(i));
-            //only care about zigzag optional links
-            if (!(temp.getStatus() == ZigZagLink.ZigZagStatus.OPTIONAL))
-                continue;
-
-            //try switching it and resolving
-            rCopy.changeZigZagStatus(i);
-            RouteExporter.exportRoute(rCopy, RouteExporter.RouteFormat.ZHANG, fileName);
-            candidate = WRPPZZTW_PFIH.runIP(mProblem.getGraph(),l,j,k,101,1000);
-            if(candidate.getCost() <= bestCost) {
-                bestCost = candidate.getCost();
-                rCopy = candidate;
-            } else {
+        //the IP scripts read and write their files in the solve's working directory, (or one of their own)
+        SolveContext context = (getContext() == null) ? new SolveContext() : getContext();
+        try {
+            String fileName = context.newWorkFile("20node/" + mProblem.getName() + "_ans_101.txt").getPath();
+            for (int i = 0; i < compactRoute.size(); i++) {
+
+                temp = mProblem.getGraph().getEdge(compactRoute.get(i));
+                //only care about zigzag optional links
+                if (!(temp.getStatus() == ZigZagLink.ZigZagStatus.OPTIONAL))
+                    continue;
+
+                //try switching it and resolving
                 rCopy.changeZigZagStatus(i);
+                RouteExporter.exportRoute(rCopy, RouteExporter.RouteFormat.ZHANG, fileName);
+                candidate = WRPPZZTW_PFIH.runIP(mProblem.getGraph(),l,j,k,101,1000, context);
+                if(candidate.getCost() <= bestCost) {
+                    bestCost = candidate.getCost();
+                    rCopy = candidate;
+                } else {
+                    rCopy.changeZigZagStatus(i);
+                }
             }
+        } catch (IOException e) {
+            LOGGER.error("Could not set up the working directory for the IP scripts.", e);
+            throw new IllegalStateException(e);
+        } finally {
+            if (context != getContext())
+                context.close();
         }
 
         return rCopy;
@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.improvements.impl;
+
+import gnu.trove.TIntArrayList;
+import oarlib.core.Graph;
+import oarlib.core.Problem;
+import oarlib.core.Route;
+import oarlib.graph.impl.WindyGraph;
+import oarlib.improvements.ImprovementStrategy;
+import oarlib.improvements.IntraRouteImprovementProcedure;
+import oarlib.improvements.util.SegmentCosts;
+import oarlib.link.impl.WindyEdge;
+import oarlib.problem.impl.ProblemAttributes;
+import oarlib.route.util.RouteExpander;
+import oarlib.vertex.impl.WindyVertex;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Or-opt (Or 1976) over the compact representation of a route: tries moving every string of up to L consecutive
+ * required links to every other position in the route, forwards or backwards, and applies the best (or first) move
+ * that shortens it, until none does.  Unlike the OrInterchange, which re-expands the route for every candidate, each
+ * candidate is priced in constant time from prefix cost arrays, (see SegmentCosts), and the route is only expanded
+ * once at the end.
+ */
+public class OrOpt extends IntraRouteImprovementProcedure<WindyVertex, WindyEdge, WindyGraph> {
+
+    private static final Logger LOGGER = Logger.getLogger(OrOpt.class);
+
+    private int L = 3;
+
+    public OrOpt(Problem<WindyVertex, WindyEdge, WindyGraph> problem) {
+        super(problem);
+    }
+
+    public OrOpt(Problem<WindyVertex, WindyEdge, WindyGraph> problem, ImprovementStrategy.Type strat, Collection<Route<WindyVertex, WindyEdge>> initialSol) {
+        super(problem, strat, initialSol);
+    }
+
+    @Override
+    public ProblemAttributes getProblemAttributes() {
+        return new ProblemAttributes(Graph.Type.WINDY, null, null, ProblemAttributes.NumDepots.SINGLE_DEPOT, null);
+    }
+
+    /**
+     * @return - the longest string of links moved at once
+     */
+    public int getMaxSegmentLength() {
+        return L;
+    }
+
+    public void setMaxSegmentLength(int maxSegmentLength) {
+        if (maxSegmentLength < 1) {
+            LOGGER.error("Segments must contain at least one link.");
+            throw new IllegalArgumentException();
+        }
+        L = maxSegmentLength;
+    }
+
+    @Override
+    public Route<WindyVertex, WindyEdge> improveRoute(Route<WindyVertex, WindyEdge> r) {
+
+        SegmentCosts<WindyVertex, WindyEdge, WindyGraph> costs = new SegmentCosts<WindyVertex, WindyEdge, WindyGraph>(getGraph());
+        TIntArrayList links = new TIntArrayList(r.getCompactRepresentation().toNativeArray());
+        ArrayList<Boolean> directions = new ArrayList<Boolean>(r.getCompactTraversalDirection());
+        boolean firstImprovement = mStrat == ImprovementStrategy.Type.FirstImprovement;
+
+        boolean changed = false;
+        while (!isTimeUp()) {
+
+            SegmentCosts<WindyVertex, WindyEdge, WindyGraph>.Profile profile = costs.profile(links, directions);
+            int n = profile.size();
+            int bestDelta = 0;
+            int bestI = -1, bestJ = -1, bestP = -1;
+            boolean bestReversed = false;
+            int delta;
+
+            search:
+            for (int i = 0; i < n; i++) {
+                for (int j = i; j < n && j < i + L; j++) {
+                    for (int p = 0; p <= n; p++) {
+                        if (p >= i && p <= j + 1)
+                            continue;
+                        for (int rev = 0; rev < 2; rev++) {
+                            delta = profile.orOptDelta(i, j, p, rev == 1);
+                            if (delta < bestDelta) {
+                                bestDelta = delta;
+                                bestI = i;
+                                bestJ = j;
+                                bestP = p;
+                                bestReversed = rev == 1;
+                                if (firstImprovement)
+                                    break search;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (bestI == -1)
+                break;
+            SegmentCosts.applyOrOpt(links, directions, bestI, bestJ, bestP, bestReversed);
+            changed = true;
+            if (firstImprovement)
+                break;
+        }
+
+        if (!changed)
+            return r;
+        return new RouteExpander(getGraph()).unflattenRoute(links, directions);
+    }
+}
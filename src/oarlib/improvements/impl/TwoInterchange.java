@@ -24,12 +24,14 @@
 package oarlib.improvements.impl;
 
 import gnu.trove.TIntArrayList;
+import gnu.trove.TIntIntHashMap;
 import oarlib.core.Graph;
 import oarlib.core.Problem;
 import oarlib.core.Route;
 import oarlib.graph.impl.WindyGraph;
 import oarlib.improvements.ImprovementStrategy;
 import oarlib.improvements.IntraRouteImprovementProcedure;
+import oarlib.improvements.util.NeighborLists;
 import oarlib.link.impl.WindyEdge;
 import oarlib.problem.impl.ProblemAttributes;
 import oarlib.route.impl.Tour;
@@ -73,6 +75,12 @@ public class TwoInterchange extends IntraRouteImprovementProcedure<WindyVertex,
         RouteExpander wre = new RouteExpander(getGraph());
         boolean foundImprovement = true;
 
+        //long routes only try the swaps that put a link next to one of its nearest neighbors, (see NeighborLists)
+        int n = record.getCompactRepresentation().size();
+        boolean granular = getGranularity() > 0 && (long) n * (n - 1) / 2 >= getGranularThreshold();
+        NeighborLists neighbors = granular ? NeighborLists.forGraph(getGraph()) : null;
+        int k = granular ? Math.min(getGranularity(), neighbors.getMaxNeighbors()) : 0;
+
         Route newRecord = null;
         while (foundImprovement) {
 
@@ -81,50 +89,104 @@ public class TwoInterchange extends IntraRouteImprovementProcedure<WindyVertex,
             TIntArrayList flattenedRoute = new TIntArrayList(record.getCompactRepresentation().toNativeArray());
             ArrayList<Boolean> traversalDirection = new ArrayList<Boolean>(record.getCompactTraversalDirection());
 
-            int n = flattenedRoute.size();
+            n = flattenedRoute.size();
+            int[] swaps = granular ? granularSwaps(flattenedRoute, neighbors, k) : null;
+            long numSwaps = granular ? swaps.length : (long) n * (n - 1) / 2;
 
             Tour candidate;
             //swap them and re expand, and re-assess cost
-            for (int i = 0; i < n; i++) {
-                for (int j = 0; j < i; j++) {
-                    temp = flattenedRoute.get(i);
-                    temp2 = flattenedRoute.get(j);
-                    tempForward = traversalDirection.get(i);
-                    tempForward2 = traversalDirection.get(j);
-
-                    //swap
-                    flattenedRoute.set(i, temp2);
-                    flattenedRoute.set(j, temp);
-                    traversalDirection.set(i, tempForward2);
-                    traversalDirection.set(j, tempForward);
-
-                    candidate = wre.unflattenRoute(flattenedRoute, traversalDirection);
-                    candidateCost = candidate.getCost();
-                    if (candidateCost < recordCost) {
-                        recordCost = candidateCost;
-                        newRecord = candidate;
-                        foundImprovement = true;
-                        if (mStrat == ImprovementStrategy.Type.FirstImprovement) {
-                            return newRecord;
-                        }
-                    }
-
-                    //undo the swap
-                    flattenedRoute.set(i, temp);
-                    flattenedRoute.set(j, temp2);
-                    traversalDirection.set(i, tempForward);
-                    traversalDirection.set(j, tempForward2);
+            int i = 1;
+            int j = 0;
+            for (long c = 0; c < numSwaps; c++) {
+                if (granular) {
+                    i = swaps[(int) c] / n;
+                    j = swaps[(int) c] % n;
+                } else if (c > 0 && ++j == i) {
+                    i++;
+                    j = 0;
+                }
 
+                temp = flattenedRoute.get(i);
+                temp2 = flattenedRoute.get(j);
+                tempForward = traversalDirection.get(i);
+                tempForward2 = traversalDirection.get(j);
+
+                //swap
+                flattenedRoute.set(i, temp2);
+                flattenedRoute.set(j, temp);
+                traversalDirection.set(i, tempForward2);
+                traversalDirection.set(j, tempForward);
+
+                candidate = wre.unflattenRoute(flattenedRoute, traversalDirection);
+                candidateCost = candidate.getCost();
+                if (candidateCost < recordCost) {
+                    recordCost = candidateCost;
+                    newRecord = candidate;
+                    foundImprovement = true;
+                    if (mStrat == ImprovementStrategy.Type.FirstImprovement) {
+                        return newRecord;
+                    }
                 }
+
+                //undo the swap
+                flattenedRoute.set(i, temp);
+                flattenedRoute.set(j, temp2);
+                traversalDirection.set(i, tempForward);
+                traversalDirection.set(j, tempForward2);
             }
 
             if (foundImprovement) {
                 record = newRecord;
+            } else if (granular && k < neighbors.getMaxNeighbors()) {
+                //nothing nearby; widen the neighborhood and look again
+                k = Math.min(2 * k, neighbors.getMaxNeighbors());
+                foundImprovement = true;
             }
         }
 
         return record;
     }
 
+    /**
+     * @return - the swaps (i, j), j < i, packed as i * n + j in the order of a full scan, that put one of the two
+     * links right next to one of its k nearest neighbors in the route
+     */
+    private static int[] granularSwaps(TIntArrayList flattenedRoute, NeighborLists neighbors, int k) {
+
+        int n = flattenedRoute.size();
+        TIntIntHashMap positionOf = new TIntIntHashMap(); //link id -> position + 1
+        for (int p = 0; p < n; p++)
+            positionOf.put(flattenedRoute.get(p), p + 1);
+
+        TIntArrayList swaps = new TIntArrayList();
+        int[] list;
+        int p;
+        for (int i = 0; i < n; i++) {
+            //the link at i goes just after a predecessor, or just before a successor
+            list = neighbors.getPredecessors(flattenedRoute.get(i));
+            for (int l = 0; l < k && l < list.length; l++)
+                if ((p = positionOf.get(list[l]) - 1) >= 0)
+                    addSwap(swaps, n, i, p + 1);
+            list = neighbors.getSuccessors(flattenedRoute.get(i));
+            for (int l = 0; l < k && l < list.length; l++)
+                if ((p = positionOf.get(list[l]) - 1) >= 0)
+                    addSwap(swaps, n, i, p - 1);
+        }
 
+        swaps.sort();
+        int size = 0;
+        for (int l = 0; l < swaps.size(); l++)
+            if (size == 0 || swaps.get(l) != swaps.get(size - 1))
+                swaps.set(size++, swaps.get(l));
+        int[] ans = new int[size];
+        for (int l = 0; l < size; l++)
+            ans[l] = swaps.get(l);
+        return ans;
+    }
+
+    private static void addSwap(TIntArrayList swaps, int n, int a, int b) {
+        if (a == b || b < 0 || b >= n)
+            return;
+        swaps.add(Math.max(a, b) * n + Math.min(a, b));
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.improvements.impl;
+
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntObjectHashMap;
+import oarlib.core.Graph;
+import oarlib.core.Problem;
+import oarlib.core.Route;
+import oarlib.graph.impl.WindyGraph;
+import oarlib.improvements.ImprovementStrategy;
+import oarlib.improvements.InterRouteImprovementProcedure;
+import oarlib.improvements.util.SegmentCosts;
+import oarlib.improvements.util.Utils;
+import oarlib.link.impl.WindyEdge;
+import oarlib.metrics.IncrementalMaxMetric;
+import oarlib.problem.impl.ProblemAttributes;
+import oarlib.route.util.RouteExpander;
+import oarlib.vertex.impl.WindyVertex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * 2-opt* (Potvin and Rousseau 1995) over the compact representation of the solution: cuts the longest route and one
+ * other route in two, and exchanges their tails.  Every pair of cut points is priced in constant time from prefix
+ * and suffix cost arrays, (see SegmentCosts), and the best (or first) exchange that lowers the max route cost is
+ * applied.  Like the Change procedures, one move is made per call.
+ */
+public class TwoOptStar extends InterRouteImprovementProcedure<WindyVertex, WindyEdge, WindyGraph> {
+
+    public TwoOptStar(Problem<WindyVertex, WindyEdge, WindyGraph> problem) {
+        super(problem);
+    }
+
+    public TwoOptStar(Problem<WindyVertex, WindyEdge, WindyGraph> problem, ImprovementStrategy.Type strat, Collection<Route<WindyVertex, WindyEdge>> initialSol) {
+        super(problem, strat, initialSol);
+    }
+
+    @Override
+    public ProblemAttributes getProblemAttributes() {
+        return new ProblemAttributes(Graph.Type.WINDY, null, ProblemAttributes.NumVehicles.MULTI_VEHICLE, ProblemAttributes.NumDepots.SINGLE_DEPOT, null);
+    }
+
+    @Override
+    public Collection<Route<WindyVertex, WindyEdge>> improveSolution() {
+
+        Collection<Route<WindyVertex, WindyEdge>> initialSol = getInitialSol();
+        Route<WindyVertex, WindyEdge> longestRoute = Utils.findLongestRoute(initialSol);
+        IncrementalMaxMetric tracker = new IncrementalMaxMetric(initialSol);
+        SegmentCosts<WindyVertex, WindyEdge, WindyGraph> costs = new SegmentCosts<WindyVertex, WindyEdge, WindyGraph>(getGraph());
+        boolean firstImprovement = mStrat == ImprovementStrategy.Type.FirstImprovement;
+
+        SegmentCosts<WindyVertex, WindyEdge, WindyGraph>.Profile a = costs.profile(longestRoute);
+        int nA = a.size();
+        int idA = longestRoute.getGlobalId();
+        int max = tracker.getMax();
+
+        int bestMax = max;
+        Route<WindyVertex, WindyEdge> bestOther = null;
+        int bestI = -1, bestJ = -1;
+        int costA, costB, newMax;
+
+        search:
+        for (Route<WindyVertex, WindyEdge> other : initialSol) {
+            if (other == longestRoute)
+                continue;
+            if (isTimeUp())
+                break;
+            SegmentCosts<WindyVertex, WindyEdge, WindyGraph>.Profile b = costs.profile(other);
+            int nB = b.size();
+            int idB = other.getGlobalId();
+            for (int i = 0; i <= nA; i++) {
+                for (int j = 0; j <= nB; j++) {
+                    //exchanging everything or nothing just swaps the two routes
+                    if ((i == 0 && j == 0) || (i == nA && j == nB))
+                        continue;
+                    costA = costs.concatenationCost(a, i, b, j);
+                    if (costA >= bestMax)
+                        continue;
+                    costB = costs.concatenationCost(b, j, a, i);
+                    newMax = tracker.evaluateWith(idA, costA, idB, costB);
+                    if (newMax < bestMax) {
+                        bestMax = newMax;
+                        bestOther = other;
+                        bestI = i;
+                        bestJ = j;
+                        if (firstImprovement)
+                            break search;
+                    }
+                }
+            }
+        }
+
+        if (bestOther == null)
+            return initialSol;
+
+        RouteExpander wre = new RouteExpander(getGraph());
+        TIntObjectHashMap<Route<WindyVertex, WindyEdge>> routesToChange = new TIntObjectHashMap<Route<WindyVertex, WindyEdge>>();
+        routesToChange.put(idA, exchange(wre, longestRoute, bestI, bestOther, bestJ));
+        routesToChange.put(bestOther.getGlobalId(), exchange(wre, bestOther, bestJ, longestRoute, bestI));
+        return applyChanges(initialSol, routesToChange);
+    }
+
+    /**
+     * @return - the route made of the first i links of head, followed by the links of tail from position j on
+     */
+    private Route<WindyVertex, WindyEdge> exchange(RouteExpander wre, Route<WindyVertex, WindyEdge> head, int i, Route<WindyVertex, WindyEdge> tail, int j) {
+        TIntArrayList headLinks = head.getCompactRepresentation();
+        TIntArrayList tailLinks = tail.getCompactRepresentation();
+        ArrayList<Boolean> headDirections = head.getCompactTraversalDirection();
+        ArrayList<Boolean> tailDirections = tail.getCompactTraversalDirection();
+
+        TIntArrayList links = new TIntArrayList(i + tailLinks.size() - j);
+        ArrayList<Boolean> directions = new ArrayList<Boolean>(i + tailLinks.size() - j);
+        links.add(headLinks.toNativeArray(0, i));
+        directions.addAll(headDirections.subList(0, i));
+        links.add(tailLinks.toNativeArray(j, tailLinks.size() - j));
+        directions.addAll(tailDirections.subList(j, tailDirections.size()));
+        return wre.unflattenRoute(links, directions);
+    }
+}
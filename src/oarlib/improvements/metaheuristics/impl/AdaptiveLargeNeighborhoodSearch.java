@@ -0,0 +1,907 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2016 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.improvements.metaheuristics.impl;
+
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntHashSet;
+import oarlib.core.Graph;
+import oarlib.core.Problem;
+import oarlib.core.Route;
+import oarlib.graph.impl.WindyGraph;
+import oarlib.improvements.ImprovementProcedure;
+import oarlib.improvements.ImprovementStrategy;
+import oarlib.improvements.util.Utils;
+import oarlib.link.impl.WindyEdge;
+import oarlib.problem.impl.ProblemAttributes;
+import oarlib.route.util.RouteExpander;
+import oarlib.vertex.impl.WindyVertex;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Adaptive large neighborhood search (Ropke and Pisinger, 2006) for the min-max K-WRPP.
+ * <p/>
+ * Each iteration destroys part of the current solution by pulling required links out of their routes, and then
+ * repairs it by reinserting them.  Operators are chosen by roulette wheel, and their weights are adapted every
+ * segment according to how well they did.  Like the Mover, the search works on the compact representation of
+ * the routes (required link ids plus traversal directions), so insertions and removals are priced in O(1) from the
+ * distance matrix, and only the routes touched by an operator are ever re-costed.  The routes are only expanded
+ * back into full tours when an incumbent is reported, and at the very end.
+ * <p/>
+ * If more than one thread is requested, that many independent searches are run from the same starting point with
+ * different seeds, and the best one wins (ties go to the lowest thread index, so results are reproducible when no
+ * deadline is set).
+ */
+public class AdaptiveLargeNeighborhoodSearch extends ImprovementProcedure<WindyVertex, WindyEdge, WindyGraph> {
+
+    private static final Logger LOGGER = Logger.getLogger(AdaptiveLargeNeighborhoodSearch.class);
+
+    public enum DestroyOperator {
+        RANDOM, //remove links uniformly at random
+        WORST_ROUTE, //remove the most expensive links from the longest route
+        RELATED, //remove links that are close to a randomly chosen seed link (Shaw removal)
+        SECTOR //remove the links in a randomly oriented angular sector around the depot
+    }
+
+    public enum RepairOperator {
+        GREEDY, //insert the links one by one in random order, each in its cheapest position
+        REGRET //repeatedly insert the link with the largest regret-k value
+    }
+
+    public enum AcceptanceCriterion {
+        HILL_CLIMBING,
+        SIMULATED_ANNEALING,
+        RECORD_TO_RECORD
+    }
+
+    //scores awarded to the operators (sigma_1, sigma_2, sigma_3 in Ropke and Pisinger)
+    private static final int SCORE_NEW_BEST = 33;
+    private static final int SCORE_IMPROVED = 9;
+    private static final int SCORE_ACCEPTED = 13;
+
+    //determinism parameters for the worst and related removals; higher means greedier
+    private static final double WORST_RANDOMNESS = 3;
+    private static final double RELATED_RANDOMNESS = 6;
+
+    private int mMaxIterations = 5000;
+    private int mSegmentLength = 100;
+    private double mReactionFactor = .1;
+    private double mMinRemovalFraction = .1;
+    private double mMaxRemovalFraction = .3;
+    private int mRegretK = 3;
+    private AcceptanceCriterion mAcceptance = AcceptanceCriterion.SIMULATED_ANNEALING;
+    private double mStartTemperatureFraction = .05; //a solution this much worse is initially accepted with probability 1/2
+    private double mEndTemperatureFraction = .002; //of the starting temperature, reached at the last iteration
+    private double mRecordDeviation = .02;
+    private int mNumThreads = 1;
+    private long mSeed = 1000;
+
+    //read-only data shared by all the workers
+    private int mDepotId;
+    private int mNumRoutes;
+    private int mNumRequired;
+    private int[][] mDist;
+    private int[] mTail;
+    private int[] mHead;
+    private int[] mForwardCost;
+    private int[] mReverseCost;
+    private double[] mAngle;
+    private boolean mHasCoordinates;
+
+    //best across all the workers, guarded by this
+    private PartialSolution mBest;
+
+    public AdaptiveLargeNeighborhoodSearch(Problem<WindyVertex, WindyEdge, WindyGraph> problem) {
+        super(problem);
+    }
+
+    public AdaptiveLargeNeighborhoodSearch(Problem<WindyVertex, WindyEdge, WindyGraph> problem, Collection<Route<WindyVertex, WindyEdge>> initialSol) {
+        super(problem, null, initialSol);
+    }
+
+    public AdaptiveLargeNeighborhoodSearch(Problem<WindyVertex, WindyEdge, WindyGraph> problem, ImprovementStrategy.Type strat, Collection<Route<WindyVertex, WindyEdge>> initialSol) {
+        super(problem, strat, initialSol);
+    }
+
+    @Override
+    public ProblemAttributes getProblemAttributes() {
+        return new ProblemAttributes(Graph.Type.WINDY, null, ProblemAttributes.NumVehicles.MULTI_VEHICLE, null, null);
+    }
+
+    //region Parameters
+
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations < 1) {
+            LOGGER.error("The iteration limit must be positive.");
+            throw new IllegalArgumentException();
+        }
+        mMaxIterations = maxIterations;
+    }
+
+    /**
+     * @param segmentLength  - the number of iterations between operator weight updates
+     * @param reactionFactor - in [0,1]; how strongly the weights react to the last segment's scores
+     */
+    public void setWeightAdjustment(int segmentLength, double reactionFactor) {
+        if (segmentLength < 1 || reactionFactor < 0 || reactionFactor > 1) {
+            LOGGER.error("The segment length must be positive, and the reaction factor must lie in [0,1].");
+            throw new IllegalArgumentException();
+        }
+        mSegmentLength = segmentLength;
+        mReactionFactor = reactionFactor;
+    }
+
+    /**
+     * @param minFraction - the smallest fraction of the required links to remove in a single destroy step
+     * @param maxFraction - the largest fraction of the required links to remove in a single destroy step
+     */
+    public void setRemovalFractions(double minFraction, double maxFraction) {
+        if (minFraction <= 0 || maxFraction > 1 || minFraction > maxFraction) {
+            LOGGER.error("The removal fractions must satisfy 0 < min <= max <= 1.");
+            throw new IllegalArgumentException();
+        }
+        mMinRemovalFraction = minFraction;
+        mMaxRemovalFraction = maxFraction;
+    }
+
+    public void setRegretK(int k) {
+        if (k < 2) {
+            LOGGER.error("Regret insertion needs k >= 2.");
+            throw new IllegalArgumentException();
+        }
+        mRegretK = k;
+    }
+
+    public void setAcceptanceCriterion(AcceptanceCriterion acceptance) {
+        mAcceptance = acceptance;
+    }
+
+    /**
+     * @param deviation - record-to-record travel accepts candidates within (1 + deviation) of the best objective
+     */
+    public void setRecordDeviation(double deviation) {
+        if (deviation < 0) {
+            LOGGER.error("The record deviation may not be negative.");
+            throw new IllegalArgumentException();
+        }
+        mRecordDeviation = deviation;
+    }
+
+    /**
+     * @param numThreads - the number of independent searches to run concurrently
+     */
+    public void setNumThreads(int numThreads) {
+        if (numThreads < 1) {
+            LOGGER.error("You need at least one thread.");
+            throw new IllegalArgumentException();
+        }
+        mNumThreads = numThreads;
+    }
+
+    /**
+     * @param seed - the seed of the first search; search i uses seed + i
+     */
+    public void setSeed(long seed) {
+        mSeed = seed;
+    }
+
+    //endregion
+
+    @Override
+    public Collection<Route<WindyVertex, WindyEdge>> improveSolution() {
+
+        Collection<Route<WindyVertex, WindyEdge>> initialSol = getInitialSol();
+        LOGGER.info("Starting obj value: " + mProblem.getObjectiveFunction().evaluate(initialSol));
+
+        PartialSolution start = setup(initialSol);
+        if (mNumRequired == 0)
+            return initialSol;
+
+        synchronized (this) {
+            mBest = start.copy();
+        }
+
+        long seed = nextSeed(mSeed);
+        ArrayList<PartialSolution> results = new ArrayList<PartialSolution>();
+        if (mNumThreads == 1) {
+            results.add(new Worker(start, seed).call());
+        } else {
+            //use the caller's pool if there is one; this thread runs any search the pool hasn't started, so a
+            //saturated (or nested) pool can't deadlock us
+            ExecutorService pool = getExecutor();
+            boolean ownPool = pool == null;
+            if (ownPool)
+                pool = Executors.newFixedThreadPool(mNumThreads - 1);
+            ArrayList<FutureTask<PartialSolution>> tasks = new ArrayList<FutureTask<PartialSolution>>();
+            try {
+                for (int i = 0; i < mNumThreads; i++) {
+                    FutureTask<PartialSolution> task = new FutureTask<PartialSolution>(new Worker(start, seed + i));
+                    tasks.add(task);
+                    try {
+                        pool.execute(task);
+                    } catch (RejectedExecutionException e) {
+                        LOGGER.debug("The pool turned a search away; running it on the calling thread.");
+                    }
+                }
+                for (FutureTask<PartialSolution> task : tasks)
+                    task.run();
+                for (FutureTask<PartialSolution> task : tasks)
+                    results.add(task.get());
+            } catch (ExecutionException e) {
+                for (FutureTask<PartialSolution> task : tasks)
+                    task.cancel(true);
+                LOGGER.error("An ALNS search failed.", e.getCause());
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                for (FutureTask<PartialSolution> task : tasks)
+                    task.cancel(true);
+                Thread.currentThread().interrupt();
+                LOGGER.error("Interrupted while waiting for the ALNS searches.", e);
+                throw new IllegalStateException(e);
+            } finally {
+                if (ownPool)
+                    pool.shutdown();
+            }
+        }
+
+        //pick the winner in thread order, so that the answer doesn't depend on scheduling
+        PartialSolution best = start;
+        for (PartialSolution p : results) {
+            if (p.objective() < best.objective())
+                best = p;
+        }
+
+        Collection<Route<WindyVertex, WindyEdge>> ans = Utils.compareSolutions(initialSol, toRoutes(best));
+        LOGGER.info("ALNS obj value: " + mProblem.getObjectiveFunction().evaluate(ans));
+        offerIncumbent(ans);
+        return ans;
+    }
+
+    /**
+     * Flattens the initial solution and caches everything the workers need to price moves.
+     */
+    private PartialSolution setup(Collection<Route<WindyVertex, WindyEdge>> initialSol) {
+
+        WindyGraph g = getGraph();
+        mDepotId = g.getDepotId();
+        mDist = g.getAllPairsShortestPaths().getDistZeroDiagonal();
+        mNumRoutes = Math.max(mProblem.getmNumVehicles(), initialSol.size());
+
+        int maxId = 0;
+        for (WindyEdge we : g.getEdges())
+            maxId = Math.max(maxId, we.getId());
+
+        mTail = new int[maxId + 1];
+        mHead = new int[maxId + 1];
+        mForwardCost = new int[maxId + 1];
+        mReverseCost = new int[maxId + 1];
+        mAngle = new double[maxId + 1];
+
+        WindyVertex depot = g.getVertex(mDepotId);
+        mHasCoordinates = depot.hasCoordinates();
+        for (WindyEdge we : g.getEdges()) {
+            int id = we.getId();
+            WindyVertex first = we.getEndpoints().getFirst();
+            WindyVertex second = we.getEndpoints().getSecond();
+            mTail[id] = first.getId();
+            mHead[id] = second.getId();
+            mForwardCost[id] = we.getCost();
+            mReverseCost[id] = we.getReverseCost();
+            if (mHasCoordinates && first.hasCoordinates() && second.hasCoordinates())
+                mAngle[id] = Math.atan2((first.getY() + second.getY()) / 2 - depot.getY(), (first.getX() + second.getX()) / 2 - depot.getX());
+            else
+                mHasCoordinates = false;
+        }
+
+        PartialSolution ans = new PartialSolution(mNumRoutes);
+        int i = 0;
+        mNumRequired = 0;
+        for (Route<WindyVertex, WindyEdge> r : initialSol) {
+            ans.routes.get(i).add(r.getCompactRepresentation().toNativeArray());
+            ans.directions.get(i).addAll(r.getCompactTraversalDirection());
+            mNumRequired += r.getCompactRepresentation().size();
+            i++;
+        }
+        for (i = 0; i < mNumRoutes; i++)
+            ans.costs[i] = routeCost(ans, i);
+
+        return ans;
+    }
+
+    /**
+     * Expands the compact routes back into tours, dropping any that are empty.
+     */
+    private Collection<Route<WindyVertex, WindyEdge>> toRoutes(PartialSolution p) {
+        RouteExpander<WindyGraph> re = new RouteExpander<WindyGraph>(getGraph());
+        ArrayList<Route<WindyVertex, WindyEdge>> ans = new ArrayList<Route<WindyVertex, WindyEdge>>();
+        for (int i = 0; i < mNumRoutes; i++) {
+            if (p.routes.get(i).size() == 0)
+                continue;
+            ans.add(re.unflattenRoute(p.routes.get(i), p.directions.get(i)));
+        }
+        return ans;
+    }
+
+    /**
+     * Called by the workers whenever they find a new personal best; reports it if it's also the best overall.
+     */
+    private synchronized void reportBest(PartialSolution candidate) {
+        if (candidate.objective() >= mBest.objective())
+            return;
+        mBest = candidate.copy();
+        if (getIncumbentListener() != null)
+            offerIncumbent(toRoutes(mBest));
+    }
+
+    //region Pricing
+
+    private int dist(int i, int j) {
+        return mDist[i][j];
+    }
+
+    private int startOf(int linkId, boolean forward) {
+        return forward ? mTail[linkId] : mHead[linkId];
+    }
+
+    private int endOf(int linkId, boolean forward) {
+        return forward ? mHead[linkId] : mTail[linkId];
+    }
+
+    private int costOf(int linkId, boolean forward) {
+        return forward ? mForwardCost[linkId] : mReverseCost[linkId];
+    }
+
+    private int routeCost(PartialSolution p, int route) {
+        TIntArrayList links = p.routes.get(route);
+        ArrayList<Boolean> dirs = p.directions.get(route);
+        int prev = mDepotId;
+        int ans = 0;
+        for (int i = 0; i < links.size(); i++) {
+            int id = links.get(i);
+            boolean forward = dirs.get(i);
+            ans += dist(prev, startOf(id, forward)) + costOf(id, forward);
+            prev = endOf(id, forward);
+        }
+        return ans + dist(prev, mDepotId);
+    }
+
+    /**
+     * @return - the decrease in the route's cost from removing the link at position pos
+     */
+    private int removalSavings(PartialSolution p, int route, int pos) {
+        TIntArrayList links = p.routes.get(route);
+        ArrayList<Boolean> dirs = p.directions.get(route);
+        int id = links.get(pos);
+        boolean forward = dirs.get(pos);
+        int prev = (pos == 0) ? mDepotId : endOf(links.get(pos - 1), dirs.get(pos - 1));
+        int next = (pos == links.size() - 1) ? mDepotId : startOf(links.get(pos + 1), dirs.get(pos + 1));
+        return dist(prev, startOf(id, forward)) + costOf(id, forward) + dist(endOf(id, forward), next) - dist(prev, next);
+    }
+
+    /**
+     * @return - the increase in the route's cost from inserting the link immediately before position pos
+     */
+    private int insertionCost(PartialSolution p, int route, int pos, int id, boolean forward) {
+        TIntArrayList links = p.routes.get(route);
+        ArrayList<Boolean> dirs = p.directions.get(route);
+        int prev = (pos == 0) ? mDepotId : endOf(links.get(pos - 1), dirs.get(pos - 1));
+        int next = (pos == links.size()) ? mDepotId : startOf(links.get(pos), dirs.get(pos));
+        return dist(prev, startOf(id, forward)) + costOf(id, forward) + dist(endOf(id, forward), next) - dist(prev, next);
+    }
+
+    /**
+     * Finds the cheapest place to put the link in the given route.
+     *
+     * @param ans - filled with {position, direction (1 forward, 0 backward), added cost}
+     */
+    private void bestInsertion(PartialSolution p, int route, int id, int[] ans) {
+        ans[2] = Integer.MAX_VALUE;
+        int size = p.routes.get(route).size();
+        int delta;
+        for (int pos = 0; pos <= size; pos++) {
+            delta = insertionCost(p, route, pos, id, true);
+            if (delta < ans[2]) {
+                ans[0] = pos;
+                ans[1] = 1;
+                ans[2] = delta;
+            }
+            delta = insertionCost(p, route, pos, id, false);
+            if (delta < ans[2]) {
+                ans[0] = pos;
+                ans[1] = 0;
+                ans[2] = delta;
+            }
+        }
+    }
+
+    /**
+     * Scalarizes an insertion for the min-max objective: any growth of the longest route dominates, and the added
+     * length breaks ties.
+     */
+    private double insertionScore(PartialSolution p, int route, int delta, int currMax) {
+        return (double) Math.max(0, p.costs[route] + delta - currMax) * mNumRoutes + delta;
+    }
+
+    //endregion
+
+    /**
+     * A solution in compact form: the required links serviced by each route, in order, along with the direction
+     * they are serviced in, and the cost of each route.  We don't use Route / CompactMove / Mover here, since between
+     * a destroy and a repair the solution is missing links, (which a Route can't represent), and every iteration
+     * starts from a copy of the current solution, which is a handful of array copies in this form.
+     */
+    private static final class PartialSolution {
+
+        private final ArrayList<TIntArrayList> routes;
+        private final ArrayList<ArrayList<Boolean>> directions;
+        private final int[] costs;
+
+        private PartialSolution(int numRoutes) {
+            routes = new ArrayList<TIntArrayList>(numRoutes);
+            directions = new ArrayList<ArrayList<Boolean>>(numRoutes);
+            for (int i = 0; i < numRoutes; i++) {
+                routes.add(new TIntArrayList());
+                directions.add(new ArrayList<Boolean>());
+            }
+            costs = new int[numRoutes];
+        }
+
+        private PartialSolution copy() {
+            PartialSolution ans = new PartialSolution(costs.length);
+            for (int i = 0; i < costs.length; i++) {
+                ans.routes.get(i).add(routes.get(i).toNativeArray());
+                ans.directions.get(i).addAll(directions.get(i));
+            }
+            System.arraycopy(costs, 0, ans.costs, 0, costs.length);
+            return ans;
+        }
+
+        private int maxCost() {
+            int ans = 0;
+            for (int c : costs)
+                ans = Math.max(ans, c);
+            return ans;
+        }
+
+        private int longestRoute() {
+            int ans = 0;
+            for (int i = 1; i < costs.length; i++)
+                if (costs[i] > costs[ans])
+                    ans = i;
+            return ans;
+        }
+
+        /**
+         * @return - the min-max objective, with the total length as a (strictly smaller) tiebreaker
+         */
+        private double objective() {
+            long sum = 0;
+            for (int c : costs)
+                sum += c;
+            return maxCost() + sum / (100.0 * costs.length * (maxCost() + 1));
+        }
+    }
+
+    /**
+     * A single ALNS run.  Each worker owns its random stream, operator weights and solutions; only the problem
+     * data in the enclosing class is shared.
+     */
+    private class Worker implements Callable<PartialSolution> {
+
+        private final Random mRng;
+        private final PartialSolution mStart;
+
+        private final DestroyOperator[] mDestroyOps = DestroyOperator.values();
+        private final RepairOperator[] mRepairOps = RepairOperator.values();
+        private final double[] mDestroyWeights;
+        private final double[] mRepairWeights;
+        private final double[] mDestroyScores;
+        private final double[] mRepairScores;
+        private final int[] mDestroyUses;
+        private final int[] mRepairUses;
+
+        private Worker(PartialSolution start, long seed) {
+            mRng = new Random(seed);
+            mStart = start.copy();
+            mDestroyWeights = new double[mDestroyOps.length];
+            mRepairWeights = new double[mRepairOps.length];
+            mDestroyScores = new double[mDestroyOps.length];
+            mRepairScores = new double[mRepairOps.length];
+            mDestroyUses = new int[mDestroyOps.length];
+            mRepairUses = new int[mRepairOps.length];
+            Arrays.fill(mDestroyWeights, 1);
+            Arrays.fill(mRepairWeights, 1);
+            if (!mHasCoordinates)
+                mDestroyWeights[DestroyOperator.SECTOR.ordinal()] = 0;
+        }
+
+        @Override
+        public PartialSolution call() {
+
+            PartialSolution curr = mStart;
+            PartialSolution best = mStart.copy();
+            PartialSolution candidate;
+
+            double temperature = -mStartTemperatureFraction * curr.objective() / Math.log(.5);
+            double cooling = Math.pow(mEndTemperatureFraction, 1.0 / mMaxIterations);
+
+            int d, r, score;
+            for (int iter = 1; iter <= mMaxIterations; iter++) {
+
+                if (isTimeUp()) {
+                    LOGGER.info("Out of time after " + iter + " ALNS iterations.");
+                    break;
+                }
+
+                d = select(mDestroyWeights);
+                r = select(mRepairWeights);
+
+                candidate = curr.copy();
+                TIntArrayList removed = destroy(mDestroyOps[d], candidate);
+                repair(mRepairOps[r], candidate, removed);
+
+                score = 0;
+                if (candidate.objective() < best.objective()) {
+                    best = candidate.copy();
+                    curr = candidate;
+                    score = SCORE_NEW_BEST;
+                    reportBest(best);
+                } else if (accept(candidate, curr, best, temperature)) {
+                    score = (candidate.objective() < curr.objective()) ? SCORE_IMPROVED : SCORE_ACCEPTED;
+                    curr = candidate;
+                }
+
+                mDestroyScores[d] += score;
+                mDestroyUses[d]++;
+                mRepairScores[r] += score;
+                mRepairUses[r]++;
+
+                if (iter % mSegmentLength == 0) {
+                    updateWeights(mDestroyWeights, mDestroyScores, mDestroyUses);
+                    updateWeights(mRepairWeights, mRepairScores, mRepairUses);
+                }
+
+                temperature *= cooling;
+            }
+
+            return best;
+        }
+
+        //region Adaptive layer
+
+        private int select(double[] weights) {
+            double total = 0;
+            for (double w : weights)
+                total += w;
+            double pick = mRng.nextDouble() * total;
+            for (int i = 0; i < weights.length; i++) {
+                pick -= weights[i];
+                if (pick < 0 && weights[i] > 0)
+                    return i;
+            }
+            //floating point fallthrough; take the last operator that can be chosen
+            for (int i = weights.length - 1; i >= 0; i--)
+                if (weights[i] > 0)
+                    return i;
+            return 0;
+        }
+
+        private void updateWeights(double[] weights, double[] scores, int[] uses) {
+            for (int i = 0; i < weights.length; i++) {
+                if (uses[i] > 0)
+                    weights[i] = weights[i] * (1 - mReactionFactor) + mReactionFactor * scores[i] / uses[i];
+                //keep every enabled operator in play
+                if (weights[i] > 0)
+                    weights[i] = Math.max(weights[i], .01);
+                scores[i] = 0;
+                uses[i] = 0;
+            }
+        }
+
+        private boolean accept(PartialSolution candidate, PartialSolution curr, PartialSolution best, double temperature) {
+            double delta = candidate.objective() - curr.objective();
+            switch (mAcceptance) {
+                case HILL_CLIMBING:
+                    return delta <= 0;
+                case SIMULATED_ANNEALING:
+                    return delta <= 0 || mRng.nextDouble() < Math.exp(-delta / temperature);
+                case RECORD_TO_RECORD:
+                    return candidate.objective() <= (1 + mRecordDeviation) * best.objective();
+                default:
+                    return false;
+            }
+        }
+
+        //endregion
+
+        //region Destroy
+
+        private TIntArrayList destroy(DestroyOperator op, PartialSolution p) {
+
+            int lo = Math.max(1, (int) Math.round(mMinRemovalFraction * mNumRequired));
+            int hi = Math.min(mNumRequired, Math.max(lo, (int) Math.round(mMaxRemovalFraction * mNumRequired)));
+            int q = lo + mRng.nextInt(hi - lo + 1);
+
+            switch (op) {
+                case RANDOM:
+                    return randomRemoval(p, q);
+                case WORST_ROUTE:
+                    return worstRouteRemoval(p, q);
+                case RELATED:
+                    return relatedRemoval(p, q);
+                case SECTOR:
+                    return sectorRemoval(p, q);
+                default:
+                    LOGGER.error("Unrecognized destroy operator.");
+                    throw new IllegalArgumentException();
+            }
+        }
+
+        private TIntArrayList assignedLinks(PartialSolution p) {
+            TIntArrayList ans = new TIntArrayList(mNumRequired);
+            for (TIntArrayList links : p.routes)
+                ans.add(links.toNativeArray());
+            return ans;
+        }
+
+        private TIntArrayList randomRemoval(PartialSolution p, int q) {
+            int[] candidates = assignedLinks(p).toNativeArray();
+            TIntArrayList ans = new TIntArrayList(q);
+            //partial Fisher-Yates
+            for (int i = 0; i < q; i++) {
+                int j = i + mRng.nextInt(candidates.length - i);
+                int temp = candidates[i];
+                candidates[i] = candidates[j];
+                candidates[j] = temp;
+                ans.add(candidates[i]);
+            }
+            removeLinks(p, ans);
+            return ans;
+        }
+
+        private TIntArrayList worstRouteRemoval(PartialSolution p, int q) {
+            TIntArrayList ans = new TIntArrayList(q);
+            int route, size, pos;
+            for (int i = 0; i < q; i++) {
+
+                //the longest route may change as we go, so this can spread across several routes
+                route = p.longestRoute();
+                size = p.routes.get(route).size();
+                if (size == 0)
+                    break;
+
+                //sort the positions by their removal savings, most expensive first
+                long[] keyed = new long[size];
+                for (int j = 0; j < size; j++)
+                    keyed[j] = ((long) -removalSavings(p, route, j) << 32) | j;
+                Arrays.sort(keyed);
+
+                pos = (int) keyed[(int) (Math.pow(mRng.nextDouble(), WORST_RANDOMNESS) * size)];
+                p.costs[route] -= removalSavings(p, route, pos);
+                ans.add(p.routes.get(route).remove(pos));
+                p.directions.get(route).remove(pos);
+            }
+            return ans;
+        }
+
+        private TIntArrayList relatedRemoval(PartialSolution p, int q) {
+            int[] candidates = assignedLinks(p).toNativeArray();
+            int seed = candidates[mRng.nextInt(candidates.length)];
+
+            //sort by relatedness to the seed link
+            long[] keyed = new long[candidates.length];
+            for (int i = 0; i < candidates.length; i++)
+                keyed[i] = ((long) relatedness(seed, candidates[i]) << 32) | i;
+            Arrays.sort(keyed);
+
+            ArrayList<Integer> ordered = new ArrayList<Integer>(candidates.length);
+            for (long k : keyed)
+                ordered.add(candidates[(int) k]);
+
+            TIntArrayList ans = new TIntArrayList(q);
+            for (int i = 0; i < q; i++)
+                ans.add(ordered.remove((int) (Math.pow(mRng.nextDouble(), RELATED_RANDOMNESS) * ordered.size())));
+            removeLinks(p, ans);
+            return ans;
+        }
+
+        /**
+         * @return - the shortest distance between an endpoint of one link and an endpoint of the other
+         */
+        private int relatedness(int link1, int link2) {
+            int ans = Integer.MAX_VALUE;
+            int[] ends1 = {mTail[link1], mHead[link1]};
+            int[] ends2 = {mTail[link2], mHead[link2]};
+            for (int i : ends1) {
+                for (int j : ends2) {
+                    ans = Math.min(ans, Math.min(dist(i, j), dist(j, i)));
+                }
+            }
+            return ans;
+        }
+
+        private TIntArrayList sectorRemoval(PartialSolution p, int q) {
+            if (!mHasCoordinates)
+                return relatedRemoval(p, q);
+
+            int[] candidates = assignedLinks(p).toNativeArray();
+            double start = (mRng.nextDouble() * 2 - 1) * Math.PI;
+
+            //sort by how far counterclockwise of the start ray each link lies
+            double[] sweep = new double[candidates.length];
+            Integer[] order = new Integer[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                double offset = mAngle[candidates[i]] - start;
+                sweep[i] = (offset < 0) ? offset + 2 * Math.PI : offset;
+                order[i] = i;
+            }
+            final double[] key = sweep;
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return Double.compare(key[o1], key[o2]);
+                }
+            });
+
+            TIntArrayList ans = new TIntArrayList(q);
+            for (int i = 0; i < q; i++)
+                ans.add(candidates[order[i]]);
+            removeLinks(p, ans);
+            return ans;
+        }
+
+        /**
+         * Pulls the links out of whichever routes they're in, and re-costs only the routes that changed.
+         */
+        private void removeLinks(PartialSolution p, TIntArrayList toRemove) {
+            TIntHashSet removeSet = new TIntHashSet(toRemove.toNativeArray());
+            for (int i = 0; i < p.routes.size(); i++) {
+                TIntArrayList links = p.routes.get(i);
+                ArrayList<Boolean> dirs = p.directions.get(i);
+                boolean changed = false;
+                for (int j = links.size() - 1; j >= 0; j--) {
+                    if (removeSet.contains(links.get(j))) {
+                        links.remove(j);
+                        dirs.remove(j);
+                        changed = true;
+                    }
+                }
+                if (changed)
+                    p.costs[i] = routeCost(p, i);
+            }
+        }
+
+        //endregion
+
+        //region Repair
+
+        private void repair(RepairOperator op, PartialSolution p, TIntArrayList removed) {
+            switch (op) {
+                case GREEDY:
+                    greedyInsertion(p, removed);
+                    break;
+                case REGRET:
+                    regretInsertion(p, removed);
+                    break;
+                default:
+                    LOGGER.error("Unrecognized repair operator.");
+                    throw new IllegalArgumentException();
+            }
+        }
+
+        private void greedyInsertion(PartialSolution p, TIntArrayList removed) {
+            int[] order = removed.toNativeArray();
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = mRng.nextInt(i + 1);
+                int temp = order[i];
+                order[i] = order[j];
+                order[j] = temp;
+            }
+
+            int[] candidate = new int[3];
+            int[] bestInsert = new int[3];
+            int bestRoute;
+            double score, bestScore;
+            for (int id : order) {
+                int currMax = p.maxCost();
+                bestRoute = -1;
+                bestScore = Double.MAX_VALUE;
+                for (int k = 0; k < mNumRoutes; k++) {
+                    bestInsertion(p, k, id, candidate);
+                    score = insertionScore(p, k, candidate[2], currMax);
+                    if (score < bestScore) {
+                        bestScore = score;
+                        bestRoute = k;
+                        System.arraycopy(candidate, 0, bestInsert, 0, 3);
+                    }
+                }
+                insert(p, bestRoute, id, bestInsert);
+            }
+        }
+
+        private void regretInsertion(PartialSolution p, TIntArrayList removed) {
+
+            TIntArrayList remaining = new TIntArrayList(removed.toNativeArray());
+            int[][] inserts = new int[mNumRoutes][3];
+            double[] scores = new double[mNumRoutes];
+            int[] bestInsert = new int[3];
+
+            while (remaining.size() > 0) {
+
+                int currMax = p.maxCost();
+                int bestIndex = -1;
+                int bestRoute = -1;
+                double bestRegret = -1;
+                double bestFirst = Double.MAX_VALUE;
+
+                for (int i = 0; i < remaining.size(); i++) {
+                    int id = remaining.get(i);
+                    int cheapest = 0;
+                    for (int k = 0; k < mNumRoutes; k++) {
+                        bestInsertion(p, k, id, inserts[k]);
+                        scores[k] = insertionScore(p, k, inserts[k][2], currMax);
+                        if (scores[k] < scores[cheapest])
+                            cheapest = k;
+                    }
+
+                    double first = scores[cheapest];
+                    double[] sorted = scores.clone();
+                    Arrays.sort(sorted);
+                    double regret = 0;
+                    for (int j = 1; j < Math.min(mRegretK, sorted.length); j++)
+                        regret += sorted[j] - sorted[0];
+
+                    if (regret > bestRegret || (regret == bestRegret && first < bestFirst)) {
+                        bestRegret = regret;
+                        bestFirst = first;
+                        bestIndex = i;
+                        bestRoute = cheapest;
+                        System.arraycopy(inserts[cheapest], 0, bestInsert, 0, 3);
+                    }
+                }
+
+                insert(p, bestRoute, remaining.remove(bestIndex), bestInsert);
+            }
+        }
+
+        private void insert(PartialSolution p, int route, int id, int[] insertion) {
+            p.routes.get(route).insert(insertion[0], id);
+            p.directions.get(route).add(insertion[0], insertion[1] == 1);
+            p.costs[route] += insertion[2];
+        }
+
+        //endregion
+    }
+}
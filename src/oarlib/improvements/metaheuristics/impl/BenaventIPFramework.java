@@ -37,7 +37,6 @@ import oarlib.improvements.util.Utils;
 import oarlib.link.impl.Arc;
 import oarlib.link.impl.WindyEdge;
 import oarlib.problem.impl.ProblemAttributes;
-import oarlib.problem.impl.multivehicle.MinMaxKWRPP;
 import oarlib.solver.impl.MultiWRPPSolver_Benavent;
 import oarlib.vertex.impl.DirectedVertex;
 import oarlib.vertex.impl.WindyVertex;
@@ -70,24 +69,23 @@ public class BenaventIPFramework extends ImprovementProcedure<WindyVertex, Windy
     public Collection<Route<WindyVertex, WindyEdge>> improveSolution() {
 
         Collection<Route<WindyVertex, WindyEdge>> initialSol = getInitialSol();
-        Collection<Route<WindyVertex, WindyEdge>> currSol, globalBest, postSimplify;
-        Route<WindyVertex, WindyEdge> perturbed;
+        Collection<Route<WindyVertex, WindyEdge>> currSol, globalBest;
 
         int nIter = 2; //num perturbations
         globalBest = initialSol;
-        LOGGER.info("Starting obj value: " + mProblem.getObjectiveFunction().evaluate(initialSol));
+        logObj("Starting obj value: ", initialSol);
 
         //apply the intraroute IPs on each of the routes
         LOGGER.debug("IntraRoute IPs");
-        Benavent_VND1 vnd1 = new Benavent_VND1(getProblem());
+        Benavent_VND1 vnd1 = inheritAnytime(new Benavent_VND1(getProblem()));
         Collection<Route<WindyVertex, WindyEdge>> postVND1 = vnd1.improveSolution();
-        LOGGER.info("VND1 obj value: " + mProblem.getObjectiveFunction().evaluate(postVND1));
+        logObj("VND1 obj value: ", postVND1);
 
         //apply the interroute IPs
         LOGGER.debug("InterRoute IPs");
-        Benavent_VND2 vnd2 = new Benavent_VND2(getProblem(), postVND1);
+        Benavent_VND2 vnd2 = inheritAnytime(new Benavent_VND2(getProblem(), postVND1));
         Collection<Route<WindyVertex, WindyEdge>> postVND2 = vnd2.improveSolution();
-        LOGGER.info("VND2 obj value: " + mProblem.getObjectiveFunction().evaluate(postVND2));
+        logObj("VND2 obj value: ", postVND2);
 
         //set curr to bestSol
         currSol = postVND2;
@@ -95,62 +93,108 @@ public class BenaventIPFramework extends ImprovementProcedure<WindyVertex, Windy
         //update global best
         LOGGER.debug("Compare1");
         globalBest = Utils.compareSolutions(currSol, globalBest);
-        LOGGER.info("Best obj value set to : " + mProblem.getObjectiveFunction().evaluate(globalBest));
-
-        for (int ILS = 1; ILS < nIter; ILS++) {
+        logObj("Best obj value set to : ", globalBest);
+        offerIncumbent(globalBest);
 
-            //collapse
-            LOGGER.debug("Collapse");
-            Route<WindyVertex, WindyEdge> collapsed = Utils.aggregateIntoGlobalTour(currSol, getGraph());
+        //one random stream for the whole search, so that it's replayed by the same seed
+        TwoSwapPerturb perturbation = new TwoSwapPerturb(getProblem());
+        perturbation.setContext(getContext());
 
-            //perturb
-            LOGGER.debug("Perturb");
-            TwoSwapPerturb perturbation = new TwoSwapPerturb(getProblem());
-            perturbed = perturbation.improveRoute(collapsed);
-
-            //resplit
-            LOGGER.debug("Resplit");
-            MinMaxKWRPP tempInstance = new MinMaxKWRPP(getGraph(), mProblem.getmNumVehicles());
-            MultiWRPPSolver_Benavent splitter = new MultiWRPPSolver_Benavent(tempInstance);
+        for (int ILS = 1; ILS < nIter; ILS++) {
 
-            ArrayList<Route<WindyVertex, WindyEdge>> container = new ArrayList<Route<WindyVertex, WindyEdge>>();
-            Collection<Route<DirectedVertex, Arc>> dirTours = splitter.splitRoute(Utils.convertWindyTourToDirectedTour(perturbed), mProblem.getGraph(), mProblem.getmNumVehicles());
-            for (Route<DirectedVertex, Arc> r : dirTours) {
-                container.add(oarlib.graph.util.Utils.reclaimTour(r, mProblem.getGraph()));
+            if (isTimeUp()) {
+                LOGGER.info("Out of time after " + ILS + " ILS iterations.");
+                break;
             }
-            LOGGER.info("Perturb obj value: " + mProblem.getObjectiveFunction().evaluate(container));
-
-            //apply the intraroute IPs on each of the routes
-            LOGGER.debug("IntraRoute IPs 2");
-            vnd1 = new Benavent_VND1(getProblem(), container);
-            postVND1 = vnd1.improveSolution();
-            LOGGER.info("VND1 obj value: " + mProblem.getObjectiveFunction().evaluate(postVND1));
-
-            //simplify
-            LOGGER.debug("Simplify");
-            Simplification simplification = new Simplification(getProblem(), postVND1);
-            postSimplify = simplification.improveSolution();
-            LOGGER.info("Simplify obj value: " + mProblem.getObjectiveFunction().evaluate(postSimplify));
-
-            //run interroute
-            LOGGER.debug("InterRoute IPs 2");
-            vnd2 = new Benavent_VND2(getProblem(), postSimplify);
-            postVND2 = vnd2.improveSolution();
-            LOGGER.info("VND2 obj value: " + mProblem.getObjectiveFunction().evaluate(postVND2));
+
+            postVND2 = perturbAndImprove(currSol, perturbation);
 
             //update global sol
             LOGGER.debug("Compare 2");
             currSol = Utils.compareSolutions(currSol, postVND2);
-            LOGGER.info("Curr obj value set to : " + mProblem.getObjectiveFunction().evaluate(currSol));
+            logObj("Curr obj value set to : ", currSol);
+            offerIncumbent(currSol);
 
         }
 
         //update global sol
         LOGGER.debug("Compare 3");
         globalBest = Utils.compareSolutions(currSol, globalBest);
-        LOGGER.info("Best obj value set to : " + mProblem.getObjectiveFunction().evaluate(globalBest));
+        logObj("Best obj value set to : ", globalBest);
 
         //return best sol
         return globalBest;
     }
+
+    /**
+     * One iteration of the ILS: collapse the solution into a single tour, perturb it, resplit it, and re-optimize.
+     *
+     * @param currSol      - the current solution; left untouched
+     * @param perturbation - the perturbation to apply to the collapsed tour
+     * @return - the re-optimized solution
+     */
+    protected Collection<Route<WindyVertex, WindyEdge>> perturbAndImprove(Collection<Route<WindyVertex, WindyEdge>> currSol, TwoSwapPerturb perturbation) {
+
+        Route<WindyVertex, WindyEdge> perturbed;
+        Collection<Route<WindyVertex, WindyEdge>> postVND1, postSimplify, postVND2;
+
+        //collapse
+        LOGGER.debug("Collapse");
+        Route<WindyVertex, WindyEdge> collapsed = Utils.aggregateIntoGlobalTour(currSol, getGraph());
+
+        //perturb
+        LOGGER.debug("Perturb");
+        perturbed = perturbation.improveRoute(collapsed);
+
+        //resplit
+        LOGGER.debug("Resplit");
+        ArrayList<Route<WindyVertex, WindyEdge>> container = new ArrayList<Route<WindyVertex, WindyEdge>>();
+        Collection<Route<DirectedVertex, Arc>> dirTours = MultiWRPPSolver_Benavent.splitRoute(Utils.convertWindyTourToDirectedTour(perturbed), mProblem.getGraph(), mProblem.getmNumVehicles());
+        for (Route<DirectedVertex, Arc> r : dirTours) {
+            container.add(oarlib.graph.util.Utils.reclaimTour(r, mProblem.getGraph()));
+        }
+        logObj("Perturb obj value: ", container);
+
+        //apply the intraroute IPs on each of the routes
+        LOGGER.debug("IntraRoute IPs 2");
+        Benavent_VND1 vnd1 = configureChild(new Benavent_VND1(getProblem(), container));
+        postVND1 = vnd1.improveSolution();
+        logObj("VND1 obj value: ", postVND1);
+
+        //simplify
+        LOGGER.debug("Simplify");
+        Simplification simplification = new Simplification(getProblem(), postVND1);
+        postSimplify = simplification.improveSolution();
+        logObj("Simplify obj value: ", postSimplify);
+
+        //run interroute
+        LOGGER.debug("InterRoute IPs 2");
+        Benavent_VND2 vnd2 = configureChild(new Benavent_VND2(getProblem(), postSimplify));
+        postVND2 = vnd2.improveSolution();
+        logObj("VND2 obj value: ", postVND2);
+
+        return postVND2;
+    }
+
+    /**
+     * Logs the objective value of a solution.  Evaluating the objective is a pass over every route, so it is skipped
+     * entirely unless info logging is on.
+     *
+     * @param label - prefix of the log line
+     * @param sol   - the solution to report on
+     */
+    private void logObj(String label, Collection<Route<WindyVertex, WindyEdge>> sol) {
+        if (LOGGER.isInfoEnabled())
+            LOGGER.info(label + mProblem.getObjectiveFunction().evaluate(sol));
+    }
+
+    /**
+     * Sets up a procedure that this one invokes.
+     *
+     * @param child - the nested procedure
+     * @return - child, for chaining
+     */
+    protected <T extends ImprovementProcedure<WindyVertex, WindyEdge, WindyGraph>> T configureChild(T child) {
+        return inheritAnytime(child);
+    }
 }
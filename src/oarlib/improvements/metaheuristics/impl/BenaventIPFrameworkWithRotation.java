@@ -79,10 +79,15 @@ public class BenaventIPFrameworkWithRotation extends ImprovementProcedure<WindyV
 
 
         for(int i = 0; i < numIters; i++) {
+            if (isTimeUp()) {
+                LOGGER.info("Out of time after " + i + " rotations.");
+                break;
+            }
+
             //apply the intraroute IPs on each of the routes
             start = System.currentTimeMillis();
             LOGGER.debug("IntraRoute IPs");
-            Benavent_VND1 vnd1 = new Benavent_VND1(getProblem(), initialSol);
+            Benavent_VND1 vnd1 = inheritAnytime(new Benavent_VND1(getProblem(), initialSol));
             Collection<Route<WindyVertex, WindyEdge>> postVND1 = vnd1.improveSolution();
             LOGGER.info("VND1 obj value: " + mProblem.getObjectiveFunction().evaluate(postVND1));
             end = System.currentTimeMillis();
@@ -91,7 +96,7 @@ public class BenaventIPFrameworkWithRotation extends ImprovementProcedure<WindyV
             //apply the interroute IPs
             start = System.currentTimeMillis();
             LOGGER.debug("InterRoute IPs");
-            Benavent_VND2_Aesthetic vnd2 = new Benavent_VND2_Aesthetic(getProblem(), postVND1);
+            Benavent_VND2_Aesthetic vnd2 = inheritAnytime(new Benavent_VND2_Aesthetic(getProblem(), postVND1));
             Collection<Route<WindyVertex, WindyEdge>> postVND2 = vnd2.improveSolution();
             LOGGER.info("VND2 obj value: " + mProblem.getObjectiveFunction().evaluate(postVND2));
             end = System.currentTimeMillis();
@@ -108,6 +113,7 @@ public class BenaventIPFrameworkWithRotation extends ImprovementProcedure<WindyV
                 globalBest = currSol;*/
             globalBest = Utils.compareSolutions(currSol, globalBest);
             LOGGER.info("Best obj value set to : " + mProblem.getObjectiveFunction().evaluate(globalBest));
+            offerIncumbent(globalBest);
 
             //perturb
             initialSol = RouteRotator.rotateRoutes(getProblem().getGraph(),initialSol,Math.PI/(numIters * 2));
@@ -71,13 +71,13 @@ public class OnePassBenaventIPFramework extends ImprovementProcedure<WindyVertex
 
         //apply the intraroute IPs on each of the routes
         LOGGER.debug("IntraRoute IPs");
-        Benavent_VND1 vnd1 = new Benavent_VND1(getProblem(), initialSol);
+        Benavent_VND1 vnd1 = inheritAnytime(new Benavent_VND1(getProblem(), initialSol));
         Collection<Route<WindyVertex, WindyEdge>> postVND1 = vnd1.improveSolution();
         LOGGER.info("VND1 obj value: " + mProblem.getObjectiveFunction().evaluate(postVND1));
 
         //apply the interroute IPs
         LOGGER.debug("InterRoute IPs");
-        Benavent_VND2_Aesthetic vnd2 = new Benavent_VND2_Aesthetic(getProblem(), postVND1);
+        Benavent_VND2_Aesthetic vnd2 = inheritAnytime(new Benavent_VND2_Aesthetic(getProblem(), postVND1));
         Collection<Route<WindyVertex, WindyEdge>> postVND2 = vnd2.improveSolution();
         LOGGER.info("VND2 obj value: " + mProblem.getObjectiveFunction().evaluate(postVND2));
 
@@ -88,6 +88,7 @@ public class OnePassBenaventIPFramework extends ImprovementProcedure<WindyVertex
         LOGGER.debug("Compare");
         globalBest = Utils.compareSolutions(currSol, globalBest);
         LOGGER.info("Best obj value set to : " + mProblem.getObjectiveFunction().evaluate(globalBest));
+        offerIncumbent(globalBest);
 
         //return best sol
         return globalBest;
@@ -0,0 +1,291 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.improvements.metaheuristics.impl;
+
+import oarlib.core.Problem;
+import oarlib.core.Route;
+import oarlib.graph.impl.WindyGraph;
+import oarlib.improvements.ImprovementProcedure;
+import oarlib.improvements.ImprovementStrategy;
+import oarlib.improvements.impl.Benavent_VND1;
+import oarlib.improvements.impl.Benavent_VND2;
+import oarlib.improvements.perturbation.TwoSwapPerturb;
+import oarlib.improvements.util.BestSolutionHolder;
+import oarlib.improvements.util.Utils;
+import oarlib.link.impl.WindyEdge;
+import oarlib.vertex.impl.WindyVertex;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Multi-threaded version of the BenaventIPFramework.  After the same initial VND1 / VND2 pass, several independent
+ * ILS trajectories are run, each with its own perturbation stream (trajectory i is seeded with seed + i).  Every few
+ * iterations a trajectory offers its current solution to a shared, lock-free elite (see BestSolutionHolder), and
+ * restarts from the elite if it's better than where it is.
+ * <p/>
+ * By default trajectories share whenever they reach a sync point, so the result depends on how the threads are
+ * scheduled.  In deterministic mode they instead advance in lock step: all of them run to the next sync point, then
+ * offer their solutions in trajectory order, and only then adopt the elite.  The answer then depends only on the
+ * seed and the parameters, not on the number of threads, (unless the deadline cuts the search short).
+ */
+public class ParallelBenaventIPFramework extends BenaventIPFramework {
+
+    private static final Logger LOGGER = Logger.getLogger(ParallelBenaventIPFramework.class);
+
+    private int mNumTrajectories = Runtime.getRuntime().availableProcessors();
+    private int mNumThreads = Runtime.getRuntime().availableProcessors();
+    private int mNumIterations = 10; //ILS iterations per trajectory
+    private int mSyncInterval = 2; //ILS iterations between visits to the elite
+    private long mSeed = 1000;
+    private boolean mDeterministic = false;
+    private ExecutorService mTrajectoryPool; //while the trajectories run, their move pricing shares their pool
+
+    public ParallelBenaventIPFramework(Problem<WindyVertex, WindyEdge, WindyGraph> problem) {
+        super(problem);
+    }
+
+    public ParallelBenaventIPFramework(Problem<WindyVertex, WindyEdge, WindyGraph> problem, ImprovementStrategy.Type strat, Collection<Route<WindyVertex, WindyEdge>> initialSol) {
+        super(problem, strat, initialSol);
+    }
+
+    //region Parameters
+
+    public void setNumTrajectories(int numTrajectories) {
+        if (numTrajectories < 1) {
+            LOGGER.error("You need at least one trajectory.");
+            throw new IllegalArgumentException();
+        }
+        mNumTrajectories = numTrajectories;
+    }
+
+    /**
+     * @param numThreads - the number of trajectories run concurrently
+     */
+    public void setNumThreads(int numThreads) {
+        if (numThreads < 1) {
+            LOGGER.error("You need at least one thread.");
+            throw new IllegalArgumentException();
+        }
+        mNumThreads = numThreads;
+    }
+
+    /**
+     * @param numIterations - the number of perturbations each trajectory makes
+     */
+    public void setNumIterations(int numIterations) {
+        if (numIterations < 0) {
+            LOGGER.error("The number of iterations may not be negative.");
+            throw new IllegalArgumentException();
+        }
+        mNumIterations = numIterations;
+    }
+
+    /**
+     * @param syncInterval - the number of iterations a trajectory makes between visits to the elite
+     */
+    public void setSyncInterval(int syncInterval) {
+        if (syncInterval < 1) {
+            LOGGER.error("Trajectories must make at least one iteration between syncs.");
+            throw new IllegalArgumentException();
+        }
+        mSyncInterval = syncInterval;
+    }
+
+    /**
+     * @param seed - the seed of the first trajectory; trajectory i uses seed + i
+     */
+    public void setSeed(long seed) {
+        mSeed = seed;
+    }
+
+    /**
+     * @param deterministic - true to advance the trajectories in lock step, so that runs can be replayed exactly
+     */
+    public void setDeterministic(boolean deterministic) {
+        mDeterministic = deterministic;
+    }
+
+    //endregion
+
+    @Override
+    public Collection<Route<WindyVertex, WindyEdge>> improveSolution() {
+
+        Collection<Route<WindyVertex, WindyEdge>> initialSol = getInitialSol();
+        LOGGER.info("Starting obj value: " + mProblem.getObjectiveFunction().evaluate(initialSol));
+
+        //the same first pass as the serial framework; every trajectory starts from its result
+        Benavent_VND1 vnd1 = configureChild(new Benavent_VND1(getProblem(), initialSol));
+        Collection<Route<WindyVertex, WindyEdge>> postVND1 = vnd1.improveSolution();
+        Benavent_VND2 vnd2 = configureChild(new Benavent_VND2(getProblem(), postVND1));
+        Collection<Route<WindyVertex, WindyEdge>> start = Utils.compareSolutions(vnd2.improveSolution(), initialSol);
+        LOGGER.info("VND2 obj value: " + mProblem.getObjectiveFunction().evaluate(start));
+
+        BestSolutionHolder<WindyVertex, WindyEdge> elite = new BestSolutionHolder<WindyVertex, WindyEdge>(start, mProblem.getObjectiveFunction().evaluate(start), -1);
+        reportIncumbent(elite);
+
+        long seed = nextSeed(mSeed);
+        ArrayList<Trajectory> trajectories = new ArrayList<Trajectory>();
+        for (int i = 0; i < mNumTrajectories; i++)
+            trajectories.add(new Trajectory(i, elite, seed + i));
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(mNumThreads, mNumTrajectories));
+        mTrajectoryPool = pool;
+        try {
+            if (mDeterministic) {
+                for (int done = 0; done < mNumIterations && !isTimeUp(); done += mSyncInterval) {
+                    final int steps = Math.min(mSyncInterval, mNumIterations - done);
+                    ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+                    for (final Trajectory t : trajectories) {
+                        futures.add(pool.submit(new Callable<Void>() {
+                            @Override
+                            public Void call() {
+                                t.advance(steps);
+                                return null;
+                            }
+                        }));
+                    }
+                    for (Future<Void> f : futures)
+                        f.get();
+
+                    //everybody offers before anybody adopts, in trajectory order
+                    for (Trajectory t : trajectories)
+                        t.offer();
+                    for (Trajectory t : trajectories)
+                        t.adopt();
+                    reportIncumbent(elite);
+                }
+            } else {
+                ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+                for (Trajectory t : trajectories)
+                    futures.add(pool.submit(t));
+                for (Future<Void> f : futures)
+                    f.get();
+            }
+        } catch (ExecutionException e) {
+            pool.shutdownNow();
+            LOGGER.error("A trajectory failed.", e.getCause());
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while waiting for the trajectories.", e);
+            throw new IllegalStateException(e);
+        } finally {
+            pool.shutdown();
+            mTrajectoryPool = null;
+        }
+
+        //trajectories only ever hand the elite something better
+        for (Trajectory t : trajectories)
+            t.offer();
+        Collection<Route<WindyVertex, WindyEdge>> ans = Utils.compareSolutions(elite.getBest(), initialSol);
+        LOGGER.info("Best obj value set to : " + mProblem.getObjectiveFunction().evaluate(ans));
+        reportIncumbent(elite);
+        return ans;
+    }
+
+    /**
+     * Trajectories pass on the deadline and search settings, but not the incumbent listener, which this procedure
+     * notifies itself from one thread at a time.  The move cache is keyed on route ids, which the trajectories'
+     * copies of the elite share; facts about a diverged copy are ignored, (see MoveCache), but the trajectories would
+     * keep overwriting each other's, so it's only used when there's a single trajectory.  Children created by a
+     * trajectory price their moves on the trajectory pool, rather than on a pool of their own, so that the thread
+     * count stays at mNumThreads rather than mNumThreads times the number of processors.
+     */
+    @Override
+    protected <T extends ImprovementProcedure<WindyVertex, WindyEdge, WindyGraph>> T configureChild(T child) {
+        child.setDeadline(getDeadline());
+        inheritSearchSettings(child);
+        if (mNumTrajectories > 1)
+            child.setUseMoveCache(false);
+        if (mTrajectoryPool != null)
+            child.setExecutor(mTrajectoryPool);
+        return child;
+    }
+
+    private synchronized void reportIncumbent(BestSolutionHolder<WindyVertex, WindyEdge> elite) {
+        if (getIncumbentListener() != null)
+            offerIncumbent(elite.getBest());
+    }
+
+    /**
+     * One ILS trajectory.  Only the thread currently advancing it touches its solution.
+     */
+    private final class Trajectory implements Callable<Void> {
+
+        private final int mIndex;
+        private final BestSolutionHolder<WindyVertex, WindyEdge> mElite;
+        private final TwoSwapPerturb mPerturbation;
+        private Collection<Route<WindyVertex, WindyEdge>> mCurr;
+        private double mCurrObj;
+
+        private Trajectory(int index, BestSolutionHolder<WindyVertex, WindyEdge> elite, long seed) {
+            mIndex = index;
+            mElite = elite;
+            mCurr = elite.getBest();
+            mCurrObj = elite.getBestObj();
+            mPerturbation = new TwoSwapPerturb(getProblem(), null, mCurr);
+            mPerturbation.setSeed(seed);
+        }
+
+        private void advance(int iterations) {
+            for (int i = 0; i < iterations; i++) {
+                if (isTimeUp())
+                    return;
+                Collection<Route<WindyVertex, WindyEdge>> candidate = perturbAndImprove(mCurr, mPerturbation);
+                mCurr = Utils.compareSolutions(mCurr, candidate);
+                mCurrObj = mProblem.getObjectiveFunction().evaluate(mCurr);
+            }
+        }
+
+        private void offer() {
+            mElite.offer(mCurr, mCurrObj, mIndex);
+        }
+
+        private void adopt() {
+            if (mElite.getBestObj() < mCurrObj) {
+                mCurr = mElite.getBest();
+                mCurrObj = mProblem.getObjectiveFunction().evaluate(mCurr);
+            }
+        }
+
+        @Override
+        public Void call() {
+            for (int done = 0; done < mNumIterations && !isTimeUp(); done += mSyncInterval) {
+                advance(Math.min(mSyncInterval, mNumIterations - done));
+                offer();
+                adopt();
+                reportIncumbent(mElite);
+            }
+            return null;
+        }
+    }
+}
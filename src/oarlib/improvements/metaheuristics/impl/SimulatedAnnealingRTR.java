@@ -23,6 +23,7 @@
  */
 package oarlib.improvements.metaheuristics.impl;
 
+import gnu.trove.TIntArrayList;
 import oarlib.core.Graph;
 import oarlib.core.Problem;
 import oarlib.core.Route;
@@ -32,19 +33,56 @@ import oarlib.improvements.impl.Benavent_VND1;
 import oarlib.improvements.impl.Benavent_VND2_Aesthetic;
 import oarlib.improvements.util.Utils;
 import oarlib.link.impl.WindyEdge;
+import oarlib.metrics.IncrementalMaxMetric;
 import oarlib.problem.impl.MultiVehicleProblem;
 import oarlib.problem.impl.ProblemAttributes;
+import oarlib.route.impl.Tour;
+import oarlib.route.util.RouteExpander;
 import oarlib.vertex.impl.WindyVertex;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Random;
 
 /**
+ * Simulated annealing / record-to-record travel (Dueck 1993) over the compact representation of a solution.  After
+ * the usual VND1 / VND2 pass, each iteration samples one random move in constant time:
+ * <p/>
+ * - relocating a required link to a random position in a random route, (the move of Change1to0, or of the
+ * OrInterchange with strings of length one if the route is the same);
+ * - swapping two required links in different routes, (Change1to1);
+ * - servicing a required link the other way, (Reversal, one link at a time).
+ * <p/>
+ * Links are inserted in whichever direction is cheaper.  The change in each route's cost is priced from the
+ * neighbors of the positions involved, and the change in the max from an IncrementalMaxMetric, so pricing is O(log k)
+ * and nothing is allocated in the inner loop.  The objective is the max route cost, with the total cost as a strictly
+ * smaller tiebreaker, as in the AdaptiveLargeNeighborhoodSearch.
+ * <p/>
+ * The temperature cools geometrically from one at which a solution mStartTemperatureFraction worse is accepted with
+ * probability 1/2, down to mEndTemperatureFraction of that.  If no new best has been found for a while, it's raised
+ * back up (reheating).  Every so often the current solution is expanded and run through the VNDs (intensification).
+ * <p/>
  * Created by oliverlum on 2/21/16.
  */
 public class SimulatedAnnealingRTR extends ImprovementProcedure<WindyVertex, WindyEdge, WindyGraph> {
 
-    private static final Logger LOGGER = Logger.getLogger(BenaventIPFramework.class);
+    private static final Logger LOGGER = Logger.getLogger(SimulatedAnnealingRTR.class);
+
+    private static final int RELOCATE = 0;
+    private static final int SWAP = 1;
+    private static final int FLIP = 2;
+    private static final int NUM_MOVES = 3;
+
+    private int mMaxIterations = 1000000;
+    private AdaptiveLargeNeighborhoodSearch.AcceptanceCriterion mAcceptance = AdaptiveLargeNeighborhoodSearch.AcceptanceCriterion.SIMULATED_ANNEALING;
+    private double mStartTemperatureFraction = .05; //a solution this much worse is initially accepted with probability 1/2
+    private double mEndTemperatureFraction = .002; //of the starting temperature, reached at the last iteration
+    private int mReheatAfter = 100000; //iterations without a new best before reheating; 0 never reheats
+    private double mReheatFraction = .5; //of the starting temperature
+    private double mRecordDeviation = .02;
+    private int mIntensifyEvery = 250000; //iterations between VND passes; 0 never intensifies
+    private long mSeed = 1000;
 
     public SimulatedAnnealingRTR(MultiVehicleProblem<WindyVertex, WindyEdge, WindyGraph> problem) {
         super(problem);
@@ -59,6 +97,74 @@ public class SimulatedAnnealingRTR extends ImprovementProcedure<WindyVertex, Win
         return new ProblemAttributes(Graph.Type.WINDY, null, ProblemAttributes.NumVehicles.MULTI_VEHICLE, null, null);
     }
 
+    //region Parameters
+
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations < 0) {
+            LOGGER.error("The iteration limit may not be negative.");
+            throw new IllegalArgumentException();
+        }
+        mMaxIterations = maxIterations;
+    }
+
+    public void setAcceptanceCriterion(AdaptiveLargeNeighborhoodSearch.AcceptanceCriterion acceptance) {
+        mAcceptance = acceptance;
+    }
+
+    /**
+     * @param startFraction - a solution this much worse than the start is initially accepted with probability 1/2
+     * @param endFraction   - the final temperature, as a fraction of the starting one
+     */
+    public void setCooling(double startFraction, double endFraction) {
+        if (startFraction <= 0 || endFraction <= 0 || endFraction > 1) {
+            LOGGER.error("The starting temperature must be positive, and the final fraction must lie in (0,1].");
+            throw new IllegalArgumentException();
+        }
+        mStartTemperatureFraction = startFraction;
+        mEndTemperatureFraction = endFraction;
+    }
+
+    /**
+     * @param reheatAfter    - the number of iterations without a new best after which to reheat; 0 to never reheat
+     * @param reheatFraction - the temperature to reheat to, as a fraction of the starting one
+     */
+    public void setReheating(int reheatAfter, double reheatFraction) {
+        if (reheatAfter < 0 || reheatFraction <= 0 || reheatFraction > 1) {
+            LOGGER.error("The reheat interval may not be negative, and the reheat fraction must lie in (0,1].");
+            throw new IllegalArgumentException();
+        }
+        mReheatAfter = reheatAfter;
+        mReheatFraction = reheatFraction;
+    }
+
+    /**
+     * @param deviation - record-to-record travel accepts candidates within (1 + deviation) of the best objective
+     */
+    public void setRecordDeviation(double deviation) {
+        if (deviation < 0) {
+            LOGGER.error("The record deviation may not be negative.");
+            throw new IllegalArgumentException();
+        }
+        mRecordDeviation = deviation;
+    }
+
+    /**
+     * @param intensifyEvery - the number of iterations between VND passes over the current solution; 0 to never
+     */
+    public void setIntensifyEvery(int intensifyEvery) {
+        if (intensifyEvery < 0) {
+            LOGGER.error("The intensification interval may not be negative.");
+            throw new IllegalArgumentException();
+        }
+        mIntensifyEvery = intensifyEvery;
+    }
+
+    public void setSeed(long seed) {
+        mSeed = seed;
+    }
+
+    //endregion
+
     @Override
     public Collection<Route<WindyVertex, WindyEdge>> improveSolution() {
 
@@ -68,27 +174,407 @@ public class SimulatedAnnealingRTR extends ImprovementProcedure<WindyVertex, Win
         globalBest = initialSol;
         LOGGER.info("Starting obj value: " + mProblem.getObjectiveFunction().evaluate(initialSol));
 
+        currSol = intensify(initialSol);
+
+        //update global best
+        LOGGER.debug("Compare");
+        globalBest = Utils.compareSolutions(currSol, globalBest);
+        LOGGER.info("Best obj value set to : " + mProblem.getObjectiveFunction().evaluate(globalBest));
+        offerIncumbent(globalBest);
+
+        if (mMaxIterations == 0 || isTimeUp())
+            return globalBest;
+
+        Annealer annealer = new Annealer(globalBest);
+        annealer.run();
+        globalBest = Utils.compareSolutions(annealer.toRoutes(true), globalBest);
+        LOGGER.info("Annealing obj value: " + mProblem.getObjectiveFunction().evaluate(globalBest));
+        offerIncumbent(globalBest);
+
+        return globalBest;
+    }
+
+    /**
+     * Runs the intraroute and then the interroute VND.
+     */
+    private Collection<Route<WindyVertex, WindyEdge>> intensify(Collection<Route<WindyVertex, WindyEdge>> sol) {
+
         //apply the intraroute IPs on each of the routes
         LOGGER.debug("IntraRoute IPs");
-        Benavent_VND1 vnd1 = new Benavent_VND1(getProblem(), initialSol);
+        Benavent_VND1 vnd1 = inheritAnytime(new Benavent_VND1(getProblem(), sol));
         Collection<Route<WindyVertex, WindyEdge>> postVND1 = vnd1.improveSolution();
         LOGGER.info("VND1 obj value: " + mProblem.getObjectiveFunction().evaluate(postVND1));
 
         //apply the interroute IPs
         LOGGER.debug("InterRoute IPs");
-        Benavent_VND2_Aesthetic vnd2 = new Benavent_VND2_Aesthetic(getProblem(), postVND1);
+        Benavent_VND2_Aesthetic vnd2 = inheritAnytime(new Benavent_VND2_Aesthetic(getProblem(), postVND1));
         Collection<Route<WindyVertex, WindyEdge>> postVND2 = vnd2.improveSolution();
         LOGGER.info("VND2 obj value: " + mProblem.getObjectiveFunction().evaluate(postVND2));
 
-        //set curr to bestSol
-        currSol = postVND2;
+        return postVND2;
+    }
 
-        //update global best
-        LOGGER.debug("Compare");
-        globalBest = Utils.compareSolutions(currSol, globalBest);
-        LOGGER.info("Best obj value set to : " + mProblem.getObjectiveFunction().evaluate(globalBest));
+    /**
+     * The annealing state: every route as fixed size arrays of link ids and directions, big enough to hold all of
+     * the required links, so that applying a move is a shift within an array.
+     */
+    private class Annealer {
 
-        //return best sol
-        return globalBest;
+        private final Random mRng = newRandom(mSeed);
+
+        //read-only link data
+        private final int mDepotId;
+        private final int[][] dist;
+        private final int[] mTail;
+        private final int[] mHead;
+        private final int[] mForwardCost;
+        private final int[] mReverseCost;
+
+        //the current solution
+        private final int k;
+        private final int[][] mLinks;
+        private final boolean[][] mForward;
+        private final int[] mSize;
+        private final int[] mCost;
+        private final int[] mIds; //the id each route is tracked under
+        private long mSum;
+        private IncrementalMaxMetric mTracker;
+        private double mObj;
+
+        //the best solution seen
+        private final int[][] mBestLinks;
+        private final boolean[][] mBestForward;
+        private final int[] mBestSize;
+        private double mBestObj;
+
+        private Annealer(Collection<Route<WindyVertex, WindyEdge>> start) {
+
+            WindyGraph g = getGraph();
+            mDepotId = g.getDepotId();
+            dist = g.getAllPairsShortestPaths().getDistZeroDiagonal();
+            int maxId = 0;
+            for (WindyEdge we : g.getEdges())
+                maxId = Math.max(maxId, we.getId());
+            mTail = new int[maxId + 1];
+            mHead = new int[maxId + 1];
+            mForwardCost = new int[maxId + 1];
+            mReverseCost = new int[maxId + 1];
+            for (WindyEdge we : g.getEdges()) {
+                int id = we.getId();
+                mTail[id] = we.getEndpoints().getFirst().getId();
+                mHead[id] = we.getEndpoints().getSecond().getId();
+                mForwardCost[id] = we.getCost();
+                mReverseCost[id] = we.getReverseCost();
+            }
+
+            k = Math.max(mProblem.getmNumVehicles(), start.size());
+            int capacity = 0;
+            for (Route<WindyVertex, WindyEdge> r : start)
+                capacity += r.getCompactRepresentation().size();
+
+            mLinks = new int[k][capacity];
+            mForward = new boolean[k][capacity];
+            mSize = new int[k];
+            mCost = new int[k];
+            mIds = new int[k];
+            mBestLinks = new int[k][capacity];
+            mBestForward = new boolean[k][capacity];
+            mBestSize = new int[k];
+
+            load(start);
+            saveBest();
+        }
+
+        /**
+         * Replaces the current solution.
+         */
+        private void load(Collection<Route<WindyVertex, WindyEdge>> sol) {
+
+            int i = 0;
+            for (Route<WindyVertex, WindyEdge> r : sol) {
+                TIntArrayList flat = r.getCompactRepresentation();
+                ArrayList<Boolean> dirs = r.getCompactTraversalDirection();
+                mSize[i] = flat.size();
+                for (int j = 0; j < mSize[i]; j++) {
+                    mLinks[i][j] = flat.get(j);
+                    mForward[i][j] = dirs.get(j);
+                }
+                i++;
+            }
+            for (; i < k; i++)
+                mSize[i] = 0;
+
+            //the tracker wants routes; placeholders stand in for ours, and get our costs
+            ArrayList<Route<WindyVertex, WindyEdge>> placeholders = new ArrayList<Route<WindyVertex, WindyEdge>>();
+            for (i = 0; i < k; i++)
+                placeholders.add(new Tour<WindyVertex, WindyEdge>());
+            mTracker = new IncrementalMaxMetric(placeholders);
+            mSum = 0;
+            for (i = 0; i < k; i++) {
+                mIds[i] = placeholders.get(i).getGlobalId();
+                mCost[i] = routeCost(i);
+                mTracker.update(mIds[i], mCost[i]);
+                mSum += mCost[i];
+            }
+            mObj = objective(mTracker.getMax(), mSum);
+        }
+
+        private void saveBest() {
+            for (int i = 0; i < k; i++) {
+                System.arraycopy(mLinks[i], 0, mBestLinks[i], 0, mSize[i]);
+                System.arraycopy(mForward[i], 0, mBestForward[i], 0, mSize[i]);
+                mBestSize[i] = mSize[i];
+            }
+            mBestObj = mObj;
+        }
+
+        private void run() {
+
+            double startTemperature = -mStartTemperatureFraction * mObj / Math.log(.5);
+            double temperature = startTemperature;
+            double cooling = Math.pow(mEndTemperatureFraction, 1.0 / mMaxIterations);
+            int lastBest = 0;
+
+            int a, b, i, j, other, newA, newB, newMax, move;
+            int s, e, c, prev, next, insForward, insReverse, bestDirA, bestDirB;
+            long newSum;
+            double candidate;
+            boolean accept;
+
+            for (int iter = 1; iter <= mMaxIterations; iter++) {
+
+                if ((iter & 1023) == 0 && isTimeUp()) {
+                    LOGGER.info("Out of time after " + iter + " annealing iterations.");
+                    break;
+                }
+
+                temperature *= cooling;
+                if (mReheatAfter > 0 && iter - lastBest >= mReheatAfter) {
+                    temperature = Math.max(temperature, startTemperature * mReheatFraction);
+                    lastBest = iter;
+                }
+
+                if (mIntensifyEvery > 0 && iter % mIntensifyEvery == 0) {
+                    load(intensify(toRoutes(false)));
+                    if (mObj < mBestObj) {
+                        saveBest();
+                        lastBest = iter;
+                    }
+                    continue;
+                }
+
+                //sample a move
+                move = mRng.nextInt(NUM_MOVES);
+                a = mRng.nextInt(k);
+                if (mSize[a] == 0)
+                    continue;
+                i = mRng.nextInt(mSize[a]);
+                b = a;
+                j = 0;
+                bestDirA = 1;
+                bestDirB = 1;
+                newB = 0;
+
+                //price it
+                switch (move) {
+                    case RELOCATE:
+                        b = mRng.nextInt(k);
+                        newA = mCost[a] - removalSavings(a, i);
+                        if (b == a) {
+                            //a position in the route without link i
+                            if (mSize[a] < 2)
+                                continue;
+                            j = mRng.nextInt(mSize[a] - 1);
+                            if (j >= i)
+                                j++;
+                            //j is where the link ends up, so the neighbors are read around it with i taken out
+                            prev = (j == 0) ? mDepotId : endOf(a, (j - 1 < i) ? j - 1 : j);
+                            next = (j == mSize[a] - 1) ? mDepotId : startOf(a, (j < i) ? j : j + 1);
+                        } else {
+                            j = mRng.nextInt(mSize[b] + 1);
+                            prev = endOf(b, j - 1);
+                            next = startOf(b, j);
+                        }
+                        c = mLinks[a][i];
+                        insForward = dist[prev][mTail[c]] + mForwardCost[c] + dist[mHead[c]][next];
+                        insReverse = dist[prev][mHead[c]] + mReverseCost[c] + dist[mTail[c]][next];
+                        bestDirB = (insForward <= insReverse) ? 1 : 0;
+                        if (b == a) {
+                            newA += Math.min(insForward, insReverse) - dist[prev][next];
+                            newB = newA;
+                        } else
+                            newB = mCost[b] + Math.min(insForward, insReverse) - dist[prev][next];
+                        break;
+                    case SWAP:
+                        b = mRng.nextInt(k);
+                        if (b == a || mSize[b] == 0)
+                            continue;
+                        j = mRng.nextInt(mSize[b]);
+                        newA = mCost[a] - removalSavings(a, i) - dist[endOf(a, i - 1)][startOf(a, i + 1)];
+                        newB = mCost[b] - removalSavings(b, j) - dist[endOf(b, j - 1)][startOf(b, j + 1)];
+                        //link j into a's gap, and link i into b's
+                        c = mLinks[b][j];
+                        prev = endOf(a, i - 1);
+                        next = startOf(a, i + 1);
+                        insForward = dist[prev][mTail[c]] + mForwardCost[c] + dist[mHead[c]][next];
+                        insReverse = dist[prev][mHead[c]] + mReverseCost[c] + dist[mTail[c]][next];
+                        bestDirA = (insForward <= insReverse) ? 1 : 0;
+                        newA += Math.min(insForward, insReverse);
+                        c = mLinks[a][i];
+                        prev = endOf(b, j - 1);
+                        next = startOf(b, j + 1);
+                        insForward = dist[prev][mTail[c]] + mForwardCost[c] + dist[mHead[c]][next];
+                        insReverse = dist[prev][mHead[c]] + mReverseCost[c] + dist[mTail[c]][next];
+                        bestDirB = (insForward <= insReverse) ? 1 : 0;
+                        newB += Math.min(insForward, insReverse);
+                        break;
+                    default: //FLIP
+                        c = mLinks[a][i];
+                        prev = endOf(a, i - 1);
+                        next = startOf(a, i + 1);
+                        s = startOf(a, i);
+                        e = endOf(a, i);
+                        newA = mCost[a] - dist[prev][s] - dist[e][next] - (mForward[a][i] ? mForwardCost[c] : mReverseCost[c])
+                                + dist[prev][e] + dist[s][next] + (mForward[a][i] ? mReverseCost[c] : mForwardCost[c]);
+                        newB = newA;
+                }
+
+                //the new objective
+                if (b == a) {
+                    if (k == 1)
+                        newMax = newA;
+                    else {
+                        other = (a == 0) ? 1 : 0;
+                        newMax = mTracker.evaluateWith(mIds[a], newA, mIds[other], mCost[other]);
+                    }
+                    newSum = mSum - mCost[a] + newA;
+                } else {
+                    newMax = mTracker.evaluateWith(mIds[a], newA, mIds[b], newB);
+                    newSum = mSum - mCost[a] - mCost[b] + newA + newB;
+                }
+                candidate = objective(newMax, newSum);
+
+                switch (mAcceptance) {
+                    case HILL_CLIMBING:
+                        accept = candidate <= mObj;
+                        break;
+                    case SIMULATED_ANNEALING:
+                        accept = candidate <= mObj || mRng.nextDouble() < Math.exp(-(candidate - mObj) / temperature);
+                        break;
+                    default: //RECORD_TO_RECORD
+                        accept = candidate <= (1 + mRecordDeviation) * mBestObj;
+                }
+                if (!accept)
+                    continue;
+
+                //apply it
+                switch (move) {
+                    case RELOCATE:
+                        c = mLinks[a][i];
+                        remove(a, i);
+                        insert(b, j, c, bestDirB == 1);
+                        break;
+                    case SWAP:
+                        c = mLinks[a][i];
+                        mLinks[a][i] = mLinks[b][j];
+                        mForward[a][i] = bestDirA == 1;
+                        mLinks[b][j] = c;
+                        mForward[b][j] = bestDirB == 1;
+                        break;
+                    default: //FLIP
+                        mForward[a][i] = !mForward[a][i];
+                }
+                mCost[a] = newA;
+                mTracker.update(mIds[a], newA);
+                if (b != a) {
+                    mCost[b] = newB;
+                    mTracker.update(mIds[b], newB);
+                }
+                mSum = newSum;
+                mObj = candidate;
+
+                if (mObj < mBestObj) {
+                    saveBest();
+                    lastBest = iter;
+                }
+            }
+        }
+
+        /**
+         * @return - how much cheaper route r gets if the link at position i is taken out
+         */
+        private int removalSavings(int r, int i) {
+            int c = mLinks[r][i];
+            int prev = endOf(r, i - 1);
+            int next = startOf(r, i + 1);
+            return dist[prev][startOf(r, i)] + (mForward[r][i] ? mForwardCost[c] : mReverseCost[c]) + dist[endOf(r, i)][next]
+                    - dist[prev][next];
+        }
+
+        private int startOf(int r, int i) {
+            if (i < 0 || i >= mSize[r])
+                return mDepotId;
+            return mForward[r][i] ? mTail[mLinks[r][i]] : mHead[mLinks[r][i]];
+        }
+
+        private int endOf(int r, int i) {
+            if (i < 0 || i >= mSize[r])
+                return mDepotId;
+            return mForward[r][i] ? mHead[mLinks[r][i]] : mTail[mLinks[r][i]];
+        }
+
+        private void remove(int r, int i) {
+            System.arraycopy(mLinks[r], i + 1, mLinks[r], i, mSize[r] - i - 1);
+            System.arraycopy(mForward[r], i + 1, mForward[r], i, mSize[r] - i - 1);
+            mSize[r]--;
+        }
+
+        private void insert(int r, int j, int link, boolean forward) {
+            System.arraycopy(mLinks[r], j, mLinks[r], j + 1, mSize[r] - j);
+            System.arraycopy(mForward[r], j, mForward[r], j + 1, mSize[r] - j);
+            mLinks[r][j] = link;
+            mForward[r][j] = forward;
+            mSize[r]++;
+        }
+
+        private int routeCost(int r) {
+            int ans = 0;
+            int prev = mDepotId;
+            int c;
+            for (int i = 0; i < mSize[r]; i++) {
+                c = mLinks[r][i];
+                ans += dist[prev][startOf(r, i)] + (mForward[r][i] ? mForwardCost[c] : mReverseCost[c]);
+                prev = endOf(r, i);
+            }
+            return ans + dist[prev][mDepotId];
+        }
+
+        /**
+         * @return - the min-max objective, with the total length as a (strictly smaller) tiebreaker
+         */
+        private double objective(int max, long sum) {
+            return max + sum / (100.0 * k * (max + 1));
+        }
+
+        /**
+         * Expands the best (or current) solution into tours, dropping any that are empty.
+         */
+        private Collection<Route<WindyVertex, WindyEdge>> toRoutes(boolean best) {
+            RouteExpander<WindyGraph> re = new RouteExpander<WindyGraph>(getGraph());
+            ArrayList<Route<WindyVertex, WindyEdge>> ans = new ArrayList<Route<WindyVertex, WindyEdge>>();
+            for (int r = 0; r < k; r++) {
+                int size = best ? mBestSize[r] : mSize[r];
+                if (size == 0)
+                    continue;
+                TIntArrayList flat = new TIntArrayList(size);
+                ArrayList<Boolean> dirs = new ArrayList<Boolean>(size);
+                for (int i = 0; i < size; i++) {
+                    flat.add(best ? mBestLinks[r][i] : mLinks[r][i]);
+                    dirs.add(best ? mBestForward[r][i] : mForward[r][i]);
+                }
+                ans.add(re.unflattenRoute(flat, dirs));
+            }
+            return ans;
+        }
     }
 }
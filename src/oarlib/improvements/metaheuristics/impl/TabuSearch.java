@@ -0,0 +1,318 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.improvements.metaheuristics.impl;
+
+import gnu.trove.TIntObjectHashMap;
+import gnu.trove.TLongHashSet;
+import oarlib.core.Graph;
+import oarlib.core.Problem;
+import oarlib.core.Route;
+import oarlib.graph.impl.WindyGraph;
+import oarlib.improvements.ImprovementProcedure;
+import oarlib.improvements.util.BestSolutionHolder;
+import oarlib.improvements.util.CompactMove;
+import oarlib.improvements.util.Mover;
+import oarlib.improvements.util.Utils;
+import oarlib.link.impl.WindyEdge;
+import oarlib.metrics.IncrementalMaxMetric;
+import oarlib.problem.impl.MultiVehicleProblem;
+import oarlib.problem.impl.ProblemAttributes;
+import oarlib.vertex.impl.WindyVertex;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * Tabu search for the min-max K-WRPP.  Each iteration makes the best non-tabu move out of the longest route, even if
+ * it makes things worse: either relocating one of its required links to another route, (as in Change1to0), or
+ * swapping one with a link of another route, (as in Change1to1).  Moves are priced and made with the Mover.
+ * <p/>
+ * Tabu status is attribute based: once a link leaves a route, moving it back into that route is tabu for a random
+ * number of iterations in [mMinTenure, mMaxTenure].  The expiry iterations are kept in a flat array indexed by
+ * (link id, route), so checking a move is a single lookup.  A tabu move is allowed anyway if it would produce a new
+ * best solution (aspiration by objective).
+ * <p/>
+ * To avoid cycling, the assignment of links to routes is hashed Zobrist-style: every (link, route) pair gets a random
+ * 64-bit key, and the hash of a solution is the xor of the keys of its assignments, so a move updates it with one xor
+ * per link moved.  Moves leading back to an assignment we've already been in are treated as tabu as well.
+ * <p/>
+ * The objective is the max route cost, with the total cost as a strictly smaller tiebreaker, as in the
+ * AdaptiveLargeNeighborhoodSearch.
+ */
+public class TabuSearch extends ImprovementProcedure<WindyVertex, WindyEdge, WindyGraph> {
+
+    private static final Logger LOGGER = Logger.getLogger(TabuSearch.class);
+
+    private static final int RELOCATE = 0;
+    private static final int SWAP = 1;
+
+    private int mMaxIterations = 1000;
+    private int mMaxNonImprovingIterations = 200; //iterations without a new best before we give up
+    private int mMinTenure = 5;
+    private int mMaxTenure = 15;
+    private boolean mUseSwaps = true;
+    private long mSeed = 1000;
+
+    public TabuSearch(MultiVehicleProblem<WindyVertex, WindyEdge, WindyGraph> problem) {
+        super(problem);
+    }
+
+    public TabuSearch(Problem<WindyVertex, WindyEdge, WindyGraph> problem, Collection<Route<WindyVertex, WindyEdge>> initialSol) {
+        super(problem, null, initialSol);
+    }
+
+    @Override
+    public ProblemAttributes getProblemAttributes() {
+        return new ProblemAttributes(Graph.Type.WINDY, null, ProblemAttributes.NumVehicles.MULTI_VEHICLE, ProblemAttributes.NumDepots.SINGLE_DEPOT, null);
+    }
+
+    //region Parameters
+
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations < 0) {
+            LOGGER.error("The iteration limit may not be negative.");
+            throw new IllegalArgumentException();
+        }
+        mMaxIterations = maxIterations;
+    }
+
+    /**
+     * @param maxNonImprovingIterations - the number of iterations without a new best after which the search stops
+     */
+    public void setMaxNonImprovingIterations(int maxNonImprovingIterations) {
+        if (maxNonImprovingIterations < 1) {
+            LOGGER.error("The search must be allowed at least one iteration without improvement.");
+            throw new IllegalArgumentException();
+        }
+        mMaxNonImprovingIterations = maxNonImprovingIterations;
+    }
+
+    /**
+     * @param minTenure - the fewest iterations a move back stays tabu for
+     * @param maxTenure - the most iterations a move back stays tabu for
+     */
+    public void setTenure(int minTenure, int maxTenure) {
+        if (minTenure < 0 || maxTenure < minTenure) {
+            LOGGER.error("The tenure range must be non-negative and non-empty.");
+            throw new IllegalArgumentException();
+        }
+        mMinTenure = minTenure;
+        mMaxTenure = maxTenure;
+    }
+
+    public void setUseSwaps(boolean useSwaps) {
+        mUseSwaps = useSwaps;
+    }
+
+    public void setSeed(long seed) {
+        mSeed = seed;
+    }
+
+    //endregion
+
+    @Override
+    public Collection<Route<WindyVertex, WindyEdge>> improveSolution() {
+
+        Collection<Route<WindyVertex, WindyEdge>> initialSol = getInitialSol();
+        LOGGER.info("Starting obj value: " + mProblem.getObjectiveFunction().evaluate(initialSol));
+
+        //the mover edits the routes it's handed, so work on a copy
+        ArrayList<Route<WindyVertex, WindyEdge>> routes = new ArrayList<Route<WindyVertex, WindyEdge>>(BestSolutionHolder.copy(initialSol));
+        int k = routes.size();
+        if (k < 2 || mMaxIterations == 0)
+            return initialSol;
+
+        Random rng = newRandom(mSeed);
+        Mover<WindyVertex, WindyEdge, WindyGraph> mover = new Mover<WindyVertex, WindyEdge, WindyGraph>(getGraph());
+        IncrementalMaxMetric tracker = new IncrementalMaxMetric(routes);
+
+        int maxId = 0;
+        for (WindyEdge we : getGraph().getEdges())
+            maxId = Math.max(maxId, we.getId());
+
+        //tabuUntil[link * k + r] is the first iteration at which link may move back into route r
+        int[] tabuUntil = new int[(maxId + 1) * k];
+
+        //Zobrist keys for the (link, route) assignments, and the hashes of the assignments we've been in
+        long[] keys = new long[(maxId + 1) * k];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = rng.nextLong();
+        long hash = 0;
+        for (int r = 0; r < k; r++)
+            for (int link : routes.get(r).getCompactRepresentation().toNativeArray())
+                hash ^= keys[link * k + r];
+        TLongHashSet visited = new TLongHashSet();
+        visited.add(hash);
+
+        double currObj = objective(tracker.getMax(), tracker.getSum(), k);
+        double bestObj = currObj;
+        Collection<Route<WindyVertex, WindyEdge>> best = initialSol;
+        int lastImprovement = 0;
+
+        ArrayList<CompactMove<WindyVertex, WindyEdge>> moveList = new ArrayList<CompactMove<WindyVertex, WindyEdge>>();
+        Route<WindyVertex, WindyEdge> from, to;
+        int a, fromSize, toSize, delta, linkI, linkJ, bestType, bestTo, bestI, bestJ;
+        long candidateHash, bestHash;
+        double candidateObj, bestCandidateObj;
+        boolean tabu;
+
+        for (int iter = 1; iter <= mMaxIterations && iter - lastImprovement <= mMaxNonImprovingIterations; iter++) {
+
+            if (isTimeUp()) {
+                LOGGER.info("Out of time after " + iter + " tabu iterations.");
+                break;
+            }
+
+            //the longest route
+            a = 0;
+            for (int r = 1; r < k; r++)
+                if (routes.get(r).getGlobalId() == tracker.getArgMax())
+                    a = r;
+            from = routes.get(a);
+            fromSize = from.getCompactRepresentation().size();
+
+            bestType = -1;
+            bestTo = -1;
+            bestI = -1;
+            bestJ = -1;
+            bestHash = 0;
+            bestCandidateObj = Double.MAX_VALUE;
+
+            for (int b = 0; b < k; b++) {
+                if (b == a)
+                    continue;
+                to = routes.get(b);
+                toSize = to.getCompactRepresentation().size();
+
+                for (int i = 0; i < fromSize; i++) {
+                    linkI = from.getCompactRepresentation().get(i);
+
+                    //relocations, (as long as they don't empty the route)
+                    candidateHash = hash ^ keys[linkI * k + a] ^ keys[linkI * k + b];
+                    tabu = tabuUntil[linkI * k + b] > iter || visited.contains(candidateHash);
+                    for (int j = 0; j <= toSize && fromSize > 1; j++) {
+                        moveList.clear();
+                        moveList.add(new CompactMove<WindyVertex, WindyEdge>(from, to, i, j));
+                        delta = mover.evalComplexMove(moveList, tracker);
+                        candidateObj = objective(tracker.getMax() + delta, predictedSum(mover, tracker, from, to), k);
+                        if (candidateObj < bestCandidateObj && (!tabu || candidateObj < bestObj)) {
+                            bestCandidateObj = candidateObj;
+                            bestType = RELOCATE;
+                            bestTo = b;
+                            bestI = i;
+                            bestJ = j;
+                            bestHash = candidateHash;
+                        }
+                    }
+
+                    //swaps
+                    if (!mUseSwaps)
+                        continue;
+                    for (int j = 0; j < toSize; j++) {
+                        linkJ = to.getCompactRepresentation().get(j);
+                        candidateHash = hash ^ keys[linkI * k + a] ^ keys[linkI * k + b] ^ keys[linkJ * k + b] ^ keys[linkJ * k + a];
+                        tabu = tabuUntil[linkI * k + b] > iter || tabuUntil[linkJ * k + a] > iter || visited.contains(candidateHash);
+                        moveList.clear();
+                        moveList.add(new CompactMove<WindyVertex, WindyEdge>(from, to, i, j));
+                        moveList.add(new CompactMove<WindyVertex, WindyEdge>(to, from, j + 1, i));
+                        delta = mover.evalComplexMove(moveList, tracker);
+                        candidateObj = objective(tracker.getMax() + delta, predictedSum(mover, tracker, from, to), k);
+                        if (candidateObj < bestCandidateObj && (!tabu || candidateObj < bestObj)) {
+                            bestCandidateObj = candidateObj;
+                            bestType = SWAP;
+                            bestTo = b;
+                            bestI = i;
+                            bestJ = j;
+                            bestHash = candidateHash;
+                        }
+                    }
+                }
+            }
+
+            if (bestType == -1) {
+                LOGGER.debug("Every move is tabu; stopping after " + iter + " iterations.");
+                break;
+            }
+
+            //make it, (re-pricing it so that the mover records which direction to insert in)
+            to = routes.get(bestTo);
+            linkI = from.getCompactRepresentation().get(bestI);
+            linkJ = (bestType == SWAP) ? to.getCompactRepresentation().get(bestJ) : -1;
+            moveList.clear();
+            moveList.add(new CompactMove<WindyVertex, WindyEdge>(from, to, bestI, bestJ));
+            if (bestType == SWAP)
+                moveList.add(new CompactMove<WindyVertex, WindyEdge>(to, from, bestJ + 1, bestI));
+            mover.evalComplexMove(moveList, tracker);
+            TIntObjectHashMap<Route<WindyVertex, WindyEdge>> routesToChange = mover.makeComplexMove(moveList);
+            replace(routes, tracker, routesToChange, a);
+            replace(routes, tracker, routesToChange, bestTo);
+
+            //moving back is tabu for a while
+            tabuUntil[linkI * k + a] = iter + mMinTenure + rng.nextInt(mMaxTenure - mMinTenure + 1);
+            if (linkJ != -1)
+                tabuUntil[linkJ * k + bestTo] = iter + mMinTenure + rng.nextInt(mMaxTenure - mMinTenure + 1);
+            hash = bestHash;
+            visited.add(hash);
+
+            currObj = objective(tracker.getMax(), tracker.getSum(), k);
+            if (currObj < bestObj) {
+                bestObj = currObj;
+                best = BestSolutionHolder.copy(routes);
+                lastImprovement = iter;
+                offerIncumbent(best);
+            }
+        }
+
+        LOGGER.info("Tabu search obj value: " + mProblem.getObjectiveFunction().evaluate(best));
+        return Utils.compareSolutions(best, initialSol);
+    }
+
+    /**
+     * @return - the total cost of the solution after the last move priced, which touched only these two routes
+     */
+    private static long predictedSum(Mover<WindyVertex, WindyEdge, WindyGraph> mover, IncrementalMaxMetric tracker, Route from, Route to) {
+        return tracker.getSum() - tracker.getCost(from.getGlobalId()) - tracker.getCost(to.getGlobalId())
+                + mover.getPredictedCost(from.getGlobalId()) + mover.getPredictedCost(to.getGlobalId());
+    }
+
+    /**
+     * Swaps the route in slot r for its replacement, if the move changed it.
+     */
+    private static void replace(ArrayList<Route<WindyVertex, WindyEdge>> routes, IncrementalMaxMetric tracker, TIntObjectHashMap<Route<WindyVertex, WindyEdge>> routesToChange, int r) {
+        int id = routes.get(r).getGlobalId();
+        if (!routesToChange.containsKey(id))
+            return;
+        tracker.replace(id, routesToChange.get(id));
+        routes.set(r, routesToChange.get(id));
+    }
+
+    /**
+     * @return - the min-max objective, with the total length as a (strictly smaller) tiebreaker
+     */
+    private static double objective(int max, long sum, int k) {
+        return max + sum / (100.0 * k * (max + 1));
+    }
+}
@@ -46,6 +46,9 @@ import java.util.Random;
  */
 public class TwoSwapPerturb extends IntraRouteImprovementProcedure<WindyVertex, WindyEdge, WindyGraph> {
 
+    private long mSeed = 1000;
+    private Random mRng; //made on first use, (see ImprovementProcedure.newRandom)
+
     public TwoSwapPerturb(Problem<WindyVertex, WindyEdge, WindyGraph> problem) {
         super(problem);
     }
@@ -59,12 +62,23 @@ public class TwoSwapPerturb extends IntraRouteImprovementProcedure<WindyVertex,
         return new ProblemAttributes(Graph.Type.WINDY, null, null, ProblemAttributes.NumDepots.SINGLE_DEPOT, null);
     }
 
+    /**
+     * @param seed - seeds the random stream that picks the links to swap, so that a sequence of perturbations can be
+     *             replayed; the context's seed takes its place if one is set
+     */
+    public void setSeed(long seed) {
+        mSeed = seed;
+        mRng = null;
+    }
+
     @Override
     public Route<WindyVertex, WindyEdge> improveRoute(Route<WindyVertex, WindyEdge> r) {
 
         Route<WindyVertex, WindyEdge> ans = null;
 
-        Random rng = new Random();
+        if (mRng == null)
+            mRng = newRandom(mSeed);
+        Random rng = mRng;
         List<WindyEdge> rPath = r.getPath();
         int routeLength = r.getCompactRepresentation().size();
         int index1 = rng.nextInt(routeLength);
@@ -0,0 +1,102 @@
+package oarlib.improvements.util;
+
+import oarlib.core.Link;
+import oarlib.core.Route;
+import oarlib.core.Vertex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The best solution found so far by a group of searches running side by side, (e.g. the trajectories of a parallel
+ * ILS).  Offering and reading never block: the best entry is swapped in with a compare-and-set, so a search that
+ * offers a worse solution, or reads the elite, never waits on the others.
+ * <p/>
+ * The holder keeps its own deep copy of whatever it accepts, and hands out fresh deep copies, so nobody ever shares
+ * routes with anybody else through it.  Copies are copy-on-write, (see Route.getDeepCopy), so a snapshot costs
+ * O(number of routes) no matter how long they are.
+ * <p/>
+ * Ties go to the lower source index, so that when offers are made in a fixed order the elite doesn't depend on
+ * which search got there first.
+ */
+public class BestSolutionHolder<V extends Vertex, E extends Link<V>> {
+
+    private static final class Entry<V extends Vertex, E extends Link<V>> {
+        private final Collection<Route<V, E>> sol;
+        private final double obj;
+        private final int source;
+
+        private Entry(Collection<Route<V, E>> sol, double obj, int source) {
+            this.sol = sol;
+            this.obj = obj;
+            this.source = source;
+        }
+
+        private boolean isBetterThan(double otherObj, int otherSource) {
+            return obj < otherObj || (obj == otherObj && source < otherSource);
+        }
+    }
+
+    private final AtomicReference<Entry<V, E>> mBest;
+
+    /**
+     * @param sol    - the starting elite
+     * @param obj    - its objective value
+     * @param source - whoever found it, (e.g. a trajectory index)
+     */
+    public BestSolutionHolder(Collection<Route<V, E>> sol, double obj, int source) {
+        mBest = new AtomicReference<Entry<V, E>>(new Entry<V, E>(copy(sol), obj, source));
+    }
+
+    /**
+     * Replaces the elite with the candidate if the candidate is better.
+     *
+     * @param sol    - the candidate; not retained, so the caller may keep modifying it
+     * @param obj    - its objective value
+     * @param source - whoever found it
+     * @return - true if the candidate became the elite
+     */
+    public boolean offer(Collection<Route<V, E>> sol, double obj, int source) {
+        Entry<V, E> curr = mBest.get();
+        if (!new Entry<V, E>(null, obj, source).isBetterThan(curr.obj, curr.source))
+            return false;
+
+        //only pay for the copy once we know it's worth keeping
+        Entry<V, E> candidate = new Entry<V, E>(copy(sol), obj, source);
+        while (candidate.isBetterThan(curr.obj, curr.source)) {
+            if (mBest.compareAndSet(curr, candidate))
+                return true;
+            curr = mBest.get();
+        }
+        return false;
+    }
+
+    public double getBestObj() {
+        return mBest.get().obj;
+    }
+
+    /**
+     * @return - the index of whoever found the elite
+     */
+    public int getBestSource() {
+        return mBest.get().source;
+    }
+
+    /**
+     * @return - a deep copy of the elite, which the caller is free to modify
+     */
+    public Collection<Route<V, E>> getBest() {
+        return copy(mBest.get().sol);
+    }
+
+    /**
+     * @return - a deep copy of a solution; the copies keep the global ids of the originals
+     */
+    public static <V extends Vertex, E extends Link<V>> Collection<Route<V, E>> copy(Collection<Route<V, E>> sol) {
+        ArrayList<Route<V, E>> ans = new ArrayList<Route<V, E>>(sol.size());
+        for (Route<V, E> r : sol)
+            ans.add(r.getDeepCopy());
+        return ans;
+    }
+}
@@ -0,0 +1,218 @@
+package oarlib.improvements.util;
+
+import gnu.trove.TIntHashSet;
+import gnu.trove.TIntObjectHashMap;
+import oarlib.core.Graph;
+import oarlib.core.Route;
+import oarlib.graph.util.AllPairsShortestPaths;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What local search has already learned about the routes of a graph, so that repeated passes (e.g. successive calls
+ * to the VNDs) only pay for the routes that changed in between.  Three kinds of facts are kept:
+ * <p/>
+ * Row minima: for an inter-route neighborhood, the cheapest a route can possibly become when a given string of links
+ * is moved into it at any position.  That depends only on the route and the string, so a row whose minimum is no
+ * better than the current max can never yield an improving move, and can be skipped (a don't-look bit); see
+ * ParallelMoveEvaluator.DontLookSpace.
+ * <p/>
+ * Exhausted pairs: for neighborhoods whose savings depend only on the two routes involved, the pairs of routes that
+ * a full scan found nothing improving between.
+ * <p/>
+ * Local optima: the result of running an intra-route procedure to completion on a route.
+ * <p/>
+ * Facts are keyed on route global ids, and stamped with the hash of the route they're about, (see Route.getHash).
+ * A move hands back new routes, (see Mover.makeComplexMove), so a fact about a route that a move touched usually
+ * just stops being looked up; but copies of a route keep its global id, (see Route.getDeepCopy), so a copy that has
+ * since been edited could otherwise pick up facts about the original.  Facts whose route no longer hashes the same
+ * are ignored, and overwritten by the next fact recorded about it.  invalidate / retainOnly just reclaim the space.
+ * Everything here is safe to use from several threads at once.
+ */
+public class MoveCache {
+
+    private static final Map<Graph, MoveCache> cache = new WeakHashMap<Graph, MoveCache>();
+
+    private AllPairsShortestPaths mShortestPaths;
+    private ConcurrentHashMap<Integer, RouteFacts> mFacts = new ConcurrentHashMap<Integer, RouteFacts>();
+
+    private static final class RouteFacts {
+        private final long hash; //of the route the facts are about
+        private ConcurrentHashMap<String, ConcurrentHashMap<Long, Integer>> rowMins = new ConcurrentHashMap<String, ConcurrentHashMap<Long, Integer>>();
+        private ConcurrentHashMap<String, LocalOptimum> localOptima = new ConcurrentHashMap<String, LocalOptimum>();
+        private ConcurrentHashMap<String, ConcurrentHashMap<Integer, Long>> exhausted = new ConcurrentHashMap<String, ConcurrentHashMap<Integer, Long>>(); //other route id -> its hash
+
+        private RouteFacts(long hash) {
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * A recorded local optimum, along with what the route and the optimum looked like at the time; routes can still be
+     * extended or have their service changed, (see Route.appendEdge), so we check that neither has changed since.
+     */
+    private static final class LocalOptimum {
+        private Route optimum;
+        private int[] routeLinks;
+        private Boolean[] routeDirections;
+        private int[] optimumLinks;
+        private Boolean[] optimumDirections;
+
+        private LocalOptimum(Route r, Route optimum) {
+            this.optimum = optimum;
+            routeLinks = r.getCompactRepresentation().toNativeArray();
+            routeDirections = (Boolean[]) r.getCompactTraversalDirection().toArray(new Boolean[0]);
+            optimumLinks = optimum.getCompactRepresentation().toNativeArray();
+            optimumDirections = (Boolean[]) optimum.getCompactTraversalDirection().toArray(new Boolean[0]);
+        }
+
+        private boolean isValidFor(Route r) {
+            return Arrays.equals(routeLinks, r.getCompactRepresentation().toNativeArray())
+                    && Arrays.equals(routeDirections, r.getCompactTraversalDirection().toArray())
+                    && Arrays.equals(optimumLinks, optimum.getCompactRepresentation().toNativeArray())
+                    && Arrays.equals(optimumDirections, optimum.getCompactTraversalDirection().toArray());
+        }
+    }
+
+    /**
+     * @return - the cache for the graph as it currently stands; if the graph has changed since the last call, the
+     * old facts are dropped, since route costs may have changed with it
+     */
+    public static MoveCache forGraph(Graph<?, ?> g) {
+        AllPairsShortestPaths sp = g.getAllPairsShortestPaths();
+        synchronized (cache) {
+            MoveCache ans = cache.get(g);
+            if (ans == null || ans.mShortestPaths != sp) {
+                ans = new MoveCache();
+                ans.mShortestPaths = sp;
+                cache.put(g, ans);
+            }
+            return ans;
+        }
+    }
+
+    /**
+     * @param kind      - the neighborhood, (e.g. the name of the improvement procedure)
+     * @param r         - the route receiving the links
+     * @param signature - identifies the string of links being moved, and their directions
+     * @return - the recorded row minimum, or null if there isn't one
+     */
+    public Integer getRowMin(String kind, Route r, long signature) {
+        RouteFacts facts = validFacts(r);
+        if (facts == null)
+            return null;
+        ConcurrentHashMap<Long, Integer> rows = facts.rowMins.get(kind);
+        return (rows == null) ? null : rows.get(signature);
+    }
+
+    public void putRowMin(String kind, Route r, long signature, int min) {
+        RouteFacts facts = factsFor(r);
+        ConcurrentHashMap<Long, Integer> rows = facts.rowMins.get(kind);
+        if (rows == null) {
+            ConcurrentHashMap<Long, Integer> fresh = new ConcurrentHashMap<Long, Integer>();
+            rows = facts.rowMins.putIfAbsent(kind, fresh);
+            if (rows == null)
+                rows = fresh;
+        }
+        rows.put(signature, min);
+    }
+
+    /**
+     * @return - true if a full scan of the neighborhood between these two routes found nothing improving
+     */
+    public boolean isExhausted(String kind, Route from, Route to) {
+        RouteFacts facts = validFacts(from);
+        if (facts == null)
+            return false;
+        ConcurrentHashMap<Integer, Long> pairs = facts.exhausted.get(kind);
+        if (pairs == null)
+            return false;
+        Long toHash = pairs.get(to.getGlobalId());
+        return toHash != null && toHash == to.getHash();
+    }
+
+    public void markExhausted(String kind, Route from, Route to) {
+        RouteFacts facts = factsFor(from);
+        ConcurrentHashMap<Integer, Long> pairs = facts.exhausted.get(kind);
+        if (pairs == null) {
+            ConcurrentHashMap<Integer, Long> fresh = new ConcurrentHashMap<Integer, Long>();
+            pairs = facts.exhausted.putIfAbsent(kind, fresh);
+            if (pairs == null)
+                pairs = fresh;
+        }
+        pairs.put(to.getGlobalId(), to.getHash());
+    }
+
+    /**
+     * @param kind - the intra-route procedure
+     * @param r    - a route
+     * @return - the route the procedure turned r into the last time it ran to completion on it, or null if it hasn't
+     */
+    public Route getLocalOptimum(String kind, Route r) {
+        RouteFacts facts = validFacts(r);
+        if (facts == null)
+            return null;
+        LocalOptimum known = facts.localOptima.get(kind);
+        return (known == null || !known.isValidFor(r)) ? null : known.optimum;
+    }
+
+    /**
+     * Records that the procedure turned r into optimum, (which is then a fixed point of the procedure as well).
+     */
+    public void putLocalOptimum(String kind, Route r, Route optimum) {
+        factsFor(r).localOptima.put(kind, new LocalOptimum(r, optimum));
+        factsFor(optimum).localOptima.put(kind, new LocalOptimum(optimum, optimum));
+    }
+
+    /**
+     * Forgets everything about the routes replaced by a move.
+     *
+     * @param routesToChange - the output of Mover.makeComplexMove
+     */
+    public void invalidate(TIntObjectHashMap<? extends Route> routesToChange) {
+        for (int id : routesToChange.keys())
+            mFacts.remove(id);
+    }
+
+    /**
+     * Forgets everything about routes that aren't part of the solution.
+     */
+    public void retainOnly(Collection<? extends Route> routes) {
+        TIntHashSet keep = new TIntHashSet();
+        for (Route r : routes)
+            keep.add(r.getGlobalId());
+        for (Iterator<Integer> it = mFacts.keySet().iterator(); it.hasNext(); )
+            if (!keep.contains(it.next()))
+                it.remove();
+    }
+
+    /**
+     * @return - the facts recorded about r, or null if there are none, or they were recorded about a different
+     * version of it
+     */
+    private RouteFacts validFacts(Route r) {
+        RouteFacts facts = mFacts.get(r.getGlobalId());
+        return (facts == null || facts.hash != r.getHash()) ? null : facts;
+    }
+
+    /**
+     * @return - the facts about r, starting over if the ones on record were about a different version of it
+     */
+    private RouteFacts factsFor(Route r) {
+        int id = r.getGlobalId();
+        long hash = r.getHash();
+        while (true) {
+            RouteFacts facts = mFacts.get(id);
+            if (facts != null && facts.hash == hash)
+                return facts;
+            RouteFacts fresh = new RouteFacts(hash);
+            if (facts == null ? mFacts.putIfAbsent(id, fresh) == null : mFacts.replace(id, facts, fresh))
+                return fresh;
+        }
+    }
+}
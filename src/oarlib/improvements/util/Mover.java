@@ -1,15 +1,15 @@
 package oarlib.improvements.util;
 
 import gnu.trove.TIntArrayList;
-import gnu.trove.TIntIntHashMap;
 import gnu.trove.TIntObjectHashMap;
 import oarlib.core.Graph;
 import oarlib.core.Link;
 import oarlib.core.Route;
 import oarlib.core.Vertex;
-import oarlib.graph.util.CommonAlgorithms;
-import oarlib.graph.util.Pair;
+import oarlib.graph.util.AllPairsShortestPaths;
 import oarlib.link.impl.WindyEdge;
+import oarlib.metrics.IncrementalMaxMetric;
+import oarlib.route.util.PackedBooleanArrayList;
 import oarlib.route.util.RouteExpander;
 import org.apache.log4j.Logger;
 
@@ -26,20 +26,48 @@ public class Mover<V extends Vertex, E extends Link<V>, G extends Graph<V, E>> {
     private int[][] dist;
     private int[][] path;
     private int[][] edgePath;
+    private int mDepotId;
+    private int[] mTail;
+    private int[] mHead;
+    private int[] mCost;
+    private int[] mReverseCost;
+    private boolean[] mDirected;
+
+    //per-thread scratch space for evalComplexMove, so that pricing a move allocates nothing
+    private final ThreadLocal<MoveScratch> mScratch = new ThreadLocal<MoveScratch>() {
+        @Override
+        protected MoveScratch initialValue() {
+            return new MoveScratch();
+        }
+    };
 
     public Mover(G g) {
         mGraph = g;
-        int n = g.getVertices().size();
-        dist = new int[n + 1][n + 1];
-        path = new int[n + 1][n + 1];
-        edgePath = new int[n + 1][n + 1];
-
-        CommonAlgorithms.fwLeastCostPaths(g, dist, path, edgePath);
 
-        //zero out self-distances
-        for (int i = 1; i <= n; i++) {
-            dist[i][i] = 0;
+        //shared with everyone else working on this graph, so read-only; self-distances are zeroed
+        AllPairsShortestPaths sp = g.getAllPairsShortestPaths();
+        dist = sp.getDistZeroDiagonal();
+        path = sp.getPath();
+        edgePath = sp.getEdgePath();
+
+        //flatten the link data we need for pricing, so that evaluating a move doesn't have to go through the graph
+        int maxId = 0;
+        for (E l : g.getEdges())
+            maxId = Math.max(maxId, l.getId());
+        mTail = new int[maxId + 1];
+        mHead = new int[maxId + 1];
+        mCost = new int[maxId + 1];
+        mReverseCost = new int[maxId + 1];
+        mDirected = new boolean[maxId + 1];
+        for (E l : g.getEdges()) {
+            int id = l.getId();
+            mTail[id] = l.getEndpoints().getFirst().getId();
+            mHead[id] = l.getEndpoints().getSecond().getId();
+            mCost[id] = l.getCost();
+            mReverseCost[id] = l.isWindy() ? ((WindyEdge) l).getReverseCost() : l.getCost();
+            mDirected[id] = l.isDirected();
         }
+        mDepotId = g.getDepotId();
     }
 
     /**
@@ -54,95 +82,239 @@ public class Mover<V extends Vertex, E extends Link<V>, G extends Graph<V, E>> {
         if (moveList.size() == 0)
             return 0;
 
-        //ans; if it's < 0, it's anticipated that you reap savings
-        int ans;
-
-        //init
-        TIntIntHashMap costMap = new TIntIntHashMap();
-        TIntObjectHashMap<TIntArrayList> compactReps = new TIntObjectHashMap<TIntArrayList>();
-        TIntObjectHashMap<ArrayList<Boolean>> compactTDs = new TIntObjectHashMap<ArrayList<Boolean>>();
-
-        int tempCost;
-        int max = Integer.MIN_VALUE;
-        String origCost = "";
-
-        //setup a hashmap that keeps track of initial costs
-        for (Route<V, E> r : routes) {
-            tempCost = r.getCost();
-            costMap.put(r.getGlobalId(), tempCost);
-            compactReps.put(r.getGlobalId(), new TIntArrayList(r.getCompactRepresentation().toNativeArray()));
-            compactTDs.put(r.getGlobalId(), new ArrayList<Boolean>(r.getCompactTraversalDirection()));
-            origCost += "Originally, route: " + r.getGlobalId() + " had cost: " + tempCost + "\n";
-            if (tempCost > max) {
-                max = tempCost;
-            }
-        }
+        return evalComplexMove(moveList, new IncrementalMaxMetric(routes));
+    }
 
-        ans = max;
+    /**
+     * Method that determines the cost of making a series of moves, using an objective tracker that the caller keeps
+     * in sync with the solution.  Only the routes touched by the moves are examined, so this is the version to use
+     * inside of a search loop.
+     *
+     * @param moveList List of moves to be executed in the order provided.
+     * @param tracker  - tracks the current cost of every route in the solution
+     * @return - the change in the max route cost from making the moves provided; if it's < 0, we reap savings
+     */
+    public int evalComplexMove(ArrayList<CompactMove<V, E>> moveList, IncrementalMaxMetric tracker) throws IllegalArgumentException {
 
+        //check for trivial arg
         int size = moveList.size();
-        Pair<Integer> change = new Pair<Integer>(0, 0);
-        int tempId;
+        if (size == 0)
+            return 0;
+
+        MoveScratch scratch = mScratch.get();
+        scratch.reset(size);
+
         CompactMove<V, E> tempMove;
-        boolean forward;
-        int tempLinkId;
+        int from, to, fromPos, toPos, fromSize, toSize;
+        int link, first, second, cost, costAlt, prev, next;
+        int removal, add1, add2;
+        boolean dir, forward;
 
         for (int i = 0; i < size; i++) {
 
             tempMove = moveList.get(i);
-            TIntArrayList flatFrom = compactReps.get(tempMove.getFrom().getGlobalId());
-            TIntArrayList flatTo = compactReps.get(tempMove.getTo().getGlobalId());
-            ArrayList<Boolean> fromDir = compactTDs.get(tempMove.getFrom().getGlobalId());
-            ArrayList<Boolean> toDir = compactTDs.get(tempMove.getTo().getGlobalId());
-            int fromPos = tempMove.getFromPos();
-            int toPos = tempMove.getToPos();
-
-            if (tempMove.getFrom().getGlobalId() == tempMove.getTo().getGlobalId()) {
-                if (tempMove.getFromPos() < tempMove.getToPos())
+            from = scratch.view(tempMove.getFrom(), tracker);
+            to = scratch.view(tempMove.getTo(), tracker);
+            fromPos = tempMove.getFromPos();
+            toPos = tempMove.getToPos();
+
+            if (from == to) {
+                if (fromPos < toPos)
                     toPos++;
-                else if (tempMove.getFromPos() == tempMove.getToPos())
+                else if (fromPos == toPos)
                     continue;
             }
 
-            forward = assessMoveCost(flatFrom, fromDir, flatTo, toDir, fromPos, toPos, change);
+            link = scratch.link(from, fromPos);
+            dir = scratch.forward(from, fromPos);
+            first = dir ? mTail[link] : mHead[link];
+            second = dir ? mHead[link] : mTail[link];
+            cost = dir ? mCost[link] : mReverseCost[link];
+            costAlt = dir ? mReverseCost[link] : mCost[link];
+
+            //removal savings
+            fromSize = scratch.size(from);
+            prev = (fromPos == 0) ? mDepotId : endOf(scratch, from, fromPos - 1);
+            next = (fromPos == fromSize - 1) ? mDepotId : startOf(scratch, from, fromPos + 1);
+            removal = dist[prev][first] + dist[second][next] + cost - dist[prev][next];
+
+            //addition cost, in either orientation
+            toSize = scratch.size(to);
+            prev = (toPos == 0) ? mDepotId : endOf(scratch, to, toPos - 1);
+            next = (toPos == toSize) ? mDepotId : startOf(scratch, to, toPos);
+            add1 = dist[prev][first] + dist[second][next] + cost - dist[prev][next];
+            add2 = dist[prev][second] + dist[first][next] + costAlt - dist[prev][next];
+
+            //take whichever orientation is cheaper to insert, keeping the current one on ties
+            if (mDirected[link]) {
+                forward = true;
+            } else if (add1 <= add2) {
+                forward = dir;
+            } else {
+                forward = !dir;
+                add1 = add2;
+            }
+
             tempMove.setPrudentDirection(forward);
-            tempId = tempMove.getFrom().getGlobalId();
-            costMap.put(tempId, costMap.get(tempId) - change.getFirst());
-            tempId = tempMove.getTo().getGlobalId();
-            costMap.put(tempId, costMap.get(tempId) + change.getSecond());
+            scratch.costs[from] -= removal;
+            scratch.costs[to] += add1;
 
             //make the mods for future moves
+            scratch.remove(from, tempMove.getFromPos());
+            scratch.insert(to, tempMove.getToPos(), link, forward);
+        }
 
-            //remove link
-            tempLinkId = flatFrom.get(tempMove.getFromPos());
-            fromDir.remove(tempMove.getFromPos());
-            flatFrom.remove(tempMove.getFromPos());
+        //for min max
+        int max = tracker.evaluateWith(scratch.ids, scratch.costs, scratch.numViews);
+        int orig = tracker.getMax();
+
+        if (max - orig < 0 && LOGGER.isDebugEnabled()) {
+            String expectedCosts = "Predicted costs: \n";
+            for (int i = 0; i < scratch.numViews; i++)
+                expectedCosts += "Global id: " + scratch.ids[i] + " cost: " + tracker.getCost(scratch.ids[i]) + " -> " + scratch.costs[i] + "\n";
+            expectedCosts += "End predicted costs.\n";
+            LOGGER.debug(expectedCosts);
+        }
 
-            //add it back
-            flatTo.insert(tempMove.getToPos(), tempLinkId);
-            toDir.add(tempMove.getToPos(), forward);
+        return max - orig;
+    }
 
+    /**
+     * @param routeId - the global id of a route touched by the moves last priced on this thread
+     * @return - the cost the last call to evalComplexMove on this thread predicted for that route
+     */
+    public int getPredictedCost(int routeId) {
+        MoveScratch scratch = mScratch.get();
+        for (int i = 0; i < scratch.numViews; i++)
+            if (scratch.ids[i] == routeId)
+                return scratch.costs[i];
+        LOGGER.error("Route " + routeId + " was not touched by the last move priced on this thread.");
+        throw new IllegalArgumentException();
+    }
+
+    private int startOf(MoveScratch scratch, int view, int pos) {
+        int link = scratch.link(view, pos);
+        return scratch.forward(view, pos) ? mTail[link] : mHead[link];
+    }
 
+    private int endOf(MoveScratch scratch, int view, int pos) {
+        int link = scratch.link(view, pos);
+        return scratch.forward(view, pos) ? mHead[link] : mTail[link];
+    }
+
+    /**
+     * Scratch space for pricing a list of moves without copying any routes.  Each route touched by the moves gets
+     * a view, which is the route's compact representation plus the log of the removals and insertions made to it so
+     * far; looking up a position replays the log backwards, which is O(1) for the handful of moves in a list.
+     */
+    private static final class MoveScratch {
+
+        private int numViews;
+        private Route[] routes = new Route[4];
+        private int[] ids = new int[4];
+        private int[] costs = new int[4];
+        private int[] sizes = new int[4];
+
+        private int numEdits;
+        private int[] editView = new int[4];
+        private boolean[] editInsert = new boolean[4];
+        private int[] editPos = new int[4];
+        private int[] editLink = new int[4];
+        private boolean[] editForward = new boolean[4];
+
+        private void reset(int numMoves) {
+            numViews = 0;
+            numEdits = 0;
+            if (routes.length < 2 * numMoves) {
+                routes = new Route[2 * numMoves];
+                ids = new int[2 * numMoves];
+                costs = new int[2 * numMoves];
+                sizes = new int[2 * numMoves];
+                editView = new int[2 * numMoves];
+                editInsert = new boolean[2 * numMoves];
+                editPos = new int[2 * numMoves];
+                editLink = new int[2 * numMoves];
+                editForward = new boolean[2 * numMoves];
+            }
         }
 
-        String expectedCosts = "";
-        expectedCosts += "Predicted costs: \n";
-        //for min max
-        max = Integer.MIN_VALUE;
-        for (int i : costMap.keys()) {
-            expectedCosts += "Global id: " + i + " cost: " + costMap.get(i) + "\n";
-            if (costMap.get(i) > max)
-                max = costMap.get(i);
+        /**
+         * @return - the index of the view on this route, creating it if this is the first time we've seen it
+         */
+        private int view(Route r, IncrementalMaxMetric tracker) {
+            int id = r.getGlobalId();
+            for (int i = 0; i < numViews; i++)
+                if (ids[i] == id)
+                    return i;
+            routes[numViews] = r;
+            ids[numViews] = id;
+            costs[numViews] = tracker.getCost(id);
+            sizes[numViews] = r.getCompactRepresentation().size();
+            return numViews++;
         }
-        expectedCosts += "End predicted costs.\n";
 
-        if (max - ans < 0) {
-            LOGGER.debug(origCost + expectedCosts);
+        private int size(int view) {
+            return sizes[view];
         }
 
-        return max - ans;
+        /**
+         * Maps a position in the edited view back to either an edit, (returned as -(edit + 1)), or a position in the
+         * underlying route.
+         */
+        private int resolve(int view, int pos) {
+            for (int e = numEdits - 1; e >= 0; e--) {
+                if (editView[e] != view)
+                    continue;
+                if (editInsert[e]) {
+                    if (pos == editPos[e])
+                        return -(e + 1);
+                    if (pos > editPos[e])
+                        pos--;
+                } else if (pos >= editPos[e]) {
+                    pos++;
+                }
+            }
+            return pos;
+        }
+
+        private int link(int view, int pos) {
+            int p = resolve(view, pos);
+            return (p < 0) ? editLink[-p - 1] : routes[view].getCompactRepresentation().get(p);
+        }
+
+        private boolean forward(int view, int pos) {
+            int p = resolve(view, pos);
+            return (p < 0) ? editForward[-p - 1] : (Boolean) routes[view].getCompactTraversalDirection().get(p);
+        }
+
+        private void remove(int view, int pos) {
+            editView[numEdits] = view;
+            editInsert[numEdits] = false;
+            editPos[numEdits] = pos;
+            numEdits++;
+            sizes[view]--;
+        }
+
+        private void insert(int view, int pos, int link, boolean forward) {
+            editView[numEdits] = view;
+            editInsert[numEdits] = true;
+            editPos[numEdits] = pos;
+            editLink[numEdits] = link;
+            editForward[numEdits] = forward;
+            numEdits++;
+            sizes[view]++;
+        }
     }
 
+    /**
+     * Carries out a series of moves.  The routes named in the moves are left untouched; each route a move touches is
+     * rebuilt from an edited copy of its compact representation, (so later moves in the list see the edits made by
+     * earlier ones), and handed back in its place.  Callers can therefore keep, or snapshot, the routes they pass in.
+     *
+     * @param moveList      - the moves, in the order they're to be made
+     * @param routeExpander - used to rebuild the routes; if null, one is created for the graph
+     * @return - the new routes, keyed by the global ids of the routes they replace
+     */
     public TIntObjectHashMap<Route<V, E>> makeComplexMove(ArrayList<CompactMove<V, E>> moveList, RouteExpander routeExpander) throws IllegalArgumentException {
         TIntObjectHashMap<Route<V, E>> ans = new TIntObjectHashMap<Route<V, E>>();
         int n = moveList.size();
@@ -157,157 +329,62 @@ public class Mover<V extends Vertex, E extends Link<V>, G extends Graph<V, E>> {
         int currLinkId;
         ArrayList<Boolean> newFromDir, newToDir;
 
+        //the edited copies, made the first time a move touches a route
+        TIntObjectHashMap<TIntArrayList> flats = new TIntObjectHashMap<TIntArrayList>();
+        TIntObjectHashMap<ArrayList<Boolean>> dirs = new TIntObjectHashMap<ArrayList<Boolean>>();
+
         for (int i = 0; i < n; i++) {
 
             currMove = moveList.get(i);
 
             //remove link
             currFrom = currMove.getFrom();
-            flatFrom = currFrom.getCompactRepresentation();
+            flatFrom = editableFlat(currFrom, flats, dirs);
+            newFromDir = dirs.get(currFrom.getGlobalId());
             currLinkId = flatFrom.get(currMove.getFromPos());
-            newFromDir = currFrom.getCompactTraversalDirection();
             newFromDir.remove(currMove.getFromPos());
-
             flatFrom.remove(currMove.getFromPos());
-            ans.put(currFrom.getGlobalId(), re.unflattenRoute(flatFrom, newFromDir));
-
-            LOGGER.debug("The route with id: " + currFrom.getGlobalId() + " was replaced with a route costing: " + re.unflattenRoute(flatFrom, newFromDir).getCost());
 
             currTo = currMove.getTo();
             if (currTo.getGlobalId() != currFrom.getGlobalId()) {
-                flatTo = currTo.getCompactRepresentation();
-                flatTo.insert(currMove.getToPos(), currLinkId);
-                newToDir = currTo.getCompactTraversalDirection();
-                newToDir.add(currMove.getToPos(), currMove.isPrudentDirection());
-                ans.put(currTo.getGlobalId(), re.unflattenRoute(flatTo, newToDir));
+                ans.put(currFrom.getGlobalId(), re.unflattenRoute(flatFrom, newFromDir));
+                if (LOGGER.isDebugEnabled())
+                    LOGGER.debug("The route with id: " + currFrom.getGlobalId() + " was replaced with a route costing: " + ans.get(currFrom.getGlobalId()).getCost());
+                flatTo = editableFlat(currTo, flats, dirs);
+                newToDir = dirs.get(currTo.getGlobalId());
             } else {
                 flatTo = flatFrom;
-                flatTo.insert(currMove.getToPos(), currLinkId);
                 newToDir = newFromDir;
-                newToDir.add(currMove.getToPos(), currMove.isPrudentDirection());
-                ans.put(currTo.getGlobalId(), re.unflattenRoute(flatTo, newToDir));
             }
+            flatTo.insert(currMove.getToPos(), currLinkId);
+            newToDir.add(currMove.getToPos(), currMove.isPrudentDirection());
+            ans.put(currTo.getGlobalId(), re.unflattenRoute(flatTo, newToDir));
 
-            LOGGER.debug("The route with id: " + currTo.getGlobalId() + " was replaced with a route costing: " + re.unflattenRoute(flatTo, newToDir).getCost());
+            if (LOGGER.isDebugEnabled())
+                LOGGER.debug("The route with id: " + currTo.getGlobalId() + " was replaced with a route costing: " + ans.get(currTo.getGlobalId()).getCost());
 
         }
 
         return ans;
     }
 
-    public TIntObjectHashMap<Route<V, E>> makeComplexMove(ArrayList<CompactMove<V, E>> moveList) throws IllegalArgumentException {
-        return makeComplexMove(moveList, null);
-    }
-
-    private boolean assessMoveCost(TIntArrayList fromList, ArrayList<Boolean> fromDir, TIntArrayList toList, ArrayList<Boolean> toDir, int fromPos, int toPos, Pair<Integer> ans) {
-        Pair<Integer> ans1 = new Pair<Integer>(0, 0);
-        Pair<Integer> ans2 = new Pair<Integer>(0, 0);
-
-        int prevId, nextId, currFirst, currSecond, currCost, currCostAlt;
-        E curr = mGraph.getEdge(fromList.get(fromPos));
-        boolean isDirected = curr.isDirected();
-
-        if (fromDir.get(fromPos)) {
-            currFirst = curr.getEndpoints().getFirst().getId();
-            currSecond = curr.getEndpoints().getSecond().getId();
-            currCost = curr.getCost();
-            if (curr.isWindy())
-                currCostAlt = ((WindyEdge) curr).getReverseCost();
-            else
-                currCostAlt = currCost;
-        } else {
-            currSecond = curr.getEndpoints().getFirst().getId();
-            currFirst = curr.getEndpoints().getSecond().getId();
-            currCostAlt = curr.getCost();
-            if (curr.isWindy())
-                currCost = ((WindyEdge) curr).getReverseCost();
-            else
-                currCost = curr.getCost();
-        }
-
-        //removal savings
-        if (fromPos == 0) {
-            prevId = mGraph.getDepotId();
-
-            if(fromDir.size() == 1)
-                nextId = prevId;
-            else if (fromDir.get(fromPos + 1))
-                nextId = mGraph.getEdge(fromList.get(fromPos + 1)).getEndpoints().getFirst().getId();
-            else
-                nextId = mGraph.getEdge(fromList.get(fromPos + 1)).getEndpoints().getSecond().getId();
-
-        } else if (fromPos == fromList.size() - 1) {
-            nextId = mGraph.getDepotId();
-
-            if (fromDir.get(fromPos - 1))
-                prevId = mGraph.getEdge(fromList.get(fromPos - 1)).getEndpoints().getSecond().getId();
-            else
-                prevId = mGraph.getEdge(fromList.get(fromPos - 1)).getEndpoints().getFirst().getId();
-
-        } else {
-            if (fromDir.get(fromPos - 1))
-                prevId = mGraph.getEdge(fromList.get(fromPos - 1)).getEndpoints().getSecond().getId();
-            else
-                prevId = mGraph.getEdge(fromList.get(fromPos - 1)).getEndpoints().getFirst().getId();
-
-            if (fromDir.get(fromPos + 1))
-                nextId = mGraph.getEdge(fromList.get(fromPos + 1)).getEndpoints().getFirst().getId();
-            else
-                nextId = mGraph.getEdge(fromList.get(fromPos + 1)).getEndpoints().getSecond().getId();
-        }
-
-        ans1.setFirst(dist[prevId][currFirst] + dist[currSecond][nextId] + currCost - dist[prevId][nextId]);
-        ans2.setFirst(ans1.getFirst()); //the savings is fixed by the current orientation
-
-        //addition cost
-        if (toPos == 0) {
-            prevId = mGraph.getDepotId();
-
-            if(toDir.size() == 0)
-                nextId = prevId;
-            else if (toDir.get(toPos))
-                nextId = mGraph.getEdge(toList.get(toPos)).getEndpoints().getFirst().getId();
-            else
-                nextId = mGraph.getEdge(toList.get(toPos)).getEndpoints().getSecond().getId();
-
-        } else if (toPos == toList.size()) {
-            nextId = mGraph.getDepotId();
-
-            if (toDir.get(toPos - 1))
-                prevId = mGraph.getEdge(toList.get(toPos - 1)).getEndpoints().getSecond().getId();
-            else
-                prevId = mGraph.getEdge(toList.get(toPos - 1)).getEndpoints().getFirst().getId();
-
-        } else {
-            if (toDir.get(toPos - 1))
-                prevId = mGraph.getEdge(toList.get(toPos - 1)).getEndpoints().getSecond().getId();
-            else
-                prevId = mGraph.getEdge(toList.get(toPos - 1)).getEndpoints().getFirst().getId();
-
-            if (toDir.get(toPos))
-                nextId = mGraph.getEdge(toList.get(toPos)).getEndpoints().getFirst().getId();
-            else
-                nextId = mGraph.getEdge(toList.get(toPos)).getEndpoints().getSecond().getId();
-        }
-
-        ans1.setSecond(dist[prevId][currFirst] + dist[currSecond][nextId] + currCost - dist[prevId][nextId]);
-        ans2.setSecond(dist[prevId][currSecond] + dist[currFirst][nextId] + currCostAlt - dist[prevId][nextId]);
-
-        if (!isDirected) {
-            if (ans.getSecond() < ans2.getSecond()) {
-                ans.setFirst(ans1.getFirst());
-                ans.setSecond(ans1.getSecond());
-                return fromDir.get(fromPos);
-            } else {
-                ans.setFirst(ans2.getFirst());
-                ans.setSecond(ans2.getSecond());
-                return !fromDir.get(fromPos);
-            }
+    /**
+     * @return - the edited copy of the route's compact representation, making it, (and the copy of its directions in
+     * dirs), if this is the first move to touch the route
+     */
+    private static TIntArrayList editableFlat(Route r, TIntObjectHashMap<TIntArrayList> flats, TIntObjectHashMap<ArrayList<Boolean>> dirs) {
+        int id = r.getGlobalId();
+        TIntArrayList ans = flats.get(id);
+        if (ans == null) {
+            ans = new TIntArrayList(r.getCompactRepresentation().toNativeArray());
+            flats.put(id, ans);
+            dirs.put(id, new PackedBooleanArrayList(r.getCompactTraversalDirection()));
         }
+        return ans;
+    }
 
-        ans.setFirst(ans1.getFirst());
-        ans.setSecond(ans1.getSecond());
-        return true;
+    public TIntObjectHashMap<Route<V, E>> makeComplexMove(ArrayList<CompactMove<V, E>> moveList) throws IllegalArgumentException {
+        return makeComplexMove(moveList, null);
     }
 
 }
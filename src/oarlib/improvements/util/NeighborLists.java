@@ -0,0 +1,216 @@
+package oarlib.improvements.util;
+
+import oarlib.core.Graph;
+import oarlib.core.Link;
+import oarlib.graph.util.AllPairsShortestPaths;
+import oarlib.link.impl.AsymmetricLink;
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * For each required link, the required links closest to it, for use in granular neighborhoods (Toth and Vigo 2003):
+ * moves that would make two far apart links adjacent in a route are almost never improving, so local search only
+ * needs to look at insertion positions next to a link's near neighbors.
+ * <p/>
+ * Distances are the asymmetric ones of the windy graph: the successors of a link are the links that are cheap to
+ * reach after servicing it, and its predecessors are the links from which it is cheap to reach.  Undirected and
+ * windy links may be serviced in either direction, so either endpoint counts.
+ * <p/>
+ * Lists are built once per shortest paths snapshot of a graph, (see Graph.getAllPairsShortestPaths), and shared
+ * read-only by everyone working on it.
+ */
+public class NeighborLists {
+
+    private static final Logger LOGGER = Logger.getLogger(NeighborLists.class);
+
+    //the longest lists we keep; granularities above this are clipped
+    public static final int MAX_NEIGHBORS = 64;
+
+    private static final Map<Graph, NeighborLists> cache = new WeakHashMap<Graph, NeighborLists>();
+
+    private AllPairsShortestPaths mShortestPaths;
+    private int[][] mSuccessors; //mSuccessors[id] are the closest required links after link id, nearest first
+    private int[][] mPredecessors; //mPredecessors[id] are the closest required links before link id, nearest first
+    private int mNumRequired;
+    private int mMaxNeighbors;
+
+    /**
+     * @return - the neighbor lists for the graph as it currently stands, building them if necessary
+     */
+    public static NeighborLists forGraph(Graph<?, ?> g) {
+        AllPairsShortestPaths sp = g.getAllPairsShortestPaths();
+        synchronized (cache) {
+            NeighborLists ans = cache.get(g);
+            if (ans == null || ans.mShortestPaths != sp) {
+                ans = new NeighborLists(g, sp, MAX_NEIGHBORS);
+                cache.put(g, ans);
+            }
+            return ans;
+        }
+    }
+
+    public NeighborLists(Graph<?, ?> g, int maxNeighbors) {
+        this(g, g.getAllPairsShortestPaths(), maxNeighbors);
+    }
+
+    private NeighborLists(Graph<?, ?> g, AllPairsShortestPaths sp, int maxNeighbors) {
+
+        if (maxNeighbors < 1) {
+            LOGGER.error("You must keep at least one neighbor.");
+            throw new IllegalArgumentException();
+        }
+
+        mShortestPaths = sp;
+        int[][] dist = sp.getDistZeroDiagonal();
+
+        //flatten the required links
+        int maxId = 0;
+        int m = 0;
+        for (Link<?> l : g.getEdges()) {
+            maxId = Math.max(maxId, l.getId());
+            if (isRequired(l))
+                m++;
+        }
+        int[] ids = new int[m];
+        int[] tails = new int[m];
+        int[] heads = new int[m];
+        boolean[] directed = new boolean[m];
+        int index = 0;
+        for (Link<?> l : g.getEdges()) {
+            if (!isRequired(l))
+                continue;
+            ids[index] = l.getId();
+            tails[index] = l.getEndpoints().getFirst().getId();
+            heads[index] = l.getEndpoints().getSecond().getId();
+            directed[index] = l.isDirected();
+            index++;
+        }
+        mNumRequired = m;
+
+        int k = Math.max(0, Math.min(maxNeighbors, m - 1));
+        mMaxNeighbors = k;
+        mSuccessors = new int[maxId + 1][];
+        mPredecessors = new int[maxId + 1][];
+        long[] succHeap = new long[k];
+        long[] predHeap = new long[k];
+        int succSize, predSize;
+        for (int a = 0; a < m; a++) {
+            succSize = 0;
+            predSize = 0;
+            for (int b = 0; b < m; b++) {
+                if (a == b)
+                    continue;
+                succSize = offer(succHeap, succSize, pack(gap(dist, a, b, tails, heads, directed), b));
+                predSize = offer(predHeap, predSize, pack(gap(dist, b, a, tails, heads, directed), b));
+            }
+            mSuccessors[ids[a]] = drain(succHeap, succSize, ids);
+            mPredecessors[ids[a]] = drain(predHeap, predSize, ids);
+        }
+    }
+
+    /**
+     * @return - the number of neighbors kept in each list
+     */
+    public int getMaxNeighbors() {
+        return mMaxNeighbors;
+    }
+
+    public int getNumRequired() {
+        return mNumRequired;
+    }
+
+    /**
+     * @param linkId - the id of a required link
+     * @return - the required links it's cheapest to go to after servicing this one, nearest first
+     */
+    public int[] getSuccessors(int linkId) {
+        return mSuccessors[linkId];
+    }
+
+    /**
+     * @param linkId - the id of a required link
+     * @return - the required links from which it's cheapest to come to this one, nearest first
+     */
+    public int[] getPredecessors(int linkId) {
+        return mPredecessors[linkId];
+    }
+
+    private static boolean isRequired(Link<?> l) {
+        return l.isRequired() || (l.isWindy() && ((AsymmetricLink) l).isReverseRequired());
+    }
+
+    /**
+     * @return - the cheapest deadhead from the end of servicing link a to the start of servicing link b
+     */
+    private static int gap(int[][] dist, int a, int b, int[] tails, int[] heads, boolean[] directed) {
+        int ans = dist[heads[a]][tails[b]];
+        if (!directed[b])
+            ans = Math.min(ans, dist[heads[a]][heads[b]]);
+        if (!directed[a]) {
+            ans = Math.min(ans, dist[tails[a]][tails[b]]);
+            if (!directed[b])
+                ans = Math.min(ans, dist[tails[a]][heads[b]]);
+        }
+        return ans;
+    }
+
+    //region Bounded heap
+
+    //entries pack (distance, index) so that ties are broken by index, and the heap keeps the largest on top
+
+    private static long pack(int distance, int index) {
+        return ((long) distance << 32) | index;
+    }
+
+    private static int offer(long[] heap, int size, long entry) {
+        if (heap.length == 0)
+            return 0;
+        if (size < heap.length) {
+            int i = size;
+            heap[i] = entry;
+            while (i > 0 && heap[(i - 1) / 2] < heap[i]) {
+                swap(heap, i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+            return size + 1;
+        }
+        if (entry >= heap[0])
+            return size;
+        heap[0] = entry;
+        siftDown(heap, size);
+        return size;
+    }
+
+    private static int[] drain(long[] heap, int size, int[] ids) {
+        int[] ans = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ans[i] = ids[(int) heap[0]];
+            heap[0] = heap[i];
+            siftDown(heap, i);
+        }
+        return ans;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int i = 0;
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size && heap[child + 1] > heap[child])
+                child++;
+            if (heap[i] >= heap[child])
+                break;
+            swap(heap, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(long[] heap, int i, int j) {
+        long temp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = temp;
+    }
+
+    //endregion
+}
@@ -0,0 +1,665 @@
+package oarlib.improvements.util;
+
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntIntHashMap;
+import oarlib.core.Graph;
+import oarlib.core.Link;
+import oarlib.core.Route;
+import oarlib.core.Vertex;
+import oarlib.metrics.IncrementalMaxMetric;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Scans a neighborhood of candidate moves for the best (or first) improving one, splitting the candidates into
+ * contiguous shards that are priced concurrently by the Mover.  Pricing a move is read-only with respect to the
+ * routes and the objective tracker, so the shards share them.
+ * <p/>
+ * The answer doesn't depend on the number of threads or on scheduling: under steepest descent ties go to the
+ * lowest candidate index, and under first improvement the lowest improving index wins, which is exactly what a
+ * single sequential scan would return.
+ * <p/>
+ * The calling thread prices shards too, and shards are claimed rather than assigned, so an evaluator may be handed
+ * a pool whose threads are all busy, (e.g. the pool its caller is itself running on), without deadlocking or
+ * oversubscribing the machine: the caller just ends up pricing everything itself.  If no pool is provided, a
+ * shared one is used, sized by setDefaultPoolSize or the system property oarlib.threads, (the number of
+ * processors by default), whose threads exit when idle.
+ */
+public class ParallelMoveEvaluator<V extends Vertex, E extends Link<V>, G extends Graph<V, E>> {
+
+    private static final Logger LOGGER = Logger.getLogger(ParallelMoveEvaluator.class);
+
+    //below this many candidates per shard, the hand-off costs more than it saves
+    private static final int MIN_SHARD_SIZE = 512;
+
+    private static ThreadPoolExecutor sharedPool;
+    private static int defaultPoolSize = Math.max(1, Integer.getInteger("oarlib.threads", Runtime.getRuntime().availableProcessors()));
+
+    private Mover<V, E, G> mMover;
+    private int mNumThreads;
+    private ExecutorService mPool;
+
+    /**
+     * A neighborhood, indexed 0 ... size() - 1 in the order a sequential scan would visit it.
+     */
+    public interface CandidateSpace<V extends Vertex, E extends Link<V>> {
+
+        int size();
+
+        /**
+         * @return - a fresh list of the moves making up the candidate at this index; may be called concurrently
+         */
+        ArrayList<CompactMove<V, E>> getMoves(int index);
+    }
+
+    /**
+     * A neighborhood that wants to hear about each candidate as it's priced, (on the thread that priced it, right
+     * after the mover has run, so that Mover.getPredictedCost describes that candidate).
+     */
+    public interface PricingObserver<V extends Vertex, E extends Link<V>, G extends Graph<V, E>> {
+
+        void onPriced(int index, Mover<V, E, G> mover);
+    }
+
+    /**
+     * The usual inter-route neighborhood: every pairing of a position in one fixed route (typically the longest) with
+     * a position in each of the other routes, ordered by route, then by position in the fixed route, then by position
+     * in the other route.
+     */
+    public static abstract class RoutePairSpace<V extends Vertex, E extends Link<V>> implements CandidateSpace<V, E> {
+
+        private Route<V, E> mFrom;
+        private ArrayList<Route<V, E>> mOthers;
+        private int[] mStarts; //mStarts[i] is the index of the first candidate involving the ith other route
+        private int mOuterSize;
+        private int[] mInnerSizes;
+
+        /**
+         * @param from     - the fixed route
+         * @param routes   - the solution; the fixed route itself is skipped
+         * @param fromTrim - how many positions at the end of the fixed route to leave out
+         * @param toTrim   - how many positions at the end of the other routes to leave out
+         */
+        protected RoutePairSpace(Route<V, E> from, Collection<Route<V, E>> routes, int fromTrim, int toTrim) {
+            mFrom = from;
+            mOthers = new ArrayList<Route<V, E>>();
+            for (Route<V, E> r : routes)
+                if (r.getGlobalId() != from.getGlobalId())
+                    mOthers.add(r);
+
+            mStarts = new int[mOthers.size() + 1];
+            mInnerSizes = new int[mOthers.size()];
+            mOuterSize = Math.max(0, from.getCompactRepresentation().size() - fromTrim);
+            for (int i = 0; i < mOthers.size(); i++) {
+                mInnerSizes[i] = Math.max(0, mOthers.get(i).getCompactRepresentation().size() - toTrim);
+                mStarts[i + 1] = mStarts[i] + mOuterSize * mInnerSizes[i];
+            }
+        }
+
+        /**
+         * @return - the moves for the candidate pairing position i of from with position j of to
+         */
+        protected abstract ArrayList<CompactMove<V, E>> getMoves(Route<V, E> from, Route<V, E> to, int i, int j);
+
+        @Override
+        public int size() {
+            return mStarts[mOthers.size()];
+        }
+
+        @Override
+        public ArrayList<CompactMove<V, E>> getMoves(int index) {
+            int r = 0;
+            while (index >= mStarts[r + 1])
+                r++;
+            int rem = index - mStarts[r];
+            return getMoves(mFrom, mOthers.get(r), rem / mInnerSizes[r], rem % mInnerSizes[r]);
+        }
+
+        /**
+         * @return - the index of the candidate pairing position i of the fixed route with position j of the rth other
+         * route, or -1 if there is no such candidate
+         */
+        public int indexOf(int r, int i, int j) {
+            if (i < 0 || i >= mOuterSize || j < 0 || j >= mInnerSizes[r])
+                return -1;
+            return mStarts[r] + i * mInnerSizes[r] + j;
+        }
+
+        /**
+         * @return - the index of the other route involved in the candidate at this index
+         */
+        public int routeOf(int index) {
+            int r = 0;
+            while (index >= mStarts[r + 1])
+                r++;
+            return r;
+        }
+
+        /**
+         * @return - the position in the fixed route involved in the candidate at this index
+         */
+        public int positionOf(int index) {
+            int r = routeOf(index);
+            return (index - mStarts[r]) / mInnerSizes[r];
+        }
+
+        /**
+         * @return - the number of positions of the fixed route that candidates start from
+         */
+        public int getOuterSize() {
+            return mOuterSize;
+        }
+
+        /**
+         * @return - the number of positions of the rth other route that candidates go to
+         */
+        public int getInnerSize(int r) {
+            return mInnerSizes[r];
+        }
+
+        public Route<V, E> getFrom() {
+            return mFrom;
+        }
+
+        /**
+         * @return - the other routes, in the order their candidates appear
+         */
+        public ArrayList<Route<V, E>> getOthers() {
+            return mOthers;
+        }
+    }
+
+    /**
+     * A granular restriction of a RoutePairSpace (Toth and Vigo 2003): only the candidates that would put a moved
+     * link right next to one of its k nearest neighbors survive.  A candidate moves the links at positions i ... i +
+     * span - 1 of the fixed route into another route at position j; it survives if j = p + predOffset for a link at
+     * position p that is among the k nearest predecessors of the first moved link, or j = p + succOffset for a link
+     * among the k nearest successors of the last moved link.
+     * <p/>
+     * The survivors keep the order of the full space, so a scan of the granular space visits a subsequence of what
+     * a scan of the full space would.  Building it costs O(span * k) per position of the fixed route, rather than the
+     * O(n) per position a full scan costs.
+     */
+    public static class GranularSpace<V extends Vertex, E extends Link<V>> implements CandidateSpace<V, E> {
+
+        private RoutePairSpace<V, E> mFull;
+        private int[] mIndices; //into the full space, ascending
+
+        public GranularSpace(RoutePairSpace<V, E> full, NeighborLists neighbors, int k, int span, int predOffset, int succOffset) {
+
+            mFull = full;
+
+            //where everybody is
+            ArrayList<Route<V, E>> others = full.getOthers();
+            TIntIntHashMap routeOf = new TIntIntHashMap(); //link id -> index of other route + 1
+            TIntIntHashMap positionOf = new TIntIntHashMap();
+            TIntArrayList flattened;
+            for (int r = 0; r < others.size(); r++) {
+                flattened = others.get(r).getCompactRepresentation();
+                for (int p = 0; p < flattened.size(); p++) {
+                    routeOf.put(flattened.get(p), r + 1);
+                    positionOf.put(flattened.get(p), p);
+                }
+            }
+
+            TIntArrayList indices = new TIntArrayList();
+            TIntArrayList from = full.getFrom().getCompactRepresentation();
+            int[] list;
+            for (int i = 0; i + span <= from.size(); i++) {
+                list = neighbors.getPredecessors(from.get(i));
+                for (int l = 0; l < k && l < list.length; l++)
+                    addCandidate(indices, routeOf, positionOf, list[l], i, predOffset);
+                list = neighbors.getSuccessors(from.get(i + span - 1));
+                for (int l = 0; l < k && l < list.length; l++)
+                    addCandidate(indices, routeOf, positionOf, list[l], i, succOffset);
+            }
+
+            //restore the order of the full space, and drop the duplicates
+            indices.sort();
+            int size = 0;
+            for (int l = 0; l < indices.size(); l++)
+                if (size == 0 || indices.get(l) != indices.get(size - 1))
+                    indices.set(size++, indices.get(l));
+            mIndices = new int[size];
+            for (int l = 0; l < size; l++)
+                mIndices[l] = indices.get(l);
+        }
+
+        private void addCandidate(TIntArrayList indices, TIntIntHashMap routeOf, TIntIntHashMap positionOf, int neighbor, int i, int offset) {
+            int r = routeOf.get(neighbor) - 1;
+            if (r < 0)
+                return;
+            int index = mFull.indexOf(r, i, positionOf.get(neighbor) + offset);
+            if (index >= 0)
+                indices.add(index);
+        }
+
+        @Override
+        public int size() {
+            return mIndices.length;
+        }
+
+        @Override
+        public ArrayList<CompactMove<V, E>> getMoves(int index) {
+            return mFull.getMoves(mIndices[index]);
+        }
+
+        /**
+         * @return - the index in the full space of the candidate at this index
+         */
+        public int getFullIndex(int index) {
+            return mIndices[index];
+        }
+
+        /**
+         * @return - the indices in the full space of the candidates, ascending
+         */
+        public int[] getFullIndices() {
+            return mIndices;
+        }
+    }
+
+    /**
+     * Don't-look bits over a RoutePairSpace, backed by the row minima of a MoveCache.  A row is the set of candidates
+     * that move the same links of the fixed route into the same other route; a candidate leaves that route costing
+     * at least the row minimum, and everyone except the fixed route and that route where they are, so the row can
+     * only hold an improving candidate if both of those are below the current max.  Rows that can't are left out, and
+     * since none of them holds an improving candidate, the evaluator returns the same candidate it would have on the
+     * full space.
+     * <p/>
+     * Rows whose minimum isn't known yet are kept, and while they're being priced their minimum is worked out and, if
+     * the whole row gets priced, recorded for next time.  That relies on a row minimum depending only on the other
+     * route and the links moved, (not on the fixed route), which is true of the neighborhoods of Change1to0,
+     * Change1to1 and Change2to0.
+     */
+    public static class DontLookSpace<V extends Vertex, E extends Link<V>, G extends Graph<V, E>> implements CandidateSpace<V, E>, PricingObserver<V, E, G> {
+
+        private RoutePairSpace<V, E> mFull;
+        private MoveCache mCache;
+        private String mKind;
+
+        //the surviving rows; row l is (other route mRowRoute[l], fixed route position mRowPosition[l])
+        private int mNumRows;
+        private int[] mRowRoute;
+        private int[] mRowPosition;
+        private long[] mRowSignature;
+        private int[] mRowStart; //into this space; mRowStart[mNumRows] is the size
+        private int[] mIndices; //into the full space, when only some of each row's candidates are being looked at
+
+        //minima of the rows that are being worked out
+        private boolean[] mRowTracked;
+        private AtomicIntegerArray mRowMin;
+        private AtomicIntegerArray mRowPriced;
+
+        /**
+         * @param full        - the neighborhood
+         * @param fullIndices - if non-null, the (ascending) indices of the only candidates of full to consider, as
+         *                    from a GranularSpace; row minima are then only read, never recorded
+         * @param cache       - where to find and put row minima
+         * @param kind        - names the neighborhood in the cache
+         * @param span        - how many consecutive links of the fixed route a candidate moves
+         * @param tracker     - the current route costs
+         */
+        public DontLookSpace(RoutePairSpace<V, E> full, int[] fullIndices, MoveCache cache, String kind, int span, IncrementalMaxMetric tracker) {
+
+            mFull = full;
+            mCache = cache;
+            mKind = kind;
+
+            Route<V, E> from = full.getFrom();
+            TIntArrayList flattened = from.getCompactRepresentation();
+            ArrayList<Boolean> direction = from.getCompactTraversalDirection();
+            long[] signatures = new long[full.getOuterSize()];
+            for (int i = 0; i < signatures.length; i++)
+                for (int l = i; l < i + span && l < flattened.size(); l++)
+                    signatures[i] = (signatures[i] << 32) | ((long) flattened.get(l) << 1) | (direction.get(l) ? 1 : 0);
+
+            //which rows might improve
+            ArrayList<Route<V, E>> others = full.getOthers();
+            int max = tracker.getMax();
+            boolean[] routeAlive = new boolean[others.size()];
+            byte[][] rowState = new byte[others.size()][]; //0 dead, 1 alive with known min, 2 alive with unknown min
+            Integer min;
+            for (int r = 0; r < others.size(); r++) {
+                int id = others.get(r).getGlobalId();
+                routeAlive[r] = tracker.evaluateWith(from.getGlobalId(), Integer.MIN_VALUE, id, Integer.MIN_VALUE) < max;
+                rowState[r] = new byte[full.getOuterSize()];
+                if (!routeAlive[r] || full.getInnerSize(r) == 0)
+                    continue;
+                for (int i = 0; i < full.getOuterSize(); i++) {
+                    min = cache.getRowMin(kind, others.get(r), signatures[i]);
+                    rowState[r][i] = (byte) ((min == null) ? 2 : (min < max) ? 1 : 0);
+                }
+            }
+
+            if (fullIndices == null) {
+                int numRows = 0;
+                for (int r = 0; r < others.size(); r++)
+                    for (int i = 0; i < full.getOuterSize(); i++)
+                        if (rowState[r][i] != 0)
+                            numRows++;
+                allocateRows(numRows);
+                for (int r = 0; r < others.size(); r++)
+                    for (int i = 0; i < full.getOuterSize(); i++)
+                        if (rowState[r][i] != 0)
+                            addRow(r, i, signatures[i], full.getInnerSize(r), rowState[r][i] == 2);
+            } else {
+                TIntArrayList kept = new TIntArrayList();
+                int prevRoute = -1;
+                int prevPosition = -1;
+                int r, i;
+                for (int index : fullIndices) {
+                    r = full.routeOf(index);
+                    i = full.positionOf(index);
+                    if (rowState[r][i] != 0) {
+                        kept.add(index);
+                        if (r != prevRoute || i != prevPosition)
+                            mNumRows++;
+                        prevRoute = r;
+                        prevPosition = i;
+                    }
+                }
+                mIndices = kept.toNativeArray();
+                int numRows = mNumRows;
+                allocateRows(numRows);
+                prevRoute = -1;
+                prevPosition = -1;
+                int rowSize = 0;
+                for (int index : mIndices) {
+                    r = full.routeOf(index);
+                    i = full.positionOf(index);
+                    if (r != prevRoute || i != prevPosition) {
+                        if (prevRoute != -1)
+                            addRow(prevRoute, prevPosition, signatures[prevPosition], rowSize, false);
+                        rowSize = 0;
+                    }
+                    rowSize++;
+                    prevRoute = r;
+                    prevPosition = i;
+                }
+                if (prevRoute != -1)
+                    addRow(prevRoute, prevPosition, signatures[prevPosition], rowSize, false);
+            }
+        }
+
+        private void allocateRows(int numRows) {
+            mNumRows = 0;
+            mRowRoute = new int[numRows];
+            mRowPosition = new int[numRows];
+            mRowSignature = new long[numRows];
+            mRowStart = new int[numRows + 1];
+            mRowTracked = new boolean[numRows];
+            mRowMin = new AtomicIntegerArray(numRows);
+            mRowPriced = new AtomicIntegerArray(numRows);
+        }
+
+        private void addRow(int r, int i, long signature, int size, boolean tracked) {
+            mRowRoute[mNumRows] = r;
+            mRowPosition[mNumRows] = i;
+            mRowSignature[mNumRows] = signature;
+            mRowTracked[mNumRows] = tracked;
+            mRowMin.set(mNumRows, Integer.MAX_VALUE);
+            mRowStart[mNumRows + 1] = mRowStart[mNumRows] + size;
+            mNumRows++;
+        }
+
+        /**
+         * @return - the row holding the candidate at this index
+         */
+        private int rowOf(int index) {
+            int lo = 0;
+            int hi = mNumRows - 1;
+            int mid;
+            while (lo < hi) {
+                mid = (lo + hi + 1) >>> 1;
+                if (mRowStart[mid] <= index)
+                    lo = mid;
+                else
+                    hi = mid - 1;
+            }
+            return lo;
+        }
+
+        @Override
+        public int size() {
+            return mRowStart[mNumRows];
+        }
+
+        @Override
+        public ArrayList<CompactMove<V, E>> getMoves(int index) {
+            return mFull.getMoves(getFullIndex(index));
+        }
+
+        /**
+         * @return - the index in the full space of the candidate at this index
+         */
+        public int getFullIndex(int index) {
+            if (mIndices != null)
+                return mIndices[index];
+            int row = rowOf(index);
+            return mFull.indexOf(mRowRoute[row], mRowPosition[row], 0) + index - mRowStart[row];
+        }
+
+        @Override
+        public void onPriced(int index, Mover<V, E, G> mover) {
+            int row = rowOf(index);
+            if (!mRowTracked[row])
+                return;
+            Route<V, E> other = mFull.getOthers().get(mRowRoute[row]);
+            int cost = mover.getPredictedCost(other.getGlobalId());
+            int curr;
+            while (cost < (curr = mRowMin.get(row)) && !mRowMin.compareAndSet(row, curr, cost)) ;
+            if (mRowPriced.incrementAndGet(row) == mRowStart[row + 1] - mRowStart[row])
+                mCache.putRowMin(mKind, other, mRowSignature[row], mRowMin.get(row));
+        }
+    }
+
+    public ParallelMoveEvaluator(Mover<V, E, G> mover) {
+        this(mover, getDefaultPoolSize());
+    }
+
+    public ParallelMoveEvaluator(Mover<V, E, G> mover, int numThreads) {
+        this(mover, numThreads, null);
+    }
+
+    /**
+     * @param mover      - prices the candidates
+     * @param numThreads - the most shards a scan is split into, (the caller prices one of them)
+     * @param pool       - the pool the other shards are handed to; null for the shared one
+     */
+    public ParallelMoveEvaluator(Mover<V, E, G> mover, int numThreads, ExecutorService pool) {
+        if (numThreads < 1) {
+            LOGGER.error("You need at least one thread.");
+            throw new IllegalArgumentException();
+        }
+        mMover = mover;
+        mNumThreads = numThreads;
+        mPool = pool;
+    }
+
+    //region Shared pool
+
+    public static synchronized int getDefaultPoolSize() {
+        return defaultPoolSize;
+    }
+
+    /**
+     * @param poolSize - the number of threads in the pool shared by evaluators that weren't given one
+     */
+    public static synchronized void setDefaultPoolSize(int poolSize) {
+        if (poolSize < 1) {
+            LOGGER.error("You need at least one thread.");
+            throw new IllegalArgumentException();
+        }
+        defaultPoolSize = poolSize;
+        if (sharedPool != null) {
+            //the max may never dip below the core size, so the order depends on which way we're going
+            if (poolSize > sharedPool.getMaximumPoolSize()) {
+                sharedPool.setMaximumPoolSize(poolSize);
+                sharedPool.setCorePoolSize(poolSize);
+            } else {
+                sharedPool.setCorePoolSize(poolSize);
+                sharedPool.setMaximumPoolSize(poolSize);
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getSharedPool() {
+        if (sharedPool == null) {
+            sharedPool = new ThreadPoolExecutor(defaultPoolSize, defaultPoolSize, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "ParallelMoveEvaluator");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            sharedPool.allowCoreThreadTimeOut(true);
+        }
+        return sharedPool;
+    }
+
+    //endregion
+
+    /**
+     * Finds the improving candidate to apply.
+     *
+     * @param space            - the candidates
+     * @param tracker          - the current route costs; must not be updated while this runs
+     * @param firstImprovement - true to stop at the first improving candidate, false for the best one
+     * @param savings          - if non-null, savings[0] is set to the change in objective of the returned candidate
+     * @return - the index of the chosen candidate, or -1 if none of them improves the objective
+     */
+    public int findMove(final CandidateSpace<V, E> space, final IncrementalMaxMetric tracker, final boolean firstImprovement, int[] savings) {
+
+        final int n = space.size();
+        int numShards = Math.min(mNumThreads, n / MIN_SHARD_SIZE);
+
+        long best;
+        if (numShards <= 1) {
+            best = scan(space, tracker, 0, n, firstImprovement, new AtomicInteger(Integer.MAX_VALUE));
+        } else {
+            final int shards = numShards;
+            final long[] results = new long[shards];
+            final AtomicInteger nextShard = new AtomicInteger(0);
+            final AtomicInteger firstFound = new AtomicInteger(Integer.MAX_VALUE);
+            final CountDownLatch finished = new CountDownLatch(shards);
+            final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+            Runnable worker = new Runnable() {
+                @Override
+                public void run() {
+                    int shard;
+                    while ((shard = nextShard.getAndIncrement()) < shards) {
+                        int from = (int) ((long) n * shard / shards);
+                        int to = (int) ((long) n * (shard + 1) / shards);
+                        try {
+                            results[shard] = scan(space, tracker, from, to, firstImprovement, firstFound);
+                        } catch (RuntimeException e) {
+                            results[shard] = NONE;
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            finished.countDown();
+                        }
+                    }
+                }
+            };
+
+            ExecutorService pool = (mPool == null) ? getSharedPool() : mPool;
+            try {
+                for (int i = 1; i < shards; i++)
+                    pool.execute(worker);
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("The pool is not taking any more work; pricing the rest on the calling thread.");
+            }
+            worker.run();
+
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.error("Interrupted while waiting for the other shards to be priced.", e);
+                throw new IllegalStateException(e);
+            }
+            if (failure.get() != null) {
+                LOGGER.error("Pricing one of the shards failed.", failure.get());
+                throw failure.get();
+            }
+
+            //reduce in shard order; a strict comparison keeps the lowest index on ties, and under first improvement
+            //the first shard to report anything holds the lowest improving index
+            best = NONE;
+            for (long shardBest : results) {
+                if (shardBest == NONE)
+                    continue;
+                if (best == NONE || savingsOf(shardBest) < savingsOf(best))
+                    best = shardBest;
+                if (firstImprovement)
+                    break;
+            }
+        }
+
+        if (best == NONE)
+            return -1;
+        if (savings != null)
+            savings[0] = savingsOf(best);
+        return indexOf(best);
+    }
+
+    //region Shards
+
+    //a shard's result packs (savings, index) into a long; NONE means it found nothing
+    private static final long NONE = Long.MAX_VALUE;
+
+    private static long pack(int savings, int index) {
+        return ((long) savings << 32) | index;
+    }
+
+    private static int savingsOf(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    private static int indexOf(long packed) {
+        return (int) packed;
+    }
+
+    private long scan(CandidateSpace<V, E> space, IncrementalMaxMetric tracker, int from, int to, boolean firstImprovement, AtomicInteger firstFound) {
+        PricingObserver<V, E, G> observer = (space instanceof PricingObserver) ? (PricingObserver<V, E, G>) space : null;
+        int bestSavings = 0;
+        int bestIndex = -1;
+        int s;
+        for (int i = from; i < to; i++) {
+
+            //somebody earlier in the order already found one, so nothing we find can win
+            if (firstImprovement && i > firstFound.get())
+                break;
+
+            s = mMover.evalComplexMove(space.getMoves(i), tracker);
+            if (observer != null)
+                observer.onPriced(i, mMover);
+            if (s < bestSavings) {
+                bestSavings = s;
+                bestIndex = i;
+                if (firstImprovement) {
+                    int curr;
+                    while (i < (curr = firstFound.get()) && !firstFound.compareAndSet(curr, i)) ;
+                    break;
+                }
+            }
+        }
+        return (bestIndex == -1) ? NONE : pack(bestSavings, bestIndex);
+    }
+
+    //endregion
+}
@@ -0,0 +1,378 @@
+package oarlib.improvements.util;
+
+import gnu.trove.TIntArrayList;
+import oarlib.core.Graph;
+import oarlib.core.Link;
+import oarlib.core.Route;
+import oarlib.core.Vertex;
+import oarlib.graph.util.AllPairsShortestPaths;
+import oarlib.link.impl.WindyEdge;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+
+/**
+ * Prices segment moves on the compact representation of a route in constant time.  For each route we keep prefix
+ * sums of the service costs and of the deadheads between consecutive required links, both in the direction the route
+ * traverses them and reversed, so that the cost of any contiguous segment, forwards or backwards, is a difference of
+ * two entries.  Everything a segment move changes outside the segment is a handful of deadheads, which we read from the
+ * shared shortest path matrix.
+ * <p/>
+ * The costs predicted here are those of the route RouteExpander.unflattenRoute builds from the compact
+ * representation, i.e. the required links in order, joined by shortest paths, starting and ending at the depot.
+ */
+public class SegmentCosts<V extends Vertex, E extends Link<V>, G extends Graph<V, E>> {
+
+    private static final Logger LOGGER = Logger.getLogger(SegmentCosts.class);
+
+    //the cost of reversing a segment that contains a directed link
+    public static final int INFEASIBLE = Integer.MAX_VALUE;
+
+    private int[][] dist;
+    private int mDepotId;
+    private int[] mTail;
+    private int[] mHead;
+    private int[] mCost;
+    private int[] mReverseCost;
+    private boolean[] mDirected;
+
+    public SegmentCosts(G g) {
+
+        //shared with everyone else working on this graph, so read-only; self-distances are zeroed
+        AllPairsShortestPaths sp = g.getAllPairsShortestPaths();
+        dist = sp.getDistZeroDiagonal();
+
+        int maxId = 0;
+        for (E l : g.getEdges())
+            maxId = Math.max(maxId, l.getId());
+        mTail = new int[maxId + 1];
+        mHead = new int[maxId + 1];
+        mCost = new int[maxId + 1];
+        mReverseCost = new int[maxId + 1];
+        mDirected = new boolean[maxId + 1];
+        for (E l : g.getEdges()) {
+            int id = l.getId();
+            mTail[id] = l.getEndpoints().getFirst().getId();
+            mHead[id] = l.getEndpoints().getSecond().getId();
+            mCost[id] = l.getCost();
+            mReverseCost[id] = l.isWindy() ? ((WindyEdge) l).getReverseCost() : l.getCost();
+            mDirected[id] = l.isDirected();
+        }
+        mDepotId = g.getDepotId();
+    }
+
+    public int getDepotId() {
+        return mDepotId;
+    }
+
+    /**
+     * @return - the cheapest deadhead from vertex i to vertex j, (0 if they're the same)
+     */
+    public int dist(int i, int j) {
+        return dist[i][j];
+    }
+
+    public Profile profile(Route<V, E> r) {
+        return new Profile(r.getCompactRepresentation(), r.getCompactTraversalDirection());
+    }
+
+    public Profile profile(TIntArrayList links, ArrayList<Boolean> directions) {
+        return new Profile(links, directions);
+    }
+
+    /**
+     * The prefix arrays of one compact route.  Positions are indices into the compact representation; segments are
+     * given by the positions of their first and last links, inclusive.
+     */
+    public class Profile {
+
+        private int n;
+        private int[] mStart; //where the link at each position is entered, in the direction the route traverses it
+        private int[] mEnd; //and where it's left
+        private int[] mServ; //mServ[k] is the service cost of positions 0..k-1
+        private int[] mRevServ; //the same, with every link traversed the other way
+        private int[] mGap; //mGap[k] is the deadhead between positions 0..k-1, i.e. from 0 to 1, ..., k-2 to k-1
+        private int[] mRevGap; //the deadhead from position t to t-1, for t from 1 to k-1, with those links reversed
+        private int[] mDirectedCount; //the number of directed links in positions 0..k-1
+
+        private Profile(TIntArrayList links, ArrayList<Boolean> directions) {
+
+            if (links.size() != directions.size()) {
+                LOGGER.error("The flattened route and direction arrays are of different size.");
+                throw new IllegalArgumentException();
+            }
+
+            n = links.size();
+            mStart = new int[n];
+            mEnd = new int[n];
+            mServ = new int[n + 1];
+            mRevServ = new int[n + 1];
+            mGap = new int[n + 1];
+            mRevGap = new int[n + 1];
+            mDirectedCount = new int[n + 1];
+
+            int link;
+            boolean forward;
+            for (int k = 0; k < n; k++) {
+                link = links.get(k);
+                forward = directions.get(k);
+                mStart[k] = forward ? mTail[link] : mHead[link];
+                mEnd[k] = forward ? mHead[link] : mTail[link];
+                mServ[k + 1] = mServ[k] + (forward ? mCost[link] : mReverseCost[link]);
+                mRevServ[k + 1] = mRevServ[k] + (forward ? mReverseCost[link] : mCost[link]);
+                mDirectedCount[k + 1] = mDirectedCount[k] + (mDirected[link] ? 1 : 0);
+                if (k > 0) {
+                    mGap[k + 1] = mGap[k] + dist[mEnd[k - 1]][mStart[k]];
+                    mRevGap[k + 1] = mRevGap[k] + dist[mStart[k]][mEnd[k - 1]];
+                }
+            }
+        }
+
+        public int size() {
+            return n;
+        }
+
+        /**
+         * @return - the vertex at which the link at position k is entered, or the depot if k is off either end
+         */
+        public int start(int k) {
+            return (k < 0 || k >= n) ? mDepotId : mStart[k];
+        }
+
+        /**
+         * @return - the vertex at which the link at position k is left, or the depot if k is off either end
+         */
+        public int end(int k) {
+            return (k < 0 || k >= n) ? mDepotId : mEnd[k];
+        }
+
+        /**
+         * @return - the cost of servicing positions i through j in order, including the deadheads between them, but not
+         * getting to i or leaving j
+         */
+        public int inner(int i, int j) {
+            return mServ[j + 1] - mServ[i] + mGap[j + 1] - mGap[i + 1];
+        }
+
+        /**
+         * @return - the cost of servicing positions j down to i, each link the other way, including the deadheads
+         * between them, or INFEASIBLE if one of them is directed
+         */
+        public int reversedInner(int i, int j) {
+            if (mDirectedCount[j + 1] - mDirectedCount[i] > 0)
+                return INFEASIBLE;
+            return mRevServ[j + 1] - mRevServ[i] + mRevGap[j + 1] - mRevGap[i + 1];
+        }
+
+        /**
+         * @return - the cost of leaving the depot and servicing positions 0..k-1, ending at end(k-1)
+         */
+        public int prefix(int k) {
+            if (k == 0)
+                return 0;
+            return dist[mDepotId][mStart[0]] + inner(0, k - 1);
+        }
+
+        /**
+         * @return - the cost of servicing positions k..n-1, starting at start(k), and returning to the depot
+         */
+        public int suffix(int k) {
+            if (k == n)
+                return 0;
+            return inner(k, n - 1) + dist[mEnd[n - 1]][mDepotId];
+        }
+
+        /**
+         * @return - the cost of the whole route
+         */
+        public int total() {
+            return prefix(n) + dist[end(n - 1)][mDepotId];
+        }
+
+        /**
+         * @param i        - position of the first link of the segment
+         * @param j        - position of the last link of the segment
+         * @param p        - the segment is reinserted just before the link now at position p, (n for the end); must
+         *                 lie outside [i, j + 1]
+         * @param reversed - true if the segment is reinserted backwards
+         * @return - the change in route cost from moving the segment, or INFEASIBLE
+         */
+        public int orOptDelta(int i, int j, int p, boolean reversed) {
+            int prev = end(i - 1);
+            int next = start(j + 1);
+            int removal = dist[prev][mStart[i]] + dist[mEnd[j]][next] - dist[prev][next];
+
+            int a = end(p - 1);
+            int b = start(p);
+            int insertion;
+            if (reversed) {
+                int rev = reversedInner(i, j);
+                if (rev == INFEASIBLE)
+                    return INFEASIBLE;
+                insertion = dist[a][mEnd[j]] + dist[mStart[i]][b] + rev - inner(i, j);
+            } else
+                insertion = dist[a][mStart[i]] + dist[mEnd[j]][b];
+
+            return insertion - dist[a][b] - removal;
+        }
+
+        /**
+         * @return - the change in route cost from servicing positions i..j backwards, or INFEASIBLE
+         */
+        public int twoOptDelta(int i, int j) {
+            int rev = reversedInner(i, j);
+            if (rev == INFEASIBLE)
+                return INFEASIBLE;
+            int prev = end(i - 1);
+            int next = start(j + 1);
+            return dist[prev][mEnd[j]] + rev + dist[mStart[i]][next]
+                    - dist[prev][mStart[i]] - inner(i, j) - dist[mEnd[j]][next];
+        }
+    }
+
+    /**
+     * @param a - profile of the first route
+     * @param i - the first route keeps positions 0..i-1
+     * @param b - profile of the second route
+     * @param j - the tail of the second route from position j on
+     * @return - the cost of the route made of the head of a followed by the tail of b
+     */
+    public int concatenationCost(Profile a, int i, Profile b, int j) {
+        return a.prefix(i) + dist[a.end(i - 1)][b.start(j)] + b.suffix(j);
+    }
+
+    //region Direction assignment
+
+    /**
+     * Finds the cheapest way to traverse a fixed order of required links, by dynamic programming over (position,
+     * direction) states: the cheapest way to service positions 0..k with link k traversed each way only depends on the
+     * cheapest ways to service 0..k-1.  This is the shortest path through the DAG that Reversal used to build, in
+     * linear time and without building a graph.  Directed links keep the direction they have, and ties keep the
+     * current direction, so a route that's already optimal comes back unchanged.
+     *
+     * @param links      - the compact representation of a route
+     * @param directions - its traversal directions; overwritten with the optimal ones
+     * @return - the cost of the route with the optimal directions
+     */
+    public int optimizeDirections(TIntArrayList links, ArrayList<Boolean> directions) {
+        return optimizeDirections(links, directions, 0);
+    }
+
+    /**
+     * As optimizeDirections, but only re-optimizes positions from on, leaving the directions before it alone; for
+     * use after a move that only changed the route from some position onwards.
+     */
+    public int optimizeDirections(TIntArrayList links, ArrayList<Boolean> directions, int from) {
+
+        if (links.size() != directions.size()) {
+            LOGGER.error("The flattened route and direction arrays are of different size.");
+            throw new IllegalArgumentException();
+        }
+
+        int n = links.size();
+        if (n == 0)
+            return 0;
+        from = Math.max(0, Math.min(from, n));
+
+        //the fixed part up front is a single state
+        int fixedCost = 0;
+        int fixedEnd = mDepotId;
+        int link;
+        boolean forward;
+        for (int k = 0; k < from; k++) {
+            link = links.get(k);
+            forward = directions.get(k);
+            fixedCost += dist[fixedEnd][forward ? mTail[link] : mHead[link]] + (forward ? mCost[link] : mReverseCost[link]);
+            fixedEnd = forward ? mHead[link] : mTail[link];
+        }
+        if (from == n)
+            return fixedCost + dist[fixedEnd][mDepotId];
+
+        //best[d] is the cheapest way to service through the current position, with it traversed forwards if d == 1
+        long[] best = new long[2];
+        long[] next = new long[2];
+        boolean[][] cameForward = new boolean[n][2]; //the direction of the previous position on the best way here
+        int prevEnd0, prevEnd1, start, cost;
+        long via0, via1;
+
+        prevEnd0 = fixedEnd;
+        prevEnd1 = fixedEnd;
+        best[0] = fixedCost;
+        best[1] = fixedCost;
+        for (int k = from; k < n; k++) {
+            link = links.get(k);
+            for (int d = 0; d < 2; d++) {
+                if (mDirected[link] && (d == 1) != directions.get(k)) {
+                    next[d] = Long.MAX_VALUE;
+                    continue;
+                }
+                start = (d == 1) ? mTail[link] : mHead[link];
+                cost = (d == 1) ? mCost[link] : mReverseCost[link];
+                via0 = (best[0] == Long.MAX_VALUE) ? Long.MAX_VALUE : best[0] + dist[prevEnd0][start];
+                via1 = (best[1] == Long.MAX_VALUE) ? Long.MAX_VALUE : best[1] + dist[prevEnd1][start];
+                boolean keep = (k == 0) || directions.get(k - 1);
+                cameForward[k][d] = (via1 < via0) || (via1 == via0 && keep);
+                next[d] = Math.min(via0, via1) + cost;
+            }
+            best[0] = next[0];
+            best[1] = next[1];
+            prevEnd0 = mTail[link];
+            prevEnd1 = mHead[link];
+        }
+
+        long back0 = (best[0] == Long.MAX_VALUE) ? Long.MAX_VALUE : best[0] + dist[prevEnd0][mDepotId];
+        long back1 = (best[1] == Long.MAX_VALUE) ? Long.MAX_VALUE : best[1] + dist[prevEnd1][mDepotId];
+        boolean dir = (back1 < back0) || (back1 == back0 && directions.get(n - 1));
+        long ans = Math.min(back0, back1);
+
+        for (int k = n - 1; k >= from; k--) {
+            boolean prevDir = cameForward[k][dir ? 1 : 0];
+            directions.set(k, dir);
+            dir = prevDir;
+        }
+        return (int) ans;
+    }
+
+    //endregion
+
+    //region Applying moves
+
+    /**
+     * Moves positions i..j in front of the link now at position p, reversing them (and their directions) if asked.
+     */
+    public static void applyOrOpt(TIntArrayList links, ArrayList<Boolean> directions, int i, int j, int p, boolean reversed) {
+        int len = j - i + 1;
+        int[] segLinks = new int[len];
+        boolean[] segDirs = new boolean[len];
+        for (int k = 0; k < len; k++) {
+            int from = reversed ? j - k : i + k;
+            segLinks[k] = links.get(from);
+            segDirs[k] = reversed ^ directions.get(from);
+        }
+        links.remove(i, len);
+        for (int k = 0; k < len; k++)
+            directions.remove(i);
+        int at = (p > j) ? p - len : p;
+        links.insert(at, segLinks);
+        for (int k = 0; k < len; k++)
+            directions.add(at + k, segDirs[k]);
+    }
+
+    /**
+     * Services positions i..j backwards.
+     */
+    public static void applyTwoOpt(TIntArrayList links, ArrayList<Boolean> directions, int i, int j) {
+        for (; i < j; i++, j--) {
+            int tempLink = links.get(i);
+            links.set(i, links.get(j));
+            links.set(j, tempLink);
+            boolean tempDir = directions.get(i);
+            directions.set(i, !directions.get(j));
+            directions.set(j, !tempDir);
+        }
+        if (i == j)
+            directions.set(i, !directions.get(i));
+    }
+
+    //endregion
+}
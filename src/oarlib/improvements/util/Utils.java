@@ -199,16 +199,20 @@ public class Utils {
         try {
             int limi = path.size();
             WindyEdge temp;
+            ArrayList<Arc> arcs = new ArrayList<Arc>(limi);
+            boolean[] forward = new boolean[limi];
+            boolean[] serviced = new boolean[limi];
             for (int i = 0; i < limi; i++) {
                 temp = path.get(i);
-                if (td.get(i)) {
+                if (td.get(i))
                     ansGraph.addEdge(temp.getEndpoints().getFirst().getId(), temp.getEndpoints().getSecond().getId(), temp.getCost(), temp.isRequired());
-                    ans.appendEdge(ansGraph.getEdge(i + 1), service.get(i));
-                } else {
+                else
                     ansGraph.addEdge(temp.getEndpoints().getSecond().getId(), temp.getEndpoints().getFirst().getId(), temp.getReverseCost(), temp.isRequired());
-                    ans.appendEdge(ansGraph.getEdge(i + 1), service.get(i));
-                }
+                arcs.add(ansGraph.getEdge(i + 1));
+                forward[i] = true;
+                serviced[i] = service.get(i);
             }
+            ans.buildPath(arcs, forward, serviced);
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -27,7 +27,6 @@ import oarlib.core.Graph;
 import oarlib.core.Link;
 import oarlib.core.Route;
 import oarlib.core.Vertex;
-import oarlib.graph.util.CommonAlgorithms;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -52,12 +51,8 @@ public class AverageTraversalMetric extends Metric {
         HashSet<Integer> alreadyTraversed = new HashSet<Integer>();
         int sumDist = 0;
 
-        //compute shortest paths
-        int n = mGraph.getVertices().size();
-        int[][] dist = new int[n + 1][n + 1];
-        int[][] path = new int[n + 1][n + 1];
-
-        CommonAlgorithms.fwLeastCostPaths(mGraph, dist, path);
+        //shortest paths
+        int[][] dist = mGraph.getAllPairsDistMatrix();
 
         //calculuate the pairwise sum
         int tempBest;
@@ -0,0 +1,241 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2016 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.metrics;
+
+import gnu.trove.TIntIntHashMap;
+import oarlib.core.Route;
+import org.apache.log4j.Logger;
+
+import java.util.Collection;
+
+/**
+ * Stateful version of the MaxMetric for use inside local search loops.  The route costs are kept in a segment tree
+ * keyed on route global id, so that updating the cost of a route, or asking what the max would be if a few routes
+ * changed, costs O(log k) rather than a pass over the whole solution.
+ * <p/>
+ * Evaluating a collection through the inherited evaluate method still works as it does for the MaxMetric, and does
+ * not touch the tracked state.
+ */
+public class IncrementalMaxMetric extends MaxMetric {
+
+    private static final Logger LOGGER = Logger.getLogger(IncrementalMaxMetric.class);
+
+    private int mLeaves; //first leaf index; the number of slots, rounded up to a power of 2
+    private int[] mTree;
+    private int[] mSlotIds;
+    private TIntIntHashMap mSlots; //route global id -> slot + 1, so that a missing id reads as 0
+    private long mSum;
+
+    public IncrementalMaxMetric(Collection<? extends Route> routes) {
+
+        if (routes == null || routes.size() == 0) {
+            LOGGER.error("You must track at least one route.");
+            throw new IllegalArgumentException();
+        }
+
+        mLeaves = 1;
+        while (mLeaves < routes.size())
+            mLeaves <<= 1;
+
+        mTree = new int[2 * mLeaves];
+        mSlotIds = new int[mLeaves];
+        mSlots = new TIntIntHashMap();
+        for (int i = 0; i < mTree.length; i++)
+            mTree[i] = Integer.MIN_VALUE;
+
+        int slot = 0;
+        for (Route r : routes) {
+            if (mSlots.containsKey(r.getGlobalId())) {
+                LOGGER.error("Route " + r.getGlobalId() + " appears twice in the solution.");
+                throw new IllegalArgumentException();
+            }
+            mSlots.put(r.getGlobalId(), slot + 1);
+            mSlotIds[slot] = r.getGlobalId();
+            mTree[mLeaves + slot] = r.getCost();
+            mSum += r.getCost();
+            slot++;
+        }
+
+        for (int i = mLeaves - 1; i >= 1; i--)
+            mTree[i] = Math.max(mTree[2 * i], mTree[2 * i + 1]);
+    }
+
+    /**
+     * @return - the cost of the longest tracked route
+     */
+    public double evaluate() {
+        return mTree[1];
+    }
+
+    public int getMax() {
+        return mTree[1];
+    }
+
+    /**
+     * @return - the global id of a longest tracked route
+     */
+    public int getArgMax() {
+        int i = 1;
+        while (i < mLeaves)
+            i = (mTree[2 * i] == mTree[i]) ? 2 * i : 2 * i + 1;
+        return mSlotIds[i - mLeaves];
+    }
+
+    public long getSum() {
+        return mSum;
+    }
+
+    public boolean contains(int routeId) {
+        return mSlots.containsKey(routeId);
+    }
+
+    public int getCost(int routeId) {
+        return mTree[mLeaves + slotOf(routeId)];
+    }
+
+    /**
+     * Records a new cost for a tracked route.
+     *
+     * @param routeId - the global id of the route
+     * @param newCost - its new cost
+     */
+    public void update(int routeId, int newCost) {
+        int slot = slotOf(routeId);
+        mSum += newCost - mTree[mLeaves + slot];
+        set(slot, newCost);
+    }
+
+    /**
+     * Swaps a tracked route out for its replacement, (e.g. one of the routes returned by Mover.makeComplexMove).
+     *
+     * @param oldRouteId - the global id of the route being replaced
+     * @param newRoute   - the route that takes its place
+     */
+    public void replace(int oldRouteId, Route newRoute) {
+        int slot = slotOf(oldRouteId);
+        if (newRoute.getGlobalId() != oldRouteId) {
+            if (mSlots.containsKey(newRoute.getGlobalId())) {
+                LOGGER.error("Route " + newRoute.getGlobalId() + " is already being tracked.");
+                throw new IllegalArgumentException();
+            }
+            mSlots.remove(oldRouteId);
+            mSlots.put(newRoute.getGlobalId(), slot + 1);
+            mSlotIds[slot] = newRoute.getGlobalId();
+        }
+        mSum += newRoute.getCost() - mTree[mLeaves + slot];
+        set(slot, newRoute.getCost());
+    }
+
+    /**
+     * What the objective would be if the given routes had the given costs.  This does not modify the tracker, so
+     * any number of threads may call it concurrently, as long as nobody is updating the tracker at the same time.
+     *
+     * @param routeIds - global ids of the routes that would change; if an id repeats, its last cost wins
+     * @param costs    - their hypothetical costs
+     * @param n        - the number of entries of routeIds and costs to use
+     * @return - the hypothetical max route cost
+     */
+    public int evaluateWith(int[] routeIds, int[] costs, int n) {
+
+        int ans = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            boolean overwritten = false;
+            for (int j = i + 1; j < n && !overwritten; j++)
+                overwritten = routeIds[j] == routeIds[i];
+            if (!overwritten)
+                ans = Math.max(ans, costs[i]);
+        }
+
+        //and the max over everybody else, i.e. the gaps between the changed slots, visited in slot order; n is tiny
+        //in practice, so a selection pass beats allocating and sorting
+        int from = 0;
+        int prev = -1;
+        int next, slot;
+        for (int c = 0; c < n; c++) {
+            next = Integer.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                slot = slotOf(routeIds[i]);
+                if (slot > prev && slot < next)
+                    next = slot;
+            }
+            if (next == Integer.MAX_VALUE)
+                break;
+            ans = Math.max(ans, rangeMax(from, next));
+            from = next + 1;
+            prev = next;
+        }
+        return Math.max(ans, rangeMax(from, mLeaves));
+    }
+
+    /**
+     * Two route version of evaluateWith, for the common case of moving links from one route to another.
+     */
+    public int evaluateWith(int routeId1, int cost1, int routeId2, int cost2) {
+        if (routeId1 == routeId2)
+            return evaluateWith(new int[]{routeId2}, new int[]{cost2}, 1);
+        int slot1 = slotOf(routeId1);
+        int slot2 = slotOf(routeId2);
+        int lo = Math.min(slot1, slot2);
+        int hi = Math.max(slot1, slot2);
+        int ans = Math.max(cost1, cost2);
+        ans = Math.max(ans, rangeMax(0, lo));
+        ans = Math.max(ans, rangeMax(lo + 1, hi));
+        return Math.max(ans, rangeMax(hi + 1, mLeaves));
+    }
+
+    /**
+     * @return - the max over the slots in [from, to)
+     */
+    private int rangeMax(int from, int to) {
+        int ans = Integer.MIN_VALUE;
+        for (int l = from + mLeaves, r = to + mLeaves; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1)
+                ans = Math.max(ans, mTree[l++]);
+            if ((r & 1) == 1)
+                ans = Math.max(ans, mTree[--r]);
+        }
+        return ans;
+    }
+
+    private int slotOf(int routeId) {
+        int slot = mSlots.get(routeId) - 1;
+        if (slot < 0) {
+            LOGGER.error("Route " + routeId + " is not being tracked.");
+            throw new IllegalArgumentException();
+        }
+        return slot;
+    }
+
+    private void set(int slot, int cost) {
+        int i = mLeaves + slot;
+        mTree[i] = cost;
+        for (i >>= 1; i >= 1; i >>= 1)
+            mTree[i] = Math.max(mTree[2 * i], mTree[2 * i + 1]);
+    }
+
+    @Override
+    public String toString() {
+        return "Max Route Length (Incremental)";
+    }
+}
@@ -41,6 +41,7 @@ public class ProblemFormat {
         JSON, //for visualization
         Zhang_Matrix_Windy,
         Zhang_Matrix_Zigzag,
-        Zhang_Matrix_WRPP
+        Zhang_Matrix_WRPP,
+        OARLibBinary //ours, in fixed-width columns that are read by memory mapping; see BinaryInstanceFormat
     }
 }
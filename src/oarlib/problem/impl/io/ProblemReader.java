@@ -34,6 +34,7 @@ import oarlib.link.impl.Arc;
 import oarlib.link.impl.Edge;
 import oarlib.link.impl.WindyEdge;
 import oarlib.link.impl.ZigZagLink;
+import oarlib.problem.impl.io.util.BinaryInstanceFormat;
 import oarlib.vertex.impl.DirectedVertex;
 import oarlib.vertex.impl.MixedVertex;
 import oarlib.vertex.impl.UndirectedVertex;
@@ -43,9 +44,11 @@ import org.apache.log4j.Logger;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -90,6 +93,8 @@ public class ProblemReader {
                 return readRuiWRPPGraph(fileName);
             case MeanderingPostman:
                 return readMeanderingPostmanGraph(fileName);
+            case OARLibBinary:
+                return readOARLibBinaryGraph(fileName);
             default:
                 break;
         }
@@ -99,6 +104,14 @@ public class ProblemReader {
         throw new UnsupportedFormatException();
     }
 
+    private Graph<?, ?> readOARLibBinaryGraph(String fileName) throws FormatMismatchException {
+        try {
+            return BinaryInstanceFormat.read(fileName);
+        } catch (IOException e) {
+            throw new FormatMismatchException(e.getMessage(), e.getCause());
+        }
+    }
+
     private Graph<?, ?> readRuiWRPPGraph(String fileName) throws FormatMismatchException {
         try {
 
@@ -405,7 +418,7 @@ public class ProblemReader {
     private Graph<?, ?> readOARLibGraph(String fileName) throws FormatMismatchException {
 
         try {
-            String line, line2;
+            String line;
             String[] temp;
             File graphFile = new File(fileName);
             BufferedReader br = new BufferedReader(new FileReader(graphFile));
@@ -416,92 +429,88 @@ public class ProblemReader {
             //skip any header
             while (!line.startsWith("Graph Type:"))
                 line = br.readLine();
+            String graphType = line;
 
-            //TODO: use this info to return a problem
-            //br.readLine(); //should have problem type
-            //br.readLine(); //should have fleet size
-            //br.readLine(); //should have depot type
-            line2 = br.readLine(); //should have depot ID
-
-            int depotId = Integer.parseInt(line2.split(":")[1].trim());
-            line2 = br.readLine(); //should have n
-
-            int n = Integer.parseInt(line2.split(":")[1].trim());
+            //TODO: use the problem type, fleet size and depot type to return a problem
+            //the rest of the header is key:value, up to the number of links
+            int depotId = 1;
+            int n = -1;
+            int m = -1;
+            while (m < 0) {
+                line = br.readLine();
+                if (line.startsWith("Depot ID"))
+                    depotId = Integer.parseInt(line.split(":")[1].split(",")[0].trim());
+                else if (line.startsWith("N:"))
+                    n = Integer.parseInt(line.split(":")[1].trim());
+                else if (line.startsWith("M:"))
+                    m = Integer.parseInt(line.split(":")[1].trim());
+            }
 
-            line2 = br.readLine(); //should have m
+            //advance to the correct spot
+            while (!line.startsWith("Line Format"))
+                line = br.readLine();
 
-            int m = Integer.parseInt(line2.split(":")[1].trim());
+            //find the columns we need from the line format, falling back on the older, fixed layout
+            List<String> columns = Arrays.asList(line.substring(line.indexOf(':') + 1).split(","));
+            boolean windy = graphType.contains("WINDY");
+            boolean mixed = graphType.contains("MIXED");
+            int costCol = column(columns, "COST", 2);
+            int reverseCostCol = column(columns, "REVERSE COST", 3);
+            int directedCol = column(columns, "DIRECTED", 3);
+            int requiredCol = column(columns, "REQUIRED", (windy || mixed) ? 4 : 3);
+
+            //in the named layout, the old position of the directed flag holds something else entirely
+            if (mixed && column(columns, "COST", -1) >= 0 && column(columns, "DIRECTED", -1) < 0) {
+                LOGGER.error("The line format of a mixed graph must include a DIRECTED column.");
+                throw new FormatMismatchException("The line format of a mixed graph must include a DIRECTED column.");
+            }
 
             //graph type
-            if (line.contains("UNDIRECTED")) {
-
-                //advance to the correct spot
-                while (!line.startsWith("Line Format"))
-                    line = br.readLine();
-
-                br.readLine();
+            if (graphType.contains("UNDIRECTED")) {
 
                 UndirectedGraph ans = new UndirectedGraph(n);
                 for (int i = 1; i <= m; i++) {
                     line = br.readLine();
                     temp = line.split(",");
-                    ans.addEdge(Integer.parseInt(temp[0].trim()), Integer.parseInt(temp[1].trim()), Integer.parseInt(temp[2].trim()), Boolean.parseBoolean(temp[3].trim()));
+                    ans.addEdge(Integer.parseInt(temp[0].trim()), Integer.parseInt(temp[1].trim()), Integer.parseInt(temp[costCol].trim()), Boolean.parseBoolean(temp[requiredCol].trim()));
                 }
                 ans.setDepotId(depotId);
                 return ans;
-            } else if (line.contains("DIRECTED")) {
-
-                //advance to the correct spot
-                while (!line.startsWith("Line Format"))
-                    line = br.readLine();
-
-                br.readLine();
+            } else if (graphType.contains("DIRECTED")) {
 
                 DirectedGraph ans = new DirectedGraph(n);
                 for (int i = 1; i <= m; i++) {
                     line = br.readLine();
                     temp = line.split(",");
-                    ans.addEdge(Integer.parseInt(temp[0].trim()), Integer.parseInt(temp[1].trim()), Integer.parseInt(temp[2].trim()), Boolean.parseBoolean(temp[3].trim()));
+                    ans.addEdge(Integer.parseInt(temp[0].trim()), Integer.parseInt(temp[1].trim()), Integer.parseInt(temp[costCol].trim()), Boolean.parseBoolean(temp[requiredCol].trim()));
                 }
                 ans.setDepotId(depotId);
                 return ans;
-            } else if (line.contains("MIXED")) {
-
-                //advance to the correct spot
-                while (!line.startsWith("Line Format"))
-                    line = br.readLine();
-
-                br.readLine();
+            } else if (mixed) {
 
                 MixedGraph ans = new MixedGraph(n);
                 for (int i = 1; i <= m; i++) {
                     line = br.readLine();
                     temp = line.split(",");
-                    ans.addEdge(Integer.parseInt(temp[0].trim()), Integer.parseInt(temp[1].trim()), Integer.parseInt(temp[2].trim()), Boolean.parseBoolean(temp[3].trim()), Boolean.parseBoolean(temp[4].trim()));
+                    ans.addEdge(Integer.parseInt(temp[0].trim()), Integer.parseInt(temp[1].trim()), Integer.parseInt(temp[costCol].trim()), Boolean.parseBoolean(temp[directedCol].trim()), Boolean.parseBoolean(temp[requiredCol].trim()));
                 }
                 ans.setDepotId(depotId);
                 return ans;
-            } else if (line.contains("WINDY")) {
-
-                //advance to the correct spot
-                while (!line.startsWith("Line Format"))
-                    line = br.readLine();
-
-                br.readLine();
+            } else if (windy) {
 
                 WindyGraph ans = new WindyGraph(n);
                 for (int i = 1; i <= m; i++) {
                     line = br.readLine();
                     temp = line.split(",");
-                    ans.addEdge(Integer.parseInt(temp[0].trim()), Integer.parseInt(temp[1].trim()), Integer.parseInt(temp[2].trim()), Integer.parseInt(temp[3].trim()), Boolean.parseBoolean(temp[4].trim()));
+                    ans.addEdge(Integer.parseInt(temp[0].trim()), Integer.parseInt(temp[1].trim()), Integer.parseInt(temp[costCol].trim()), Integer.parseInt(temp[reverseCostCol].trim()), Boolean.parseBoolean(temp[requiredCol].trim()));
                 }
                 ans.setDepotId(depotId);
 
-                //advance to the correct spot
-                while (!line.startsWith("Line Format"))
-                    line = br.readLine();
-
-                br.readLine();
+                //advance to the coordinates, if there are any
+                while ((line = br.readLine()) != null && !line.startsWith("Line Format"))
+                    ;
+                if (line == null)
+                    return ans;
 
                 for (int i = 1; i <= n; i++) {
                     line = br.readLine();
@@ -522,6 +531,16 @@ public class ProblemReader {
 
     }
 
+    /**
+     * @return - the index of the named column, or the default if the line format doesn't name it
+     */
+    private static int column(List<String> columns, String name, int defaultIndex) {
+        for (int i = 0; i < columns.size(); i++)
+            if (columns.get(i).trim().equals(name))
+                return i;
+        return defaultIndex;
+    }
+
     private Graph<?, ?> readMETISGraph(String fileName) throws FormatMismatchException {
         try {
             //ans, so far I only know of undirected graphs for this type
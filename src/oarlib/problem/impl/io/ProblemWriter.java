@@ -40,12 +40,14 @@ import oarlib.link.impl.Edge;
 import oarlib.link.impl.WindyEdge;
 import oarlib.link.impl.ZigZagLink;
 import oarlib.problem.impl.ProblemAttributes;
+import oarlib.problem.impl.io.util.BinaryInstanceFormat;
 import oarlib.problem.impl.rpp.WindyRPP;
 import oarlib.problem.impl.rpp.WindyRPPZZTW;
 import oarlib.vertex.impl.UndirectedVertex;
 import org.apache.log4j.Logger;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -79,6 +81,8 @@ public class ProblemWriter {
         switch (mFormat) {
             case OARLib:
                 return writeOarlibInstance(p, filename);
+            case OARLibBinary:
+                return writeOarlibBinaryInstance(p, filename);
             case Campos:
                 break;
             case Corberan:
@@ -764,6 +768,16 @@ public class ProblemWriter {
         }
     }
 
+    private <V extends Vertex, E extends Link<V>, G extends Graph<V, E>> boolean writeOarlibBinaryInstance(Problem<V, E, G> p, String filename) {
+        try {
+            BinaryInstanceFormat.write(p.getGraph(), filename);
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Could not write " + filename + ".", e);
+            return false;
+        }
+    }
+
     private <V extends Vertex, E extends Link<V>, G extends Graph<V, E>> boolean writeOarlibInstance(Problem<V, E, G> p, String filename) {
         try {
 
@@ -778,6 +792,7 @@ public class ProblemWriter {
 
             ProblemAttributes pa = p.getProblemAttributes();
             boolean isWindy = pa.getmGraphType() == Graph.Type.WINDY;
+            boolean isMixed = pa.getmGraphType() == Graph.Type.MIXED;
 
             //the header
             pw.println();
@@ -810,6 +825,8 @@ public class ProblemWriter {
             String lineFormat = "Line Format:V1,V2,COST,HIGHWAY_TYPE,NAME,MAX_SPEED,ZONE";
             if (isWindy)
                 lineFormat += ",REVERSE COST";
+            if (isMixed)
+                lineFormat += ",DIRECTED";
             lineFormat += ",REQUIRED";
 
             pw.println(lineFormat);
@@ -829,6 +846,8 @@ public class ProblemWriter {
                         + e.getZone();
                 if (isWindy)
                     line += "," + ((WindyEdge) e).getReverseCost();
+                if (isMixed)
+                    line += "," + e.isDirected();
                 line += "," + e.isRequired();
                 pw.println(line);
             }
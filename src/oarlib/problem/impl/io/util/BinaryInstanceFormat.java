@@ -0,0 +1,421 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.problem.impl.io.util;
+
+import oarlib.core.Graph;
+import oarlib.core.Link;
+import oarlib.core.MutableGraph;
+import oarlib.core.Vertex;
+import oarlib.exceptions.NoDemandSetException;
+import oarlib.graph.impl.DirectedGraph;
+import oarlib.graph.impl.MixedGraph;
+import oarlib.graph.impl.UndirectedGraph;
+import oarlib.graph.impl.WindyGraph;
+import oarlib.graph.impl.ZigZagGraph;
+import oarlib.graph.util.Pair;
+import oarlib.link.impl.AsymmetricLink;
+import oarlib.link.impl.WindyEdge;
+import oarlib.link.impl.ZigZagLink;
+import org.apache.log4j.Logger;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * The OARLibBinary format: the same information as the OARLib text format, laid out in fixed-width columns so that
+ * reading an instance is a memory map and a handful of bulk copies, with no per-line parsing.
+ * <p/>
+ * Everything is little-endian.  A 32 byte header, (magic number, version, graph kind, n, m, depot id, flags, and a
+ * reserved int), is followed by these sections, in order, each padded out to a multiple of 8 bytes:
+ * <p/>
+ * vertex demands, int[n], (Integer.MIN_VALUE if unset); vertex x and y coordinates, double[n] each, (only if the
+ * HAS_COORDINATES flag is set); first and second endpoints, int[m] each; costs, int[m]; reverse costs, int[m], (windy
+ * and zigzag graphs only); service costs, int[m]; reverse service costs, int[m], (windy and zigzag graphs only); link
+ * flags, byte[m]; time window starts and ends, int[m] each, (only if the HAS_TIME_WINDOWS flag is set); zigzag costs,
+ * double[m], and zigzag statuses, byte[m], (zigzag graphs only).
+ * <p/>
+ * Vertex i and link i are the i-th entries of their columns, so, as with the text formats, vertices must be numbered
+ * 1 to n and links 1 to m.  Labels and highway attributes aren't kept.
+ */
+public class BinaryInstanceFormat {
+
+    private static final Logger LOGGER = Logger.getLogger(BinaryInstanceFormat.class);
+
+    //region Parameters
+
+    private static final int MAGIC = 0x4252414f; //OARB, little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    //graph kinds
+    private static final int DIRECTED = 0;
+    private static final int UNDIRECTED = 1;
+    private static final int MIXED = 2;
+    private static final int WINDY = 3;
+    private static final int ZIGZAG = 4;
+
+    //header flags
+    private static final int HAS_COORDINATES = 1;
+    private static final int HAS_TIME_WINDOWS = 2;
+
+    //link flags
+    private static final byte REQUIRED = 1;
+    private static final byte REVERSE_REQUIRED = 2;
+    private static final byte LINK_DIRECTED = 4;
+    private static final byte TIME_WINDOW = 8;
+
+    private static final int UNSET_DEMAND = Integer.MIN_VALUE;
+
+    //endregion
+
+    private BinaryInstanceFormat() {
+    }
+
+    /**
+     * @param g        - the graph to save
+     * @param fileName - where to save it
+     */
+    public static <V extends Vertex, E extends Link<V>> void write(Graph<V, E> g, String fileName) throws IOException {
+
+        int n = g.getVertices().size();
+        int m = g.getEdges().size();
+        for (E l : g.getEdges())
+            if (l.getId() < 1 || l.getId() > m) {
+                LOGGER.error("The links of the graph must be numbered 1 to m to be written in this format.");
+                throw new IllegalArgumentException();
+            }
+
+        int kind = kindOf(g);
+        boolean asymmetric = kind == WINDY || kind == ZIGZAG;
+
+        //gather the columns
+        int[] demands = new int[n];
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        int flags = 0;
+        try {
+            for (int i = 1; i <= n; i++) {
+                V v = g.getVertex(i);
+                demands[i - 1] = v.isDemandSet() ? v.getDemand() : UNSET_DEMAND;
+                if (v.hasCoordinates()) {
+                    flags |= HAS_COORDINATES;
+                    xs[i - 1] = v.getX();
+                    ys[i - 1] = v.getY();
+                }
+            }
+        } catch (NoDemandSetException e) {
+            //can't happen; we check first
+            throw new IllegalStateException(e);
+        }
+
+        int[] firsts = new int[m];
+        int[] seconds = new int[m];
+        int[] costs = new int[m];
+        int[] reverseCosts = new int[m];
+        int[] serviceCosts = new int[m];
+        int[] reverseServiceCosts = new int[m];
+        byte[] linkFlags = new byte[m];
+        int[] windowStarts = new int[m];
+        int[] windowEnds = new int[m];
+        double[] zigzagCosts = new double[m];
+        byte[] statuses = new byte[m];
+        for (int i = 1; i <= m; i++) {
+            E l = g.getEdge(i);
+            int k = i - 1;
+            firsts[k] = l.getFirstEndpointId();
+            seconds[k] = l.getSecondEndpointId();
+            costs[k] = l.getCost();
+            serviceCosts[k] = l.getServiceCost();
+            byte lf = 0;
+            if (l.isRequired())
+                lf |= REQUIRED;
+            if (l.isDirected())
+                lf |= LINK_DIRECTED;
+            if (asymmetric) {
+                AsymmetricLink al = (AsymmetricLink) l;
+                reverseCosts[k] = al.getReverseCost();
+                reverseServiceCosts[k] = al.getReverseServiceCost();
+                if (al.isReverseRequired())
+                    lf |= REVERSE_REQUIRED;
+            }
+            if (l.hasTimeWindow()) {
+                flags |= HAS_TIME_WINDOWS;
+                lf |= TIME_WINDOW;
+                windowStarts[k] = l.getTimeWindow().getFirst();
+                windowEnds[k] = l.getTimeWindow().getSecond();
+            }
+            if (kind == ZIGZAG) {
+                ZigZagLink zl = (ZigZagLink) l;
+                zigzagCosts[k] = zl.getZigzagCost();
+                statuses[k] = (byte) zl.getStatus().ordinal();
+            }
+            linkFlags[k] = lf;
+        }
+
+        //lay them out
+        boolean coords = (flags & HAS_COORDINATES) != 0;
+        boolean windows = (flags & HAS_TIME_WINDOWS) != 0;
+        long size = HEADER_BYTES + padded(4L * n) + (coords ? 2 * padded(8L * n) : 0)
+                + (asymmetric ? 6 : 4) * padded(4L * m) + padded(m) + (windows ? 2 * padded(4L * m) : 0)
+                + (kind == ZIGZAG ? padded(8L * m) + padded(m) : 0);
+        if (size > Integer.MAX_VALUE) {
+            LOGGER.error("The graph is too large for this format.");
+            throw new IllegalArgumentException();
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(kind).putInt(n).putInt(m).putInt(g.getDepotId()).putInt(flags).putInt(0);
+        putInts(buf, demands);
+        if (coords) {
+            putDoubles(buf, xs);
+            putDoubles(buf, ys);
+        }
+        putInts(buf, firsts);
+        putInts(buf, seconds);
+        putInts(buf, costs);
+        if (asymmetric)
+            putInts(buf, reverseCosts);
+        putInts(buf, serviceCosts);
+        if (asymmetric)
+            putInts(buf, reverseServiceCosts);
+        putBytes(buf, linkFlags);
+        if (windows) {
+            putInts(buf, windowStarts);
+            putInts(buf, windowEnds);
+        }
+        if (kind == ZIGZAG) {
+            putDoubles(buf, zigzagCosts);
+            putBytes(buf, statuses);
+        }
+        buf.flip();
+
+        FileOutputStream out = new FileOutputStream(fileName);
+        try {
+            FileChannel ch = out.getChannel();
+            while (buf.hasRemaining())
+                ch.write(buf);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @param fileName - a file written by write
+     * @return - the graph in it
+     */
+    public static Graph<?, ?> read(String fileName) throws IOException {
+
+        RandomAccessFile raf = new RandomAccessFile(fileName, "r");
+        ByteBuffer buf;
+        try {
+            FileChannel ch = raf.getChannel();
+            if (ch.size() < HEADER_BYTES || ch.size() > Integer.MAX_VALUE)
+                throw new IOException(fileName + " is not an OARLibBinary file.");
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } finally {
+            raf.close();
+        }
+
+        if (buf.getInt() != MAGIC)
+            throw new IOException(fileName + " is not an OARLibBinary file.");
+        if (buf.getInt() != VERSION)
+            throw new IOException(fileName + " was written by an unsupported version of the format.");
+        int kind = buf.getInt();
+        int n = buf.getInt();
+        int m = buf.getInt();
+        int depotId = buf.getInt();
+        int flags = buf.getInt();
+        buf.getInt();
+        boolean asymmetric = kind == WINDY || kind == ZIGZAG;
+        boolean coords = (flags & HAS_COORDINATES) != 0;
+        boolean windows = (flags & HAS_TIME_WINDOWS) != 0;
+
+        //the columns
+        int[] demands = getInts(buf, n);
+        double[] xs = coords ? getDoubles(buf, n) : null;
+        double[] ys = coords ? getDoubles(buf, n) : null;
+        int[] firsts = getInts(buf, m);
+        int[] seconds = getInts(buf, m);
+        int[] costs = getInts(buf, m);
+        int[] reverseCosts = asymmetric ? getInts(buf, m) : null;
+        int[] serviceCosts = getInts(buf, m);
+        int[] reverseServiceCosts = asymmetric ? getInts(buf, m) : null;
+        byte[] linkFlags = getBytes(buf, m);
+        int[] windowStarts = windows ? getInts(buf, m) : null;
+        int[] windowEnds = windows ? getInts(buf, m) : null;
+        double[] zigzagCosts = kind == ZIGZAG ? getDoubles(buf, m) : null;
+        byte[] statuses = kind == ZIGZAG ? getBytes(buf, m) : null;
+
+        //build the graph
+        MutableGraph<?, ?> ans;
+        try {
+            switch (kind) {
+                case DIRECTED: {
+                    DirectedGraph g = new DirectedGraph(n);
+                    for (int k = 0; k < m; k++)
+                        g.addEdge(firsts[k], seconds[k], costs[k], (linkFlags[k] & REQUIRED) != 0);
+                    ans = g;
+                    break;
+                }
+                case UNDIRECTED: {
+                    UndirectedGraph g = new UndirectedGraph(n);
+                    for (int k = 0; k < m; k++)
+                        g.addEdge(firsts[k], seconds[k], costs[k], (linkFlags[k] & REQUIRED) != 0);
+                    ans = g;
+                    break;
+                }
+                case MIXED: {
+                    MixedGraph g = new MixedGraph(n);
+                    for (int k = 0; k < m; k++)
+                        g.addEdge(firsts[k], seconds[k], costs[k], (linkFlags[k] & LINK_DIRECTED) != 0, (linkFlags[k] & REQUIRED) != 0);
+                    ans = g;
+                    break;
+                }
+                case WINDY: {
+                    WindyGraph g = new WindyGraph(n);
+                    for (int k = 0; k < m; k++) {
+                        g.addEdge(firsts[k], seconds[k], costs[k], reverseCosts[k], (linkFlags[k] & REQUIRED) != 0);
+                        WindyEdge e = g.getEdge(k + 1);
+                        e.setReverseRequired((linkFlags[k] & REVERSE_REQUIRED) != 0);
+                        e.setReverseServiceCost(reverseServiceCosts[k]);
+                    }
+                    ans = g;
+                    break;
+                }
+                case ZIGZAG: {
+                    //zigzag links tell whether they're required from their service costs
+                    ZigZagGraph g = new ZigZagGraph(n);
+                    ZigZagLink.ZigZagStatus[] allStatuses = ZigZagLink.ZigZagStatus.values();
+                    for (int k = 0; k < m; k++)
+                        g.addEdge(g.constructEdge(firsts[k], seconds[k], "", costs[k], reverseCosts[k], zigzagCosts[k],
+                                serviceCosts[k], reverseServiceCosts[k], allStatuses[statuses[k]]));
+                    ans = g;
+                    break;
+                }
+                default:
+                    throw new IOException(fileName + " holds an unknown kind of graph.");
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(fileName + " is not a well formed OARLibBinary file.", e);
+        }
+
+        for (int i = 1; i <= n; i++) {
+            Vertex v = ans.getVertex(i);
+            if (demands[i - 1] != UNSET_DEMAND)
+                v.setDemand(demands[i - 1]);
+            if (coords)
+                v.setCoordinates(xs[i - 1], ys[i - 1]);
+        }
+        for (int k = 0; k < m; k++) {
+            Link<?> l = ans.getEdge(k + 1);
+            if (kind != ZIGZAG)
+                l.setServiceCost(serviceCosts[k]);
+            if (windows && (linkFlags[k] & TIME_WINDOW) != 0)
+                l.setTimeWindow(new Pair<Integer>(windowStarts[k], windowEnds[k]));
+        }
+        ans.setDepotId(depotId);
+        return ans;
+    }
+
+    private static int kindOf(Graph<?, ?> g) {
+        if (g instanceof ZigZagGraph)
+            return ZIGZAG;
+        switch (g.getType()) {
+            case DIRECTED:
+                return DIRECTED;
+            case UNDIRECTED:
+                return UNDIRECTED;
+            case MIXED:
+                return MIXED;
+            case WINDY:
+                return WINDY;
+            default:
+                LOGGER.error("Graphs of type " + g.getType() + " can't be written in this format.");
+                throw new IllegalArgumentException();
+        }
+    }
+
+    //region Columns
+
+    private static long padded(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static void pad(ByteBuffer buf) {
+        while ((buf.position() & 7) != 0)
+            buf.put((byte) 0);
+    }
+
+    private static void skipPad(ByteBuffer buf) {
+        buf.position((int) padded(buf.position()));
+    }
+
+    private static void putInts(ByteBuffer buf, int[] column) {
+        buf.asIntBuffer().put(column);
+        buf.position(buf.position() + 4 * column.length);
+        pad(buf);
+    }
+
+    private static void putDoubles(ByteBuffer buf, double[] column) {
+        buf.asDoubleBuffer().put(column);
+        buf.position(buf.position() + 8 * column.length);
+        pad(buf);
+    }
+
+    private static void putBytes(ByteBuffer buf, byte[] column) {
+        buf.put(column);
+        pad(buf);
+    }
+
+    private static int[] getInts(ByteBuffer buf, int count) {
+        int[] ans = new int[count];
+        buf.asIntBuffer().get(ans);
+        buf.position(buf.position() + 4 * count);
+        skipPad(buf);
+        return ans;
+    }
+
+    private static double[] getDoubles(ByteBuffer buf, int count) {
+        double[] ans = new double[count];
+        buf.asDoubleBuffer().get(ans);
+        buf.position(buf.position() + 8 * count);
+        skipPad(buf);
+        return ans;
+    }
+
+    private static byte[] getBytes(ByteBuffer buf, int count) {
+        byte[] ans = new byte[count];
+        buf.get(ans);
+        skipPad(buf);
+        return ans;
+    }
+
+    //endregion
+}
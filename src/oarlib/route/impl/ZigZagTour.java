@@ -27,10 +27,12 @@ package oarlib.route.impl;
 import gnu.trove.TIntArrayList;
 import oarlib.graph.impl.ZigZagGraph;
 import oarlib.link.impl.ZigZagLink;
+import oarlib.route.util.PackedBooleanArrayList;
 import oarlib.vertex.impl.ZigZagVertex;
 import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by oliverlum on 9/23/15.
@@ -45,13 +47,20 @@ public class ZigZagTour extends Tour<ZigZagVertex, ZigZagLink> {
     private double serviceComponent; // DIFFERENT FROM mServCost; this actually contains the service times
     private TIntArrayList incrementalCost;
 
+    //forward time slack (Savelsbergh 1992) over the compact representation: forwardSlack[i] is the most the service of
+    //compact links i, i+1, ... can be pushed back without any of them missing its time window; rebuilt lazily
+    private int[] forwardSlack;
+    private int[] compactPathIndex; //the position in the full route of each compact link
+    private boolean slackDirty;
+
     public ZigZagTour(ZigZagGraph g, double latePenalty) {
         super();
         mGraph = g;
         mPenalty = latePenalty;
-        compactZZList = new ArrayList<Boolean>();
+        compactZZList = new PackedBooleanArrayList();
         serviceComponent = 0;
         incrementalCost = new TIntArrayList();
+        slackDirty = true;
     }
 
     public ZigZagTour(Tour<ZigZagVertex, ZigZagLink> t, ZigZagGraph g, double latePenalty) {
@@ -65,9 +74,11 @@ public class ZigZagTour extends Tour<ZigZagVertex, ZigZagLink> {
         compactTD = t.getCompactTraversalDirection();
         servicing = t.getServicingList();
         directionDetermined = t.isDirectionDetermined();
-        compactZZList = new ArrayList<Boolean>();
+        markShared(t);
+        compactZZList = new PackedBooleanArrayList();
         serviceComponent = 0;
         incrementalCost = new TIntArrayList();
+        slackDirty = true;
     }
 
     public ArrayList<Boolean> getCompactZZList() {
@@ -91,7 +102,7 @@ public class ZigZagTour extends Tour<ZigZagVertex, ZigZagLink> {
 
     public void changeZigZagStatus(int compactIndex) {
         //manage the cost differential, and switch it if possible
-        if (compactIndex > compactZZList.size() || compactIndex < 0) {
+        if (compactIndex >= compactZZList.size() || compactIndex < 0) {
             LOGGER.error("You have provided an invalid index; please note that this should be the index in the compact zig zag list.  Exiting...");
             return;
         }
@@ -105,48 +116,120 @@ public class ZigZagTour extends Tour<ZigZagVertex, ZigZagLink> {
             return;
         }
 
+        //how much longer zig-zagging takes than normal service
+        double costDiff;
+        if (forward)
+            costDiff = temp.getZigzagCost() - temp.getServiceCost();
+        else
+            costDiff = temp.getZigzagCost() - temp.getReverseServiceCost();
+
         if (toChange) {
-            if (forward) {
-                serviceComponent += temp.getServiceCost();
-                serviceComponent -= temp.getZigzagCost();
-            } else {
-                serviceComponent += temp.getReverseCost();
-                serviceComponent -= temp.getZigzagCost();
-            }
+            serviceComponent -= costDiff;
             compactZZList.set(compactIndex, false);
+            shiftArrivals(compactIndex, -(int) costDiff);
         } else {
-            //we have to check feasability for the rest
-            double costDiff;
-            if (forward)
-                costDiff = temp.getZigzagCost() - temp.getServiceCost();
-            else
-                costDiff = temp.getZigzagCost() - temp.getReverseServiceCost();
-
-            int tempCost;
-            for (int i = compactIndex + 1; i < compactZZList.size(); i++) {
-                //check the rest to make sure the time window slack is sufficient
-                tempCost = incrementalCost.get(i);
-                temp = mGraph.getEdge(compactRepresentation.get(i));
-                if (tempCost + costDiff > temp.getTimeWindow().getSecond()) {
-                    LOGGER.warn("You are attempting to change service from normal to zig-zag," +
-                            "but it would cause later service of edge " + temp.getId() + " to be " +
-                            "infeasible.  Exiting without changing.");
-                    return;
-                }
-                if (forward) {
-                    serviceComponent -= temp.getServiceCost();
-                    serviceComponent += temp.getZigzagCost();
-                    compactZZList.set(compactIndex, true);
-                } else {
-                    serviceComponent -= temp.getReverseServiceCost();
-                    serviceComponent += temp.getZigzagCost();
-                    compactZZList.set(compactIndex, true);
-                }
+            //we have to check feasibility for the rest, which the forward slack does in one lookup
+            if (!canDelay(compactIndex + 1, costDiff)) {
+                LOGGER.warn("You are attempting to change service from normal to zig-zag," +
+                        "but it would cause later service to be infeasible.  Exiting without changing.");
+                return;
             }
+            serviceComponent += costDiff;
+            compactZZList.set(compactIndex, true);
+            shiftArrivals(compactIndex, (int) costDiff);
+        }
+
+    }
+
+    //region Time slack
+
+    /**
+     * @param compactIndex - a position in the compact representation
+     * @return - the cumulative cost of the route up to and including the service of the link at that position
+     */
+    public int getArrival(int compactIndex) {
+        refreshSlack();
+        return incrementalCost.get(compactPathIndex[compactIndex]);
+    }
+
+    /**
+     * @param compactIndex - a position in the compact representation; the size of the compact representation is
+     *                     allowed, (nothing is serviced after the end)
+     * @return - how much later the links from compactIndex on could all be serviced without any of them missing its
+     * time window; negative if one of them already does
+     */
+    public int getForwardSlack(int compactIndex) {
+        refreshSlack();
+        return forwardSlack[compactIndex];
+    }
+
+    /**
+     * O(1) time window check for insertions and zig-zag switches.
+     *
+     * @param compactIndex - the first compact position that would be pushed back
+     * @param delay        - how far it, and everything after it, would be pushed back
+     * @return - true if none of them would miss its time window
+     */
+    public boolean canDelay(int compactIndex, double delay) {
+        return delay <= getForwardSlack(compactIndex);
+    }
+
+    /**
+     * @param compactIndex - the first compact position that would be pushed back
+     * @param delay        - how far it, and everything after it, would be pushed back
+     * @return - the total time by which the links from compactIndex on would miss their time windows; this is O(1)
+     * whenever the delay is feasible, and only walks the route when it isn't
+     */
+    public double getLateness(int compactIndex, double delay) {
+        if (canDelay(compactIndex, delay))
+            return 0;
+        double ans = 0;
+        int slack;
+        for (int i = compactIndex; i < compactRepresentation.size(); i++) {
+            slack = mGraph.getEdge(compactRepresentation.get(i)).getTimeWindow().getSecond() - incrementalCost.get(compactPathIndex[i]);
+            if (delay > slack)
+                ans += delay - slack;
+        }
+        return ans;
+    }
+
+    /**
+     * Pushes back the cumulative cost of everything from the compact link at compactIndex on.
+     */
+    private void shiftArrivals(int compactIndex, int delta) {
+        refreshSlack();
+        for (int i = compactPathIndex[compactIndex]; i < incrementalCost.size(); i++)
+            incrementalCost.set(i, incrementalCost.get(i) + delta);
+        slackDirty = true;
+    }
+
+    /**
+     * Rebuilds the forward slack, (one backward pass), if the route has changed since it was last built.
+     */
+    private void refreshSlack() {
+        if (!slackDirty)
+            return;
+
+        int n = compactRepresentation.size();
+        if (forwardSlack == null || forwardSlack.length < n + 1) {
+            forwardSlack = new int[n + 1];
+            compactPathIndex = new int[n];
         }
 
+        int c = 0;
+        for (int i = 0; i < servicing.size() && c < n; i++)
+            if (servicing.get(i))
+                compactPathIndex[c++] = i;
+
+        forwardSlack[n] = Integer.MAX_VALUE;
+        for (int i = n - 1; i >= 0; i--)
+            forwardSlack[i] = Math.min(forwardSlack[i + 1], mGraph.getEdge(compactRepresentation.get(i)).getTimeWindow().getSecond() - incrementalCost.get(compactPathIndex[i]));
+
+        slackDirty = false;
     }
 
+    //endregion
+
     /**
      * Add a edge to the end of this route.
      *
@@ -209,6 +292,7 @@ public class ZigZagTour extends Tour<ZigZagVertex, ZigZagLink> {
                     if (service) {
                         compactTD.add(true);
                         compactRepresentation.add(l.getId());
+                        updateRequiredHash(l.getId(), true);
                         mServCost += l.getCost();
                         if(zigzag)
                             firstCost += l.getZigzagCost();
@@ -226,6 +310,7 @@ public class ZigZagTour extends Tour<ZigZagVertex, ZigZagLink> {
                     if (service) {
                         compactTD.add(false);
                         compactRepresentation.add(l.getId());
+                        updateRequiredHash(l.getId(), true);
                         mServCost += l.getReverseCost();
                         if(zigzag)
                             firstCost += l.getZigzagCost();
@@ -296,6 +381,7 @@ public class ZigZagTour extends Tour<ZigZagVertex, ZigZagLink> {
             incrementalCost.add(-1);
         else
             incrementalCost.add(getCost());
+        slackDirty = true;
     }
 
     /**
@@ -306,6 +392,20 @@ public class ZigZagTour extends Tour<ZigZagVertex, ZigZagLink> {
         return (int) (mCost + serviceComponent);
     }
 
+    /**
+     * The zig-zag bookkeeping (time windows, incremental costs) is done in appendEdge, so the links are simply appended
+     * one at a time here; the directions are inferred as usual.
+     */
+    @Override
+    public void buildPath(List<? extends ZigZagLink> links, boolean[] forward, boolean[] service) throws IllegalArgumentException {
+        if (forward.length != links.size() || service.length != links.size()) {
+            LOGGER.error("The links, directions and service flags are of different lengths.");
+            throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < links.size(); i++)
+            appendEdge(links.get(i), service[i]);
+    }
+
     @Override
     public boolean changeService(int position) {
 
@@ -364,10 +464,12 @@ public class ZigZagTour extends Tour<ZigZagVertex, ZigZagLink> {
         }
 
         //mods
+        ensureUnshared();
         if (servicing.get(position)) {
             servicing.set(position, false);
             compactRepresentation.remove(compactPos);
             compactTD.remove(compactPos);
+            updateRequiredHash(mRoute.get(position).getId(), false);
             //update incremental cost
             for (int i = position; i < mRoute.size(); i++) {
                 incrementalCost.set(i, incrementalCost.get(i) - (int) diff);
@@ -376,11 +478,13 @@ public class ZigZagTour extends Tour<ZigZagVertex, ZigZagLink> {
             servicing.set(position, true);
             compactRepresentation.insert(compactPos, mRoute.get(position).getId());
             compactTD.add(compactPos, traversalDirection.get(position));
+            updateRequiredHash(mRoute.get(position).getId(), true);
             //update incremental cost
             for (int i = position; i < mRoute.size(); i++) {
                 incrementalCost.set(i, incrementalCost.get(i) + (int) diff);
             }
         }
+        slackDirty = true;
 
         return true;
     }
@@ -0,0 +1,246 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.route.util;
+
+import gnu.trove.TIntArrayList;
+import oarlib.core.Graph;
+import oarlib.core.Link;
+import oarlib.core.Vertex;
+import oarlib.graph.util.ShortestPathSource;
+import oarlib.link.impl.AsymmetricLink;
+import oarlib.route.impl.Tour;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A tour given by the order and directions in which it services its required links, whose deadheading is only filled
+ * in, (one shortest path at a time), as it's iterated over.  This is what RouteExpander.expand hands back: its cost
+ * can be had without building the path at all, the links can be streamed to wherever they're going (e.g. an
+ * exporter), and toTour builds the full Tour for those that need it.
+ * <p/>
+ * The route is copied when the LazyTour is made, so the caller may go on editing the lists it came from.
+ */
+public class LazyTour implements Iterable<Link<? extends Vertex>> {
+
+    private static final Logger LOGGER = Logger.getLogger(LazyTour.class);
+
+    private final Graph<?, ?> mGraph;
+    private final ShortestPathSource mPaths;
+    private final int[] mLinks; //the ids of the links serviced, in order
+    private final boolean[] mForward; //true if the ith serviced link is traversed first to second
+    private int mCost = -1; //computed the first time it's asked for
+
+    /**
+     * @param g              - the graph the route is on
+     * @param paths          - where the deadheading comes from
+     * @param flattenedRoute - the ids of the links serviced, in order
+     * @param direction      - the ith entry is true if the ith link is traversed first to second
+     */
+    public LazyTour(Graph<?, ?> g, ShortestPathSource paths, TIntArrayList flattenedRoute, ArrayList<Boolean> direction) {
+
+        //arg checking
+        if (!(flattenedRoute.size() == direction.size())) {
+            LOGGER.error("The flattened route and direction arrays are of different size.");
+            throw new IllegalArgumentException();
+        }
+
+        mGraph = g;
+        mPaths = paths;
+        mLinks = flattenedRoute.toNativeArray();
+        mForward = new boolean[mLinks.length];
+        for (int i = 0; i < mForward.length; i++)
+            mForward[i] = direction.get(i);
+    }
+
+    /**
+     * @return - the cost of the tour, (the same as toTour().getCost()), without expanding it
+     */
+    public int getCost() {
+        if (mCost >= 0)
+            return mCost;
+
+        int ans = 0;
+        int prev = mGraph.getDepotId();
+        int leg;
+        Link<? extends Vertex> temp;
+        for (int i = 0; i < mLinks.length; i++) {
+            temp = mGraph.getEdge(mLinks[i]);
+            if (skip(temp))
+                continue;
+            leg = mPaths.getPathCost(prev, mForward[i] ? temp.getFirstEndpointId() : temp.getSecondEndpointId());
+            if (leg == Integer.MAX_VALUE) {
+                LOGGER.error("The link with id " + temp.getId() + " can't be reached from the rest of the route.");
+                throw new IllegalArgumentException();
+            }
+            ans += leg + ((mForward[i] || !temp.isWindy()) ? temp.getCost() : ((AsymmetricLink) temp).getReverseCost());
+            prev = mForward[i] ? temp.getSecondEndpointId() : temp.getFirstEndpointId();
+        }
+        leg = mPaths.getPathCost(prev, mGraph.getDepotId());
+        if (leg == Integer.MAX_VALUE) {
+            LOGGER.error("The depot can't be reached from the end of the route.");
+            throw new IllegalArgumentException();
+        }
+        mCost = ans + leg;
+        return mCost;
+    }
+
+    /**
+     * @return - the number of links serviced
+     */
+    public int getNumServiced() {
+        return mLinks.length;
+    }
+
+    /**
+     * @return - the tour, fully expanded
+     */
+    public Tour toTour() {
+        ArrayList<Link<? extends Vertex>> links = new ArrayList<Link<? extends Vertex>>();
+        boolean[] forward = new boolean[16];
+        boolean[] service = new boolean[16];
+        for (Steps it = iterator(); it.hasNext(); ) {
+            links.add(it.next());
+            if (links.size() > forward.length) {
+                forward = Arrays.copyOf(forward, 2 * forward.length);
+                service = Arrays.copyOf(service, 2 * service.length);
+            }
+            forward[links.size() - 1] = it.isForward();
+            service[links.size() - 1] = it.isService();
+        }
+
+        //the directions are known, so there's nothing for appendEdge to work out
+        Tour ans = new Tour();
+        ans.buildPath(links, Arrays.copyOf(forward, links.size()), Arrays.copyOf(service, links.size()));
+        return ans;
+    }
+
+    /**
+     * @return - the links of the tour, in order, starting and ending at the depot
+     */
+    @Override
+    public Steps iterator() {
+        return new Steps();
+    }
+
+    //the links in the flattened route that we don't actually route to; this mirrors the original unflattenRoute
+    private static boolean skip(Link<? extends Vertex> l) {
+        return !l.isRequired() && (l.isWindy() && !((AsymmetricLink) l).isReverseRequired());
+    }
+
+    /**
+     * Walks the tour one link at a time, filling in the deadheading before each serviced link as it gets there.
+     */
+    public final class Steps implements Iterator<Link<? extends Vertex>> {
+
+        private final TIntArrayList mPending = new TIntArrayList(); //the links of the current leg, then the link it leads to
+        private int mPendingPos;
+        private int mServiceAt = -1; //the position in mPending of the serviced link, if the leg leads to one
+        private int mServiceIndex; //and its index in mLinks
+        private int mNext; //the index in mLinks of the next link to route to; mLinks.length for the way home
+        private int mPrev = mGraph.getDepotId();
+        private int mAt = mGraph.getDepotId(); //where the links returned so far have brought us
+        private int mLastIndex = -1;
+        private boolean mLastService;
+        private boolean mLastForward;
+
+        private Steps() {
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return mPendingPos < mPending.size();
+        }
+
+        @Override
+        public Link<? extends Vertex> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            mLastService = (mPendingPos == mServiceAt);
+            Link<? extends Vertex> ans = mGraph.getEdge(mPending.get(mPendingPos++));
+            if (mLastService) {
+                mLastIndex = mServiceIndex;
+                mLastForward = mForward[mServiceIndex];
+            } else {
+                mLastForward = ans.getFirstEndpointId() == mAt;
+            }
+            mAt = mLastForward ? ans.getSecondEndpointId() : ans.getFirstEndpointId();
+            return ans;
+        }
+
+        /**
+         * @return - true if the link last returned by next is traversed from its first endpoint to its second
+         */
+        public boolean isForward() {
+            return mLastForward;
+        }
+
+        /**
+         * @return - true if the link last returned by next is serviced there
+         */
+        public boolean isService() {
+            return mLastService;
+        }
+
+        /**
+         * @return - the index, in the flattened route, of the link last serviced
+         */
+        public int getServiceIndex() {
+            return mLastIndex;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        //expand the next leg once the current one is used up
+        private void fill() {
+            Link<? extends Vertex> temp;
+            while (mPendingPos >= mPending.size() && mNext <= mLinks.length) {
+                mPending.clear();
+                mPendingPos = 0;
+                mServiceAt = -1;
+                if (mNext == mLinks.length) {
+                    mPaths.appendPath(mPrev, mGraph.getDepotId(), mPending);
+                    mNext++;
+                    continue;
+                }
+                temp = mGraph.getEdge(mLinks[mNext]);
+                if (!skip(temp)) {
+                    mPaths.appendPath(mPrev, mForward[mNext] ? temp.getFirstEndpointId() : temp.getSecondEndpointId(), mPending);
+                    mServiceAt = mPending.size();
+                    mServiceIndex = mNext;
+                    mPending.add(temp.getId());
+                    mPrev = mForward[mNext] ? temp.getSecondEndpointId() : temp.getFirstEndpointId();
+                }
+                mNext++;
+            }
+        }
+    }
+}
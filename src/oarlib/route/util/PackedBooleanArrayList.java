@@ -0,0 +1,492 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.route.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An ArrayList<Boolean> that keeps its elements packed 64 to a long, for the per-link flags of a route (traversal
+ * directions, service, zig-zag).
+ * <p/>
+ * It is only an ArrayList by type: Route hands these flags out as ArrayList<Boolean>, and callers copy and edit them
+ * as such, (e.g. Mover.makeComplexMove).  Every ArrayList operation is overridden to work on the long[], and the
+ * Object[] inherited from ArrayList stays empty.  Copying one PackedBooleanArrayList into another is an array copy
+ * of size / 64 longs.
+ * <p/>
+ * The bulk operations added to ArrayList in Java 8 (forEach, removeIf, replaceAll, sort, spliterator / stream) are
+ * not overridden, since this library targets Java 6; iterate with a for-each loop instead.
+ */
+public class PackedBooleanArrayList extends ArrayList<Boolean> {
+
+    private static final long serialVersionUID = 1L;
+
+    private long[] mWords;
+    private int mSize;
+
+    public PackedBooleanArrayList() {
+        super(0);
+        mWords = new long[1];
+    }
+
+    public PackedBooleanArrayList(int initialCapacity) {
+        super(0);
+        mWords = new long[Math.max(1, (initialCapacity + 63) >>> 6)];
+    }
+
+    public PackedBooleanArrayList(Collection<? extends Boolean> c) {
+        super(0);
+        if (c instanceof PackedBooleanArrayList) {
+            PackedBooleanArrayList other = (PackedBooleanArrayList) c;
+            mWords = new long[Math.max(1, (other.mSize + 63) >>> 6)];
+            System.arraycopy(other.mWords, 0, mWords, 0, (other.mSize + 63) >>> 6);
+            mSize = other.mSize;
+        } else {
+            mWords = new long[Math.max(1, (c.size() + 63) >>> 6)];
+            for (Boolean b : c)
+                add(b);
+        }
+    }
+
+    //region Bit twiddling
+
+    private boolean bit(int i) {
+        return (mWords[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private void setBit(int i, boolean b) {
+        if (b)
+            mWords[i >>> 6] |= 1L << i;
+        else
+            mWords[i >>> 6] &= ~(1L << i);
+    }
+
+    private void grow(int minCapacity) {
+        int words = (minCapacity + 63) >>> 6;
+        if (words <= mWords.length)
+            return;
+        long[] bigger = new long[Math.max(words, 2 * mWords.length)];
+        System.arraycopy(mWords, 0, bigger, 0, mWords.length);
+        mWords = bigger;
+    }
+
+    /**
+     * Moves bits [from, mSize) up by one, leaving bit from free.
+     */
+    private void shiftUp(int from) {
+        int first = from >>> 6;
+        int last = mSize >>> 6; //the word the new last bit lands in
+        for (int w = last; w > first; w--)
+            mWords[w] = (mWords[w] << 1) | (mWords[w - 1] >>> 63);
+        long lowMask = (1L << from) - 1; //bits below from, within its word
+        long word = mWords[first];
+        mWords[first] = (word & lowMask) | ((word & ~lowMask) << 1);
+    }
+
+    /**
+     * Moves bits (from, mSize) down by one, overwriting bit from.
+     */
+    private void shiftDown(int from) {
+        int first = from >>> 6;
+        int last = (mSize - 1) >>> 6;
+        long lowMask = (1L << from) - 1;
+        long word = mWords[first];
+        mWords[first] = (word & lowMask) | ((word >>> 1) & ~lowMask);
+        for (int w = first + 1; w <= last; w++) {
+            mWords[w - 1] |= (mWords[w] & 1L) << 63;
+            mWords[w] >>>= 1;
+        }
+        //clear the vacated bit, so that unused bits are always zero
+        setBit(mSize - 1, false);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+    }
+
+    private void checkPositionIndex(int index) {
+        if (index < 0 || index > mSize)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+    }
+
+    //endregion
+
+    //region List
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    @Override
+    public Boolean get(int index) {
+        checkIndex(index);
+        return bit(index);
+    }
+
+    @Override
+    public Boolean set(int index, Boolean element) {
+        checkIndex(index);
+        boolean old = bit(index);
+        setBit(index, element);
+        return old;
+    }
+
+    @Override
+    public boolean add(Boolean element) {
+        grow(mSize + 1);
+        setBit(mSize++, element);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, Boolean element) {
+        checkPositionIndex(index);
+        grow(mSize + 1);
+        shiftUp(index);
+        mSize++;
+        setBit(index, element);
+        modCount++;
+    }
+
+    @Override
+    public Boolean remove(int index) {
+        checkIndex(index);
+        boolean old = bit(index);
+        shiftDown(index);
+        mSize--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0)
+            return false;
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (int w = 0; w < mWords.length; w++)
+            mWords[w] = 0;
+        mSize = 0;
+        modCount++;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        for (int i = toIndex - 1; i >= fromIndex; i--)
+            remove(i);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Boolean))
+            return -1;
+        boolean b = (Boolean) o;
+        for (int i = 0; i < mSize; i++)
+            if (bit(i) == b)
+                return i;
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        if (!(o instanceof Boolean))
+            return -1;
+        boolean b = (Boolean) o;
+        for (int i = mSize - 1; i >= 0; i--)
+            if (bit(i) == b)
+                return i;
+        return -1;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Boolean> c) {
+        return addAll(mSize, c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Boolean> c) {
+        checkPositionIndex(index);
+        for (Boolean b : new ArrayList<Boolean>(c))
+            add(index++, b);
+        return !c.isEmpty();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return filter(c, false);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return filter(c, true);
+    }
+
+    private boolean filter(Collection<?> c, boolean keepIfContained) {
+        boolean keepTrue = c.contains(Boolean.TRUE) == keepIfContained;
+        boolean keepFalse = c.contains(Boolean.FALSE) == keepIfContained;
+        int kept = 0;
+        boolean b;
+        for (int i = 0; i < mSize; i++) {
+            b = bit(i);
+            if (b ? keepTrue : keepFalse)
+                setBit(kept++, b);
+        }
+        boolean changed = kept != mSize;
+        for (int i = kept; i < mSize; i++)
+            setBit(i, false);
+        mSize = kept;
+        if (changed)
+            modCount++;
+        return changed;
+    }
+
+    @Override
+    public Object[] toArray() {
+        Boolean[] ans = new Boolean[mSize];
+        for (int i = 0; i < mSize; i++)
+            ans[i] = bit(i);
+        return ans;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if (a.length < mSize)
+            a = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), mSize);
+        for (int i = 0; i < mSize; i++)
+            a[i] = (T) Boolean.valueOf(bit(i));
+        if (a.length > mSize)
+            a[mSize] = null;
+        return a;
+    }
+
+    @Override
+    public Object clone() {
+        return new PackedBooleanArrayList(this);
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        grow(minCapacity);
+    }
+
+    @Override
+    public void trimToSize() {
+        int words = Math.max(1, (mSize + 63) >>> 6);
+        if (words < mWords.length) {
+            long[] smaller = new long[words];
+            System.arraycopy(mWords, 0, smaller, 0, words);
+            mWords = smaller;
+        }
+    }
+
+    @Override
+    public Iterator<Boolean> iterator() {
+        return new Itr(0);
+    }
+
+    @Override
+    public ListIterator<Boolean> listIterator() {
+        return new Itr(0);
+    }
+
+    @Override
+    public ListIterator<Boolean> listIterator(int index) {
+        checkPositionIndex(index);
+        return new Itr(index);
+    }
+
+    @Override
+    public List<Boolean> subList(final int fromIndex, final int toIndex) {
+        if (fromIndex < 0 || toIndex > mSize || fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + mSize);
+        return new AbstractList<Boolean>() {
+            private int mSubSize = toIndex - fromIndex;
+
+            @Override
+            public Boolean get(int index) {
+                if (index < 0 || index >= mSubSize)
+                    throw new IndexOutOfBoundsException();
+                return PackedBooleanArrayList.this.get(fromIndex + index);
+            }
+
+            @Override
+            public Boolean set(int index, Boolean element) {
+                if (index < 0 || index >= mSubSize)
+                    throw new IndexOutOfBoundsException();
+                return PackedBooleanArrayList.this.set(fromIndex + index, element);
+            }
+
+            @Override
+            public void add(int index, Boolean element) {
+                if (index < 0 || index > mSubSize)
+                    throw new IndexOutOfBoundsException();
+                PackedBooleanArrayList.this.add(fromIndex + index, element);
+                mSubSize++;
+            }
+
+            @Override
+            public Boolean remove(int index) {
+                if (index < 0 || index >= mSubSize)
+                    throw new IndexOutOfBoundsException();
+                mSubSize--;
+                return PackedBooleanArrayList.this.remove(fromIndex + index);
+            }
+
+            @Override
+            public int size() {
+                return mSubSize;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof List))
+            return false;
+        List<?> other = (List<?>) o;
+        if (other.size() != mSize)
+            return false;
+        if (o instanceof PackedBooleanArrayList) {
+            long[] otherWords = ((PackedBooleanArrayList) o).mWords;
+            for (int w = 0; w < (mSize + 63) >>> 6; w++)
+                if (mWords[w] != otherWords[w])
+                    return false;
+            return true;
+        }
+        Iterator<?> it = other.iterator();
+        for (int i = 0; i < mSize; i++)
+            if (!Boolean.valueOf(bit(i)).equals(it.next()))
+                return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int ans = 1;
+        for (int i = 0; i < mSize; i++)
+            ans = 31 * ans + Boolean.valueOf(bit(i)).hashCode();
+        return ans;
+    }
+
+    //endregion
+
+    private final class Itr implements ListIterator<Boolean> {
+
+        private int mCursor;
+        private int mLastReturned = -1;
+        private int mExpectedModCount = modCount;
+
+        private Itr(int index) {
+            mCursor = index;
+        }
+
+        public boolean hasNext() {
+            return mCursor < mSize;
+        }
+
+        public Boolean next() {
+            checkForComodification();
+            if (mCursor >= mSize)
+                throw new NoSuchElementException();
+            mLastReturned = mCursor++;
+            return bit(mLastReturned);
+        }
+
+        public boolean hasPrevious() {
+            return mCursor > 0;
+        }
+
+        public Boolean previous() {
+            checkForComodification();
+            if (mCursor <= 0)
+                throw new NoSuchElementException();
+            mLastReturned = --mCursor;
+            return bit(mLastReturned);
+        }
+
+        public int nextIndex() {
+            return mCursor;
+        }
+
+        public int previousIndex() {
+            return mCursor - 1;
+        }
+
+        public void remove() {
+            if (mLastReturned < 0)
+                throw new IllegalStateException();
+            checkForComodification();
+            PackedBooleanArrayList.this.remove(mLastReturned);
+            mCursor = mLastReturned;
+            mLastReturned = -1;
+            mExpectedModCount = modCount;
+        }
+
+        public void set(Boolean element) {
+            if (mLastReturned < 0)
+                throw new IllegalStateException();
+            checkForComodification();
+            PackedBooleanArrayList.this.set(mLastReturned, element);
+        }
+
+        public void add(Boolean element) {
+            checkForComodification();
+            PackedBooleanArrayList.this.add(mCursor++, element);
+            mLastReturned = -1;
+            mExpectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != mExpectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.route.util;
+
+import oarlib.core.Graph;
+import oarlib.core.Link;
+import oarlib.core.Vertex;
+import oarlib.link.impl.AsymmetricLink;
+import oarlib.route.impl.Tour;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds routes in bulk, in one pass over the walk, rather than appending links one at a time and having
+ * Route.appendEdge work out the direction of each from its endpoints; see Route.buildPath.
+ */
+public class RouteBuilder {
+
+    private static final Logger LOGGER = Logger.getLogger(RouteBuilder.class);
+
+    private RouteBuilder() {
+    }
+
+    /**
+     * @param g       - the graph the links come from
+     * @param linkIds - the ids of the links of the walk, in order
+     * @param forward - the ith entry is true if the ith link is traversed from first to second
+     * @param service - the ith entry is true if the ith link is serviced
+     * @return - the tour
+     */
+    public static <V extends Vertex, E extends Link<V>> Tour<V, E> fromLinks(Graph<V, E> g, int[] linkIds, boolean[] forward, boolean[] service) throws IllegalArgumentException {
+        ArrayList<E> links = new ArrayList<E>(linkIds.length);
+        for (int id : linkIds)
+            links.add(g.getEdge(id));
+        Tour<V, E> ans = new Tour<V, E>();
+        ans.buildPath(links, forward, service);
+        return ans;
+    }
+
+    /**
+     * Builds the tour for a walk given only by its links, (e.g. an Euler tour from CommonAlgorithms.tryHierholzer),
+     * orienting each link so that it leaves from where the last one ended.  Each required link is serviced, as with
+     * Route.appendEdge(link).
+     *
+     * @param g       - the graph the links come from
+     * @param linkIds - the ids of the links of the walk, in order
+     * @param start   - the id of the vertex the walk starts from
+     * @return - the tour
+     */
+    public static <V extends Vertex, E extends Link<V>> Tour<V, E> fromWalk(Graph<V, E> g, List<Integer> linkIds, int start) throws IllegalArgumentException {
+        int n = linkIds.size();
+        ArrayList<E> links = new ArrayList<E>(n);
+        boolean[] forward = new boolean[n];
+        boolean[] service = new boolean[n];
+        int curr = start;
+        E l;
+        for (int i = 0; i < n; i++) {
+            l = g.getEdge(linkIds.get(i));
+            if (l.getFirstEndpointId() == curr) {
+                forward[i] = true;
+                curr = l.getSecondEndpointId();
+            } else if (!l.isDirected() && l.getSecondEndpointId() == curr) {
+                curr = l.getFirstEndpointId();
+            } else {
+                LOGGER.error("The link with id " + l.getId() + " can't be traversed from vertex " + curr + ".");
+                throw new IllegalArgumentException();
+            }
+            links.add(l);
+            service[i] = l.isRequired();
+        }
+        Tour<V, E> ans = new Tour<V, E>();
+        ans.buildPath(links, forward, service);
+        return ans;
+    }
+
+    /**
+     * Builds the tour for a walk given by the vertices it visits, going between consecutive vertices on the cheapest
+     * link that joins them, (in that direction).  Required links are serviced, as with Route.appendEdge(link).
+     *
+     * @param g         - the graph
+     * @param vertexIds - the ids of the vertices of the walk, in order; a tour should end where it starts
+     * @return - the tour
+     */
+    @SuppressWarnings("unchecked")
+    public static <V extends Vertex, E extends Link<V>> Tour<V, E> fromVertices(Graph<V, E> g, int[] vertexIds) throws IllegalArgumentException {
+        int n = Math.max(0, vertexIds.length - 1);
+        ArrayList<E> links = new ArrayList<E>(n);
+        boolean[] forward = new boolean[n];
+        boolean[] service = new boolean[n];
+        int from, to, cost, bestCost;
+        E best;
+        for (int i = 0; i < n; i++) {
+            from = vertexIds[i];
+            to = vertexIds[i + 1];
+            List<? extends Link<? extends Vertex>> candidates = g.getVertex(from).getNeighbors().get(g.getVertex(to));
+            best = null;
+            bestCost = Integer.MAX_VALUE;
+            if (candidates != null) {
+                for (Link<? extends Vertex> l : candidates) {
+                    if (l.getFirstEndpointId() == from && l.getSecondEndpointId() == to)
+                        cost = l.getCost();
+                    else if (!l.isDirected() && l.getFirstEndpointId() == to && l.getSecondEndpointId() == from)
+                        cost = l.isWindy() ? ((AsymmetricLink) l).getReverseCost() : l.getCost();
+                    else
+                        continue;
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        best = (E) l;
+                    }
+                }
+            }
+            if (best == null) {
+                LOGGER.error("There is no link from vertex " + from + " to vertex " + to + ".");
+                throw new IllegalArgumentException();
+            }
+            links.add(best);
+            forward[i] = best.getFirstEndpointId() == from;
+            service[i] = best.isRequired();
+        }
+        Tour<V, E> ans = new Tour<V, E>();
+        ans.buildPath(links, forward, service);
+        return ans;
+    }
+}
@@ -25,10 +25,7 @@ package oarlib.route.util;
 
 import gnu.trove.TIntArrayList;
 import oarlib.core.Graph;
-import oarlib.core.Link;
-import oarlib.core.Vertex;
-import oarlib.graph.util.CommonAlgorithms;
-import oarlib.link.impl.AsymmetricLink;
+import oarlib.graph.util.ShortestPathSource;
 import oarlib.route.impl.Tour;
 import org.apache.log4j.Logger;
 
@@ -42,78 +39,37 @@ public class RouteExpander<G extends Graph> {
     private static final Logger LOGGER = Logger.getLogger(RouteExpander.class);
 
     G mGraph;
-    int[][] dist;
-    int[][] path;
-    int[][] edgePath;
+    ShortestPathSource mPaths;
 
+    /**
+     * Expands routes along the graph's all pairs shortest paths, which are shared with everyone else working on this
+     * graph; if the graph changes after this point, we keep expanding against the snapshot we were given.
+     */
     public RouteExpander(G g) {
+        this(g, g.getAllPairsShortestPaths());
+    }
 
+    /**
+     * @param g     - the graph
+     * @param paths - where the deadheading comes from; e.g. a ShortestPathOracle, to expand routes on a graph too
+     *              big for all pairs shortest paths
+     */
+    public RouteExpander(G g, ShortestPathSource paths) {
         mGraph = g;
+        mPaths = paths;
+    }
 
-        int n = g.getVertices().size();
-        dist = new int[n + 1][n + 1];
-        path = new int[n + 1][n + 1];
-        edgePath = new int[n + 1][n + 1];
-
-        //TODO: If the graph changes after this point, we're screwed.  Either detect changes, or create finalized state
-        CommonAlgorithms.fwLeastCostPaths(g, dist, path, edgePath);
-
+    /**
+     * @param flattenedRoute - the ids of the links serviced, in order
+     * @param direction      - the ith entry is true if the ith link is traversed first to second
+     * @return - the route, with the deadheading left to be filled in as it's iterated over
+     */
+    public LazyTour expand(TIntArrayList flattenedRoute, ArrayList<Boolean> direction) {
+        return new LazyTour(mGraph, mPaths, flattenedRoute, direction);
     }
 
     public Tour unflattenRoute(TIntArrayList flattenedRoute, ArrayList<Boolean> direction) {
-
-        //arg checking
-        if (!(flattenedRoute.size() == direction.size())) {
-            LOGGER.error("The flattened route and direction arrays are of different size.");
-            throw new IllegalArgumentException();
-        }
-
-        Tour ans = new Tour();
-
-        int prev = mGraph.getDepotId();
-        int to, nextPrev, curr, next, end;
-        Link<? extends Vertex> temp;
-        boolean cont;
-        for (int i = 0; i < flattenedRoute.size(); i++) {
-            temp = mGraph.getEdge(flattenedRoute.get(i));
-            if (!temp.isRequired() && (temp.isWindy() && !((AsymmetricLink) temp).isReverseRequired()))
-                continue;
-            if (direction.get(i)) {
-                to = temp.getEndpoints().getFirst().getId();
-                nextPrev = temp.getEndpoints().getSecond().getId();
-            } else {
-                to = temp.getEndpoints().getSecond().getId();
-                nextPrev = temp.getEndpoints().getFirst().getId();
-            }
-
-            //add the path from prev to to, and then the edge
-            curr = prev;
-            end = to;
-
-            if (curr != end) {
-                do {
-                    next = path[curr][end];
-                    ans.appendEdge(mGraph.getEdge(edgePath[curr][end]), false);
-                } while ((curr = next) != end);
-            }
-
-            ans.appendEdge(temp, true);
-            prev = nextPrev;
-
-        }
-
-        //add the path back to the depot
-        curr = prev;
-        end = mGraph.getDepotId();
-
-        if (curr != end) {
-            do {
-                next = path[curr][end];
-                ans.appendEdge(mGraph.getEdge(edgePath[curr][end]), false);
-            } while ((curr = next) != end);
-        }
-
-        return ans;
+        return expand(flattenedRoute, direction).toTour();
     }
 
 }
@@ -25,8 +25,7 @@ package oarlib.route.util;
 
 import gnu.trove.TIntArrayList;
 import oarlib.graph.impl.ZigZagGraph;
-import oarlib.graph.util.CommonAlgorithms;
-import oarlib.link.impl.AsymmetricLink;
+import oarlib.graph.util.ShortestPathSource;
 import oarlib.link.impl.ZigZagLink;
 import oarlib.route.impl.ZigZagTour;
 import org.apache.log4j.Logger;
@@ -41,76 +40,37 @@ public class ZigZagExpander {
     private static final Logger LOGGER = Logger.getLogger(ZigZagExpander.class);
 
     ZigZagGraph mGraph;
-    int[][] dist;
-    int[][] path;
-    int[][] edgePath;
+    ShortestPathSource mPaths;
     double mLatePenalty;
 
     public ZigZagExpander(ZigZagGraph g, double latePenalty) {
+        //shared with everyone else working on this graph; if the graph changes after this point, we keep expanding
+        //against the snapshot we were given
+        this(g, latePenalty, g.getAllPairsShortestPaths());
+    }
 
+    /**
+     * @param paths - where the deadheading comes from; e.g. a ShortestPathOracle, for graphs too big for all pairs
+     *              shortest paths
+     */
+    public ZigZagExpander(ZigZagGraph g, double latePenalty, ShortestPathSource paths) {
         mGraph = g;
         mLatePenalty = latePenalty;
-        int n = g.getVertices().size();
-        dist = new int[n + 1][n + 1];
-        path = new int[n + 1][n + 1];
-        edgePath = new int[n + 1][n + 1];
-
-        //TODO: If the graph changes after this point, we're screwed.  Either detect changes, or create finalized state
-        CommonAlgorithms.fwLeastCostPaths(g, dist, path, edgePath);
-
+        mPaths = paths;
     }
 
     public ZigZagTour unflattenRoute(TIntArrayList flattenedRoute, ArrayList<Boolean> direction, ArrayList<Boolean> zigzag) {
 
-        //arg checking
-        if (!(flattenedRoute.size() == direction.size())) {
-            LOGGER.error("The flattened route and direction arrays are of different size.");
-            throw new IllegalArgumentException();
-        }
-
         ZigZagTour ans = new ZigZagTour(mGraph, mLatePenalty);
 
-        int prev = mGraph.getDepotId();
-        int to, nextPrev, curr, next, end;
+        LazyTour.Steps it = new LazyTour(mGraph, mPaths, flattenedRoute, direction).iterator();
         ZigZagLink temp;
-        boolean cont;
-        for (int i = 0; i < flattenedRoute.size(); i++) {
-            temp = mGraph.getEdge(flattenedRoute.get(i));
-            if (!temp.isRequired() && (temp.isWindy() && !((AsymmetricLink) temp).isReverseRequired()))
-                continue;
-            if (direction.get(i)) {
-                to = temp.getEndpoints().getFirst().getId();
-                nextPrev = temp.getEndpoints().getSecond().getId();
-            } else {
-                to = temp.getEndpoints().getSecond().getId();
-                nextPrev = temp.getEndpoints().getFirst().getId();
-            }
-
-            //add the path from prev to to, and then the edge
-            curr = prev;
-            end = to;
-
-            if (curr != end) {
-                do {
-                    next = path[curr][end];
-                    ans.appendEdge(mGraph.getEdge(edgePath[curr][end]), false, false);
-                } while ((curr = next) != end);
-            }
-
-            ans.appendEdge(temp, true, zigzag.get(i));
-            prev = nextPrev;
-
-        }
-
-        //add the path back to the depot
-        curr = prev;
-        end = mGraph.getDepotId();
-
-        if (curr != end) {
-            do {
-                next = path[curr][end];
-                ans.appendEdge(mGraph.getEdge(edgePath[curr][end]), false, false);
-            } while ((curr = next) != end);
+        while (it.hasNext()) {
+            temp = (ZigZagLink) it.next();
+            if (it.isService())
+                ans.appendEdge(temp, true, zigzag.get(it.getServiceIndex()));
+            else
+                ans.appendEdge(temp, false, false);
         }
 
         return ans;
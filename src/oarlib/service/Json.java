@@ -0,0 +1,186 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.service;
+
+import org.apache.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the solve service's protocol: requests are flat objects whose values are strings, numbers,
+ * booleans or null, and responses are written out by hand.
+ */
+final class Json {
+
+    private static final Logger LOGGER = Logger.getLogger(Json.class);
+
+    private Json() {
+    }
+
+    /**
+     * @param text - a flat JSON object, (no nested objects or arrays)
+     * @return - its fields, in order; numbers and booleans are returned as they were written, null values as null
+     */
+    static Map<String, String> parseObject(String text) throws IllegalArgumentException {
+        Map<String, String> ans = new LinkedHashMap<String, String>();
+        int[] pos = {skip(text, 0)};
+        expect(text, pos, '{');
+        if (peek(text, pos) == '}') {
+            pos[0]++;
+            return finish(text, pos, ans);
+        }
+        while (true) {
+            String key = readString(text, pos);
+            expect(text, pos, ':');
+            ans.put(key, readValue(text, pos));
+            char c = peek(text, pos);
+            pos[0]++;
+            if (c == '}')
+                return finish(text, pos, ans);
+            if (c != ',')
+                return fail(text, pos[0] - 1);
+        }
+    }
+
+    /**
+     * @return - s as a JSON string literal
+     */
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                    else
+                        sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static Map<String, String> finish(String text, int[] pos, Map<String, String> ans) {
+        if (skip(text, pos[0]) != text.length())
+            fail(text, pos[0]);
+        return ans;
+    }
+
+    private static String readValue(String text, int[] pos) {
+        char c = peek(text, pos);
+        if (c == '"')
+            return readString(text, pos);
+        int start = pos[0];
+        while (pos[0] < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos[0])) < 0)
+            pos[0]++;
+        String ans = text.substring(start, pos[0]);
+        if (ans.isEmpty() || ans.charAt(0) == '{' || ans.charAt(0) == '[')
+            fail(text, start);
+        return ans.equals("null") ? null : ans;
+    }
+
+    private static String readString(String text, int[] pos) {
+        expect(text, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        while (pos[0] < text.length()) {
+            char c = text.charAt(pos[0]++);
+            if (c == '"')
+                return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos[0] >= text.length())
+                break;
+            c = text.charAt(pos[0]++);
+            switch (c) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    if (pos[0] + 4 > text.length())
+                        fail(text, pos[0]);
+                    sb.append((char) Integer.parseInt(text.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return fail(text, pos[0]);
+    }
+
+    private static void expect(String text, int[] pos, char c) {
+        if (peek(text, pos) != c)
+            fail(text, pos[0]);
+        pos[0]++;
+    }
+
+    private static char peek(String text, int[] pos) {
+        pos[0] = skip(text, pos[0]);
+        if (pos[0] >= text.length())
+            fail(text, pos[0]);
+        return text.charAt(pos[0]);
+    }
+
+    private static int skip(String text, int pos) {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+            pos++;
+        return pos;
+    }
+
+    private static <T> T fail(String text, int pos) {
+        LOGGER.error("Malformed JSON at position " + pos + ": " + text);
+        throw new IllegalArgumentException();
+    }
+}
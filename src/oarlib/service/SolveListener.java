@@ -0,0 +1,55 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.service;
+
+import oarlib.core.Route;
+
+import java.util.Collection;
+
+/**
+ * Callback for following the requests submitted to a SolveService.  Implementations are invoked on the worker
+ * threads, (several at once if there are several workers), so they must be thread-safe, and should return quickly.
+ */
+public interface SolveListener {
+
+    /**
+     * @param requestId - the request
+     * @param objValue  - the value of an improving solution the solver just found, under the problem's objective
+     */
+    public void onIncumbent(String requestId, double objValue);
+
+    /**
+     * @param requestId - the request
+     * @param routes    - the solution, over the links of the instance as it was read, (so link ids are the instance's);
+     *                  callers should treat it as read-only
+     * @param objValue  - its value under the problem's objective
+     */
+    public void onSolved(String requestId, Collection<? extends Route> routes, double objValue);
+
+    /**
+     * @param requestId - the request
+     * @param reason    - why no solution was found, (e.g. the queue was full, or the instance couldn't be read)
+     */
+    public void onFailed(String requestId, String reason);
+}
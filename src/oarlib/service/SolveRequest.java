@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.service;
+
+import oarlib.core.SolveContext;
+import oarlib.problem.impl.io.ProblemFormat;
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+
+/**
+ * One instance for the solve service to solve, as sent on a single line of JSON, e.g.
+ * <p/>
+ * {"id": "north-3", "instance": "/data/north.txt", "format": "OARLib", "vehicles": 3, "timeLimit": 60000}
+ * <p/>
+ * Only id and instance are required.  The instance is read from disk with a ProblemReader, (so any format it
+ * understands will do), and depot overrides the depot recorded in the file, which lets clients reuse one network
+ * file for many solves.
+ */
+public class SolveRequest {
+
+    private static final Logger LOGGER = Logger.getLogger(SolveRequest.class);
+
+    private final String mId;
+    private final String mInstance;
+    private final ProblemFormat.Name mFormat;
+    private final int mNumVehicles;
+    private final int mDepotId;
+    private final long mTimeLimit;
+    private final long mSeed;
+
+    /**
+     * @param id          - identifies the request in the responses
+     * @param instance    - the path of the instance file
+     * @param format      - the format of the instance file
+     * @param numVehicles - the size of the fleet
+     * @param depotId     - the depot to use, or 0 to use the one in the instance file
+     * @param timeLimit   - the time budget in milliseconds, or 0 to use the service's default
+     * @param seed        - the seed for the solve's random number generator, (which drives the partitioning and the
+     *                    local search of the multi-vehicle solvers; the single vehicle solvers are deterministic)
+     */
+    public SolveRequest(String id, String instance, ProblemFormat.Name format, int numVehicles, int depotId, long timeLimit, long seed) {
+        if (id == null || instance == null) {
+            LOGGER.error("A solve request needs both an id and an instance.");
+            throw new IllegalArgumentException();
+        }
+        if (numVehicles < 1 || depotId < 0 || timeLimit < 0) {
+            LOGGER.error("The number of vehicles must be positive, and the depot id and time limit non-negative.");
+            throw new IllegalArgumentException();
+        }
+        mId = id;
+        mInstance = instance;
+        mFormat = format;
+        mNumVehicles = numVehicles;
+        mDepotId = depotId;
+        mTimeLimit = timeLimit;
+        mSeed = seed;
+    }
+
+    public SolveRequest(String id, String instance) {
+        this(id, instance, ProblemFormat.Name.OARLib, 1, 0, 0, SolveContext.DEFAULT_SEED);
+    }
+
+    /**
+     * @param json - a request, as a flat JSON object
+     * @return - the request it describes
+     */
+    public static SolveRequest parse(String json) throws IllegalArgumentException {
+        Map<String, String> fields = Json.parseObject(json);
+        try {
+            String format = fields.get("format");
+            return new SolveRequest(fields.get("id"), fields.get("instance"),
+                    format == null ? ProblemFormat.Name.OARLib : ProblemFormat.Name.valueOf(format),
+                    getInt(fields, "vehicles", 1), getInt(fields, "depot", 0),
+                    getLong(fields, "timeLimit", 0), getLong(fields, "seed", SolveContext.DEFAULT_SEED));
+        } catch (NumberFormatException e) {
+            LOGGER.error("Malformed number in solve request: " + json);
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static int getInt(Map<String, String> fields, String key, int defaultValue) {
+        String value = fields.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static long getLong(Map<String, String> fields, String key, long defaultValue) {
+        String value = fields.get(key);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public String getId() {
+        return mId;
+    }
+
+    public String getInstance() {
+        return mInstance;
+    }
+
+    public ProblemFormat.Name getFormat() {
+        return mFormat;
+    }
+
+    public int getNumVehicles() {
+        return mNumVehicles;
+    }
+
+    public int getDepotId() {
+        return mDepotId;
+    }
+
+    public long getTimeLimit() {
+        return mTimeLimit;
+    }
+
+    public long getSeed() {
+        return mSeed;
+    }
+}
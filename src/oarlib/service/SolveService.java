@@ -0,0 +1,465 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2013-2015 Oliver Lum
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package oarlib.service;
+
+import oarlib.core.Graph;
+import oarlib.core.IncumbentListener;
+import oarlib.core.Link;
+import oarlib.core.Problem;
+import oarlib.core.Route;
+import oarlib.core.SolveContext;
+import oarlib.core.Solver;
+import oarlib.graph.impl.DirectedGraph;
+import oarlib.graph.impl.MixedGraph;
+import oarlib.graph.impl.UndirectedGraph;
+import oarlib.graph.impl.WindyGraph;
+import oarlib.graph.util.AllPairsShortestPaths;
+import oarlib.graph.util.Utils;
+import oarlib.metrics.MaxMetric;
+import oarlib.metrics.Metric;
+import oarlib.problem.impl.cpp.DirectedCPP;
+import oarlib.problem.impl.cpp.MixedCPP;
+import oarlib.problem.impl.cpp.UndirectedCPP;
+import oarlib.problem.impl.io.ProblemReader;
+import oarlib.problem.impl.multivehicle.MinMaxKDCPP;
+import oarlib.problem.impl.multivehicle.MinMaxKMCPP;
+import oarlib.problem.impl.multivehicle.MinMaxKUCPP;
+import oarlib.problem.impl.multivehicle.MinMaxKWRPP;
+import oarlib.problem.impl.rpp.WindyRPP;
+import oarlib.solver.impl.DCPPSolver_Edmonds;
+import oarlib.solver.impl.MCPPSolver_Yaoyuenyong;
+import oarlib.solver.impl.MultiDCPPSolver;
+import oarlib.solver.impl.MultiMCPPSolver;
+import oarlib.solver.impl.MultiUCPPSolver;
+import oarlib.solver.impl.MultiWRPPSolver_Benavent;
+import oarlib.solver.impl.UCPPSolver_Edmonds;
+import oarlib.solver.impl.WRPPSolver_Win;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A long-lived solve service, so that the thousands of solves a day on the same street networks pay for JVM start up,
+ * JIT warm up and shortest paths only once.  Requests, (see SolveRequest), wait in a bounded queue for one of a fixed
+ * number of workers; each gets its own SolveContext, its own deadline, and streams its improving solutions back
+ * through a SolveListener as they're found.
+ * <p/>
+ * The shortest paths of the last few networks solved are kept in memory, keyed on the network's fingerprint, (see
+ * Graph.getFingerprint), so a request on a network seen recently skips Floyd-Warshall.  Networks that haven't been
+ * seen since the service started come out of the on-disk cache, if one is set up, (see ShortestPathsCache).
+ * <p/>
+ * The solver is chosen from the graph type and fleet size: the exact Chinese postman solvers for single vehicle
+ * directed and undirected instances, Yaoyuenyong for mixed, Win for windy rural, and the partitioning solvers for
+ * min-max k-vehicle instances.
+ * <p/>
+ * main runs the service over stdin / stdout: one JSON request per line in, (or {"cancel": "id"}), and one JSON
+ * event per line out, (or to a stream of their own, see main).
+ */
+public class SolveService {
+
+    private static final Logger LOGGER = Logger.getLogger(SolveService.class);
+
+    //region Parameters
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    public static final int DEFAULT_DISTANCE_CACHE_SIZE = 8; //each entry holds three n x n matrices
+
+    //endregion
+
+    private final ThreadPoolExecutor mWorkers;
+    private final Map<String, AllPairsShortestPaths> mDistances;
+    private final Map<String, Solver> mRunning = new ConcurrentHashMap<String, Solver>();
+    private final Map<String, Integer> mPending = new HashMap<String, Integer>(); //queued or running requests, by id; guarded by itself
+    private final Set<String> mCancelled = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicInteger mDistanceCacheHits = new AtomicInteger();
+    private volatile long mDefaultTimeLimit;
+
+    public SolveService(int numWorkers) {
+        this(numWorkers, DEFAULT_QUEUE_CAPACITY, DEFAULT_DISTANCE_CACHE_SIZE);
+    }
+
+    /**
+     * @param numWorkers        - the number of solves to run at once
+     * @param queueCapacity     - the number of requests that may wait for a worker; any more are turned away
+     * @param distanceCacheSize - the number of networks to keep shortest paths for
+     */
+    public SolveService(int numWorkers, int queueCapacity, final int distanceCacheSize) {
+        if (numWorkers < 1 || queueCapacity < 1 || distanceCacheSize < 0) {
+            LOGGER.error("The service needs at least one worker and room in the queue.");
+            throw new IllegalArgumentException();
+        }
+        mWorkers = new ThreadPoolExecutor(numWorkers, numWorkers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "solve-worker-" + count.incrementAndGet());
+            }
+        });
+        mDistances = new LinkedHashMap<String, AllPairsShortestPaths>(16, .75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AllPairsShortestPaths> eldest) {
+                return size() > distanceCacheSize;
+            }
+        };
+    }
+
+    /**
+     * @param timeLimit - the time budget, in milliseconds, for requests that don't give one; 0 for none
+     */
+    public void setDefaultTimeLimit(long timeLimit) {
+        mDefaultTimeLimit = timeLimit;
+    }
+
+    /**
+     * @return - the number of requests that have reused the shortest paths of an earlier one
+     */
+    public int getDistanceCacheHits() {
+        return mDistanceCacheHits.get();
+    }
+
+    /**
+     * Queues the request; the listener hears about it on a worker thread, (or on this one if the queue is full).
+     *
+     * @param request  - the request
+     * @param listener - to be told about the solve's progress and outcome
+     * @return - true if the request was queued
+     */
+    public boolean submit(final SolveRequest request, final SolveListener listener) {
+        final String id = request.getId();
+        addPending(id);
+        try {
+            mWorkers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        solve(request, listener);
+                    } finally {
+                        removePending(id);
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            removePending(id);
+            listener.onFailed(id, mWorkers.isShutdown() ? "The service is shutting down." : "The queue is full.");
+            return false;
+        }
+    }
+
+    /**
+     * Asks a request to stop as soon as possible; if it's running it reports its best incumbent, and if it's still
+     * queued it's dropped when it comes up.  Requests that have already finished, (or were never submitted), are left
+     * alone, so a later request may reuse the id.
+     *
+     * @param requestId - the request
+     * @return - true if the request was queued or running
+     */
+    public boolean cancel(String requestId) {
+        synchronized (mPending) {
+            if (!mPending.containsKey(requestId)) {
+                LOGGER.debug("Request " + requestId + " is not queued or running; ignoring the cancel.");
+                return false;
+            }
+            mCancelled.add(requestId);
+        }
+        Solver running = mRunning.get(requestId);
+        if (running != null)
+            running.cancel();
+        return true;
+    }
+
+    private void addPending(String requestId) {
+        synchronized (mPending) {
+            Integer count = mPending.get(requestId);
+            mPending.put(requestId, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * Forgets a request that's finished, along with any cancel of it, (unless another request with the same id is
+     * still pending).
+     */
+    private void removePending(String requestId) {
+        synchronized (mPending) {
+            Integer count = mPending.get(requestId);
+            if (count == null || count <= 1) {
+                mPending.remove(requestId);
+                mCancelled.remove(requestId);
+            } else
+                mPending.put(requestId, count - 1);
+        }
+    }
+
+    /**
+     * Stops taking requests, and waits for those already submitted to finish.
+     */
+    public void shutdown() throws InterruptedException {
+        mWorkers.shutdown();
+        while (!mWorkers.awaitTermination(1, TimeUnit.MINUTES))
+            LOGGER.info("Waiting for " + mWorkers.getActiveCount() + " solves to finish.");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void solve(final SolveRequest request, final SolveListener listener) {
+        final String id = request.getId();
+        if (mCancelled.remove(id)) {
+            listener.onFailed(id, "Cancelled.");
+            return;
+        }
+
+        SolveContext context = new SolveContext(id, request.getSeed());
+        try {
+            Graph<?, ?> g = new ProblemReader(request.getFormat()).readGraph(request.getInstance());
+            if (request.getDepotId() > 0)
+                g.setDepotId(request.getDepotId());
+            shareDistances(g);
+
+            Problem problem = buildProblem(g, request.getNumVehicles());
+            Solver solver = buildSolver(problem, request.getNumVehicles());
+            long timeLimit = request.getTimeLimit() > 0 ? request.getTimeLimit() : mDefaultTimeLimit;
+            if (timeLimit > 0)
+                solver.setTimeLimit(timeLimit);
+            solver.setIncumbentListener(new IncumbentListener() {
+                @Override
+                public void onIncumbent(Collection incumbent, double objValue) {
+                    listener.onIncumbent(id, objValue);
+                }
+            });
+
+            mRunning.put(id, solver);
+            if (mCancelled.remove(id))
+                solver.cancel();
+            Collection<? extends Route> ans;
+            try {
+                ans = solver.trySolve(context);
+            } finally {
+                mRunning.remove(id);
+            }
+
+            if (ans == null || ans.isEmpty()) {
+                listener.onFailed(id, "The solver did not find a solution.");
+                return;
+            }
+            Metric obj = problem.getObjectiveFunction();
+            if (obj == null)
+                obj = new MaxMetric();
+            double objValue = obj.evaluate(ans);
+
+            //solvers route over copies of the instance, (with link ids of their own, and duplicates for deadheading),
+            //so hand back routes over the instance's links
+            ArrayList<Route> routes = new ArrayList<Route>();
+            for (Route r : ans) {
+                Route reclaimed = Utils.reclaimTour(r, g);
+                if (reclaimed == null) {
+                    listener.onFailed(id, "The solution could not be matched up with the links of the instance.");
+                    return;
+                }
+                routes.add(reclaimed);
+            }
+            listener.onSolved(id, routes, objValue);
+        } catch (Exception e) {
+            LOGGER.error("Request " + id + " failed.", e);
+            listener.onFailed(id, e.toString());
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Hands the graph the shortest paths of an identical network solved earlier, or computes them and keeps them for
+     * the next one.  Two requests on the same new network at once may both compute them; the cost of that is no
+     * worse than without the cache, and it keeps workers from waiting on each other.
+     */
+    private void shareDistances(Graph<?, ?> g) {
+        String key = g.getFingerprint();
+        AllPairsShortestPaths sp;
+        synchronized (mDistances) {
+            sp = mDistances.get(key);
+        }
+        if (sp != null) {
+            g.setAllPairsShortestPaths(sp);
+            mDistanceCacheHits.incrementAndGet();
+            return;
+        }
+        sp = g.getAllPairsShortestPaths();
+        synchronized (mDistances) {
+            mDistances.put(key, sp);
+        }
+    }
+
+    private static Problem buildProblem(Graph<?, ?> g, int numVehicles) {
+        switch (g.getType()) {
+            case DIRECTED:
+                return numVehicles == 1 ? new DirectedCPP((DirectedGraph) g) : new MinMaxKDCPP((DirectedGraph) g, numVehicles);
+            case UNDIRECTED:
+                return numVehicles == 1 ? new UndirectedCPP((UndirectedGraph) g) : new MinMaxKUCPP((UndirectedGraph) g, numVehicles);
+            case MIXED:
+                return numVehicles == 1 ? new MixedCPP((MixedGraph) g) : new MinMaxKMCPP((MixedGraph) g, numVehicles);
+            case WINDY:
+                return numVehicles == 1 ? new WindyRPP((WindyGraph) g) : new MinMaxKWRPP((WindyGraph) g, numVehicles);
+            default:
+                LOGGER.error("There is no solver for graphs of type " + g.getType() + ".");
+                throw new IllegalArgumentException();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Solver buildSolver(Problem problem, int numVehicles) {
+        boolean single = numVehicles == 1;
+        switch (problem.getGraph().getType()) {
+            case DIRECTED:
+                return single ? new DCPPSolver_Edmonds(problem) : new MultiDCPPSolver(problem);
+            case UNDIRECTED:
+                return single ? new UCPPSolver_Edmonds(problem) : new MultiUCPPSolver(problem);
+            case MIXED:
+                return single ? new MCPPSolver_Yaoyuenyong(problem) : new MultiMCPPSolver(problem);
+            case WINDY:
+                return single ? new WRPPSolver_Win(problem) : new MultiWRPPSolver_Benavent(problem);
+            default:
+                LOGGER.error("There is no solver for graphs of type " + problem.getGraph().getType() + ".");
+                throw new IllegalArgumentException();
+        }
+    }
+
+    //region stdin / stdout
+
+    /**
+     * Writes each event as a line of JSON to a stream.
+     */
+    public static class JsonLinesListener implements SolveListener {
+
+        private final PrintStream mOut;
+
+        public JsonLinesListener(PrintStream out) {
+            mOut = out;
+        }
+
+        @Override
+        public void onIncumbent(String requestId, double objValue) {
+            write("{\"id\":" + Json.quote(requestId) + ",\"event\":\"incumbent\",\"objective\":" + objValue + "}");
+        }
+
+        @Override
+        public void onSolved(String requestId, Collection<? extends Route> routes, double objValue) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"id\":").append(Json.quote(requestId)).append(",\"event\":\"solved\",\"objective\":").append(objValue).append(",\"routes\":[");
+            boolean firstRoute = true;
+            for (Route r : routes) {
+                if (!firstRoute)
+                    sb.append(',');
+                firstRoute = false;
+                sb.append("{\"cost\":").append(r.getCost()).append(",\"links\":[");
+                boolean firstLink = true;
+                for (Object o : r.getPath()) {
+                    if (!firstLink)
+                        sb.append(',');
+                    firstLink = false;
+                    sb.append(((Link<?>) o).getId());
+                }
+                sb.append("]}");
+            }
+            write(sb.append("]}").toString());
+        }
+
+        @Override
+        public void onFailed(String requestId, String reason) {
+            write("{\"id\":" + Json.quote(requestId) + ",\"event\":\"failed\",\"reason\":" + Json.quote(reason) + "}");
+        }
+
+        private synchronized void write(String line) {
+            mOut.println(line);
+            mOut.flush();
+        }
+    }
+
+    /**
+     * @param args - optionally, the number of workers, (default: one per core), and the queue capacity; and
+     *             "--events path" to write the events to a file, fifo or descriptor, (e.g. /dev/fd/3), instead of
+     *             stdout.  The latter is the safe choice with native libraries that print to stdout themselves,
+     *             (e.g. a Blossom V library built without options.verbose turned off), since that bypasses System.out
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ArrayList<String> sizes = new ArrayList<String>();
+        String eventsPath = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--events") && i + 1 < args.length)
+                eventsPath = args[++i];
+            else
+                sizes.add(args[i]);
+        }
+        int numWorkers = sizes.size() > 0 ? Integer.parseInt(sizes.get(0)) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = sizes.size() > 1 ? Integer.parseInt(sizes.get(1)) : DEFAULT_QUEUE_CAPACITY;
+        SolveService service = new SolveService(numWorkers, queueCapacity, DEFAULT_DISTANCE_CACHE_SIZE);
+
+        PrintStream events;
+        if (eventsPath == null) {
+            //solvers print progress to System.out, so keep the real stdout for the protocol
+            events = System.out;
+            System.setOut(System.err);
+        } else
+            events = new PrintStream(new FileOutputStream(eventsPath, true), true, "UTF-8");
+        SolveListener out = new JsonLinesListener(events);
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.trim().isEmpty())
+                continue;
+            try {
+                Map<String, String> fields = Json.parseObject(line);
+                if (fields.containsKey("cancel"))
+                    service.cancel(fields.get("cancel"));
+                else
+                    service.submit(SolveRequest.parse(line), out);
+            } catch (IllegalArgumentException e) {
+                out.onFailed("", "Malformed request: " + line);
+            }
+        }
+        service.shutdown();
+        if (eventsPath != null)
+            events.close();
+    }
+
+    //endregion
+}
@@ -33,6 +33,7 @@ import oarlib.graph.util.CommonAlgorithms;
 import oarlib.link.impl.Arc;
 import oarlib.problem.impl.ProblemAttributes;
 import oarlib.route.impl.Tour;
+import oarlib.route.util.RouteBuilder;
 import oarlib.vertex.impl.DirectedVertex;
 
 import java.util.ArrayList;
@@ -92,24 +93,18 @@ public class DCPPSolver_Edmonds extends SingleVehicleSolver<DirectedVertex, Arc,
          *
          * copy - so we don't screw with the original graph passed in
          *
-         * indexedArcs - the edge map for copy
-         *
          * ans - the list of edges returned by the routing procedure, in the order they are traversed on the tour
          *
          * eulerTour - the route container which will make the string rep. look more like something we want to see
          * (e.g. a vertex route).
          */
         DirectedGraph copy = mInstance.getGraph().getDeepCopy();
-        TIntObjectHashMap<Arc> indexedArcs = copy.getInternalEdgeMap();
 
         eulerAugment(copy);
 
         // return the answer
         ArrayList<Integer> ans = CommonAlgorithms.tryHierholzer(copy);
-        Tour<DirectedVertex, Arc> eulerTour = new Tour<DirectedVertex, Arc>();
-        for (int i = 0; i < ans.size(); i++) {
-            eulerTour.appendEdge(indexedArcs.get(ans.get(i)));
-        }
+        Tour<DirectedVertex, Arc> eulerTour = RouteBuilder.fromWalk(copy, ans, copy.getDepotId());
         mInstance.setSol(eulerTour);
 
         HashSet<Tour<DirectedVertex, Arc>> ret = new HashSet<Tour<DirectedVertex, Arc>>();
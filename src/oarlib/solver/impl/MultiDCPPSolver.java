@@ -23,8 +23,6 @@
  */
 package oarlib.solver.impl;
 
-import gnu.trove.TIntIntHashMap;
-import gnu.trove.TIntObjectHashMap;
 import oarlib.core.MultiVehicleSolver;
 import oarlib.core.Problem;
 import oarlib.core.Route;
@@ -34,6 +32,7 @@ import oarlib.graph.impl.DirectedGraph;
 import oarlib.graph.transform.impl.EdgeInducedSubgraphTransform;
 import oarlib.graph.transform.partition.impl.PreciseDirectedKWayPartitionTransform;
 import oarlib.graph.util.CommonAlgorithms;
+import oarlib.graph.util.SubgraphView;
 import oarlib.link.impl.Arc;
 import oarlib.problem.impl.ProblemAttributes;
 import oarlib.problem.impl.auxiliary.PartitioningProblem;
@@ -140,7 +139,7 @@ public class MultiDCPPSolver extends MultiVehicleSolver<DirectedVertex, Arc, Dir
             //transform the graph
             DirectedGraph vWeightedTest = transformer.transformGraph();
 
-            String filename = "/Users/oliverlum/Desktop/RandomGraph.graph";
+            String filename = mContext.newWorkFile("RandomGraph.graph").getPath();
 
             //write it to a file
             ProblemWriter gw = new ProblemWriter(ProblemFormat.Name.METIS);
@@ -173,7 +172,10 @@ public class MultiDCPPSolver extends MultiVehicleSolver<DirectedVertex, Arc, Dir
         EdgeInducedSubgraphTransform<DirectedGraph> subgraphTransform = new EdgeInducedSubgraphTransform<DirectedGraph>(mGraph, dgf, null, true);
 
         subgraphTransform.setEdges(ids);
-        DirectedGraph subgraph = subgraphTransform.transformGraph();
+
+        //the view connects the partition up itself, so the solver's copy is built just once
+        SubgraphView<DirectedGraph> view = subgraphTransform.transformView();
+        DirectedGraph subgraph = view.materialize(dgf);
 
         //now solve the DCPP on it
         DirectedCPP subInstance = new DirectedCPP(subgraph);
@@ -181,13 +183,7 @@ public class MultiDCPPSolver extends MultiVehicleSolver<DirectedVertex, Arc, Dir
         Route ret = solver.solve().iterator().next();
 
         //set the id map for the route
-        int n = subgraph.getVertices().size();
-        TIntObjectHashMap<DirectedVertex> indexedVertices = subgraph.getInternalVertexMap();
-        TIntIntHashMap customIDMap = new TIntIntHashMap();
-        for (int i = 1; i <= n; i++) {
-            customIDMap.put(i, indexedVertices.get(i).getMatchId());
-        }
-        ret.setMapping(customIDMap);
+        ret.setMapping(view.getVertexIdMap());
         return ret;
 
     }
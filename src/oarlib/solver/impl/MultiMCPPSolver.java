@@ -139,7 +139,7 @@ public class MultiMCPPSolver extends MultiVehicleSolver<MixedVertex, MixedEdge,
             //transform the graph
             MixedGraph vWeightedTest = transformer.transformGraph();
 
-            String filename = "/Users/oliverlum/Desktop/RandomGraph.graph";
+            String filename = mContext.newWorkFile("RandomGraph.graph").getPath();
 
             //write it to a file
             ProblemWriter gw = new ProblemWriter(ProblemFormat.Name.METIS);
@@ -170,7 +170,9 @@ public class MultiMCPPSolver extends MultiVehicleSolver<MixedVertex, MixedEdge,
         EdgeInducedSubgraphTransform<MixedGraph> subgraphTransform = new EdgeInducedSubgraphTransform<MixedGraph>(mGraph, mgf, null, true);
 
         subgraphTransform.setEdges(ids);
-        MixedGraph subgraph = subgraphTransform.transformGraph();
+
+        //the view connects the partition up itself, so the solver's copy is built just once
+        MixedGraph subgraph = subgraphTransform.transformView().materialize(mgf);
 
         //now solve the MCPP on it
         MixedCPP subInstance = new MixedCPP(subgraph);
@@ -23,14 +23,13 @@
  */
 package oarlib.solver.impl;
 
-import gnu.trove.TIntIntHashMap;
-import gnu.trove.TIntObjectHashMap;
 import oarlib.core.*;
 import oarlib.graph.factory.impl.UndirectedGraphFactory;
 import oarlib.graph.impl.UndirectedGraph;
 import oarlib.graph.transform.impl.EdgeInducedSubgraphTransform;
 import oarlib.graph.transform.partition.impl.PreciseUndirectedKWayPartitionTransform;
 import oarlib.graph.util.CommonAlgorithms;
+import oarlib.graph.util.SubgraphView;
 import oarlib.link.impl.Edge;
 import oarlib.problem.impl.ProblemAttributes;
 import oarlib.problem.impl.auxiliary.PartitioningProblem;
@@ -145,7 +144,7 @@ public class MultiUCPPSolver extends MultiVehicleSolver<UndirectedVertex, Edge,
             //transform the graph
             UndirectedGraph vWeightedTest = transformer.transformGraph();
 
-            String filename = "/Users/oliverlum/Desktop/RandomGraph.graph";
+            String filename = mContext.newWorkFile("RandomGraph.graph").getPath();
 
             //write it to a file
             ProblemWriter gw = new ProblemWriter(ProblemFormat.Name.METIS);
@@ -178,7 +177,10 @@ public class MultiUCPPSolver extends MultiVehicleSolver<UndirectedVertex, Edge,
         EdgeInducedSubgraphTransform<UndirectedGraph> subgraphTransform = new EdgeInducedSubgraphTransform<UndirectedGraph>(mGraph, ugf, null, true);
 
         subgraphTransform.setEdges(ids);
-        UndirectedGraph subgraph = subgraphTransform.transformGraph();
+
+        //the view connects the partition up itself, so the solver's copy is built just once
+        SubgraphView<UndirectedGraph> view = subgraphTransform.transformView();
+        UndirectedGraph subgraph = view.materialize(ugf);
 
         //now solve the UCPP on it
         UndirectedCPP subInstance = new UndirectedCPP(subgraph);
@@ -187,13 +189,7 @@ public class MultiUCPPSolver extends MultiVehicleSolver<UndirectedVertex, Edge,
         Route ret = solver.solve().iterator().next();
 
         //set the id map for the route
-        int n = subgraph.getVertices().size();
-        TIntObjectHashMap<UndirectedVertex> indexedVertices = subgraph.getInternalVertexMap();
-        TIntIntHashMap customIDMap = new TIntIntHashMap();
-        for (int i = 1; i <= n; i++) {
-            customIDMap.put(i, indexedVertices.get(i).getMatchId());
-        }
-        ret.setMapping(customIDMap);
+        ret.setMapping(view.getVertexIdMap());
 
         return ret;
     }
@@ -225,13 +225,17 @@ public class MultiWRPPSolver extends MultiVehicleSolver<WindyVertex, WindyEdge,
             int n = mGraph.getVertices().size();
             int[][] dist = mGraph.getAllPairsDistMatrix();
 
-            String outputFile = "/Users/oliverlum/Desktop/100runs_" + mInstanceName + ".txt";
-            PrintWriter pw = new PrintWriter(outputFile, "UTF-8");
+            PrintWriter pw = mContext.openReport("100runs_" + mInstanceName + ".txt");
 
-            for (int j = 1; j <= numRuns; j++) {
+            for (int j = 1; j <= numRuns && !isTimeUp(); j++) {
                 currWeightBest = Double.MAX_VALUE;
                 for (int k = 1; k <= numSolPerWeight; k++) {
 
+                    if (isTimeUp()) {
+                        LOGGER.info("Out of time; returning the best solution found so far.");
+                        break;
+                    }
+
                     //new beta stuff
                     ClosestRequiredEdgeRebalancer<WindyGraph> beta = new ClosestRequiredEdgeRebalancer<WindyGraph>(mGraph, new WindyGraphFactory(), betaWeight, new IndividualDistanceToDepotRebalancer(mGraph, lowerBound + j * interval));
                     beta.setDistMatrix(dist);
@@ -267,6 +271,12 @@ public class MultiWRPPSolver extends MultiVehicleSolver<WindyVertex, WindyEdge,
                     System.out.println("Initial routing took: " + (end - start) / 1000 + " seconds.");
                     double aestheticFactor = mInstance.getObjectiveFunction().evaluate(ans) / roi.evaluate(ans);
 
+                    //keep an unimproved fallback around in case we run out of time before any improvement finishes
+                    if (record.isEmpty() && !ans.isEmpty()) {
+                        record = new ArrayList<Route<WindyVertex, WindyEdge>>(ans);
+                        offerIncumbent(record);
+                    }
+
                     //if they're all copies, don't run the improvement
                     if (!hasNewRoute)
                         continue;
@@ -276,7 +286,7 @@ public class MultiWRPPSolver extends MultiVehicleSolver<WindyVertex, WindyEdge,
                     start = System.currentTimeMillis();
                     //improvement
                     mInstance.setSol(ans);
-                    BenaventIPFramework improver = new BenaventIPFramework(mInstance, null, ans);
+                    BenaventIPFramework improver = inheritAnytime(new BenaventIPFramework(mInstance, null, ans));
                     Collection<Route<WindyVertex, WindyEdge>> improved = improver.improveSolution();
                     end = System.currentTimeMillis();
                     System.out.println("Improvement took: " + (end - start) / 1000 + " seconds.");
@@ -291,6 +301,7 @@ public class MultiWRPPSolver extends MultiVehicleSolver<WindyVertex, WindyEdge,
                         bestObj = maxCost;
                         record = improved;
                         bestWeight = lowerBound + j * interval;
+                        offerIncumbent(record);
                     }
                 }
                 pw.println((lowerBound + j * interval) + "," + currWeightBest + ";");
@@ -298,8 +309,11 @@ public class MultiWRPPSolver extends MultiVehicleSolver<WindyVertex, WindyEdge,
 
             //use the exact solver 1 more time to smooth out the kinks
             //Collection<Route<WindyVertex, WindyEdge>> trueAns = cleanup(record);
-            BenaventIPFrameworkWithRotation improver2 = new BenaventIPFrameworkWithRotation(mInstance, record);
-            Collection<Route<WindyVertex, WindyEdge>> trueAns = improver2.improveSolution();
+            Collection<Route<WindyVertex, WindyEdge>> trueAns = record;
+            if (!isTimeUp()) {
+                BenaventIPFrameworkWithRotation improver2 = inheritAnytime(new BenaventIPFrameworkWithRotation(mInstance, record));
+                trueAns = improver2.improveSolution();
+            }
 
             if (mDisplay != null) {
                 display(trueAns);
@@ -763,7 +777,7 @@ public class MultiWRPPSolver extends MultiVehicleSolver<WindyVertex, WindyEdge,
             //transform the graph
             WindyGraph vWeightedTest = transformer.transformGraph();
 
-            String filename = "C:\\Users\\Oliver\\Desktop\\RandomGraph.graph";
+            String filename = mContext.newWorkFile("RandomGraph.graph").getPath();
 
             //write it to a file
             ProblemWriter gw = new ProblemWriter(ProblemFormat.Name.METIS);
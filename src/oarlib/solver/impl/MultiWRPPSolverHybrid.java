@@ -100,9 +100,13 @@ public class MultiWRPPSolverHybrid extends MultiVehicleSolver<WindyVertex, Windy
     protected Collection<? extends Route> solve() {
 
         //solve using MultiWRPPSolver
-        MultiWRPPSolver solver1 = new MultiWRPPSolver(mInstance, mInstanceName, mDisplay);
+        MultiWRPPSolver solver1 = inheritAnytime(new MultiWRPPSolver(mInstance, mInstanceName, mDisplay));
         Collection<Route<WindyVertex, WindyEdge>> sol1 = solver1.solve();
 
+        //no time left to ruin and recreate, so hand back the first phase's answer
+        if (sol1 == null || isTimeUp())
+            return sol1;
+
         //ruin
         TIntHashSet toReroute = ruin(sol1);
 
@@ -116,6 +120,8 @@ public class MultiWRPPSolverHybrid extends MultiVehicleSolver<WindyVertex, Windy
 
         //recreate using Benavent's MultiWRPPSolver
         MultiWRPPSolver_Benavent solver2 = new MultiWRPPSolver_Benavent(newInstance, newInstance.getName());
+        //the sub-instance only covers the ruined edges, so share the deadline but not the incumbent stream
+        solver2.setDeadline(getDeadline());
         Collection<Route<WindyVertex, WindyEdge>> sol2 = solver2.solve();
 
         for (Route R : sol2)
@@ -290,7 +290,7 @@ public class MultiWRPPSolver_Benavent extends MultiVehicleSolver<WindyVertex, Wi
 
             mInstance.setSol(initialSol);
 
-            BenaventIPFramework improver = new BenaventIPFramework(mInstance);
+            BenaventIPFramework improver = inheritAnytime(new BenaventIPFramework(mInstance));
 
             Collection<Route<WindyVertex, WindyEdge>> improvedFinalAns = improver.improveSolution();
 
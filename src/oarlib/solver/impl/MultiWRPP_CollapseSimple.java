@@ -490,7 +490,7 @@ public class MultiWRPP_CollapseSimple extends MultiVehicleSolver<WindyVertex, Wi
             //OPTIONAL: alter edge weights to guide?
 
             //run METIS on the graph
-            String filename = "C:\\Users\\Oliver\\Desktop\\RandomGraph.graph";
+            String filename = mContext.newWorkFile("RandomGraph.graph").getPath();
 
             //write it to a file
             ProblemWriter gw = new ProblemWriter(ProblemFormat.Name.METIS);
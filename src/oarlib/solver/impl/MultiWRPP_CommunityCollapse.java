@@ -264,7 +264,7 @@ public class MultiWRPP_CommunityCollapse extends MultiVehicleSolver<WindyVertex,
 
             //run METIS on the graph
 
-            String filename = "C:\\Users\\Oliver\\Desktop\\RandomGraph.graph";
+            String filename = mContext.newWorkFile("RandomGraph.graph").getPath();
 
             //write it to a file
             ProblemWriter gw = new ProblemWriter(ProblemFormat.Name.METIS);
@@ -23,7 +23,6 @@
  */
 package oarlib.solver.impl;
 
-import gnu.trove.TIntObjectHashMap;
 import oarlib.core.Graph;
 import oarlib.core.Problem;
 import oarlib.core.SingleVehicleSolver;
@@ -34,6 +33,7 @@ import oarlib.graph.util.Pair;
 import oarlib.link.impl.Edge;
 import oarlib.problem.impl.ProblemAttributes;
 import oarlib.route.impl.Tour;
+import oarlib.route.util.RouteBuilder;
 import oarlib.vertex.impl.UndirectedVertex;
 
 import java.util.*;
@@ -124,8 +124,6 @@ public class UCPPSolver_Edmonds extends SingleVehicleSolver<UndirectedVertex, Ed
              *
              * copy - so we don't screw with the original graph passed in
              *
-             * indexedEdges - the edge map for copy
-             *
              * ans - the list of edges returned by the routing procedure, in the order they are traversed in the tour.
              *
              * eulerTour - the route container which will make the string rep. look more like something we want to see
@@ -135,13 +133,9 @@ public class UCPPSolver_Edmonds extends SingleVehicleSolver<UndirectedVertex, Ed
             UndirectedGraph copy = mInstance.getGraph().getDeepCopy();
             eulerAugment(copy);
 
-            TIntObjectHashMap<Edge> indexedEdges = copy.getInternalEdgeMap();
             //return the answer
             ArrayList<Integer> ans = CommonAlgorithms.tryHierholzer(copy);
-            Tour<UndirectedVertex, Edge> eulerTour = new Tour<UndirectedVertex, Edge>();
-            for (int i = 0; i < ans.size(); i++) {
-                eulerTour.appendEdge(indexedEdges.get(ans.get(i)));
-            }
+            Tour<UndirectedVertex, Edge> eulerTour = RouteBuilder.fromWalk(copy, ans, copy.getDepotId());
             mInstance.setSol(eulerTour);
 
             HashSet<Tour<UndirectedVertex, Edge>> ret = new HashSet<Tour<UndirectedVertex, Edge>>();
@@ -40,6 +40,7 @@ import oarlib.link.impl.Edge;
 import oarlib.link.impl.WindyEdge;
 import oarlib.problem.impl.ProblemAttributes;
 import oarlib.route.impl.Tour;
+import oarlib.route.util.RouteBuilder;
 import oarlib.vertex.impl.DirectedVertex;
 import oarlib.vertex.impl.UndirectedVertex;
 import oarlib.vertex.impl.WindyVertex;
@@ -1057,11 +1058,7 @@ public class WRPPSolver_Win extends SingleVehicleSolver<WindyVertex, WindyEdge,
             //return the answer
             ArrayList<Integer> tour;
             tour = CommonAlgorithms.tryHierholzer(ans);
-            Tour<DirectedVertex, Arc> eulerTour = new Tour<DirectedVertex, Arc>();
-            TIntObjectHashMap<Arc> indexedEdges = ans.getInternalEdgeMap();
-            for (int i = 0; i < tour.size(); i++) {
-                eulerTour.appendEdge(indexedEdges.get(tour.get(i)));
-            }
+            Tour<DirectedVertex, Arc> eulerTour = RouteBuilder.fromWalk(ans, tour, ans.getDepotId());
             mInstance.setSol(Utils.reclaimTour(eulerTour, mInstance.getGraph()));
             HashSet<Tour> ret = new HashSet<Tour>();
             ret.add(eulerTour);
@@ -52,13 +52,28 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
 
     private static final Logger LOGGER = Logger.getLogger(WRPPZZTW_PFIH.class);
 
+    //region Parameters
+
+    /**
+     * The python that runs the IP scripts, and the directory they live in; both may be overridden with system
+     * properties.  The instance and route files written for the scripts go in the solve's working directory, which
+     * they're run in and handed as OARLIB_WORK_DIR.
+     */
+    public static final String PYTHON_PROPERTY = "oarlib.zz.python";
+    public static final String SCRIPT_DIRECTORY_PROPERTY = "oarlib.zz.scripts";
+    public static final String WORK_DIRECTORY_ENV = "OARLIB_WORK_DIR";
+    private static final String DEFAULT_PYTHON = "/opt/local/bin/python";
+    private static final String DEFAULT_SCRIPT_DIRECTORY = "/Users/oliverlum/Downloads";
+    private static final String DETAIL_ROUTE_FILE = "BnC_PartialOrder_DetailRoute.txt";
+
+    //endregion
+
     //4 weights on the cost for tuning later
     private double mAlpha;
     private double mBeta;
     private double mGamma;
     private double mLambda;
     private double latePenalty; //if you are late 1 unit of time, this costs you latePenalty extra cost units
-    private Random rng;
     private int bestPartialSize = 0;
     private int bestPartialLength = 0;
     private int bestPartialNumZigzags = 0;
@@ -96,16 +111,34 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
         setmGamma(gamma);
         setmLambda(lambda);
         setLatePenalty(penalty);
-        rng = new Random(1000);
     }
 
-    public static double runIPNoRoute(ZigZagGraph g, int i, int j, int k, int iter, double latePenalty) {
+    /**
+     * @return - the directory holding the IP scripts, (and the files they read)
+     */
+    public static File getScriptDirectory() {
+        return new File(System.getProperty(SCRIPT_DIRECTORY_PROPERTY, DEFAULT_SCRIPT_DIRECTORY));
+    }
+
+    /**
+     * Sets up a run of one of the IP scripts in the context's working directory, (which is also handed to the script
+     * in the environment as OARLIB_WORK_DIR), so that the files it writes don't collide with those of other solves.
+     */
+    private static ProcessBuilder ipProcess(SolveContext context, String script, int i, int j, int k, int iter) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(System.getProperty(PYTHON_PROPERTY, DEFAULT_PYTHON), new File(getScriptDirectory(), script).getPath(), Integer.toString(i), Integer.toString(j), Integer.toString(k), Integer.toString(iter));
+        File workDir = context.getWorkingDirectory();
+        pb.directory(workDir);
+        pb.environment().put(WORK_DIRECTORY_ENV, workDir.getAbsolutePath());
+        return pb;
+    }
+
+    public static double runIPNoRoute(ZigZagGraph g, int i, int j, int k, int iter, double latePenalty, SolveContext context) {
         //run the python script which calls CPLEX
         String objValue = "";
         try {
 
-            ProcessBuilder pb = new ProcessBuilder("/opt/local/bin/python", "/Users/oliverlum/Downloads/ZigzagCPP_PartialOrderNEW.py", Integer.toString(i), Integer.toString(j), Integer.toString(k), Integer.toString(iter));
-            //ProcessBuilder pb = new ProcessBuilder("/opt/local/bin/python", "/Users/oliverlum/Downloads/ZigzagCPPT_BnC_PrefixZigzagOrder.py", Integer.toString(i), Integer.toString(j), Integer.toString(k),Integer.toString(iter));
+            ProcessBuilder pb = ipProcess(context, "ZigzagCPP_PartialOrderNEW.py", i, j, k, iter);
+            //ProcessBuilder pb = ipProcess(context, "ZigzagCPPT_BnC_PrefixZigzagOrder.py", i, j, k, iter);
             Process run = pb.start();
             BufferedReader bfr = new BufferedReader(new InputStreamReader(run.getInputStream()));
             String line = "";
@@ -127,17 +160,23 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
         }
     }
 
-    public static ZigZagTour runIP(ZigZagGraph g, int i, int j, int k, int iter, double latePenalty) {
+    public static ZigZagTour runIP(ZigZagGraph g, int i, int j, int k, int iter, double latePenalty, SolveContext context) {
 
         TIntArrayList ansRoute = new TIntArrayList();
         ArrayList<Boolean> ansDir = new ArrayList<Boolean>();
         ArrayList<Boolean> ansZig = new ArrayList<Boolean>();
+        File graphFile;
 
         //run the python script which calls CPLEX
         try {
 
-            ProcessBuilder pb = new ProcessBuilder("/opt/local/bin/python", "/Users/oliverlum/Downloads/ZigzagCPP_PartialOrder.py", Integer.toString(i), Integer.toString(j), Integer.toString(k), Integer.toString(iter));
-            //ProcessBuilder pb = new ProcessBuilder("/opt/local/bin/python", "/Users/oliverlum/Downloads/ZigzagCPPT_BnC_PrefixZigzagOrder.py", Integer.toString(i), Integer.toString(j), Integer.toString(k),Integer.toString(iter));
+            //so that a failed run isn't mistaken for a previous one
+            graphFile = context.newWorkFile(DETAIL_ROUTE_FILE);
+            if (graphFile.exists())
+                graphFile.delete();
+
+            ProcessBuilder pb = ipProcess(context, "ZigzagCPP_PartialOrder.py", i, j, k, iter);
+            //ProcessBuilder pb = ipProcess(context, "ZigzagCPPT_BnC_PrefixZigzagOrder.py", i, j, k, iter);
             Process run = pb.start();
             BufferedReader bfr = new BufferedReader(new InputStreamReader(run.getInputStream()));
             String line = "";
@@ -163,7 +202,6 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
             String[] temp2 = new String[1];
             String[] temp3 = new String[1];
 
-            File graphFile = new File("BnC_PartialOrder_DetailRoute.txt");
             BufferedReader br = new BufferedReader(new FileReader(graphFile));
             ZigZagLink tempL;
 
@@ -264,11 +302,11 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
 
             WindyRPPZZTW lbProb = new WindyRPPZZTW(lb, "12_" + 12 + "_" + 12);
             ProblemWriter probw = new ProblemWriter(ProblemFormat.Name.Zhang_Matrix_Zigzag);
-            probw.writeInstance(lbProb, "/Users/oliverlum/Downloads/171Nodes/WPPTZ171nodes_12_12_12.txt");
-            String fileName = "/Users/oliverlum/Downloads/Sols/" + lbProb.getName() + "_ans_101.txt";
+            probw.writeInstance(lbProb, mContext.newWorkFile("171Nodes/WPPTZ171nodes_12_12_12.txt").getPath());
+            String fileName = mContext.newWorkFile("Sols/" + lbProb.getName() + "_ans_101.txt").getPath();
             ZigZagTour partRoute = new ZigZagTour(lb, getLatePenalty());
             RouteExporter.exportRoute(partRoute, RouteExporter.RouteFormat.ZHANG, fileName);
-            double ans = runIPNoRoute(lb,12,12,12,101,1e6);
+            double ans = runIPNoRoute(lb,12,12,12,101,1e6, mContext);
             return ans;
 
         } catch (Exception e) {
@@ -293,7 +331,13 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
         int timeWindow = Integer.MAX_VALUE; //will hold the most restrictive time window
         ZigZagExpander zze = new ZigZagExpander(g, latePenalty);
         int depotId = g.getDepotId();
-        String fileName = "/Users/oliverlum/Downloads/Sols/" + mInstance.getName() + "_ans_101.txt";
+        String fileName;
+        try {
+            fileName = mContext.newWorkFile("Sols/" + mInstance.getName() + "_ans_101.txt").getPath();
+        } catch (IOException e) {
+            LOGGER.error("Could not set up the working directory for the IP scripts.", e);
+            throw new IllegalStateException(e);
+        }
 
         //new stuff
         HashSet<Integer> solStore = new HashSet<Integer>();
@@ -335,9 +379,9 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
 
         ZigZagTour partialRoute;
         //RouteExporter.exportRoute(partialRoute, RouteExporter.RouteFormat.ZHANG, fileName);
-        //ans = runIP(g, i, j, k, 101, latePenalty);
+        //ans = runIP(g, i, j, k, 101, latePenalty, mContext);
         //bestCost = ans.getCost();
-        bestCost = Integer.MAX_VALUE; //runIPNoRoute(g, i, j, k, 101, latePenalty);
+        bestCost = Integer.MAX_VALUE; //runIPNoRoute(g, i, j, k, 101, latePenalty, mContext);
 
         //order the zz optional edges by distance to depot
         HashSet<Integer> optionalEdges = new HashSet<Integer>();
@@ -520,9 +564,9 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
             RouteExporter.exportRoute(partRoute, RouteExporter.RouteFormat.ZHANG, fileName);
 
             //complete the route and compare
-            //ZigZagTour candidate = runIP(g, i, j, k, 101, latePenalty);
+            //ZigZagTour candidate = runIP(g, i, j, k, 101, latePenalty, mContext);
             tempStart = System.currentTimeMillis();
-            double candidateCost = runIPNoRoute(g, i, j, k, 101, latePenalty);
+            double candidateCost = runIPNoRoute(g, i, j, k, 101, latePenalty, mContext);
             tempEnd = System.currentTimeMillis();
             avgIPSolve += (tempEnd - tempStart) / 1000.0;
             numSeeds++;
@@ -571,9 +615,7 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
         //RouteExporter.exportRoute(ans, RouteExporter.RouteFormat.ZHANG, fileName);
         long end = System.currentTimeMillis();
         try {
-            FileWriter fw = new FileWriter("RevisedZZHeuristicScalingResults_Top5Comparison_Top5_single.txt", true);
-            BufferedWriter bw = new BufferedWriter(fw);
-            PrintWriter out = new PrintWriter(bw);
+            PrintWriter out = mContext.openReport("RevisedZZHeuristicScalingResults_Top5Comparison_Top5_single.txt", true);
             double avgIPSolveTime = (avgIPSolve / (double) numSeeds);
             out.println(bestCost + "," + (end - start) + "," + numSeeds + "," + avgIPSolveTime + "," +
                     avgPartialSize + "," + bestPartialSize + "," + avgPartialLength + "," + bestPartialLength + ","
@@ -1059,19 +1101,10 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
         int penalty = 0;
         double serviceCost = 0;
         double insertionCost;
-        ZigZagLink temp;
         Pair<Integer> insertionMove;
         TIntArrayList compactRoute = currTour.getCompactRepresentation();
         ArrayList<Boolean> compactDir = currTour.getCompactTraversalDirection();
-        ArrayList<Boolean> serviceList = currTour.getServicingList();
-        TIntArrayList incCost = currTour.getIncrementalCost();
-        ArrayList<Integer> compactIndices = new ArrayList<Integer>();
         PriorityQueue<Pair<Integer>> ans = new PriorityQueue<Pair<Integer>>(compactDir.size(), new Utils.DijkstrasComparator());
-        for(int i = 0; i < serviceList.size(); i++) {
-            if (serviceList.get(i)) {
-                compactIndices.add(i);
-            }
-        }
 
         ZigZagGraph g = mInstance.getGraph();
 
@@ -1112,13 +1145,8 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
             insertionMove = insertCost(vertexOrLink,ids,dist, true);
             insertionCost = insertionMove.getFirst();
 
-            //the push forward
-            for(int j = i; j < compactRoute.size(); j++) {
-                temp = g.getEdge(compactRoute.get(j));
-                if(incCost.get(compactIndices.get(j)) + insertionCost > temp.getTimeWindow().getSecond()) {
-                    penalty += latePenalty * ((incCost.get(compactIndices.get(j)) + insertionCost) - temp.getTimeWindow().getSecond());
-                }
-            }
+            //the push forward; free to check against the forward slack unless it actually makes somebody late
+            penalty = (int) (latePenalty * currTour.getLateness(i, insertionCost));
 
             //add the move
             ans.add(new Pair<Integer> (i, (int)(insertionCost + penalty)));
@@ -1127,189 +1155,6 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
         return ans;
     }
 
-    /*private PriorityQueue<Pair<Integer>> cheapestInsertion(TIntArrayList compactRoute, ArrayList<Boolean> compactDir, ZigZagLink toRoute, int[][] dist) {
-
-        //the graph
-        ZigZagGraph g = mInstance.getGraph();
-        int n = g.getVertices().size();
-
-        //go through and find the cheapest insertion location
-
-        //first order by standard insertion formula
-        int maxi = compactRoute.size() - 1;
-        PriorityQueue<Pair<Integer>> moves = new PriorityQueue<Pair<Integer>>(1, new Utils.DijkstrasComparator());
-        ZigZagLink temp1, temp2;
-        boolean dir1, dir2;
-        int insertionCost;
-        int startTime = 0; //the back-half cost
-        int addedTime = 0; //when we think we're going to reach toRoute
-        double penalty = 0; //measures how much the proposed move violates time windows
-
-        //calculate costs for inserting as the first element
-        temp1 = g.getEdge(compactRoute.get(0));
-        dir1 = compactDir.get(0);
-        int depotId = g.getDepotId();
-        int[] vertexOrLink = new int[3];
-        vertexOrLink[0] = 0;
-        vertexOrLink[1] = 1;
-        vertexOrLink[2] = 0;
-        int[] ids = new int[3];
-        ids[0] = depotId;
-        ids[1] = toRoute.getId();
-        ids[2] = temp1.getFirstEndpointId();
-
-
-        if (dir1) {
-            insertionCost = insertCost(vertexOrLink, ids, dist).getFirst();
-            addedTime = dist[depotId][toRoute.getFirstEndpointId()];
-            if (startTime + addedTime > toRoute.getTimeWindow().getSecond()) {
-                penalty += latePenalty * (startTime + addedTime - toRoute.getTimeWindow().getSecond());
-            }
-            startTime += dist[depotId][temp1.getFirstEndpointId()];
-        } else {
-            ids[2] = temp1.getSecondEndpointId();
-            insertionCost = insertCost(vertexOrLink, ids, dist).getFirst();
-            addedTime = dist[depotId][toRoute.getFirstEndpointId()];
-            if (startTime + addedTime > toRoute.getTimeWindow().getSecond()) {
-                penalty += latePenalty * (startTime + addedTime - toRoute.getTimeWindow().getSecond());
-            }
-            startTime += dist[depotId][temp1.getSecondEndpointId()];
-        }
-
-        if (startTime + insertionCost > g.getEdge(compactRoute.get(0)).getTimeWindow().getSecond())
-            penalty += latePenalty * (startTime + insertionCost - g.getEdge(compactRoute.get(0)).getTimeWindow().getSecond());
-
-        //check feasibility of the rest of the moves
-        boolean violated = false;
-        int addedTime2 = 0;
-        for (int j = 1; j < maxi + 1; j++) {
-
-            dir1 = compactDir.get(j - 1);
-            dir2 = compactDir.get(j);
-            temp1 = g.getEdge(compactRoute.get(j - 1));
-            temp2 = g.getEdge(compactRoute.get(j));
-
-            if (dir1 && dir2) {
-                addedTime2 += dist[temp1.getSecondEndpointId()][temp2.getFirstEndpointId()];
-            } else if (dir1 && !dir2) {
-                addedTime2 += dist[temp1.getSecondEndpointId()][temp2.getSecondEndpointId()];
-            } else if (dir2) {
-                addedTime2 += dist[temp1.getFirstEndpointId()][temp2.getFirstEndpointId()];
-            } else {
-                addedTime2 += dist[temp1.getFirstEndpointId()][temp2.getSecondEndpointId()];
-            }
-
-            if (startTime + insertionCost + addedTime2 > g.getEdge(compactRoute.get(j)).getTimeWindow().getSecond()) {
-                penalty += latePenalty * (startTime + insertionCost + addedTime2 - g.getEdge(compactRoute.get(j)).getTimeWindow().getSecond());
-            }
-        }
-        moves.add(new Pair<Integer>(0, insertionCost + (int) penalty));
-
-        //iterate through the list
-        for (int i = 0; i < maxi; i++) {
-
-            penalty = 0;
-            temp1 = g.getEdge(compactRoute.get(i));
-            temp2 = g.getEdge(compactRoute.get(i + 1));
-            dir1 = compactDir.get(i);
-            dir2 = compactDir.get(i + 1);
-
-            if (dir1 && dir2) {
-
-                ids[0] = temp1.getSecondEndpointId();
-                ids[2] = temp2.getFirstEndpointId();
-
-                insertionCost = insertCost(vertexOrLink, ids, dist).getFirst();
-                addedTime = Utils.shortestEdgeDistance(temp1, toRoute, dist, 1).getFirst();
-                if (startTime + addedTime > toRoute.getTimeWindow().getSecond())
-                    penalty += latePenalty * (startTime + addedTime - toRoute.getTimeWindow().getSecond());
-                startTime += dist[temp1.getSecondEndpointId()][temp2.getFirstEndpointId()];
-            } else if (dir1 && !dir2) {
-
-                ids[0] = temp1.getSecondEndpointId();
-                ids[2] = temp2.getSecondEndpointId();
-
-                insertionCost = insertCost(vertexOrLink, ids, dist).getFirst();
-                addedTime = Utils.shortestEdgeDistance(temp1, toRoute, dist, 1).getFirst();
-                if (startTime + addedTime > toRoute.getTimeWindow().getSecond())
-                    penalty += latePenalty * (startTime + addedTime - toRoute.getTimeWindow().getSecond());
-                startTime += dist[temp1.getSecondEndpointId()][temp2.getSecondEndpointId()];
-            } else if (dir2) {
-
-                ids[0] = temp1.getFirstEndpointId();
-                ids[2] = temp2.getFirstEndpointId();
-
-                insertionCost = insertCost(vertexOrLink, ids, dist).getFirst();
-                addedTime = Utils.shortestEdgeDistance(temp1, toRoute, dist, 3).getFirst();
-                if (startTime + addedTime > toRoute.getTimeWindow().getSecond())
-                    penalty += latePenalty * (startTime + addedTime - toRoute.getTimeWindow().getSecond());
-                startTime += dist[temp1.getFirstEndpointId()][temp2.getFirstEndpointId()];
-
-            } else {
-
-                ids[0] = temp1.getFirstEndpointId();
-                ids[2] = temp2.getSecondEndpointId();
-
-                insertionCost = insertCost(vertexOrLink, ids, dist).getFirst();
-                addedTime = Utils.shortestEdgeDistance(temp1, toRoute, dist, 3).getFirst();
-                if (startTime + addedTime > toRoute.getTimeWindow().getSecond())
-                    penalty += latePenalty * (startTime + addedTime - toRoute.getTimeWindow().getSecond());
-                startTime += dist[temp1.getFirstEndpointId()][temp2.getSecondEndpointId()];
-            }
-
-            //check feasibility of the rest of the moves
-            violated = false;
-            addedTime2 = 0;
-            for (int j = i + 1; j < maxi + 1; j++) {
-
-                dir1 = compactDir.get(j - 1);
-                dir2 = compactDir.get(j);
-                temp1 = g.getEdge(compactRoute.get(j - 1));
-                temp2 = g.getEdge(compactRoute.get(j));
-
-                if (dir1 && dir2) {
-                    addedTime2 += dist[temp1.getSecondEndpointId()][temp2.getFirstEndpointId()];
-                } else if (dir1 && !dir2) {
-                    addedTime2 += dist[temp1.getSecondEndpointId()][temp2.getSecondEndpointId()];
-                } else if (dir2) {
-                    addedTime2 += dist[temp1.getFirstEndpointId()][temp2.getFirstEndpointId()];
-                } else {
-                    addedTime2 += dist[temp1.getFirstEndpointId()][temp2.getSecondEndpointId()];
-                }
-
-                if (startTime + insertionCost + addedTime2 > g.getEdge(compactRoute.get(j)).getTimeWindow().getSecond())
-                    penalty += latePenalty * (startTime + insertionCost + addedTime2 - g.getEdge(compactRoute.get(j)).getTimeWindow().getSecond());
-            }
-
-            moves.add(new Pair<Integer>(i + 1, insertionCost + (int) penalty));
-
-        }
-
-        //last insertion spot
-        ids[2] = depotId;
-        penalty = 0;
-        temp2 = g.getEdge(compactRoute.get(maxi));
-        dir2 = compactDir.get(maxi);
-        if (dir2) {
-            ids[0] = temp2.getSecondEndpointId();
-            insertionCost = insertCost(vertexOrLink, ids, dist).getFirst();
-            addedTime = dist[temp2.getSecondEndpointId()][toRoute.getFirstEndpointId()];
-            if (startTime + addedTime > toRoute.getTimeWindow().getSecond()) {
-                penalty += latePenalty * (startTime + addedTime - toRoute.getTimeWindow().getSecond());
-            }
-        } else {
-            ids[0] = temp2.getFirstEndpointId();
-            insertionCost = insertCost(vertexOrLink, ids, dist).getFirst();
-            addedTime = dist[temp2.getFirstEndpointId()][toRoute.getFirstEndpointId()];
-            if (startTime + addedTime > toRoute.getTimeWindow().getSecond()) {
-                penalty += latePenalty * (startTime + addedTime - toRoute.getTimeWindow().getSecond());
-            }
-        }
-        moves.add(new Pair<Integer>(maxi + 1, insertionCost + (int) penalty));
-
-        return moves;
-    }*/
-
     /**
      * Seeds the route for the WRPPZZTW solution.
      *
@@ -1356,7 +1201,7 @@ public class WRPPZZTW_PFIH extends SingleVehicleSolver<ZigZagVertex, ZigZagLink,
 
         }
 
-        int rank = rng.nextInt(lenience) + 1;
+        int rank = mContext.getRandom().nextInt(lenience) + 1;
 
         int ans = -1;
         for (int i = 1; i <= rank; i++) {
@@ -31,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 
 /**
  * Vertex representation for Directed Graphs.
@@ -47,7 +48,7 @@ public class DirectedVertex extends Vertex {
         super(label);
         setInDegree(0);
         setOutDegree(0);
-        neighbors = new HashMap<DirectedVertex, ArrayList<Arc>>();
+        neighbors = new LinkedHashMap<DirectedVertex, ArrayList<Arc>>();
     }
 
     /**
@@ -122,7 +123,7 @@ public class DirectedVertex extends Vertex {
 
     @Override
     public void clearNeighbors() {
-        neighbors = new HashMap<DirectedVertex, ArrayList<Arc>>();
+        neighbors = new LinkedHashMap<DirectedVertex, ArrayList<Arc>>();
     }
 
 }
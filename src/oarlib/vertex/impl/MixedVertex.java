@@ -31,6 +31,7 @@ import oarlib.link.impl.MixedEdge;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.HashSet;
 
 /**
@@ -50,7 +51,7 @@ public class MixedVertex extends Vertex {
         setInDegree(0);
         setOutDegree(0);
         setDegree(0);
-        neighbors = new HashMap<MixedVertex, ArrayList<MixedEdge>>();
+        neighbors = new LinkedHashMap<MixedVertex, ArrayList<MixedEdge>>();
     }
 
     /**
@@ -141,7 +142,7 @@ public class MixedVertex extends Vertex {
 
     @Override
     public void clearNeighbors() {
-        neighbors = new HashMap<MixedVertex, ArrayList<MixedEdge>>();
+        neighbors = new LinkedHashMap<MixedVertex, ArrayList<MixedEdge>>();
     }
 
 }
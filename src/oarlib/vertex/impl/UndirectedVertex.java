@@ -31,6 +31,7 @@ import oarlib.link.impl.Edge;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.HashSet;
 
 /**
@@ -45,7 +46,7 @@ public class UndirectedVertex extends Vertex {
 
     public UndirectedVertex(String label) {
         super(label);
-        neighbors = new HashMap<UndirectedVertex, ArrayList<Edge>>();
+        neighbors = new LinkedHashMap<UndirectedVertex, ArrayList<Edge>>();
         setDegree(0);
     }
 
@@ -109,7 +110,7 @@ public class UndirectedVertex extends Vertex {
 
     @Override
     public void clearNeighbors() {
-        neighbors = new HashMap<UndirectedVertex, ArrayList<Edge>>();
+        neighbors = new LinkedHashMap<UndirectedVertex, ArrayList<Edge>>();
     }
 
 
@@ -29,6 +29,7 @@ import oarlib.link.impl.WindyEdge;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.HashSet;
 
 /**
@@ -43,7 +44,7 @@ public class WindyVertex extends Vertex {
 
     public WindyVertex(String label) {
         super(label);
-        neighbors = new HashMap<WindyVertex, ArrayList<WindyEdge>>();
+        neighbors = new LinkedHashMap<WindyVertex, ArrayList<WindyEdge>>();
         setDegree(0);
     }
 
@@ -106,7 +107,7 @@ public class WindyVertex extends Vertex {
 
     @Override
     public void clearNeighbors() {
-        neighbors = new HashMap<WindyVertex, ArrayList<WindyEdge>>();
+        neighbors = new LinkedHashMap<WindyVertex, ArrayList<WindyEdge>>();
     }
 
 
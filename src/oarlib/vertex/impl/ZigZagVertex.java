@@ -29,6 +29,7 @@ import oarlib.link.impl.ZigZagLink;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.HashSet;
 
 /**
@@ -43,7 +44,7 @@ public class ZigZagVertex extends Vertex {
 
     public ZigZagVertex(String label) {
         super(label);
-        neighbors = new HashMap<ZigZagVertex, ArrayList<ZigZagLink>>();
+        neighbors = new LinkedHashMap<ZigZagVertex, ArrayList<ZigZagLink>>();
         setDegree(0);
     }
 
@@ -106,7 +107,7 @@ public class ZigZagVertex extends Vertex {
 
     @Override
     public void clearNeighbors() {
-        neighbors = new HashMap<ZigZagVertex, ArrayList<ZigZagLink>>();
+        neighbors = new LinkedHashMap<ZigZagVertex, ArrayList<ZigZagLink>>();
     }
 
 
@@ -5,6 +5,8 @@ JNIEXPORT jintArray JNICALL Java_oarlib_graph_util_BlossomV_blossomV
   (JNIEnv *env, jclass mclass, jint node_num, jint edge_num, jintArray edges, jintArray weights) {
 
   	struct PerfectMatching::Options options;
+  	//Blossom V reports its progress on stdout by default, which callers may be using for something else
+  	options.verbose = false;
 
   	jintArray ret = env->NewIntArray(node_num);
   	jint *retContents = env->GetIntArrayElements(ret, NULL);
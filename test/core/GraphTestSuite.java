@@ -1,17 +1,45 @@
 package core;
 
 import oarlib.core.Graph;
+import oarlib.core.Link;
+import oarlib.core.Problem;
+import oarlib.core.Vertex;
+import oarlib.exceptions.FormatMismatchException;
+import oarlib.graph.factory.impl.MixedGraphFactory;
+import oarlib.graph.factory.impl.WindyGraphFactory;
 import oarlib.graph.impl.DirectedGraph;
 import oarlib.graph.impl.MixedGraph;
 import oarlib.graph.impl.UndirectedGraph;
 import oarlib.graph.impl.WindyGraph;
+import oarlib.graph.impl.ZigZagGraph;
+import oarlib.graph.util.AllPairsShortestPaths;
+import oarlib.graph.util.CommonAlgorithms;
+import oarlib.graph.util.Pair;
+import oarlib.graph.util.SubgraphView;
 import oarlib.link.impl.Arc;
+import oarlib.link.impl.AsymmetricLink;
 import oarlib.link.impl.Edge;
 import oarlib.link.impl.MixedEdge;
 import oarlib.link.impl.WindyEdge;
+import oarlib.link.impl.ZigZagLink;
+import oarlib.problem.impl.cpp.DirectedCPP;
+import oarlib.problem.impl.cpp.MixedCPP;
+import oarlib.problem.impl.cpp.UndirectedCPP;
+import oarlib.problem.impl.io.ProblemFormat;
+import oarlib.problem.impl.io.ProblemReader;
+import oarlib.problem.impl.io.ProblemWriter;
+import oarlib.problem.impl.rpp.WindyRPP;
+import oarlib.problem.impl.rpp.WindyRPPZZTW;
+import oarlib.route.impl.Tour;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.HashSet;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Test suite for methods internal to our graph objects.
@@ -154,4 +182,251 @@ public class GraphTestSuite {
         }
 
     }
+
+    @Test
+    public void testSubgraphView() {
+        try {
+            WindyGraph test = new WindyGraph(5);
+            test.addEdge(1, 2, 1, 2, false);
+            test.addEdge(2, 3, 2, 3, true);
+            test.addEdge(3, 4, 3, 4, true);
+            test.addEdge(4, 5, 4, 5, false);
+            test.addEdge(5, 1, 5, 6, false);
+
+            HashSet<Integer> ids = new HashSet<Integer>();
+            ids.add(2);
+            ids.add(3);
+            SubgraphView<WindyGraph> view = new SubgraphView<WindyGraph>(test, ids, true);
+
+            //2-3-4 from the required guys, plus the depot, connected through edge 1
+            assertEquals("Check view n:", 4, view.getNumVertices());
+            assertEquals("Check view m:", 3, view.getNumEdges());
+            assertEquals("Check connector:", true, view.containsEdge(1));
+            assertEquals("Check connector not required:", false, view.isRequired(view.getLocalEdgeId(1)));
+            assertEquals("Check untouched:", false, view.containsEdge(4));
+            assertEquals("Check depot:", 1, view.getParentVertexId(view.getDepotId()));
+            assertEquals("Check dist:", test.getAllPairsDistMatrix()[2][4], view.getDist(view.getLocalVertexId(2), view.getLocalVertexId(4)));
+
+            WindyGraph copy = view.materialize(new WindyGraphFactory());
+            assertEquals("Check copy n:", 4, copy.getVertices().size());
+            assertEquals("Check copy m:", 3, copy.getEdges().size());
+            WindyEdge copied = copy.getInternalEdgeMap().get(view.getLocalEdgeId(3));
+            assertEquals("Check copy reverse cost:", 4, copied.getReverseCost());
+            assertEquals("Check copy match id:", 3, copied.getMatchId());
+
+            //4-5 is cut off from the rest, so the view pulls in 3-4, (the cheaper round trip of the two ways back)
+            ids.remove(3);
+            ids.add(4);
+            SubgraphView<WindyGraph> repaired = new SubgraphView<WindyGraph>(test, ids, true);
+            assertEquals("Check repaired m:", 4, repaired.getNumEdges());
+            assertEquals("Check repair:", true, repaired.containsEdge(3));
+            assertEquals("Check repair is a connector:", true, repaired.isConnector(repaired.getLocalEdgeId(3)));
+            assertEquals("Check repair untouched:", false, repaired.containsEdge(5));
+            assertTrue("Check repaired copy connected:", CommonAlgorithms.isConnected(repaired.materialize(new WindyGraphFactory())));
+
+            MixedGraph mixed = new MixedGraph(3);
+            mixed.addEdge(1, 2, 1, true, true);
+            mixed.addEdge(2, 3, 1, false, true);
+            mixed.addEdge(3, 1, 1, true, false);
+            HashSet<Integer> all = new HashSet<Integer>();
+            all.add(1);
+            all.add(2);
+            all.add(3);
+            MixedGraph mixedCopy = new SubgraphView<MixedGraph>(mixed, all, true).materialize(new MixedGraphFactory());
+            for (MixedEdge me : mixedCopy.getEdges())
+                assertEquals("Check copy direction:", mixed.getEdge(me.getMatchId()).isDirected(), me.isDirected());
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertEquals("Error.", true, false);
+        }
+    }
+
+    @Test
+    public void testSharedShortestPaths() {
+        try {
+            WindyGraph test = new WindyGraph(4);
+            test.addEdge(1, 2, 1, 2, true);
+            test.addEdge(2, 3, 2, 3, true);
+            test.addEdge(3, 4, 3, 4, true);
+
+            //computed once, and handed to everybody
+            AllPairsShortestPaths sp = test.getAllPairsShortestPaths();
+            assertEquals("Check shared:", true, sp == test.getAllPairsShortestPaths());
+            assertEquals("Check dist:", true, sp.getDist() == test.getAllPairsDistMatrix());
+            assertEquals("Check dist value:", 6, sp.getDist()[1][4]);
+            assertEquals("Check zero diagonal:", 0, sp.getDistZeroDiagonal()[2][2]);
+            assertEquals("Check original diagonal:", 3, sp.getDist()[2][2]);
+
+            //changing the graph invalidates it, but doesn't pull it out from under the current holders
+            test.addEdge(1, 4, 1, 1, true);
+            AllPairsShortestPaths sp2 = test.getAllPairsShortestPaths();
+            assertEquals("Check invalidated:", false, sp == sp2);
+            assertEquals("Check new dist value:", 1, sp2.getDist()[1][4]);
+            assertEquals("Check old dist value:", 6, sp.getDist()[1][4]);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertEquals("Error.", true, false);
+        }
+    }
+
+    @Test
+    public void testConcurrentIds() throws Exception {
+
+        //build graphs, (and their vertices), and routes from several threads at once; no id should be handed out twice
+        final int numThreads = 8;
+        final int perThread = 200;
+        final int[][] graphIds = new int[numThreads][perThread];
+        final int[][] vertexIds = new int[numThreads][2 * perThread];
+        final int[][] routeIds = new int[numThreads][perThread];
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final int index = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        WindyGraph g = new WindyGraph(2);
+                        graphIds[index][i] = g.getGraphId();
+                        vertexIds[index][2 * i] = g.getVertex(1).getGuid();
+                        vertexIds[index][2 * i + 1] = g.getVertex(2).getGuid();
+                        routeIds[index][i] = new Tour().getGlobalId();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads)
+            t.join();
+
+        HashSet<Integer> seenGraphs = new HashSet<Integer>();
+        HashSet<Integer> seenVertices = new HashSet<Integer>();
+        HashSet<Integer> seenRoutes = new HashSet<Integer>();
+        for (int t = 0; t < numThreads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                assertEquals("Check graph id:", true, seenGraphs.add(graphIds[t][i]));
+                assertEquals("Check route id:", true, seenRoutes.add(routeIds[t][i]));
+                assertEquals("Check vertex id:", true, seenVertices.add(vertexIds[t][2 * i]));
+                assertEquals("Check vertex id:", true, seenVertices.add(vertexIds[t][2 * i + 1]));
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryFormat() throws Exception {
+
+        DirectedGraph directed = new DirectedGraph(3);
+        directed.addEdge(1, 2, 3, true);
+        directed.addEdge(2, 3, 4, false);
+        directed.addEdge(3, 1, 5, true);
+        directed.setDepotId(2);
+
+        UndirectedGraph undirected = new UndirectedGraph(3);
+        undirected.addEdge(1, 2, 3, true);
+        undirected.addEdge(2, 3, 4, false);
+        undirected.addEdge(1, 3, 5, true);
+
+        MixedGraph mixed = new MixedGraph(3);
+        mixed.addEdge(1, 2, 3, true, true);
+        mixed.addEdge(2, 3, 4, false, false);
+        mixed.addEdge(3, 1, 5, false, true);
+
+        WindyGraph windy = new WindyGraph(3);
+        windy.addEdge(1, 2, 3, 6, true);
+        windy.addEdge(2, 3, 4, 7, false);
+        windy.addEdge(3, 1, 5, 8, true);
+        windy.getEdge(2).setReverseRequired(true);
+        windy.getEdge(1).setTimeWindow(new Pair<Integer>(10, 20));
+        windy.getVertex(2).setCoordinates(1.5, -2.25);
+        windy.getVertex(3).setDemand(7);
+        windy.setDepotId(3);
+
+        ZigZagGraph zigzag = new ZigZagGraph(3);
+        zigzag.addEdge(zigzag.constructEdge(1, 2, "", 3, 6, 2.5, 1, 0, ZigZagLink.ZigZagStatus.OPTIONAL));
+        zigzag.addEdge(zigzag.constructEdge(2, 3, "", 4, 7, 0, 0, 0, ZigZagLink.ZigZagStatus.NOT_AVAILABLE));
+        zigzag.addEdge(zigzag.constructEdge(3, 1, "", 5, 8, 1.25, 2, 3, ZigZagLink.ZigZagStatus.MANDATORY));
+        zigzag.getEdge(3).setTimeWindow(new Pair<Integer>(0, 100));
+
+        ProblemWriter writer = new ProblemWriter(ProblemFormat.Name.OARLibBinary);
+        ProblemReader reader = new ProblemReader(ProblemFormat.Name.OARLibBinary);
+        File f = File.createTempFile("oarlib-binary", ".bin");
+        f.deleteOnExit();
+        Problem[] problems = {new DirectedCPP(directed), new UndirectedCPP(undirected), new MixedCPP(mixed), new WindyRPP(windy), new WindyRPPZZTW(zigzag, "zigzag")};
+        for (Problem p : problems) {
+            Graph<?, ?> g = p.getGraph();
+            assertTrue(writer.writeInstance(p, f.getPath()));
+            Graph<?, ?> read = reader.readGraph(f.getPath());
+
+            assertEquals("Check class:", g.getClass(), read.getClass());
+            assertEquals("Check fingerprint:", g.getFingerprint(), read.getFingerprint());
+            assertEquals("Check depot:", g.getDepotId(), read.getDepotId());
+            for (int i = 1; i <= g.getVertices().size(); i++) {
+                Vertex v = g.getVertex(i);
+                Vertex rv = read.getVertex(i);
+                assertEquals(v.getX(), rv.getX(), 0);
+                assertEquals(v.getY(), rv.getY(), 0);
+                assertEquals(v.isDemandSet(), rv.isDemandSet());
+                if (v.isDemandSet())
+                    assertEquals(v.getDemand(), rv.getDemand());
+            }
+            for (int i = 1; i <= g.getEdges().size(); i++) {
+                Link<?> l = g.getEdge(i);
+                Link<?> rl = read.getEdge(i);
+                assertEquals(l.isRequired(), rl.isRequired());
+                assertEquals(l.getServiceCost(), rl.getServiceCost());
+                assertEquals(l.hasTimeWindow(), rl.hasTimeWindow());
+                if (l.hasTimeWindow())
+                    assertEquals(l.getTimeWindow(), rl.getTimeWindow());
+                if (l.isWindy()) {
+                    assertEquals(((AsymmetricLink) l).isReverseRequired(), ((AsymmetricLink) rl).isReverseRequired());
+                    assertEquals(((AsymmetricLink) l).getReverseServiceCost(), ((AsymmetricLink) rl).getReverseServiceCost());
+                }
+                if (l instanceof ZigZagLink) {
+                    assertEquals(((ZigZagLink) l).getZigzagCost(), ((ZigZagLink) rl).getZigzagCost(), 0);
+                    assertEquals(((ZigZagLink) l).getStatus(), ((ZigZagLink) rl).getStatus());
+                }
+            }
+        }
+
+        //anything else is turned away
+        new ProblemWriter(ProblemFormat.Name.OARLib).writeInstance(new DirectedCPP(directed), f.getPath());
+        try {
+            reader.readGraph(f.getPath());
+            fail("Read a text file as binary.");
+        } catch (FormatMismatchException expected) {
+        }
+    }
+
+    @Test
+    public void testOARLibFormat() throws Exception {
+
+        //the text format keeps which links of a mixed graph are directed, and won't guess when it isn't told
+        MixedGraph mixed = new MixedGraph(3);
+        mixed.addEdge(1, 2, 3, true, true);
+        mixed.addEdge(2, 3, 4, false, false);
+        mixed.addEdge(3, 1, 5, true, false);
+
+        File f = File.createTempFile("oarlib-text", ".txt");
+        f.deleteOnExit();
+        ProblemReader textReader = new ProblemReader(ProblemFormat.Name.OARLib);
+        new ProblemWriter(ProblemFormat.Name.OARLib).writeInstance(new MixedCPP(mixed), f.getPath());
+        Graph<?, ?> readMixed = textReader.readGraph(f.getPath());
+        assertEquals("Check fingerprint:", mixed.getFingerprint(), readMixed.getFingerprint());
+        for (int i = 1; i <= mixed.getEdges().size(); i++)
+            assertEquals(mixed.getEdge(i).isDirected(), readMixed.getEdge(i).isDirected());
+
+        PrintWriter pw = new PrintWriter(f);
+        pw.println("Graph Type:MIXED");
+        pw.println("N:2");
+        pw.println("M:1");
+        pw.println("Line Format:V1,V2,COST,HIGHWAY_TYPE,NAME,MAX_SPEED,ZONE,REQUIRED");
+        pw.println("1,2,3,DIRECTED,,0,0,true");
+        pw.close();
+        try {
+            textReader.readGraph(f.getPath());
+            fail("Read a mixed graph without knowing which links are directed.");
+        } catch (FormatMismatchException expected) {
+        }
+    }
 }
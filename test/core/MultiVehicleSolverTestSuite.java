@@ -1,7 +1,16 @@
 package core;
 
+import oarlib.core.SolveContext;
+import oarlib.graph.impl.UndirectedGraph;
+import oarlib.problem.impl.cpp.UndirectedCPP;
+import oarlib.solver.impl.UCPPSolver_Edmonds;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.PrintWriter;
+
+import static org.junit.Assert.*;
+
 /**
  * Created by oliverlum on 11/29/15.
  */
@@ -21,4 +30,55 @@ public class MultiVehicleSolverTestSuite {
     public void testZZSolver(){
 
     }
+
+    @Test
+    public void testSolveContext() throws Exception {
+
+        //two solves side by side don't share files
+        SolveContext first = new SolveContext("first", 7);
+        SolveContext second = new SolveContext("second", 7);
+        File firstDir = first.getWorkingDirectory();
+        File secondDir = second.getWorkingDirectory();
+        assertTrue(firstDir.isDirectory());
+        assertFalse(firstDir.equals(secondDir));
+        assertFalse(first.newWorkFile("RandomGraph.graph").equals(second.newWorkFile("RandomGraph.graph")));
+        assertEquals(firstDir, first.newWorkFile("RandomGraph.graph").getParentFile());
+        assertTrue(first.newWorkFile("Sols/route.txt").getParentFile().isDirectory());
+
+        first.setReportDirectory(firstDir);
+        PrintWriter pw = first.openReport("report.txt");
+        pw.println("line");
+        pw.close();
+        pw = first.openReport("report.txt", true);
+        pw.println("line");
+        pw.close();
+        assertEquals(10, new File(firstDir, "report.txt").length());
+
+        first.close();
+        second.close();
+        assertFalse(firstDir.exists());
+        assertFalse(secondDir.exists());
+
+        //same seed, same randomness
+        for (int i = 0; i < 10; i++)
+            assertEquals(first.getRandom().nextInt(), second.getRandom().nextInt());
+
+        //solvers pick it up
+        UndirectedGraph g = new UndirectedGraph(3);
+        g.addEdge(1, 2, 5);
+        g.addEdge(2, 3, 5);
+        g.addEdge(3, 1, 20);
+        UCPPSolver_Edmonds solver = new UCPPSolver_Edmonds(new UndirectedCPP(g));
+        assertNotNull(solver.getContext());
+
+        //and clean up after the one they make themselves, but not after one they're handed
+        File ownDir = solver.getContext().getWorkingDirectory();
+        solver.trySolve();
+        assertFalse(ownDir.exists());
+        File handedDir = second.getWorkingDirectory();
+        solver.trySolve(second);
+        assertSame(second, solver.getContext());
+        assertTrue(handedDir.isDirectory());
+        second.close();
+    }
 }
@@ -4,14 +4,31 @@ import gnu.trove.TIntIntHashMap;
 import oarlib.core.Graph;
 import oarlib.core.Link;
 import oarlib.core.Route;
+import oarlib.graph.impl.UndirectedGraph;
 import oarlib.graph.impl.WindyGraph;
+import oarlib.graph.impl.ZigZagGraph;
+import oarlib.graph.util.Pair;
+import oarlib.link.impl.Edge;
+import oarlib.link.impl.WindyEdge;
+import oarlib.link.impl.ZigZagLink;
 import oarlib.route.impl.Tour;
+import oarlib.route.impl.ZigZagTour;
+import oarlib.route.util.RouteBuilder;
+import oarlib.vertex.impl.UndirectedVertex;
+import oarlib.vertex.impl.WindyVertex;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by oliverlum on 11/29/15.
@@ -164,6 +181,166 @@ public class RouteTestSuite {
 
     }
 
+    @Test
+    public void testHash(){
+
+        Graph g = genTestNetwork();
+        Route r1 = genTestRoutes().iterator().next();
+
+        //the same cycle, traversed the other way
+        Tour reversed = new Tour();
+        int[] order = new int[]{8, 1, 5, 6, 3, 9};
+        for (int id : order)
+            reversed.appendEdge(g.getEdge(id));
+
+        assertEquals(r1.getRequiredHash(), reversed.getRequiredHash());
+        assertNotEquals(r1.getPathHash(), reversed.getPathHash());
+        assertNotEquals(r1.getHash(), reversed.getHash());
+        assertEquals(r1.getHash(), genTestRoutes().iterator().next().getHash());
+        assertEquals(r1.getHash(), r1.getDeepCopy().getHash());
+
+        //changing service only touches the required hash, and changing it back restores it
+        long pathHash = r1.getPathHash();
+        long requiredHash = r1.getRequiredHash();
+        r1.changeService(2);
+        assertEquals(pathHash, r1.getPathHash());
+        assertNotEquals(requiredHash, r1.getRequiredHash());
+        r1.changeService(2);
+        assertEquals(requiredHash, r1.getRequiredHash());
+    }
+
+    @Test
+    public void testCopyOnWrite(){
+
+        Graph g = genTestNetwork();
+        Route r1 = genTestRoutes().iterator().next();
+        Route copy = r1.getDeepCopy();
+
+        //the copy shares the original's lists until one of them changes
+        assertTrue(r1.isShared());
+        assertTrue(copy.isShared());
+        assertSame(r1.getCompactRepresentation(), copy.getCompactRepresentation());
+        assertSame(r1.getPath(), copy.getPath());
+
+        int[] before = r1.getCompactRepresentation().toNativeArray();
+        long hash = r1.getHash();
+        copy.changeService(2);
+        assertFalse(copy.isShared());
+        assertNotSame(r1.getCompactRepresentation(), copy.getCompactRepresentation());
+        assertArrayEquals(before, r1.getCompactRepresentation().toNativeArray());
+        assertEquals(hash, r1.getHash());
+        assertEquals(before.length - 1, copy.getCompactRepresentation().size());
+
+        //and the original can go on growing without the copy seeing it
+        int pathLength = copy.getPath().size();
+        r1.appendEdge(g.getEdge(9));
+        assertEquals(pathLength, copy.getPath().size());
+        assertEquals(pathLength + 1, r1.getPath().size());
+    }
+
+    @Test
+    public void testBuildPath() throws Exception {
+
+        //a square with asymmetric costs, traversed against the direction the links were added in
+        WindyGraph g = new WindyGraph(4);
+        g.addEdge(2, 1, 1, 10, true); //1
+        g.addEdge(3, 2, 2, 20, true); //2
+        g.addEdge(4, 3, 3, 30, false); //3
+        g.addEdge(1, 4, 4, 40, true); //4
+        g.setDepotId(1);
+
+        Tour<WindyVertex, WindyEdge> appended = new Tour<WindyVertex, WindyEdge>();
+        for (int i = 1; i <= 4; i++)
+            appended.appendEdge(g.getEdge(i));
+
+        Tour<WindyVertex, WindyEdge> built = RouteBuilder.fromLinks(g, new int[]{1, 2, 3, 4}, new boolean[]{false, false, false, false}, new boolean[]{true, true, false, true});
+        Tour<WindyVertex, WindyEdge> walked = RouteBuilder.fromWalk(g, Arrays.asList(1, 2, 3, 4), 1);
+        Tour<WindyVertex, WindyEdge> visited = RouteBuilder.fromVertices(g, new int[]{1, 2, 3, 4, 1});
+
+        for (Route r : Arrays.asList(built, walked, visited)) {
+            assertEquals(100, r.getCost());
+            assertEquals(appended.getCost(), r.getCost());
+            assertEquals(appended.getReqCost(), r.getReqCost());
+            assertArrayEquals(appended.getCompactRepresentation().toNativeArray(), r.getCompactRepresentation().toNativeArray());
+            assertEquals(appended.getCompactTraversalDirection(), r.getCompactTraversalDirection());
+            assertEquals(appended.getTraversalDirection(), r.getTraversalDirection());
+            assertEquals(appended.getServicingList(), r.getServicingList());
+            assertEquals(appended.getHash(), r.getHash());
+        }
+
+        //undirected links get a direction from appendEdge too, so the two agree there as well
+        UndirectedGraph ug = new UndirectedGraph(4);
+        ug.addEdge(2, 1, 1, true); //1
+        ug.addEdge(3, 2, 2, true); //2
+        ug.addEdge(4, 3, 3, false); //3
+        ug.addEdge(1, 4, 4, true); //4
+
+        Tour<UndirectedVertex, Edge> uAppended = new Tour<UndirectedVertex, Edge>();
+        for (int i = 1; i <= 4; i++)
+            uAppended.appendEdge(ug.getEdge(i));
+        Tour<UndirectedVertex, Edge> uBuilt = RouteBuilder.fromLinks(ug, new int[]{1, 2, 3, 4}, new boolean[]{false, false, false, false}, new boolean[]{true, true, false, true});
+
+        assertEquals(Arrays.asList(false, false, false, false), uAppended.getTraversalDirection());
+        assertEquals(uAppended.getTraversalDirection(), uBuilt.getTraversalDirection());
+        assertEquals(uAppended.getCompactTraversalDirection(), uBuilt.getCompactTraversalDirection());
+        assertEquals(uAppended.getCompactRepresentation().size(), uAppended.getCompactTraversalDirection().size());
+        assertEquals(uAppended.getHash(), uBuilt.getHash());
+
+        //the walk has to be connected
+        try {
+            RouteBuilder.fromLinks(g, new int[]{1, 3}, new boolean[]{false, false}, new boolean[]{true, false});
+            assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testZigZagSlack() throws Exception {
+
+        //a path out of the depot, with a tight window on the middle link
+        ZigZagGraph g = new ZigZagGraph(4);
+        int[] due = new int[]{100, 11, 30};
+        for (int i = 1; i <= 3; i++) {
+            ZigZagLink l = g.constructEdge(i, i + 1, "", 2, 3, 4.0, 1, 1, ZigZagLink.ZigZagStatus.OPTIONAL);
+            l.setRequired(true);
+            l.setTimeWindow(new Pair<Integer>(0, due[i - 1]));
+            g.addEdge(l);
+        }
+        g.setDepotId(1);
+
+        ZigZagTour t = new ZigZagTour(g, 1);
+        for (int i = 1; i <= 3; i++)
+            t.appendEdge(g.getEdge(i), true);
+
+        //services end at 3, 6, 9, so the slacks are 97, 5, 21
+        assertEquals(5, t.getForwardSlack(0));
+        assertEquals(5, t.getForwardSlack(1));
+        assertEquals(21, t.getForwardSlack(2));
+        assertEquals(Integer.MAX_VALUE, t.getForwardSlack(3));
+        assertEquals(true, t.canDelay(0, 5));
+        assertEquals(false, t.canDelay(0, 6));
+        assertEquals(0, t.getLateness(0, 5), 1e-9);
+        assertEquals(15, t.getLateness(1, 20), 1e-9);
+
+        //zig-zagging costs 3 more; the middle link can afford it, and it pushes back the last one
+        t.changeZigZagStatus(1);
+        assertEquals(true, t.getCompactZZList().get(1));
+        assertEquals(12, t.getArrival(2));
+        assertEquals(12, t.getCost());
+        assertEquals(2, t.getForwardSlack(1));
+
+        //after which there isn't enough slack left to zig-zag the first one
+        t.changeZigZagStatus(0);
+        assertEquals(false, t.getCompactZZList().get(0));
+        assertEquals(12, t.getCost());
+
+        //undoing it gives the slack back
+        t.changeZigZagStatus(1);
+        assertEquals(9, t.getCost());
+        assertEquals(5, t.getForwardSlack(0));
+    }
+
     @Test
     public void testDirectedTour(){
 
@@ -1,19 +1,29 @@
 package core;
 
+import gnu.trove.TIntArrayList;
 import oarlib.exceptions.InvalidEndpointsException;
 import oarlib.exceptions.NegativeCycleException;
 import oarlib.graph.graphgen.erdosrenyi.DirectedErdosRenyiGraphGenerator;
 import oarlib.graph.graphgen.erdosrenyi.WindyErdosRenyiGraphGenerator;
 import oarlib.graph.impl.DirectedGraph;
 import oarlib.graph.impl.WindyGraph;
+import oarlib.graph.util.AllPairsShortestPaths;
 import oarlib.graph.util.CommonAlgorithms;
+import oarlib.graph.util.ShortestPathOracle;
+import oarlib.graph.util.ShortestPathsCache;
+import oarlib.link.impl.WindyEdge;
 import org.apache.log4j.Logger;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
 import java.util.HashSet;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test suite for our various shortest path methods.
@@ -272,6 +282,97 @@ public class ShortestPathsTestSuite {
 
     }
 
+    @Test
+    public void testShortestPathOracle() {
+
+        WindyErdosRenyiGraphGenerator wgg = new WindyErdosRenyiGraphGenerator();
+        WindyGraph testGraph = wgg.generateGraph(100, 50, true, .5, true);
+        AllPairsShortestPaths control = testGraph.getAllPairsShortestPaths();
+
+        //a small memo, so that searches get evicted and recycled along the way
+        ShortestPathOracle oracle = new ShortestPathOracle(testGraph, 3);
+        TIntArrayList links = new TIntArrayList();
+        for (int i = 1; i <= 100; i++) {
+            for (int j = 1; j <= 100; j++) {
+                assertEquals("Check distance: ", control.getPathCost(i, j), oracle.getPathCost(i, j));
+
+                //the path should be a walk from i to j that costs as much
+                links.clear();
+                oracle.appendPath(i, j, links);
+                int curr = i;
+                int cost = 0;
+                for (int k = 0; k < links.size(); k++) {
+                    WindyEdge l = testGraph.getEdge(links.get(k));
+                    if (l.getFirstEndpointId() == curr) {
+                        cost += l.getCost();
+                        curr = l.getSecondEndpointId();
+                    } else {
+                        assertEquals(curr, l.getSecondEndpointId());
+                        cost += l.getReverseCost();
+                        curr = l.getFirstEndpointId();
+                    }
+                }
+                assertEquals(j, curr);
+                assertEquals(control.getPathCost(i, j), cost);
+            }
+        }
+    }
+
+    @Test
+    public void testShortestPathsCache() throws Exception {
+
+        WindyErdosRenyiGraphGenerator wgg = new WindyErdosRenyiGraphGenerator();
+        WindyGraph testGraph = wgg.generateGraph(60, 50, true, .5, true);
+        AllPairsShortestPaths control = new AllPairsShortestPaths(testGraph);
+
+        //the fingerprint follows topology and costs, but not the depot or required set
+        WindyGraph copy = testGraph.getDeepCopy();
+        assertEquals(testGraph.getFingerprint(), copy.getFingerprint());
+        copy.setDepotId(2);
+        copy.getEdge(1).setRequired(!copy.getEdge(1).isRequired());
+        assertEquals(testGraph.getFingerprint(), copy.getFingerprint());
+        WindyGraph changed = testGraph.getDeepCopy();
+        changed.getEdge(1).setCost(changed.getEdge(1).getCost() + 1);
+        assertFalse(testGraph.getFingerprint().equals(changed.getFingerprint()));
+
+        File dir = File.createTempFile("oarlib-apsp", "");
+        assertTrue(dir.delete());
+        ShortestPathsCache cache = new ShortestPathsCache(dir);
+        try {
+            assertNull(cache.load(testGraph));
+            cache.loadOrCompute(testGraph);
+            File f = cache.fileFor(testGraph.getFingerprint());
+            assertTrue(f.isFile());
+
+            //an identical graph gets the same solution back off disk
+            AllPairsShortestPaths loaded = cache.load(copy);
+            assertTrue(Arrays.deepEquals(control.getDist(), loaded.getDist()));
+            assertTrue(Arrays.deepEquals(control.getPath(), loaded.getPath()));
+            assertTrue(Arrays.deepEquals(control.getEdgePath(), loaded.getEdgePath()));
+            assertNull(cache.load(changed));
+
+            //and graphs use it once it's the default
+            ShortestPathsCache.setDefault(cache);
+            WindyGraph another = testGraph.getDeepCopy();
+            assertTrue(Arrays.deepEquals(control.getDist(), another.getAllPairsDistMatrix()));
+            changed.getAllPairsDistMatrix();
+            assertTrue(cache.fileFor(changed.getFingerprint()).isFile());
+
+            //a damaged file is ignored, and replaced
+            RandomAccessFile raf = new RandomAccessFile(f, "rw");
+            raf.setLength(f.length() / 2);
+            raf.close();
+            assertNull(cache.load(testGraph));
+            cache.loadOrCompute(testGraph);
+            assertTrue(Arrays.deepEquals(control.getDist(), cache.load(testGraph).getDist()));
+        } finally {
+            ShortestPathsCache.setDefault(null);
+            for (File f : dir.listFiles())
+                f.delete();
+            dir.delete();
+        }
+    }
+
     @Test
     public void testFloydWarshall() {
 
@@ -1,7 +1,44 @@
 package improvements;
 
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntHashSet;
+import oarlib.core.Route;
+import oarlib.core.SolveContext;
+import oarlib.graph.impl.WindyGraph;
+import oarlib.improvements.ImprovementStrategy;
+import oarlib.improvements.InterRouteImprovementProcedure;
+import oarlib.improvements.impl.Change1to0;
+import oarlib.improvements.impl.Change1to1;
+import oarlib.improvements.impl.Change2to0;
+import oarlib.improvements.impl.OrOpt;
+import oarlib.improvements.impl.Reversal;
+import oarlib.improvements.impl.TwoOpt;
+import oarlib.improvements.impl.TwoOptStar;
+import oarlib.improvements.metaheuristics.impl.AdaptiveLargeNeighborhoodSearch;
+import oarlib.improvements.metaheuristics.impl.ParallelBenaventIPFramework;
+import oarlib.improvements.metaheuristics.impl.SimulatedAnnealingRTR;
+import oarlib.improvements.metaheuristics.impl.TabuSearch;
+import oarlib.improvements.util.MoveCache;
+import oarlib.improvements.util.NeighborLists;
+import oarlib.improvements.util.SegmentCosts;
+import oarlib.link.impl.WindyEdge;
+import oarlib.problem.impl.multivehicle.MinMaxKWRPP;
+import oarlib.route.util.RouteExpander;
+import oarlib.vertex.impl.WindyVertex;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 /**
  * Created by oliverlum on 1/22/16.
  */
@@ -9,17 +46,241 @@ public class LocalSearchTestSuite {
 
     @Test
     public void change1To0Test(){
-
+        //the neighborhood should be priced the same way regardless of how many threads split it up
+        for (ImprovementStrategy.Type strat : ImprovementStrategy.Type.values()) {
+            WindyGraph g = genGrid(8);
+            MinMaxKWRPP problem = new MinMaxKWRPP(g, 3);
+            Change1to0 serial = new Change1to0(problem, strat, genUnbalancedSol(g, 3));
+            serial.setNumThreads(1);
+            Change1to0 parallel = new Change1to0(problem, strat, genUnbalancedSol(g, 3));
+            parallel.setNumThreads(4);
+            assertSameSolution(serial.improveSolution(), parallel.improveSolution());
+        }
     }
 
     @Test
     public void change1To1Test(){
-
+        for (ImprovementStrategy.Type strat : ImprovementStrategy.Type.values()) {
+            WindyGraph g = genGrid(8);
+            MinMaxKWRPP problem = new MinMaxKWRPP(g, 3);
+            Change1to1 serial = new Change1to1(problem, strat, genUnbalancedSol(g, 3));
+            serial.setNumThreads(1);
+            Change1to1 parallel = new Change1to1(problem, strat, genUnbalancedSol(g, 3));
+            parallel.setNumThreads(4);
+            assertSameSolution(serial.improveSolution(), parallel.improveSolution());
+        }
     }
 
     @Test
     public void change2To0Test(){
+        for (ImprovementStrategy.Type strat : ImprovementStrategy.Type.values()) {
+            WindyGraph g = genGrid(8);
+            MinMaxKWRPP problem = new MinMaxKWRPP(g, 3);
+            Change2to0 serial = new Change2to0(problem, strat, genUnbalancedSol(g, 3));
+            serial.setNumThreads(1);
+            Change2to0 parallel = new Change2to0(problem, strat, genUnbalancedSol(g, 3));
+            parallel.setNumThreads(4);
+            Collection<Route<WindyVertex, WindyEdge>> serialAns = serial.improveSolution();
+            assertSameSolution(serialAns, parallel.improveSolution());
+            assertTrue(problem.getObjectiveFunction().evaluate(serialAns) <= problem.getObjectiveFunction().evaluate(genUnbalancedSol(g, 3)));
+        }
+    }
+
+    @Test
+    public void nestedPricingPoolTest() throws Exception {
+        //pricing on a pool whose only thread is the caller itself has to fall back on the caller, not deadlock
+        WindyGraph g = genGrid(8);
+        final MinMaxKWRPP problem = new MinMaxKWRPP(g, 3);
+        Change1to0 serial = new Change1to0(problem, ImprovementStrategy.Type.SteepestDescent, genUnbalancedSol(g, 3));
+        serial.setNumThreads(1);
+        final ExecutorService pool = Executors.newFixedThreadPool(1);
+        try {
+            final Change1to0 nested = new Change1to0(problem, ImprovementStrategy.Type.SteepestDescent, genUnbalancedSol(g, 3));
+            nested.setNumThreads(4);
+            nested.setExecutor(pool);
+            Future<Collection<Route<WindyVertex, WindyEdge>>> ans = pool.submit(new Callable<Collection<Route<WindyVertex, WindyEdge>>>() {
+                @Override
+                public Collection<Route<WindyVertex, WindyEdge>> call() {
+                    return nested.improveSolution();
+                }
+            });
+            assertSameSolution(serial.improveSolution(), ans.get(60, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void granularNeighborhoodTest(){
+        WindyGraph g = genGrid(8);
+        MinMaxKWRPP problem = new MinMaxKWRPP(g, 3);
+        double initialObj = problem.getObjectiveFunction().evaluate(genUnbalancedSol(g, 3));
+
+        //every link in the grid touches another, so its nearest neighbors are right next to it
+        NeighborLists neighbors = NeighborLists.forGraph(g);
+        assertEquals(Math.min(NeighborLists.MAX_NEIGHBORS, g.getEdges().size() - 1), neighbors.getMaxNeighbors());
+        assertTrue(neighbors == NeighborLists.forGraph(g));
+        int first = neighbors.getSuccessors(1)[0];
+        WindyEdge e1 = g.getEdge(1);
+        WindyEdge e2 = g.getEdge(first);
+        TIntHashSet ends = new TIntHashSet();
+        ends.add(e1.getEndpoints().getFirst().getId());
+        ends.add(e1.getEndpoints().getSecond().getId());
+        assertTrue(ends.contains(e2.getEndpoints().getFirst().getId()) || ends.contains(e2.getEndpoints().getSecond().getId()));
+
+        //force the granular scan on this small instance; it should still only ever help
+        ArrayList<InterRouteImprovementProcedure<WindyVertex, WindyEdge, WindyGraph>> ips = new ArrayList<InterRouteImprovementProcedure<WindyVertex, WindyEdge, WindyGraph>>();
+        ips.add(new Change1to0(problem, ImprovementStrategy.Type.SteepestDescent, genUnbalancedSol(g, 3)));
+        ips.add(new Change1to1(problem, ImprovementStrategy.Type.SteepestDescent, genUnbalancedSol(g, 3)));
+        ips.add(new Change2to0(problem, ImprovementStrategy.Type.SteepestDescent, genUnbalancedSol(g, 3)));
+        for (InterRouteImprovementProcedure<WindyVertex, WindyEdge, WindyGraph> ip : ips) {
+            ip.setGranularity(2);
+            ip.setGranularThreshold(0);
+            Collection<Route<WindyVertex, WindyEdge>> ans = ip.improveSolution();
+            assertTrue(problem.getObjectiveFunction().evaluate(ans) < initialObj);
 
+            TIntHashSet serviced = new TIntHashSet();
+            int count = 0;
+            for (Route<WindyVertex, WindyEdge> r : ans) {
+                serviced.addAll(r.getCompactRepresentation().toNativeArray());
+                count += r.getCompactRepresentation().size();
+            }
+            assertEquals(g.getEdges().size(), count);
+            assertEquals(g.getEdges().size(), serviced.size());
+        }
+    }
+
+    @Test
+    public void moveCacheTest(){
+        //skipping what earlier passes ruled out must not change where the search goes
+        WindyGraph g = genGrid(6);
+        MinMaxKWRPP problem = new MinMaxKWRPP(g, 3);
+        Collection<Route<WindyVertex, WindyEdge>> cached = genUnbalancedSol(g, 3);
+        Collection<Route<WindyVertex, WindyEdge>> uncached = genUnbalancedSol(g, 3);
+        for (int i = 0; i < 12; i++) {
+            ArrayList<InterRouteImprovementProcedure<WindyVertex, WindyEdge, WindyGraph>> ips = new ArrayList<InterRouteImprovementProcedure<WindyVertex, WindyEdge, WindyGraph>>();
+            switch (i % 3) {
+                case 0:
+                    ips.add(new Change1to0(problem, ImprovementStrategy.Type.FirstImprovement, cached));
+                    ips.add(new Change1to0(problem, ImprovementStrategy.Type.FirstImprovement, uncached));
+                    break;
+                case 1:
+                    ips.add(new Change2to0(problem, ImprovementStrategy.Type.SteepestDescent, cached));
+                    ips.add(new Change2to0(problem, ImprovementStrategy.Type.SteepestDescent, uncached));
+                    break;
+                default:
+                    ips.add(new Change1to1(problem, ImprovementStrategy.Type.FirstImprovement, cached));
+                    ips.add(new Change1to1(problem, ImprovementStrategy.Type.FirstImprovement, uncached));
+            }
+            ips.get(1).setUseMoveCache(false);
+            cached = ips.get(0).improveSolution();
+            uncached = ips.get(1).improveSolution();
+            assertSameSolution(cached, uncached);
+        }
+
+        //copies share the original's id, but facts about it must not carry over to a copy that has since been edited
+        MoveCache cache = MoveCache.forGraph(g);
+        Route<WindyVertex, WindyEdge> r = cached.iterator().next();
+        cache.putRowMin("moveCacheTest", r, 42L, 7);
+        Route<WindyVertex, WindyEdge> copy = r.getDeepCopy();
+        assertEquals(Integer.valueOf(7), cache.getRowMin("moveCacheTest", copy, 42L));
+        copy.appendEdge(r.getPath().get(r.getPath().size() - 1), false);
+        assertEquals(null, cache.getRowMin("moveCacheTest", copy, 42L));
+        assertEquals(Integer.valueOf(7), cache.getRowMin("moveCacheTest", r, 42L));
+    }
+
+    @Test
+    public void segmentMovesTest(){
+        WindyGraph g = genGrid(5);
+        MinMaxKWRPP problem = new MinMaxKWRPP(g, 3);
+        RouteExpander<WindyGraph> re = new RouteExpander<WindyGraph>(g);
+        SegmentCosts<WindyVertex, WindyEdge, WindyGraph> costs = new SegmentCosts<WindyVertex, WindyEdge, WindyGraph>(g);
+
+        //the constant time prices must agree with expanding the route
+        Route<WindyVertex, WindyEdge> r = genUnbalancedSol(g, 3).iterator().next();
+        SegmentCosts<WindyVertex, WindyEdge, WindyGraph>.Profile profile = costs.profile(r);
+        int n = profile.size();
+        assertEquals(r.getCost(), profile.total());
+        for (int i = 0; i < n; i += 3) {
+            for (int j = i; j < n && j < i + 3; j++) {
+                TIntArrayList links = new TIntArrayList(r.getCompactRepresentation().toNativeArray());
+                ArrayList<Boolean> dirs = new ArrayList<Boolean>(r.getCompactTraversalDirection());
+                SegmentCosts.applyTwoOpt(links, dirs, i, j);
+                assertEquals(r.getCost() + profile.twoOptDelta(i, j), re.unflattenRoute(links, dirs).getCost());
+                for (int p = 0; p <= n; p += 4) {
+                    if (p >= i && p <= j + 1)
+                        continue;
+                    links = new TIntArrayList(r.getCompactRepresentation().toNativeArray());
+                    dirs = new ArrayList<Boolean>(r.getCompactTraversalDirection());
+                    SegmentCosts.applyOrOpt(links, dirs, i, j, p, true);
+                    assertEquals(r.getCost() + profile.orOptDelta(i, j, p, true), re.unflattenRoute(links, dirs).getCost());
+                }
+            }
+        }
+
+        //the intra-route operators only ever shorten a route, and keep its links
+        Route<WindyVertex, WindyEdge> orOpt = new OrOpt(problem, ImprovementStrategy.Type.SteepestDescent, genUnbalancedSol(g, 3)).improveRoute(r);
+        Route<WindyVertex, WindyEdge> twoOpt = new TwoOpt(problem, ImprovementStrategy.Type.SteepestDescent, genUnbalancedSol(g, 3)).improveRoute(r);
+        assertTrue(orOpt.getCost() <= r.getCost());
+        assertTrue(twoOpt.getCost() <= r.getCost());
+        assertEquals(n, orOpt.getCompactRepresentation().size());
+        assertEquals(n, twoOpt.getCompactRepresentation().size());
+
+        //and exchanging tails balances the routes
+        Collection<Route<WindyVertex, WindyEdge>> initial = genUnbalancedSol(g, 3);
+        Collection<Route<WindyVertex, WindyEdge>> ans = new TwoOptStar(problem, ImprovementStrategy.Type.SteepestDescent, initial).improveSolution();
+        assertTrue(problem.getObjectiveFunction().evaluate(ans) < problem.getObjectiveFunction().evaluate(initial));
+        TIntHashSet serviced = new TIntHashSet();
+        int count = 0;
+        for (Route<WindyVertex, WindyEdge> route : ans) {
+            serviced.addAll(route.getCompactRepresentation().toNativeArray());
+            count += route.getCompactRepresentation().size();
+        }
+        assertEquals(g.getEdges().size(), count);
+        assertEquals(g.getEdges().size(), serviced.size());
+    }
+
+    @Test
+    public void directionDPTest(){
+        WindyGraph g = genGrid(5);
+        MinMaxKWRPP problem = new MinMaxKWRPP(g, 3);
+        RouteExpander<WindyGraph> re = new RouteExpander<WindyGraph>(g);
+        SegmentCosts<WindyVertex, WindyEdge, WindyGraph> costs = new SegmentCosts<WindyVertex, WindyEdge, WindyGraph>(g);
+
+        //the first few links of a route, in their original order
+        Route<WindyVertex, WindyEdge> r = genUnbalancedSol(g, 3).iterator().next();
+        int n = 10;
+        TIntArrayList links = new TIntArrayList(r.getCompactRepresentation().toNativeArray(0, n));
+        ArrayList<Boolean> dirs = new ArrayList<Boolean>(r.getCompactTraversalDirection().subList(0, n));
+
+        //brute force over every assignment of directions
+        int bruteForce = Integer.MAX_VALUE;
+        for (int mask = 0; mask < (1 << n); mask++) {
+            ArrayList<Boolean> candidate = new ArrayList<Boolean>();
+            for (int k = 0; k < n; k++)
+                candidate.add((mask & (1 << k)) != 0);
+            bruteForce = Math.min(bruteForce, costs.profile(links, candidate).total());
+        }
+
+        ArrayList<Boolean> optimal = new ArrayList<Boolean>(dirs);
+        assertEquals(bruteForce, costs.optimizeDirections(links, optimal));
+        assertEquals(bruteForce, re.unflattenRoute(links, optimal).getCost());
+
+        //already optimal routes come back as they were, and fixing a prefix can only cost more
+        ArrayList<Boolean> again = new ArrayList<Boolean>(optimal);
+        assertEquals(bruteForce, costs.optimizeDirections(links, again));
+        assertEquals(optimal, again);
+        assertTrue(costs.optimizeDirections(links, new ArrayList<Boolean>(dirs), n / 2) >= bruteForce);
+
+        //Reversal agrees
+        Route<WindyVertex, WindyEdge> original = re.unflattenRoute(links, dirs);
+        assertEquals(bruteForce, new Reversal(problem, genUnbalancedSol(g, 3)).improveRoute(original).getCost());
+
+        //and inter-route moves can have the routes they change re-optimized
+        Change1to0 plain = new Change1to0(problem, ImprovementStrategy.Type.SteepestDescent, genUnbalancedSol(g, 3));
+        Change1to0 optimized = new Change1to0(problem, ImprovementStrategy.Type.SteepestDescent, genUnbalancedSol(g, 3));
+        optimized.setOptimizeDirections(true);
+        assertTrue(problem.getObjectiveFunction().evaluate(optimized.improveSolution()) <= problem.getObjectiveFunction().evaluate(plain.improveSolution()));
     }
 
     @Test
@@ -57,4 +318,232 @@ public class LocalSearchTestSuite {
 
     }
 
+    @Test
+    public void testALNS() {
+
+        try {
+            //a 4x4 grid with the depot in the corner; every edge is required
+            WindyGraph testGraph = genGrid(4);
+
+            //a badly unbalanced start: one route does everything, the others nothing
+            RouteExpander<WindyGraph> re = new RouteExpander<WindyGraph>(testGraph);
+            TIntArrayList flat = new TIntArrayList();
+            ArrayList<Boolean> dir = new ArrayList<Boolean>();
+            for (WindyEdge we : testGraph.getEdges()) {
+                flat.add(we.getId());
+                dir.add(true);
+            }
+            ArrayList<Route<WindyVertex, WindyEdge>> initial = new ArrayList<Route<WindyVertex, WindyEdge>>();
+            initial.add(re.unflattenRoute(flat, dir));
+
+            MinMaxKWRPP testProblem = new MinMaxKWRPP(testGraph, 3);
+            double initialObj = testProblem.getObjectiveFunction().evaluate(initial);
+
+            AdaptiveLargeNeighborhoodSearch alns = new AdaptiveLargeNeighborhoodSearch(testProblem, initial);
+            alns.setMaxIterations(300);
+            alns.setNumThreads(2);
+            Collection<Route<WindyVertex, WindyEdge>> improved = alns.improveSolution();
+
+            //still services every edge exactly once
+            TIntHashSet serviced = new TIntHashSet();
+            int count = 0;
+            for (Route<WindyVertex, WindyEdge> r : improved) {
+                serviced.addAll(r.getCompactRepresentation().toNativeArray());
+                count += r.getCompactRepresentation().size();
+            }
+            assertEquals(testGraph.getEdges().size(), count);
+            assertEquals(testGraph.getEdges().size(), serviced.size());
+            assertTrue(improved.size() <= 3);
+
+            //and spreading the work around must help
+            assertTrue(testProblem.getObjectiveFunction().evaluate(improved) < initialObj);
+
+            //same seed, same answer
+            AdaptiveLargeNeighborhoodSearch again = new AdaptiveLargeNeighborhoodSearch(testProblem, initial);
+            again.setMaxIterations(300);
+            again.setNumThreads(2);
+            assertEquals(testProblem.getObjectiveFunction().evaluate(improved), testProblem.getObjectiveFunction().evaluate(again.improveSolution()), 1e-9);
+
+            //a solve's context decides the randomness, and so the answer
+            ArrayList<Double> withContext = new ArrayList<Double>();
+            for (int i = 0; i < 2; i++) {
+                AdaptiveLargeNeighborhoodSearch seeded = new AdaptiveLargeNeighborhoodSearch(testProblem, initial);
+                seeded.setMaxIterations(300);
+                seeded.setContext(new SolveContext("alns", 7));
+                withContext.add(testProblem.getObjectiveFunction().evaluate(seeded.improveSolution()));
+            }
+            assertEquals(withContext.get(0), withContext.get(1), 1e-9);
+
+            //a caller's pool is used instead of a private one, and a pool too small for every search can't stall it
+            ExecutorService shared = Executors.newSingleThreadExecutor();
+            try {
+                AdaptiveLargeNeighborhoodSearch pooled = new AdaptiveLargeNeighborhoodSearch(testProblem, initial);
+                pooled.setMaxIterations(300);
+                pooled.setNumThreads(2);
+                pooled.setExecutor(shared);
+                assertEquals(testProblem.getObjectiveFunction().evaluate(improved), testProblem.getObjectiveFunction().evaluate(pooled.improveSolution()), 1e-9);
+            } finally {
+                shared.shutdown();
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertEquals("Error.", true, false);
+        }
+    }
+
+    @Test
+    public void testParallelILS() {
+        WindyGraph g = genGrid(5);
+        MinMaxKWRPP problem = new MinMaxKWRPP(g, 3);
+        double initialObj = problem.getObjectiveFunction().evaluate(genUnbalancedSol(g, 3));
+
+        //in lock step, the answer doesn't depend on how many threads run the trajectories
+        ArrayList<Double> objs = new ArrayList<Double>();
+        for (int threads = 1; threads <= 3; threads += 2) {
+            ParallelBenaventIPFramework ils = new ParallelBenaventIPFramework(problem, null, genUnbalancedSol(g, 3));
+            ils.setNumTrajectories(3);
+            ils.setNumThreads(threads);
+            ils.setNumIterations(2);
+            ils.setSyncInterval(1);
+            ils.setDeterministic(true);
+            Collection<Route<WindyVertex, WindyEdge>> ans = ils.improveSolution();
+            objs.add(problem.getObjectiveFunction().evaluate(ans));
+
+            TIntHashSet serviced = new TIntHashSet();
+            for (Route<WindyVertex, WindyEdge> r : ans)
+                serviced.addAll(r.getCompactRepresentation().toNativeArray());
+            assertEquals(g.getEdges().size(), serviced.size());
+        }
+        assertEquals(objs.get(0), objs.get(1), 1e-9);
+        assertTrue(objs.get(0) < initialObj);
+
+        //and sharing as you go never does worse than the start
+        ParallelBenaventIPFramework ils = new ParallelBenaventIPFramework(problem, null, genUnbalancedSol(g, 3));
+        ils.setNumTrajectories(2);
+        ils.setNumIterations(2);
+        assertTrue(problem.getObjectiveFunction().evaluate(ils.improveSolution()) < initialObj);
+    }
+
+    @Test
+    public void testSimulatedAnnealing() {
+        WindyGraph g = genGrid(5);
+        MinMaxKWRPP problem = new MinMaxKWRPP(g, 3);
+        double initialObj = problem.getObjectiveFunction().evaluate(genUnbalancedSol(g, 3));
+
+        ArrayList<Double> objs = new ArrayList<Double>();
+        for (AdaptiveLargeNeighborhoodSearch.AcceptanceCriterion acceptance : new AdaptiveLargeNeighborhoodSearch.AcceptanceCriterion[]{
+                AdaptiveLargeNeighborhoodSearch.AcceptanceCriterion.SIMULATED_ANNEALING,
+                AdaptiveLargeNeighborhoodSearch.AcceptanceCriterion.SIMULATED_ANNEALING,
+                AdaptiveLargeNeighborhoodSearch.AcceptanceCriterion.RECORD_TO_RECORD}) {
+            SimulatedAnnealingRTR sa = new SimulatedAnnealingRTR(problem, genUnbalancedSol(g, 3));
+            sa.setAcceptanceCriterion(acceptance);
+            sa.setMaxIterations(20000);
+            sa.setReheating(2000, .5);
+            sa.setIntensifyEvery(10000);
+            Collection<Route<WindyVertex, WindyEdge>> ans = sa.improveSolution();
+            objs.add(problem.getObjectiveFunction().evaluate(ans));
+            assertTrue(objs.get(objs.size() - 1) < initialObj);
+
+            //everything is still serviced exactly once
+            TIntArrayList serviced = new TIntArrayList();
+            for (Route<WindyVertex, WindyEdge> r : ans)
+                serviced.add(r.getCompactRepresentation().toNativeArray());
+            TIntHashSet distinct = new TIntHashSet(serviced.toNativeArray());
+            assertEquals(g.getEdges().size(), serviced.size());
+            assertEquals(g.getEdges().size(), distinct.size());
+        }
+
+        //the same seed gives the same answer
+        assertEquals(objs.get(0), objs.get(1), 1e-9);
+    }
+
+    @Test
+    public void testTabuSearch() {
+        WindyGraph g = genGrid(5);
+        MinMaxKWRPP problem = new MinMaxKWRPP(g, 3);
+        Collection<Route<WindyVertex, WindyEdge>> initialSol = genUnbalancedSol(g, 3);
+        double initialObj = problem.getObjectiveFunction().evaluate(initialSol);
+        String initialRoutes = initialSol.toString();
+
+        TabuSearch ts = new TabuSearch(problem, initialSol);
+        ts.setMaxIterations(200);
+        ts.setMaxNonImprovingIterations(50);
+        Collection<Route<WindyVertex, WindyEdge>> ans = ts.improveSolution();
+        assertTrue(problem.getObjectiveFunction().evaluate(ans) < initialObj);
+
+        //the starting solution is left alone
+        assertEquals(initialRoutes, initialSol.toString());
+
+        //everything is still serviced exactly once
+        TIntArrayList serviced = new TIntArrayList();
+        for (Route<WindyVertex, WindyEdge> r : ans)
+            serviced.add(r.getCompactRepresentation().toNativeArray());
+        assertEquals(g.getEdges().size(), serviced.size());
+        assertEquals(g.getEdges().size(), new TIntHashSet(serviced.toNativeArray()).size());
+
+        //and it does at least as well as plain descent with the same moves
+        TabuSearch descent = new TabuSearch(problem, genUnbalancedSol(g, 3));
+        descent.setMaxIterations(200);
+        descent.setMaxNonImprovingIterations(1);
+        assertTrue(problem.getObjectiveFunction().evaluate(ans) <= problem.getObjectiveFunction().evaluate(descent.improveSolution()));
+    }
+
+    /**
+     * @return - an n x n grid with the depot in the corner, where every edge is required and the costs are windy
+     */
+    private WindyGraph genGrid(int n) {
+        try {
+            WindyGraph ans = new WindyGraph(n * n);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    int id = n * i + j + 1;
+                    ans.getVertex(id).setCoordinates(i, j);
+                    if (j < n - 1)
+                        ans.addEdge(id, id + 1, 2 + (i + j) % 3, 3 + (i * j) % 4, true);
+                    if (i < n - 1)
+                        ans.addEdge(id, id + n, 3 + j % 2, 2 + i % 3, true);
+                }
+            }
+            ans.setDepotId(1);
+            return ans;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return - a solution where the first route services half of the edges, and the rest split the other half
+     */
+    private Collection<Route<WindyVertex, WindyEdge>> genUnbalancedSol(WindyGraph g, int numRoutes) {
+        RouteExpander<WindyGraph> re = new RouteExpander<WindyGraph>(g);
+        ArrayList<TIntArrayList> flat = new ArrayList<TIntArrayList>();
+        ArrayList<ArrayList<Boolean>> dirs = new ArrayList<ArrayList<Boolean>>();
+        for (int i = 0; i < numRoutes; i++) {
+            flat.add(new TIntArrayList());
+            dirs.add(new ArrayList<Boolean>());
+        }
+        int m = g.getEdges().size();
+        for (int i = 1; i <= m; i++) {
+            int r = (i <= m / 2) ? 0 : 1 + i % (numRoutes - 1);
+            flat.get(r).add(i);
+            dirs.get(r).add(true);
+        }
+        ArrayList<Route<WindyVertex, WindyEdge>> ans = new ArrayList<Route<WindyVertex, WindyEdge>>();
+        for (int i = 0; i < numRoutes; i++)
+            ans.add(re.unflattenRoute(flat.get(i), dirs.get(i)));
+        return ans;
+    }
+
+    private void assertSameSolution(Collection<Route<WindyVertex, WindyEdge>> expected, Collection<Route<WindyVertex, WindyEdge>> actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<Route<WindyVertex, WindyEdge>> it = actual.iterator();
+        for (Route<WindyVertex, WindyEdge> r : expected) {
+            Route<WindyVertex, WindyEdge> r2 = it.next();
+            assertEquals(r.getCost(), r2.getCost());
+            assertEquals(r.getCompactRepresentation(), r2.getCompactRepresentation());
+        }
+    }
+
 }
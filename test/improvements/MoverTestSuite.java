@@ -13,7 +13,9 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by oliverlum on 12/2/14.
@@ -102,8 +104,23 @@ public class MoverTestSuite {
             CompactMove<WindyVertex, WindyEdge> testMove = new CompactMove<WindyVertex, WindyEdge>(one, two, 1, 1);
             moves.add(testMove);
 
+            Route<WindyVertex, WindyEdge> snapshot = one.getDeepCopy();
+            int[] oneBefore = one.getCompactRepresentation().toNativeArray();
+            int[] twoBefore = two.getCompactRepresentation().toNativeArray();
+            int oneCost = one.getCost();
+            int twoCost = two.getCost();
+
             TIntObjectHashMap<Route<WindyVertex, WindyEdge>> changedRoutes = testMover.makeComplexMove(moves);
 
+            //the routes we handed in, (and any snapshots of them), are left alone
+            assertArrayEquals(oneBefore, one.getCompactRepresentation().toNativeArray());
+            assertArrayEquals(twoBefore, two.getCompactRepresentation().toNativeArray());
+            assertArrayEquals(oneBefore, snapshot.getCompactRepresentation().toNativeArray());
+            assertEquals(oneCost, one.getCost());
+            assertEquals(twoCost, two.getCost());
+            assertEquals(one.getCompactRepresentation().size() - 1, changedRoutes.get(one.getGlobalId()).getCompactRepresentation().size());
+            assertEquals(two.getCompactRepresentation().size() + 1, changedRoutes.get(two.getGlobalId()).getCompactRepresentation().size());
+
             System.out.println("One: " + one.toString());
             System.out.println("Two: " + two.toString());
 
@@ -122,6 +139,53 @@ public class MoverTestSuite {
 
     }
 
+    @Test
+    public void testDirectionChoice() {
+
+        try {
+            WindyGraph testGraph = new WindyGraph(5);
+            testGraph.addEdge(1, 2, 1, 1, true);
+            testGraph.addEdge(2, 3, 10, 1, true); //much cheaper backwards
+            testGraph.addEdge(3, 1, 1, 1, true);
+            testGraph.addEdge(1, 4, 1, 1, true);
+            testGraph.addEdge(4, 5, 1, 1, true);
+            testGraph.addEdge(5, 1, 1, 1, true);
+            testGraph.addEdge(4, 3, 1, 1, false);
+
+            Tour one = new Tour();
+            one.appendEdge(testGraph.getEdge(1));
+            one.appendEdge(testGraph.getEdge(2));
+            one.appendEdge(testGraph.getEdge(3));
+
+            Tour two = new Tour();
+            two.appendEdge(testGraph.getEdge(4));
+            two.appendEdge(testGraph.getEdge(5));
+            two.appendEdge(testGraph.getEdge(6));
+
+            ArrayList<Route<WindyVertex, WindyEdge>> testAns = new ArrayList<Route<WindyVertex, WindyEdge>>();
+            testAns.add(one);
+            testAns.add(two);
+
+            //the very first move of the list should already take the cheaper, reverse, orientation
+            Mover<WindyVertex, WindyEdge, WindyGraph> testMover = new Mover<WindyVertex, WindyEdge, WindyGraph>(testGraph);
+            ArrayList<CompactMove<WindyVertex, WindyEdge>> moves = new ArrayList<CompactMove<WindyVertex, WindyEdge>>();
+            CompactMove<WindyVertex, WindyEdge> testMove = new CompactMove<WindyVertex, WindyEdge>(one, two, 1, 1);
+            moves.add(testMove);
+            testMover.evalComplexMove(moves, testAns);
+
+            int predicted = testMover.getPredictedCost(two.getGlobalId());
+            assertEquals("Expected direction:", false, testMove.isPrudentDirection());
+            assertTrue("Expected the cheap orientation:", predicted < two.getCost() + 10);
+
+            TIntObjectHashMap<Route<WindyVertex, WindyEdge>> changedRoutes = testMover.makeComplexMove(moves);
+            assertEquals("Expected actual cost:", predicted, changedRoutes.get(two.getGlobalId()).getCost());
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertEquals("Error.", true, false);
+        }
+    }
+
     @Test
     public void testCostParity() {
 
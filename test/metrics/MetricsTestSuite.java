@@ -131,6 +131,31 @@ public class MetricsTestSuite {
         assertEquals(mm.evaluate(genTestRoutes()), 6.0,.1);
     }
 
+    @Test
+    public void testIncrementalMax(){
+        Collection<Route> routes = genTestRoutes();
+        IncrementalMaxMetric imm = new IncrementalMaxMetric(routes);
+        assertEquals(imm.evaluate(), new MaxMetric().evaluate(routes), .1);
+        assertEquals(imm.getSum(), 12);
+
+        ArrayList<Integer> ids = new ArrayList<Integer>();
+        for (Route r : routes)
+            ids.add(r.getGlobalId());
+
+        //hypotheticals don't stick
+        assertEquals(imm.evaluateWith(ids.get(0), 2, ids.get(1), 9), 9);
+        assertEquals(imm.evaluateWith(new int[]{ids.get(0), ids.get(0)}, new int[]{10, 3}, 2), 6);
+        assertEquals(imm.getMax(), 6);
+
+        imm.update(ids.get(1), 4);
+        assertEquals(imm.getMax(), 6);
+        assertEquals(imm.getArgMax(), (int) ids.get(0));
+        imm.update(ids.get(0), 1);
+        assertEquals(imm.getMax(), 4);
+        assertEquals(imm.getArgMax(), (int) ids.get(1));
+        assertEquals(imm.getSum(), 5);
+    }
+
     @Test
     public void testMin(){
         MinMetric mm = new MinMetric();
@@ -5,13 +5,26 @@ import oarlib.core.Route;
 import oarlib.graph.impl.WindyGraph;
 import oarlib.graph.util.Utils;
 import oarlib.problem.impl.rpp.WindyRPP;
+import oarlib.graph.util.ShortestPathOracle;
+import oarlib.link.impl.WindyEdge;
+import oarlib.route.impl.Tour;
+import oarlib.route.util.PackedBooleanArrayList;
+import oarlib.route.util.LazyTour;
 import oarlib.route.util.RouteExpander;
 import oarlib.solver.impl.WRPPSolver_Benavent_H1;
+import oarlib.vertex.impl.WindyVertex;
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.Logger;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test suite to test operations over alternate representations of routes, (e.g. the compact
@@ -60,4 +73,82 @@ public class AltRepresentationTests {
         }
 
     }
+
+    @Test
+    public void testLazyExpansion() throws Exception {
+
+        WindyGraph testGraph = new WindyGraph(5);
+        testGraph.addEdge(1, 2, 3, 4, true);
+        testGraph.addEdge(2, 3, 5, 2, false);
+        testGraph.addEdge(3, 4, 1, 7, false);
+        testGraph.addEdge(4, 5, 1, 1, true);
+        testGraph.addEdge(1, 3, 5, 2, true);
+
+        WindyRPP testProb = new WindyRPP(testGraph, "test instance");
+        WRPPSolver_Benavent_H1 testSolver = new WRPPSolver_Benavent_H1(testProb, false);
+        Route testAns = Utils.reclaimTour(testSolver.trySolve().iterator().next(), testGraph);
+
+        //expanding on demand should agree with expanding off of the all pairs matrices
+        RouteExpander onDemand = new RouteExpander(testGraph, new ShortestPathOracle(testGraph));
+        LazyTour lazy = onDemand.expand(testAns.getCompactRepresentation(), testAns.getCompactTraversalDirection());
+        Tour<WindyVertex, WindyEdge> expanded = lazy.toTour();
+        assertEquals(testAns.getCost(), lazy.getCost());
+        assertEquals(testAns.getCost(), expanded.getCost());
+        assertEquals(new RouteExpander(testGraph).unflattenRoute(testAns.getCompactRepresentation(), testAns.getCompactTraversalDirection()).getCost(), expanded.getCost());
+
+        //and streaming the links should give the same tour, servicing what the route services
+        int numLinks = 0;
+        int numServiced = 0;
+        for (LazyTour.Steps it = lazy.iterator(); it.hasNext(); ) {
+            assertEquals(expanded.getPath().get(numLinks).getId(), it.next().getId());
+            if (it.isService()) {
+                assertEquals(testAns.getCompactRepresentation().get(it.getServiceIndex()), expanded.getPath().get(numLinks).getId());
+                numServiced++;
+            }
+            numLinks++;
+        }
+        assertEquals(expanded.getPath().size(), numLinks);
+        assertEquals(lazy.getNumServiced(), numServiced);
+    }
+
+    @Test
+    public void testPackedBooleanArrayList() {
+
+        //random edits, mirrored on a plain ArrayList; long enough to cross several word boundaries
+        Random rng = new Random(1000);
+        PackedBooleanArrayList bits = new PackedBooleanArrayList();
+        ArrayList<Boolean> expected = new ArrayList<Boolean>();
+        for (int op = 0; op < 5000; op++) {
+            int choice = rng.nextInt(10);
+            boolean b = rng.nextBoolean();
+            if (choice < 4 || expected.isEmpty()) {
+                int index = rng.nextInt(expected.size() + 1);
+                bits.add(index, b);
+                expected.add(index, b);
+            } else if (choice < 6) {
+                int index = rng.nextInt(expected.size());
+                assertEquals(expected.remove(index), bits.remove(index));
+            } else if (choice < 8) {
+                int index = rng.nextInt(expected.size());
+                assertEquals(expected.set(index, b), bits.set(index, b));
+            } else {
+                bits.add(b);
+                expected.add(b);
+            }
+            assertEquals(expected.size(), bits.size());
+        }
+        assertEquals(expected, bits);
+        assertEquals(bits, expected);
+        assertEquals(expected.hashCode(), bits.hashCode());
+        assertEquals(expected, new ArrayList<Boolean>(bits));
+        assertEquals(bits, new PackedBooleanArrayList(bits));
+        assertTrue(Arrays.equals(expected.toArray(), bits.toArray()));
+
+        //iterator edits
+        for (Iterator<Boolean> it = bits.iterator(); it.hasNext(); )
+            if (!it.next())
+                it.remove();
+        assertEquals(bits.size(), Collections.frequency(expected, true));
+        assertTrue(!bits.contains(false));
+    }
 }
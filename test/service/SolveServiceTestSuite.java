@@ -0,0 +1,244 @@
+package service;
+
+import oarlib.core.Link;
+import oarlib.core.Route;
+import oarlib.graph.impl.UndirectedGraph;
+import oarlib.problem.impl.cpp.UndirectedCPP;
+import oarlib.problem.impl.io.ProblemFormat;
+import oarlib.problem.impl.io.ProblemWriter;
+import oarlib.service.SolveListener;
+import oarlib.service.SolveRequest;
+import oarlib.service.SolveService;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test suite for the solve service, and the request parsing behind it.
+ */
+public class SolveServiceTestSuite {
+
+    @Test
+    public void testParseRequest() {
+        SolveRequest r = SolveRequest.parse("{\"id\": \"north\\\"3\", \"instance\": \"/data/north.txt\", \"format\": \"Corberan\", \"vehicles\": 3, \"depot\": 5, \"timeLimit\": 60000, \"seed\": null}");
+        assertEquals("north\"3", r.getId());
+        assertEquals("/data/north.txt", r.getInstance());
+        assertEquals(ProblemFormat.Name.Corberan, r.getFormat());
+        assertEquals(3, r.getNumVehicles());
+        assertEquals(5, r.getDepotId());
+        assertEquals(60000, r.getTimeLimit());
+
+        r = SolveRequest.parse("{\"id\":\"a\",\"instance\":\"b\"}");
+        assertEquals(ProblemFormat.Name.OARLib, r.getFormat());
+        assertEquals(1, r.getNumVehicles());
+        assertEquals(0, r.getTimeLimit());
+
+        String[] malformed = {"", "{", "{\"id\":\"a\",}", "{\"instance\":\"b\"}", "{\"id\":\"a\",\"instance\":\"b\",\"vehicles\":0}",
+                "{\"id\":\"a\",\"instance\":\"b\",\"vehicles\":\"many\"}", "{\"id\":\"a\",\"instance\":\"b\"} trailing"};
+        for (String json : malformed) {
+            try {
+                SolveRequest.parse(json);
+                fail("Accepted " + json);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testSolveService() throws Exception {
+
+        //a square with a diagonal pair, so everyone has even degree
+        UndirectedGraph g = new UndirectedGraph(4);
+        g.addEdge(1, 2, 3);
+        g.addEdge(2, 3, 4);
+        g.addEdge(3, 4, 5);
+        g.addEdge(4, 1, 6);
+        g.addEdge(1, 3, 7);
+        g.addEdge(1, 3, 8);
+        File instance = File.createTempFile("oarlib-service", ".txt");
+        instance.deleteOnExit();
+        new ProblemWriter(ProblemFormat.Name.OARLib).writeInstance(new UndirectedCPP(g), instance.getPath());
+
+        //vertices 1 and 3 are odd, so the solver deadheads the diagonal a second time
+        UndirectedGraph odd = new UndirectedGraph(4);
+        odd.addEdge(1, 2, 3);
+        odd.addEdge(2, 3, 4);
+        odd.addEdge(3, 4, 5);
+        odd.addEdge(4, 1, 6);
+        odd.addEdge(1, 3, 6);
+        File oddInstance = File.createTempFile("oarlib-service", ".txt");
+        oddInstance.deleteOnExit();
+        new ProblemWriter(ProblemFormat.Name.OARLib).writeInstance(new UndirectedCPP(odd), oddInstance.getPath());
+
+        final ConcurrentHashMap<String, Double> solved = new ConcurrentHashMap<String, Double>();
+        final ConcurrentHashMap<String, String> failed = new ConcurrentHashMap<String, String>();
+        final ConcurrentHashMap<String, ArrayList<Integer>> linkIds = new ConcurrentHashMap<String, ArrayList<Integer>>();
+        final CountDownLatch done = new CountDownLatch(5);
+        SolveListener listener = new SolveListener() {
+            @Override
+            public void onIncumbent(String requestId, double objValue) {
+            }
+
+            @Override
+            public void onSolved(String requestId, Collection<? extends Route> routes, double objValue) {
+                ArrayList<Integer> ids = new ArrayList<Integer>();
+                for (Route r : routes)
+                    for (Object l : r.getPath())
+                        ids.add(((Link<?>) l).getId());
+                Collections.sort(ids);
+                linkIds.put(requestId, ids);
+                solved.put(requestId, objValue);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailed(String requestId, String reason) {
+                failed.put(requestId, reason);
+                done.countDown();
+            }
+        };
+
+        SolveService service = new SolveService(2);
+
+        //a cancel for a request the service hasn't seen is ignored, rather than held against the next one with that id
+        assertFalse(service.cancel("first"));
+        assertTrue(service.submit(new SolveRequest("first", instance.getPath()), listener));
+        assertTrue(service.submit(new SolveRequest("second", instance.getPath(), ProblemFormat.Name.OARLib, 1, 3, 10000, 1), listener));
+        assertTrue(service.submit(new SolveRequest("third", instance.getPath()), listener));
+        assertTrue(service.submit(new SolveRequest("missing", instance.getPath() + ".missing"), listener));
+        assertTrue(service.submit(new SolveRequest("odd", oddInstance.getPath()), listener));
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        service.shutdown();
+        assertFalse(service.cancel("first"));
+
+        assertEquals(failed.toString(), 4, solved.size());
+        assertEquals(33, solved.get("first"), 1e-6);
+        assertEquals(33, solved.get("second"), 1e-6);
+        assertEquals(33, solved.get("third"), 1e-6);
+        assertEquals(30, solved.get("odd"), 1e-6);
+
+        //routes come back over the instance's own links, (the deadheaded diagonal is the instance's link 5 again)
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), linkIds.get("first"));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 5), linkIds.get("odd"));
+        assertTrue(failed.containsKey("missing"));
+        assertEquals(1, failed.size());
+
+        //the network only had its shortest paths computed once, (unless the first two raced)
+        assertTrue(service.getDistanceCacheHits() >= 1);
+
+        //no more once it's shut down
+        assertFalse(service.submit(new SolveRequest("late", instance.getPath()), listener));
+    }
+
+    @Test
+    public void testMain() throws Exception {
+
+        //odd vertices, so the solve goes through Blossom V
+        UndirectedGraph g = new UndirectedGraph(4);
+        g.addEdge(1, 2, 3);
+        g.addEdge(2, 3, 4);
+        g.addEdge(3, 4, 5);
+        g.addEdge(4, 1, 6);
+        g.addEdge(1, 3, 6);
+        File instance = File.createTempFile("oarlib-service", ".txt");
+        instance.deleteOnExit();
+        new ProblemWriter(ProblemFormat.Name.OARLib).writeInstance(new UndirectedCPP(g), instance.getPath());
+        File events = File.createTempFile("oarlib-events", ".txt");
+        events.deleteOnExit();
+        File stdout = File.createTempFile("oarlib-stdout", ".txt");
+        stdout.deleteOnExit();
+
+        //run the service in a process of its own, with the events on their own stream
+        ProcessBuilder pb = new ProcessBuilder(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(),
+                "-cp", System.getProperty("java.class.path"), "-Djava.library.path=" + System.getProperty("java.library.path"),
+                SolveService.class.getName(), "1", "--events", events.getPath());
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(stdout);
+        Process p = pb.start();
+        PrintWriter in = new PrintWriter(new OutputStreamWriter(p.getOutputStream(), "UTF-8"));
+        in.println("{\"id\":\"odd\",\"instance\":\"" + instance.getPath().replace("\\", "\\\\") + "\"}");
+        in.println("not a request");
+        in.close();
+        assertEquals(0, p.waitFor());
+
+        //every line is a JSON event, whatever the solvers printed
+        ArrayList<String> lines = new ArrayList<String>();
+        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(events), "UTF-8"));
+        String line;
+        while ((line = br.readLine()) != null) {
+            int end = skipJson(line, 0);
+            assertEquals(line, line.length(), end);
+            lines.add(line);
+        }
+        br.close();
+        assertEquals(lines.toString(), 2, lines.size());
+
+        String solved = lines.get(0).contains("\"solved\"") ? lines.get(0) : lines.get(1);
+        assertTrue(solved, solved.startsWith("{\"id\":\"odd\",\"event\":\"solved\",\"objective\":30.0,"));
+        String links = solved.substring(solved.indexOf("\"links\":[") + 9, solved.indexOf(']'));
+        ArrayList<Integer> ids = new ArrayList<Integer>();
+        for (String id : links.split(","))
+            ids.add(Integer.parseInt(id));
+        Collections.sort(ids);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 5), ids);
+    }
+
+    /**
+     * @return - the index just past the JSON value starting at (or after whitespace at) pos; fails if there isn't one
+     */
+    private static int skipJson(String s, int pos) {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos)))
+            pos++;
+        assertTrue(s, pos < s.length());
+        char c = s.charAt(pos);
+        if (c == '{' || c == '[') {
+            char close = (c == '{') ? '}' : ']';
+            pos++;
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos)))
+                pos++;
+            if (pos < s.length() && s.charAt(pos) == close)
+                return pos + 1;
+            while (true) {
+                if (c == '{') {
+                    pos = skipJson(s, pos);
+                    assertEquals(s, '"', s.charAt(pos - 1));
+                    assertEquals(s, ':', s.charAt(pos));
+                    pos++;
+                }
+                pos = skipJson(s, pos);
+                assertTrue(s, pos < s.length());
+                if (s.charAt(pos) == close)
+                    return pos + 1;
+                assertEquals(s, ',', s.charAt(pos));
+                pos++;
+            }
+        }
+        if (c == '"') {
+            for (pos++; s.charAt(pos) != '"'; pos++)
+                if (s.charAt(pos) == '\\')
+                    pos++;
+            return pos + 1;
+        }
+        int start = pos;
+        while (pos < s.length() && "+-.0123456789eEtruefalsn".indexOf(s.charAt(pos)) >= 0)
+            pos++;
+        String literal = s.substring(start, pos);
+        assertTrue(s, literal.equals("true") || literal.equals("false") || literal.equals("null")
+                || literal.matches("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?"));
+        return pos;
+    }
+}